@@ -0,0 +1,309 @@
+package com.segmeno.kodo.apt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.segmeno.kodo.annotation.Column;
+import com.segmeno.kodo.annotation.DbIgnore;
+import com.segmeno.kodo.annotation.MappingRelation;
+import com.segmeno.kodo.annotation.PrimaryKey;
+
+/**
+ * generates an {@link com.segmeno.kodo.database.mapping.EntityMapper} for each entity with a field annotated with
+ * {@link PrimaryKey}, named after the entity with the suffix _KodoMapper, and lists them in
+ * META-INF/services/com.segmeno.kodo.database.mapping.EntityMapper. The mappers access the fields directly, so
+ * entities are skipped (with a note) if they are not public, have no public no-arg constructor or have persisted
+ * fields which are private or not visible from their package.
+ *
+ * The processor is registered in the jar of kodo-apt, so javac runs it for all sources compiled with kodo-apt on the
+ * class path or the annotation processor path. It can be switched off with -proc:none or -Akodo.mappers=false
+ */
+public class EntityMapperProcessor extends AbstractProcessor {
+
+	public static final String SUFFIX = "_KodoMapper";
+	public static final String OPTION = "kodo.mappers";
+
+	private static final String DATABASE_ENTITY = "com.segmeno.kodo.database.DatabaseEntity";
+	private static final String SERVICE_FILE = "META-INF/services/com.segmeno.kodo.database.mapping.EntityMapper";
+
+	private final Set<String> generated = new TreeSet<>();
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton(PrimaryKey.class.getName());
+	}
+
+	@Override
+	public Set<String> getSupportedOptions() {
+		return Collections.singleton(OPTION);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		if ("false".equals(processingEnv.getOptions().get(OPTION))) {
+			return false;
+		}
+		if (roundEnv.processingOver()) {
+			writeServiceFile();
+			return false;
+		}
+		final Set<TypeElement> entities = new LinkedHashSet<>();
+		for (final Element element : roundEnv.getElementsAnnotatedWith(PrimaryKey.class)) {
+			if (element.getKind() == ElementKind.FIELD) {
+				entities.add((TypeElement) element.getEnclosingElement());
+			}
+		}
+		for (final TypeElement entity : entities) {
+			try {
+				generate(entity);
+			} catch (final IOException e) {
+				processingEnv.getMessager().printMessage(Kind.ERROR, "could not write the mapper of " + entity + ": " + e.getMessage(), entity);
+			}
+		}
+		return false;
+	}
+
+	private void generate(final TypeElement entity) throws IOException {
+		final Types types = processingEnv.getTypeUtils();
+		final TypeMirror databaseEntity = types.erasure(processingEnv.getElementUtils().getTypeElement(DATABASE_ENTITY).asType());
+		final String reason = skipReason(entity, types, databaseEntity);
+		if (reason != null) {
+			processingEnv.getMessager().printMessage(Kind.NOTE, "no mapper generated for " + entity + ", it " + reason, entity);
+			return;
+		}
+
+		final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(entity);
+		final List<VariableElement> fields = persistedFields(entity, types, databaseEntity);
+		VariableElement pk = null;
+		for (final VariableElement field : fields) {
+			if (field.getAnnotation(PrimaryKey.class) != null) {
+				pk = field;
+				break;
+			}
+		}
+		final TypeMirror collection = types.erasure(processingEnv.getElementUtils().getTypeElement("java.util.Collection").asType());
+		final TypeMirror list = types.erasure(processingEnv.getElementUtils().getTypeElement("java.util.List").asType());
+		for (final VariableElement field : fields) {
+			if (!isAccessible(field, pkg, types.isAssignable(types.erasure(field.asType()), list))) {
+				processingEnv.getMessager().printMessage(Kind.NOTE,
+						"no mapper generated for " + entity + ", the field " + field.getSimpleName() + " is not accessible", entity);
+				return;
+			}
+		}
+		final String entityName = entity.getQualifiedName().toString();
+		final String mapperName = mapperName(entity);
+		final String qualifiedMapperName = pkg.isUnnamed() ? mapperName : pkg.getQualifiedName() + "." + mapperName;
+
+		final List<String> columns = new ArrayList<>();
+		final List<String> columnsWithoutPk = new ArrayList<>();
+		final StringBuilder toMap = new StringBuilder();
+		final StringBuilder setValue = new StringBuilder();
+		for (final VariableElement field : fields) {
+			final TypeMirror type = types.erasure(field.asType());
+			final String name = field.getSimpleName().toString();
+			final MappingRelation mr = field.getAnnotation(MappingRelation.class);
+			final Column column = field.getAnnotation(Column.class);
+			final boolean toOne = mr != null && mr.mappingTableName().isEmpty();
+			final String colName;
+			if (column != null && !column.columnName().isEmpty()) {
+				colName = column.columnName();
+			} else if (toOne) {
+				colName = mr.masterColumnName();
+			} else {
+				colName = name;
+			}
+
+			if (!types.isAssignable(type, collection)) {
+				columns.add(colName);
+				if (field.getAnnotation(PrimaryKey.class) == null) {
+					columnsWithoutPk.add(colName);
+				}
+			}
+			if (!types.isAssignable(type, list)) {
+				final String key = literal(colName.toLowerCase());
+				if (toOne && (column == null || column.columnName().isEmpty()) && types.isAssignable(type, databaseEntity)) {
+					toMap.append("\t\tmap.put(").append(key).append(", EntityMappers.referencedKey(entity.").append(name).append("));\n");
+				} else {
+					toMap.append("\t\tmap.put(").append(key).append(", entity.").append(name).append(");\n");
+				}
+				setValue.append("\t\tcase ").append(literal(name)).append(":\n");
+				setValue.append("\t\t\tentity.").append(name).append(" = (").append(boxed(type, types)).append(") value;\n");
+				setValue.append("\t\t\treturn true;\n");
+			}
+		}
+
+		final FileObject file = processingEnv.getFiler().createSourceFile(qualifiedMapperName, entity);
+		try (Writer w = file.openWriter()) {
+			if (!pkg.isUnnamed()) {
+				w.write("package " + pkg.getQualifiedName() + ";\n\n");
+			}
+			w.write("import java.util.Arrays;\n");
+			w.write("import java.util.Collections;\n");
+			w.write("import java.util.HashMap;\n");
+			w.write("import java.util.List;\n");
+			w.write("import java.util.Map;\n\n");
+			w.write("import com.segmeno.kodo.database.DataAccessManager;\n");
+			w.write("import com.segmeno.kodo.database.mapping.EntityMapper;\n");
+			w.write("import com.segmeno.kodo.database.mapping.EntityMappers;\n\n");
+			w.write("/**\n * generated by " + getClass().getName() + " from " + entityName + ", do not edit\n */\n");
+			w.write("public final class " + mapperName + " implements EntityMapper<" + entityName + "> {\n\n");
+			w.write("\tprivate static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList(" + literals(columns) + "));\n");
+			w.write("\tprivate static final List<String> COLUMNS_WITHOUT_PK = Collections.unmodifiableList(Arrays.asList(" + literals(columnsWithoutPk)
+					+ "));\n\n");
+			w.write("\t@Override\n\tpublic Class<" + entityName + "> getEntityType() {\n\t\treturn " + entityName + ".class;\n\t}\n\n");
+			w.write("\t@Override\n\tpublic " + entityName + " newInstance() {\n\t\treturn new " + entityName + "();\n\t}\n\n");
+			w.write("\t@Override\n\tpublic Object getPrimaryKeyValue(final " + entityName + " entity) {\n\t\treturn entity." + pk.getSimpleName()
+					+ ";\n\t}\n\n");
+			final TypeMirror pkType = types.erasure(pk.asType());
+			w.write("\t@Override\n\tpublic void setPrimaryKeyValue(final " + entityName + " entity, final Object id) throws Exception {\n");
+			w.write("\t\tentity." + pk.getSimpleName() + " = (" + boxed(pkType, types) + ") DataAccessManager.convertTo(" + pkType + ".class, id);\n");
+			w.write("\t}\n\n");
+			w.write("\t@Override\n\tpublic List<String> getColumnNames(final boolean includePrimaryKeyColumn) {\n");
+			w.write("\t\treturn includePrimaryKeyColumn ? COLUMNS : COLUMNS_WITHOUT_PK;\n\t}\n\n");
+			w.write("\t@Override\n\tpublic Map<String, Object> toMap(final " + entityName + " entity) {\n");
+			w.write("\t\tfinal Map<String, Object> map = new HashMap<>();\n");
+			w.write(toMap.toString());
+			w.write("\t\treturn map;\n\t}\n\n");
+			w.write("\t@Override\n\tpublic boolean setValue(final " + entityName + " entity, final String fieldName, final Object value) {\n");
+			w.write("\t\tswitch (fieldName) {\n");
+			w.write(setValue.toString());
+			w.write("\t\tdefault:\n\t\t\treturn false;\n\t\t}\n\t}\n");
+			w.write("}\n");
+		}
+		generated.add(qualifiedMapperName);
+	}
+
+	/**
+	 *
+	 * @return why no mapper can be generated for the class or null if it can
+	 */
+	private String skipReason(final TypeElement entity, final Types types, final TypeMirror databaseEntity) {
+		if (entity.getKind() != ElementKind.CLASS || !types.isAssignable(types.erasure(entity.asType()), databaseEntity)) {
+			return "is no DatabaseEntity";
+		}
+		if (!entity.getModifiers().contains(Modifier.PUBLIC) || entity.getModifiers().contains(Modifier.ABSTRACT)) {
+			return "is not a public concrete class";
+		}
+		if (entity.getNestingKind() != NestingKind.TOP_LEVEL
+				&& (entity.getNestingKind() != NestingKind.MEMBER || !entity.getModifiers().contains(Modifier.STATIC))) {
+			return "is an inner class";
+		}
+		if (!entity.getTypeParameters().isEmpty()) {
+			return "is generic";
+		}
+		for (final ExecutableElement constructor : ElementFilter.constructorsIn(entity.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+				return null;
+			}
+		}
+		return "has no public no-arg constructor";
+	}
+
+	/**
+	 *
+	 * @return the fields of the class and its super classes in the order DatabaseEntity reads them
+	 */
+	private List<VariableElement> persistedFields(final TypeElement entity, final Types types, final TypeMirror databaseEntity) {
+		final List<VariableElement> fields = new ArrayList<>();
+		TypeElement clazz = entity;
+		while (clazz != null && !types.isSameType(types.erasure(clazz.asType()), databaseEntity)) {
+			for (final VariableElement field : ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
+				if (field.getAnnotation(DbIgnore.class) == null) {
+					fields.add(field);
+				}
+			}
+			final TypeMirror superclass = clazz.getSuperclass();
+			clazz = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+		}
+		return fields;
+	}
+
+	/**
+	 *
+	 * @param readOnly - true for lists, which are read but never set by the mapper
+	 */
+	private boolean isAccessible(final VariableElement field, final PackageElement pkg, final boolean readOnly) {
+		final Set<Modifier> modifiers = field.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || (modifiers.contains(Modifier.FINAL) && !readOnly)) {
+			return false;
+		}
+		return modifiers.contains(Modifier.PUBLIC) || processingEnv.getElementUtils().getPackageOf(field).equals(pkg);
+	}
+
+	private void writeServiceFile() {
+		if (generated.isEmpty()) {
+			return;
+		}
+		try {
+			final FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (Writer w = file.openWriter()) {
+				for (final String mapper : generated) {
+					w.write(mapper + "\n");
+				}
+			}
+		} catch (final IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "could not write " + SERVICE_FILE + ": " + e.getMessage());
+		}
+	}
+
+	private static String mapperName(final TypeElement entity) {
+		final StringBuilder name = new StringBuilder(entity.getSimpleName());
+		Element outer = entity.getEnclosingElement();
+		while (outer.getKind().isClass()) {
+			name.insert(0, outer.getSimpleName() + "_");
+			outer = outer.getEnclosingElement();
+		}
+		return name.append(SUFFIX).toString();
+	}
+
+	private static String boxed(final TypeMirror type, final Types types) {
+		return type.getKind().isPrimitive() ? types.boxedClass((PrimitiveType) type).getQualifiedName().toString() : type.toString();
+	}
+
+	private static String literals(final List<String> values) {
+		final StringBuilder sb = new StringBuilder();
+		for (final String value : values) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(literal(value));
+		}
+		return sb.toString();
+	}
+
+	private static String literal(final String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+}
@@ -0,0 +1,149 @@
+package com.segmeno.kodo.apt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.database.mapping.EntityMapper;
+import com.segmeno.kodo.database.mapping.EntityMappers;
+import com.segmeno.kodo.entity.TestAddress;
+import com.segmeno.kodo.entity.TestType;
+import com.segmeno.kodo.entity.TestUser;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.Operator;
+
+/**
+ * the test entities are compiled with the EntityMapperProcessor, so they are read and written by generated mappers.
+ * The tests of kodo itself run without the processor and cover the reflective path
+ */
+public class EntityMapperProcessorTest {
+
+	@Test
+	public void generatedMapperTest() throws Exception {
+		final EntityMapper<TestUser> mapper = EntityMappers.get(TestUser.class);
+		assertNotNull(mapper);
+		assertEquals(TestUser.class.getName() + EntityMapperProcessor.SUFFIX, mapper.getClass().getName());
+
+		final TestUser user = mapper.newInstance();
+		user.name = "Tom";
+		user.pwHash = "pw123";
+		user.createdAt = new Date(0);
+		user.notExistingInDb = "ignored";
+		mapper.setPrimaryKeyValue(user, 7);
+		assertEquals(Long.valueOf(7), user.getPrimaryKeyValue());
+
+		assertEquals(Arrays.asList("id", "name", "passwordHash", "createdAt", "ClearanceLevelID"), user.getColumnNames(true));
+		assertEquals(Arrays.asList("name", "passwordHash", "createdAt", "ClearanceLevelID"), user.getColumnNames(false));
+		Map<String, Object> map = user.toMap();
+		assertEquals(5, map.size());
+		assertEquals("pw123", map.get("passwordhash"));
+		assertNull(map.get("clearancelevelid"));
+
+		user.clearanceLevel = new TestType();
+		assertThrows(RuntimeException.class, user::toMap);
+		user.clearanceLevel.id = 3;
+		map = user.toMap();
+		assertEquals(3, map.get("clearancelevelid"));
+
+		assertTrue(mapper.setValue(user, "pwHash", "changed"));
+		assertEquals("changed", user.pwHash);
+		assertFalse(mapper.setValue(user, "addresses", null));
+		assertFalse(mapper.setValue(user, "notExistingInDb", "x"));
+	}
+
+	@Test
+	public void dataAccessTest() throws Exception {
+		Class.forName("org.h2.Driver");
+		final JdbcDataSource ds = new JdbcDataSource();
+		ds.setUrl("jdbc:h2:mem:apt;MODE=MYSQL;DB_CLOSE_DELAY=-1");
+		ds.setUser("sa");
+		try (Connection con = ds.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("drop all objects");
+			stmt.execute("create table tbUser (id integer AUTO_INCREMENT PRIMARY KEY, name varchar, passwordHash varchar, clearanceLevelId integer, createdAt timestamp)");
+			stmt.execute("create table tbRole (id integer AUTO_INCREMENT PRIMARY KEY, primaryColorId integer, secondaryColorId integer, name varchar, description varchar, createdAt timestamp)");
+			stmt.execute("create table tbUserRole (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, roleId integer)");
+			stmt.execute("create table tbAddress (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, street varchar, postalCode varchar, createdAt timestamp)");
+			stmt.execute("create table tbType (id integer AUTO_INCREMENT PRIMARY KEY, name varchar)");
+		}
+		final DataAccessManager manager = new DataAccessManager(new JdbcTemplate(ds));
+
+		final TestType level = new TestType();
+		level.name = "secret";
+		manager.addElem(level);
+		final TestUser user = new TestUser();
+		user.name = "Tom";
+		user.pwHash = "pw123";
+		user.clearanceLevel = level;
+		final TestAddress address = new TestAddress();
+		address.street = "Elmstreet";
+		user.addresses.add(address);
+		manager.addElem(user);
+		assertNotNull(user.id);
+
+		final List<TestUser> users = manager.getElems(new Criteria("name", Operator.EQUALS, "Tom"), TestUser.class);
+		assertEquals(1, users.size());
+		assertEquals(user.id, users.get(0).id);
+		assertEquals("pw123", users.get(0).pwHash);
+		assertEquals("secret", users.get(0).clearanceLevel.name);
+		assertEquals(1, users.get(0).addresses.size());
+		assertEquals("Elmstreet", users.get(0).addresses.get(0).street);
+	}
+
+	@Test
+	public void processorTest() throws Exception {
+		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		final Path dir = Files.createTempDirectory("kodo-apt");
+		final Path src = dir.resolve("src/apt");
+		Files.createDirectories(src);
+		Files.write(src.resolve("Outer.java"), ("package apt;\n"
+				+ "public class Outer {\n"
+				+ "	public static class Item extends com.segmeno.kodo.database.DatabaseEntity {\n"
+				+ "		@com.segmeno.kodo.annotation.PrimaryKey public int id;\n"
+				+ "		@com.segmeno.kodo.annotation.Column(columnName = \"label\") public String name;\n"
+				+ "		public String getTableName() { return \"tbItem\"; }\n"
+				+ "	}\n"
+				+ "	public static class Hidden extends com.segmeno.kodo.database.DatabaseEntity {\n"
+				+ "		@com.segmeno.kodo.annotation.PrimaryKey private Integer id;\n"
+				+ "		public String getTableName() { return \"tbHidden\"; }\n"
+				+ "	}\n"
+				+ "}\n").getBytes(StandardCharsets.UTF_8));
+		final Path out = dir.resolve("classes");
+		Files.createDirectories(out);
+
+		final int result = compiler.run(null, null, null, "-proc:only", "-processor", EntityMapperProcessor.class.getName(), "-classpath",
+				System.getProperty("java.class.path"), "-s", out.toString(), "-d", out.toString(), src.resolve("Outer.java").toString());
+		assertEquals(0, result);
+
+		final File generated = out.resolve("apt/Outer_Item" + EntityMapperProcessor.SUFFIX + ".java").toFile();
+		assertTrue(generated.exists());
+		final String source = new String(Files.readAllBytes(generated.toPath()), StandardCharsets.UTF_8);
+		assertTrue(source.contains("entity.id = (java.lang.Integer) DataAccessManager.convertTo(int.class, id);"), source);
+		assertTrue(source.contains("map.put(\"label\", entity.name);"), source);
+		assertFalse(out.resolve("apt/Outer_Hidden" + EntityMapperProcessor.SUFFIX + ".java").toFile().exists());
+		final String services = new String(Files.readAllBytes(out.resolve("META-INF/services/" + EntityMapper.class.getName())),
+				StandardCharsets.UTF_8);
+		assertEquals("apt.Outer_Item" + EntityMapperProcessor.SUFFIX + "\n", services);
+	}
+}
@@ -0,0 +1,146 @@
+package com.segmeno.kodo.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.database.DataAccessManager;
+
+/**
+ * creates an in-memory H2 database with the user / role / address / type schema of the unit tests and fills it
+ * with synthetic data
+ */
+public class BenchmarkData {
+
+	private static final AtomicInteger DB_COUNTER = new AtomicInteger();
+	private static final int TYPES = 16;
+
+	private final JdbcDataSource dataSource;
+	private final Random random = new Random(42);
+
+	/**
+	 * creates a new, empty database with all tables
+	 */
+	public BenchmarkData() throws SQLException {
+		dataSource = new JdbcDataSource();
+		// DB_CLOSE_DELAY keeps the database alive between connections
+		dataSource.setUrl("jdbc:h2:mem:bench" + DB_COUNTER.incrementAndGet() + ";MODE=MYSQL;DB_CLOSE_DELAY=-1");
+		dataSource.setUser("sa");
+
+		try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("create table tbUser (id integer AUTO_INCREMENT PRIMARY KEY, name varchar, passwordHash varchar, clearanceLevelId integer, createdAt timestamp)");
+			stmt.execute("create table tbRole (id integer AUTO_INCREMENT PRIMARY KEY, primaryColorId integer, secondaryColorId integer, name varchar, description varchar, createdAt timestamp)");
+			stmt.execute("create table tbUserRole (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, roleId integer)");
+			stmt.execute("create table tbAddress (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, street varchar, postalCode varchar, createdAt timestamp)");
+			stmt.execute("create table tbType (id integer AUTO_INCREMENT PRIMARY KEY, name varchar)");
+			stmt.execute("create index ixAddressUser on tbAddress (userId)");
+			stmt.execute("create index ixUserRoleUser on tbUserRole (userId)");
+		}
+	}
+
+	public JdbcDataSource getDataSource() {
+		return dataSource;
+	}
+
+	public DataAccessManager createManager() throws SQLException {
+		return new DataAccessManager(new JdbcTemplate(dataSource));
+	}
+
+	/**
+	 * fills the database. Every user references a clearance level type, has the given number of addresses and
+	 * is assigned to the given number of roles
+	 *
+	 * @param users        - the number of users
+	 * @param roles        - the total number of roles
+	 * @param rolesPerUser - the number of roles assigned to each user (at most roles)
+	 * @param addressesPerUser
+	 */
+	public BenchmarkData populate(final int users, final int roles, final int rolesPerUser, final int addressesPerUser) throws SQLException {
+		final Timestamp now = new Timestamp(System.currentTimeMillis());
+		try (Connection con = dataSource.getConnection()) {
+			con.setAutoCommit(false);
+			try (PreparedStatement ps = con.prepareStatement("insert into tbType (name) values (?)")) {
+				for (int i = 0; i < TYPES; i++) {
+					ps.setString(1, "type " + i);
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+			try (PreparedStatement ps = con.prepareStatement(
+					"insert into tbRole (name, primaryColorId, secondaryColorId, description, createdAt) values (?, ?, ?, ?, ?)")) {
+				for (int i = 0; i < roles; i++) {
+					ps.setString(1, "role " + i);
+					ps.setInt(2, 1 + random.nextInt(TYPES));
+					ps.setInt(3, 1 + random.nextInt(TYPES));
+					ps.setString(4, "description of role " + i);
+					ps.setTimestamp(5, now);
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+			try (PreparedStatement ps = con.prepareStatement(
+					"insert into tbUser (name, passwordHash, clearanceLevelId, createdAt) values (?, ?, ?, ?)")) {
+				for (int i = 0; i < users; i++) {
+					ps.setString(1, "user " + i);
+					ps.setString(2, Long.toHexString(random.nextLong()));
+					ps.setInt(3, 1 + random.nextInt(TYPES));
+					ps.setTimestamp(4, now);
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+			try (PreparedStatement ps = con.prepareStatement("insert into tbAddress (userId, street, postalCode, createdAt) values (?, ?, ?, ?)")) {
+				for (int u = 1; u <= users; u++) {
+					for (int a = 0; a < addressesPerUser; a++) {
+						ps.setInt(1, u);
+						ps.setString(2, "street " + random.nextInt(10000));
+						ps.setString(3, String.valueOf(10000 + random.nextInt(90000)));
+						ps.setTimestamp(4, now);
+						ps.addBatch();
+					}
+				}
+				ps.executeBatch();
+			}
+			try (PreparedStatement ps = con.prepareStatement("insert into tbUserRole (userId, roleId) values (?, ?)")) {
+				for (int u = 1; u <= users; u++) {
+					final int first = random.nextInt(roles);
+					for (int r = 0; r < Math.min(rolesPerUser, roles); r++) {
+						ps.setInt(1, u);
+						ps.setInt(2, 1 + (first + r) % roles);
+						ps.addBatch();
+					}
+				}
+				ps.executeBatch();
+			}
+			con.commit();
+		}
+		return this;
+	}
+
+	/**
+	 * removes all rows from all tables
+	 */
+	public void clear() throws SQLException {
+		try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement()) {
+			for (final String table : new String[] { "tbUserRole", "tbAddress", "tbUser", "tbRole", "tbType" }) {
+				stmt.execute("truncate table " + table + " restart identity");
+			}
+		}
+	}
+
+	/**
+	 * drops the in-memory database
+	 */
+	public void shutdown() throws SQLException {
+		try (Connection con = dataSource.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("shutdown");
+		}
+	}
+}
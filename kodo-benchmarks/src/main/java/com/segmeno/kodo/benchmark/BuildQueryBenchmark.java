@@ -0,0 +1,61 @@
+package com.segmeno.kodo.benchmark;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.segmeno.kodo.benchmark.entity.BenchUser;
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.CriteriaGroup;
+import com.segmeno.kodo.transport.Operator;
+
+/**
+ * measures the construction of the joined select statement of an entity graph
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildQueryBenchmark {
+
+	/** 0 selects the user table only, -1 joins the whole graph */
+	@Param({ "0", "1", "-1" })
+	public int fetchDepth;
+
+	private BenchmarkData data;
+	private DataAccessManager manager;
+	private CriteriaGroup filter;
+
+	@Setup
+	public void setup() throws Exception {
+		data = new BenchmarkData();
+		manager = data.createManager();
+		filter = new CriteriaGroup(Operator.AND).add(new Criteria("name", Operator.STARTS_WITH, "user 1"))
+				.add(new Criteria("clearanceLevelId", Operator.LESS_THAN, 8));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		data.shutdown();
+	}
+
+	@Benchmark
+	public String buildQuery() throws Exception {
+		return manager.buildQuery(new BenchUser(), filter, null, new ArrayList<Object>(), fetchDepth);
+	}
+}
@@ -0,0 +1,90 @@
+package com.segmeno.kodo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.benchmark.entity.BenchUser;
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+/**
+ * measures the mapping of joined rows into entity graphs. The rows are fetched once, so {@link #rowsToObjects()}
+ * measures the mapping only, while {@link #getElems()} includes query building and the H2 round trip
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+	@Param({ "100", "1000" })
+	public int users;
+
+	/** number of addresses and roles per user, the joined rows per user grow with fanOut * fanOut */
+	@Param({ "1", "4" })
+	public int fanOut;
+
+	/** 0 maps flat users, -1 maps the whole graph */
+	@Param({ "0", "-1" })
+	public int fetchDepth;
+
+	private BenchmarkData data;
+	private MappingManager manager;
+	private List<Map<String, Object>> rows;
+
+	@Setup
+	public void setup() throws Exception {
+		data = new BenchmarkData().populate(users, 32, fanOut, fanOut);
+		manager = new MappingManager(new JdbcTemplate(data.getDataSource()));
+		final ArrayList<Object> params = new ArrayList<>();
+		final String query = manager.buildQuery(new BenchUser(), null, null, params, fetchDepth);
+		rows = manager.getJdbcTemplate().queryForList(query, params.toArray());
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		data.shutdown();
+	}
+
+	@Benchmark
+	public List<BenchUser> rowsToObjects() throws Exception {
+		return manager.map(new BenchUser(), rows);
+	}
+
+	@Benchmark
+	public List<BenchUser> getElems() throws Exception {
+		return manager.getElems(null, BenchUser.class, null, fetchDepth);
+	}
+
+	/**
+	 * exposes the row mapping of the DataAccessManager
+	 */
+	static class MappingManager extends DataAccessManager {
+
+		MappingManager(final JdbcTemplate jdbcTemplate) throws Exception {
+			super(jdbcTemplate);
+		}
+
+		<T> List<T> map(final DatabaseEntity template, final List<Map<String, Object>> rows) throws Exception {
+			return this.rowsToObjects(template, rows);
+		}
+	}
+}
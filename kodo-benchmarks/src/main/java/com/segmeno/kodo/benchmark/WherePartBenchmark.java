@@ -0,0 +1,92 @@
+package com.segmeno.kodo.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.segmeno.kodo.database.WherePart;
+import com.segmeno.kodo.database.dialect.H2Dialect;
+import com.segmeno.kodo.database.dialect.SqlDialect;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.CriteriaGroup;
+import com.segmeno.kodo.transport.Operator;
+
+/**
+ * measures the rendering of criteria trees into SQL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WherePartBenchmark {
+
+	private static final Operator[] OPERATORS = { Operator.EQUALS, Operator.ICONTAINS, Operator.GREATER_OR_EQUAL, Operator.STARTS_WITH,
+			Operator.IN_SET, Operator.BETWEEN, Operator.IS_NULL, Operator.IEQUALS };
+
+	/** number of criteria in the tree, every fourth one is nested into an OR group */
+	@Param({ "1", "8", "32" })
+	public int criteriaCount;
+
+	private final SqlDialect dialect = new H2Dialect();
+	private CriteriaGroup filter;
+
+	@Setup
+	public void setup() {
+		filter = new CriteriaGroup(Operator.AND);
+		CriteriaGroup or = null;
+		for (int i = 0; i < criteriaCount; i++) {
+			final Criteria c = createCriteria("col" + i, OPERATORS[i % OPERATORS.length], i);
+			if (i % 4 == 3) {
+				if (or == null) {
+					or = new CriteriaGroup(Operator.OR);
+					filter.add(new Criteria(or));
+				}
+				or.add(c);
+			} else {
+				filter.add(c);
+			}
+		}
+	}
+
+	private Criteria createCriteria(final String field, final Operator op, final int i) {
+		switch (op) {
+		case IN_SET:
+			final List<Integer> ids = new ArrayList<>();
+			for (int j = 0; j < 5; j++) {
+				ids.add(i * 10 + j);
+			}
+			return new Criteria(field, op, ids);
+		case BETWEEN:
+			final List<Date> dates = new ArrayList<>();
+			dates.add(new Date(0));
+			dates.add(new Date());
+			return new Criteria(field, op, dates);
+		case IS_NULL:
+			return new Criteria(field, op);
+		case GREATER_OR_EQUAL:
+			return new Criteria(field, op, i);
+		default:
+			return new Criteria(field, op, "value" + i);
+		}
+	}
+
+	@Benchmark
+	public WherePart render() throws Exception {
+		return new WherePart(dialect, "tbUser", filter);
+	}
+}
@@ -0,0 +1,130 @@
+package com.segmeno.kodo.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.segmeno.kodo.benchmark.entity.BenchAddress;
+import com.segmeno.kodo.benchmark.entity.BenchRole;
+import com.segmeno.kodo.benchmark.entity.BenchType;
+import com.segmeno.kodo.benchmark.entity.BenchUser;
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.transport.Criteria;
+
+/**
+ * measures the write paths: inserting and updating user graphs and cascaded deletes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Graph {
+
+		/** number of addresses and roles of each written user */
+		@Param({ "1", "4" })
+		public int fanOut;
+
+		BenchmarkData data;
+		DataAccessManager manager;
+		BenchUser existing;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			data = new BenchmarkData().populate(100, 32, 1, 1);
+			manager = data.createManager();
+			existing = manager.addElem(createUser(fanOut));
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			data.shutdown();
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Cascade {
+
+		/** number of users to delete, each one with two addresses and two roles */
+		@Param({ "10", "100", "1000" })
+		public int rowCount;
+
+		BenchmarkData data;
+		DataAccessManager manager;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			data = new BenchmarkData();
+			manager = data.createManager();
+		}
+
+		@Setup(Level.Invocation)
+		public void populate() throws Exception {
+			data.clear();
+			data.populate(rowCount, 32, 2, 2);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			data.shutdown();
+		}
+	}
+
+	@Benchmark
+	public BenchUser addElem(final Graph graph) throws Exception {
+		return graph.manager.addElem(createUser(graph.fanOut));
+	}
+
+	@Benchmark
+	public BenchUser updateElem(final Graph graph) throws Exception {
+		graph.existing.pwHash = Long.toHexString(System.nanoTime());
+		graph.manager.updateElem(graph.existing);
+		return graph.existing;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Measurement(iterations = 10)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void deleteElems(final Cascade cascade) throws Exception {
+		cascade.manager.deleteElems((Criteria) null, BenchUser.class);
+	}
+
+	static BenchUser createUser(final int fanOut) {
+		final BenchType clearance = new BenchType();
+		clearance.id = 1;
+
+		final BenchUser user = new BenchUser();
+		user.name = "bench user";
+		user.pwHash = "secret";
+		user.createdAt = new Date();
+		user.clearanceLevel = clearance;
+		for (int i = 0; i < fanOut; i++) {
+			final BenchAddress address = new BenchAddress();
+			address.street = "street " + i;
+			address.postalCode = "3411" + i;
+			user.addresses.add(address);
+
+			final BenchRole role = new BenchRole();
+			role.id = i + 1;
+			user.roles.add(role);
+		}
+		return user;
+	}
+}
@@ -0,0 +1,30 @@
+package com.segmeno.kodo.benchmark.entity;
+
+import java.util.Date;
+
+import com.segmeno.kodo.annotation.MappingRelation;
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class BenchRole extends DatabaseEntity {
+
+	@PrimaryKey
+	public Integer id;
+
+	public String name;
+
+	public String description;
+
+	public Date createdAt;
+
+	@MappingRelation(masterColumnName="primaryColorId", joinedColumnName="id")
+	public BenchType primaryColor;
+
+	@MappingRelation(masterColumnName="secondaryColorId", joinedColumnName="id")
+	public BenchType secondaryColor;
+
+	@Override
+	public String getTableName() {
+		return "tbRole";
+	}
+}
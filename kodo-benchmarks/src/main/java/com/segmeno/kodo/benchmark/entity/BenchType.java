@@ -0,0 +1,17 @@
+package com.segmeno.kodo.benchmark.entity;
+
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class BenchType extends DatabaseEntity {
+
+	@PrimaryKey
+	public Integer id;
+
+	public String name;
+
+	@Override
+	public String getTableName() {
+		return "tbType";
+	}
+}
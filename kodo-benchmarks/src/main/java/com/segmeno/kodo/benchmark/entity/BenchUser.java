@@ -0,0 +1,37 @@
+package com.segmeno.kodo.benchmark.entity;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.segmeno.kodo.annotation.Column;
+import com.segmeno.kodo.annotation.MappingRelation;
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class BenchUser extends DatabaseEntity {
+
+	@PrimaryKey
+	public Long id;
+
+	public String name;
+
+	@Column(columnName="passwordHash")
+	public String pwHash;
+
+	public Date createdAt;
+
+	@MappingRelation(masterColumnName="ID", joinedColumnName="UserID")
+	public List<BenchAddress> addresses = new ArrayList<BenchAddress>();
+
+	@MappingRelation(mappingTableName="tbUserRole", masterColumnName="UserID", joinedColumnName="RoleID")
+	public List<BenchRole> roles = new ArrayList<BenchRole>();
+
+	@MappingRelation(masterColumnName="ClearanceLevelID", joinedColumnName="ID")
+	public BenchType clearanceLevel;
+
+	@Override
+	public String getTableName() {
+		return "tbUser";
+	}
+}
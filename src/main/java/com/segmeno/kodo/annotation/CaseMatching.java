@@ -0,0 +1,26 @@
+package com.segmeno.kodo.annotation;
+
+/**
+ * how the case insensitive operators (IEQUALS, ICONTAINS, ISTARTS_WITH, ...) compare a column, see
+ * {@link Column#caseMatching()}
+ */
+public enum CaseMatching {
+
+	/**
+	 * as the dialect renders it: ILIKE on PostgreSQL and LOWER(column) LIKE LOWER(?) on all other databases, so
+	 * a column with a case sensitive collation (i.e. _bin or _cs on MySQL and SQL Server) is matched as well
+	 */
+	DIALECT,
+
+	/**
+	 * the column compares case insensitively by itself (i.e. a _ci collation or the citext type). The column is
+	 * compared with = or LIKE and the lower cased value, so an ordinary index on the column is used
+	 */
+	COLUMN,
+
+	/**
+	 * there is an index on LOWER(column). LOWER(column) is compared with = or LIKE and the lower cased value, so
+	 * the index is used
+	 */
+	LOWER_INDEX
+}
@@ -14,5 +14,10 @@ public @interface Column {
 	 * @return
 	 */
 	String columnName() default "";
+
+	/**
+	 * how the case insensitive operators compare the column
+	 */
+	CaseMatching caseMatching() default CaseMatching.DIALECT;
 	
 }
@@ -0,0 +1,34 @@
+package com.segmeno.kodo.annotation;
+
+/**
+ * how the value of a {@link PrimaryKey} is generated when an element is added
+ */
+public enum KeyGeneration {
+
+	/**
+	 * the database generates the key (auto increment or identity column) and returns it after each insert
+	 */
+	IDENTITY,
+
+	/**
+	 * hi/lo: a block of keys is reserved with one call of the sequence named by the generator. The keys of a block
+	 * are the sequence value times the allocation size plus 0 to allocation size - 1
+	 */
+	SEQUENCE_HILO,
+
+	/**
+	 * like SEQUENCE_HILO, but the hi value is kept in the row named by the generator of the table kodo_keys
+	 * (name varchar primary key, next_hi bigint), for databases without sequences
+	 */
+	TABLE_HILO,
+
+	/**
+	 * a time ordered UUID (version 7) for String or UUID keys
+	 */
+	UUID_V7,
+
+	/**
+	 * the IdGenerator registered with the DataAccessManager under the name of the generator
+	 */
+	CUSTOM
+}
@@ -18,4 +18,21 @@ public @interface PrimaryKey
      * and should be omitted.
      */
     boolean value() default true;
+
+    /**
+     * how the key is generated when an element is added. All strategies except IDENTITY assign the key before the
+     * insert, so no generated keys have to be read back and elements can be inserted in batches
+     */
+    KeyGeneration generation() default KeyGeneration.IDENTITY;
+
+    /**
+     * the sequence for SEQUENCE_HILO, the row of the key table for TABLE_HILO (defaults to the table name of the
+     * entity) or the name of the registered generator for CUSTOM
+     */
+    String generator() default "";
+
+    /**
+     * the number of keys reserved at once by SEQUENCE_HILO and TABLE_HILO
+     */
+    int allocationSize() default 50;
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.segmeno.kodo.database;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * one group of an aggregation. The values are read by the name of the group by field or by the alias of the
+ * {@link Aggregation}. The rows of one aggregation share the name index, so a row only holds its values
+ */
+public final class AggregateRow {
+
+	private final Map<String, Integer> index;
+	private final Object[] values;
+
+	AggregateRow(final Map<String, Integer> index, final Object[] values) {
+		this.index = index;
+		this.values = values;
+	}
+
+	/**
+	 *
+	 * @param name - the group by field or the alias of the aggregation
+	 * @return the value as returned by the driver
+	 */
+	public Object get(final String name) {
+		final Integer i = index.get(name);
+		if (i == null) {
+			throw new IllegalArgumentException("unknown name " + name + ", expected one of " + index.keySet());
+		}
+		return values[i];
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @param type
+	 * @return the value converted into the given type, see {@link DataAccessManager#convertTo(Class, Object)}
+	 * @throws Exception
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V get(final String name, final Class<V> type) throws Exception {
+		return (V) DataAccessManager.convertTo(type, get(name));
+	}
+
+	public Long getLong(final String name) {
+		final Number value = (Number) get(name);
+		return value == null ? null : value.longValue();
+	}
+
+	public Double getDouble(final String name) {
+		final Number value = (Number) get(name);
+		return value == null ? null : value.doubleValue();
+	}
+
+	public BigDecimal getBigDecimal(final String name) {
+		final Object value = get(name);
+		if (value == null || value instanceof BigDecimal) {
+			return (BigDecimal) value;
+		}
+		return new BigDecimal(value.toString());
+	}
+
+	@Override
+	public String toString() {
+		return index.keySet() + "=" + Arrays.toString(values);
+	}
+}
@@ -0,0 +1,122 @@
+package com.segmeno.kodo.database;
+
+/**
+ * an aggregate function computed by the database, see
+ * {@link DataAccessManager#aggregate(Class, com.segmeno.kodo.transport.CriteriaGroup, java.util.List, Aggregation...)}.
+ * The field is the name of a field or column of the entity. The value is available in the {@link AggregateRow}
+ * under the alias, which defaults to the function and the field, i.e. "sum_amount" or "count"
+ */
+public final class Aggregation {
+
+	public enum Function {
+		COUNT,
+		COUNT_DISTINCT,
+		SUM,
+		AVG,
+		MIN,
+		MAX
+	}
+
+	private final Function function;
+	private final String field;
+	private final String alias;
+
+	private Aggregation(final Function function, final String field, final String alias) {
+		this.function = function;
+		this.field = field;
+		this.alias = alias;
+	}
+
+	private static Aggregation of(final Function function, final String field) {
+		if (field == null || field.isEmpty()) {
+			throw new IllegalArgumentException(function + " requires a field");
+		}
+		return new Aggregation(function, field, function.name().toLowerCase() + "_" + field);
+	}
+
+	/**
+	 *
+	 * @return COUNT(*) under the alias "count"
+	 */
+	public static Aggregation count() {
+		return new Aggregation(Function.COUNT, null, "count");
+	}
+
+	/**
+	 *
+	 * @param field
+	 * @return the number of values of the field which are not null
+	 */
+	public static Aggregation count(final String field) {
+		return of(Function.COUNT, field);
+	}
+
+	public static Aggregation countDistinct(final String field) {
+		return of(Function.COUNT_DISTINCT, field);
+	}
+
+	public static Aggregation sum(final String field) {
+		return of(Function.SUM, field);
+	}
+
+	public static Aggregation avg(final String field) {
+		return of(Function.AVG, field);
+	}
+
+	public static Aggregation min(final String field) {
+		return of(Function.MIN, field);
+	}
+
+	public static Aggregation max(final String field) {
+		return of(Function.MAX, field);
+	}
+
+	/**
+	 *
+	 * @param alias - the name to read the value from the AggregateRow
+	 * @return a copy with the alias
+	 */
+	public Aggregation as(final String alias) {
+		if (alias == null || alias.isEmpty()) {
+			throw new IllegalArgumentException("the alias must not be empty");
+		}
+		return new Aggregation(function, field, alias);
+	}
+
+	public Function getFunction() {
+		return function;
+	}
+
+	/**
+	 *
+	 * @return the field or null for COUNT(*)
+	 */
+	public String getField() {
+		return field;
+	}
+
+	public String getAlias() {
+		return alias;
+	}
+
+	/**
+	 *
+	 * @param column - the qualified column or null for COUNT(*)
+	 * @return the SQL expression
+	 */
+	String toSql(final String column) {
+		switch (function) {
+		case COUNT:
+			return column == null ? "COUNT(*)" : "COUNT(" + column + ")";
+		case COUNT_DISTINCT:
+			return "COUNT(DISTINCT " + column + ")";
+		default:
+			return function.name() + "(" + column + ")";
+		}
+	}
+
+	@Override
+	public String toString() {
+		return toSql(field) + " AS " + alias;
+	}
+}
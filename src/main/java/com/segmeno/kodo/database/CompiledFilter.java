@@ -0,0 +1,306 @@
+package com.segmeno.kodo.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.segmeno.kodo.database.dialect.SqlDialect;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.CriteriaGroup;
+import com.segmeno.kodo.transport.Operator;
+
+/**
+ * a CriteriaGroup rendered into SQL once, with named slots for the values of its criterias. The slot of a
+ * criteria is named after its field name, further criterias on the same field get the suffix #2, #3 and so on.
+ * Binding a value returns a copy of the filter, so a compiled filter can be shared between threads:
+ *
+ * <pre>
+ * final CompiledFilter byName = manager.compileFilter(new CriteriaGroup(Operator.AND, new Criteria("name", Operator.EQUALS, "")), TestUser.class);
+ * final List&lt;TestUser&gt; users = manager.getElems(byName.bind("name", "Tom"));
+ * </pre>
+ *
+ * Values of comparison operators are bound as they are. For all other operators (i.e. LIKE patterns or IN
+ * lists) only the criteria of the slot is rendered again.
+ */
+public class CompiledFilter {
+
+	// operators which bind the criteria value as it is
+	private static final Set<Operator> IDENTITY_OPERATORS = EnumSet.of(Operator.EQUALS, Operator.NOT_EQUAL, Operator.GREATER_THAN,
+			Operator.GREATER_OR_EQUAL, Operator.LESS_THAN, Operator.LESS_OR_EQUAL);
+
+	private static class Slot {
+		private final Criteria criteria;
+		private final int segment;
+		private final boolean identity;
+
+		Slot(final Criteria criteria, final int segment) {
+			this.criteria = criteria;
+			this.segment = segment;
+			this.identity = IDENTITY_OPERATORS.contains(criteria.getOperator());
+		}
+	}
+
+	// a rendered criteria with bind parameters
+	private static class Leaf {
+		private final Criteria criteria;
+		private final String sql;
+		private final Object[] values;
+
+		Leaf(final Criteria criteria, final String sql, final Object[] values) {
+			this.criteria = criteria;
+			this.sql = sql;
+			this.values = values;
+		}
+	}
+
+	private final SqlDialect dialect;
+	private final Class<? extends DatabaseEntity> entityType;
+	private final String tableAlias;
+	// renders the criterias on the columns and relations of the entity type
+	private final DatabaseEntity prototype;
+	private final Slot[] slots;
+	private final Map<String, Integer> slotIndex;
+
+	// the SQL text, the fragment of each slot is a segment of its own
+	private final String[] segments;
+	private final Object[][] values;
+	private volatile String sql;
+	private volatile List<Object> params;
+
+	/**
+	 * compiles the filter
+	 *
+	 * @param dialect    - the dialect of the database
+	 * @param tableAlias - the alias of the table
+	 * @param shape      - the criterias to compile. Their values stay bound until a slot gets a new value
+	 * @throws Exception
+	 */
+	public CompiledFilter(final SqlDialect dialect, final String tableAlias, final CriteriaGroup shape) throws Exception {
+		this(dialect, null, tableAlias, shape);
+	}
+
+	/**
+	 * compiles the filter for an entity type
+	 *
+	 * @param dialect    - the dialect of the database
+	 * @param entityType - the entity type to query with this filter
+	 * @param tableAlias - the alias of the table
+	 * @param shape      - the criterias to compile. Their values stay bound until a slot gets a new value
+	 * @throws Exception
+	 */
+	public CompiledFilter(final SqlDialect dialect, final Class<? extends DatabaseEntity> entityType, final String tableAlias,
+			final CriteriaGroup shape) throws Exception {
+		this.dialect = dialect;
+		this.entityType = entityType;
+		this.tableAlias = tableAlias;
+		this.prototype = entityType == null ? null : DatabaseEntity.newInstance(entityType);
+
+		final List<Object> tokens = new ArrayList<>();
+		if (shape != null) {
+			compileGroup(newRenderer(), tableAlias != null ? tableAlias + "." : "", shape, tokens);
+		}
+
+		final List<String> segs = new ArrayList<>();
+		final List<Object[]> vals = new ArrayList<>();
+		final List<Slot> slotList = new ArrayList<>();
+		final Map<String, Integer> index = new LinkedHashMap<>();
+		final Map<String, Integer> nameCount = new HashMap<>();
+		final StringBuilder text = new StringBuilder(tokens.isEmpty() ? "(1 = 1)" : "(");
+		for (final Object token : tokens) {
+			if (token instanceof String) {
+				text.append((String) token);
+				continue;
+			}
+			final Leaf leaf = (Leaf) token;
+			segs.add(text.toString());
+			text.setLength(0);
+			final int count = nameCount.merge(leaf.criteria.getFieldName(), 1, Integer::sum);
+			final String name = count == 1 ? leaf.criteria.getFieldName() : leaf.criteria.getFieldName() + "#" + count;
+			index.put(name, slotList.size());
+			slotList.add(new Slot(leaf.criteria, segs.size()));
+			segs.add(leaf.sql);
+			vals.add(leaf.values);
+		}
+		if (!tokens.isEmpty()) {
+			text.append(")");
+		}
+		segs.add(text.toString());
+
+		this.slots = slotList.toArray(new Slot[0]);
+		this.slotIndex = Collections.unmodifiableMap(index);
+		this.segments = segs.toArray(new String[0]);
+		this.values = vals.toArray(new Object[0][]);
+	}
+
+	private CompiledFilter(final CompiledFilter toCopy) {
+		this.dialect = toCopy.dialect;
+		this.entityType = toCopy.entityType;
+		this.tableAlias = toCopy.tableAlias;
+		this.prototype = toCopy.prototype;
+		this.slots = toCopy.slots;
+		this.slotIndex = toCopy.slotIndex;
+		this.segments = toCopy.segments.clone();
+		this.values = toCopy.values.clone();
+		this.sql = toCopy.sql;
+	}
+
+	/**
+	 * renders the group the same way as the WherePart does, but keeps the criterias with bind parameters as
+	 * separate tokens
+	 */
+	private static void compileGroup(final WherePart renderer, final String alias, final CriteriaGroup group, final List<Object> tokens)
+			throws Exception {
+		final String operator = " " + group.getOperator().getValue() + " ";
+		boolean empty = true;
+		for (final Criteria crit : group.getCriterias()) {
+			if (crit == null) {
+				continue;
+			}
+			if (crit.getCriteriaGroup() != null) {
+				final List<Object> sub = new ArrayList<>();
+				compileGroup(renderer, alias, crit.getCriteriaGroup(), sub);
+				if (sub.isEmpty()) {
+					continue;
+				}
+				tokens.add("(");
+				tokens.addAll(sub);
+				tokens.add(")");
+			} else {
+				final int from = renderer.params.size();
+				final StringBuilder sb = new StringBuilder();
+				renderer.appendCriteria(alias, sb, crit);
+				final List<Object> added = renderer.params.subList(from, renderer.params.size());
+				if (added.isEmpty()) {
+					tokens.add(sb.toString());
+				} else {
+					tokens.add(new Leaf(crit, sb.toString(), added.toArray()));
+				}
+			}
+			tokens.add(operator);
+			empty = false;
+		}
+		if (!empty) {
+			tokens.remove(tokens.size() - 1);
+		}
+	}
+
+	/**
+	 * binds a new value to a slot
+	 *
+	 * @param name  - the name of the slot
+	 * @param value - a String, Number, Date or for list operators a List or array
+	 * @return a copy of this filter with the new value
+	 * @throws Exception if there is no such slot or the value does not fit the operator
+	 */
+	public CompiledFilter bind(final String name, final Object value) throws Exception {
+		final Integer i = slotIndex.get(name);
+		if (i == null) {
+			throw new Exception("no slot '" + name + "' in compiled filter, available slots are " + slotIndex.keySet());
+		}
+		final Slot slot = slots[i];
+		final CompiledFilter copy = new CompiledFilter(this);
+		if (slot.identity && value != null && !(value instanceof List) && !value.getClass().isArray()) {
+			copy.values[i] = new Object[] { value };
+			return copy;
+		}
+
+		final WherePart renderer = newRenderer();
+		final StringBuilder sb = new StringBuilder();
+		renderer.appendCriteria(tableAlias != null ? tableAlias + "." : "", sb, withValue(slot.criteria, value));
+		copy.values[i] = renderer.params.toArray();
+		final String fragment = sb.toString();
+		if (!fragment.equals(copy.segments[slot.segment])) {
+			copy.segments[slot.segment] = fragment;
+			copy.sql = null;
+		}
+		return copy;
+	}
+
+	private WherePart newRenderer() throws Exception {
+		return new WherePart(dialect, prototype, null, null);
+	}
+
+	private static Criteria withValue(final Criteria template, final Object value) throws Exception {
+		final Criteria crit = new Criteria(template.getFieldName(), template.getOperator());
+		if (value instanceof List) {
+			crit.setListValues((List<?>) value);
+		} else if (value instanceof Object[]) {
+			crit.setListValues(Arrays.asList((Object[]) value));
+		} else if (value instanceof String) {
+			crit.setStringValue((String) value);
+		} else if (value instanceof Number) {
+			crit.setNumberValue((Number) value);
+		} else if (value instanceof Date) {
+			crit.setDateValue((Date) value);
+		} else if (value != null) {
+			throw new Exception("cannot bind value of type " + value.getClass().getName() + " to the operator " + template.getOperator());
+		}
+		return crit;
+	}
+
+	/**
+	 *
+	 * @return the names of all slots in the order of their criterias
+	 */
+	public Set<String> getSlotNames() {
+		return slotIndex.keySet();
+	}
+
+	/**
+	 *
+	 * @return the entity type this filter was compiled for or null if it was compiled for a table
+	 */
+	public Class<? extends DatabaseEntity> getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 *
+	 * @return the alias of the table this filter was compiled for
+	 */
+	public String getTableAlias() {
+		return tableAlias;
+	}
+
+	/**
+	 *
+	 * @return the bind parameters in the order of their placeholders
+	 */
+	public List<Object> getValues() {
+		List<Object> result = params;
+		if (result == null) {
+			result = new ArrayList<>();
+			for (final Object[] slotValues : values) {
+				result.addAll(Arrays.asList(slotValues));
+			}
+			result = Collections.unmodifiableList(result);
+			params = result;
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @return a WherePart with the SQL and the bind parameters of this filter
+	 */
+	public WherePart toWherePart() {
+		return WherePart.precompiled(dialect, toString(), new ArrayList<>(getValues()));
+	}
+
+	@Override
+	public String toString() {
+		String result = sql;
+		if (result == null) {
+			result = String.join("", segments);
+			sql = result;
+		}
+		return result;
+	}
+}
@@ -1,41 +1,70 @@
 package com.segmeno.kodo.database;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
 import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.LinkedCaseInsensitiveMap;
 
 import com.segmeno.kodo.annotation.Column;
 import com.segmeno.kodo.annotation.CustomSql;
+import com.segmeno.kodo.annotation.KeyGeneration;
 import com.segmeno.kodo.annotation.MappingRelation;
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.cache.QueryCache;
+import com.segmeno.kodo.database.conversion.TypeConverter;
+import com.segmeno.kodo.database.conversion.TypeConverters;
+import com.segmeno.kodo.database.dialect.SqlDialect;
+import com.segmeno.kodo.database.dialect.SqlDialects;
+import com.segmeno.kodo.database.keys.IdGenerator;
+import com.segmeno.kodo.database.keys.SequenceHiLoIdGenerator;
+import com.segmeno.kodo.database.keys.TableHiLoIdGenerator;
+import com.segmeno.kodo.database.keys.UuidV7IdGenerator;
+import com.segmeno.kodo.database.monitoring.Operation;
+import com.segmeno.kodo.database.monitoring.OperationListener;
+import com.segmeno.kodo.database.monitoring.OperationStats;
+import com.segmeno.kodo.database.routing.ReadCallback;
+import com.segmeno.kodo.database.routing.ReadReplicaRouter;
+import com.segmeno.kodo.database.routing.ReadReplicaRouter.WriteSession;
 import com.segmeno.kodo.transport.Criteria;
 import com.segmeno.kodo.transport.CriteriaGroup;
-import com.segmeno.kodo.transport.IKodoEnum;
 import com.segmeno.kodo.transport.Operator;
 import com.segmeno.kodo.transport.Sort;
-import com.segmeno.kodo.transport.Sort.SortDirection;
 
 public class DataAccessManager {
 
@@ -44,21 +73,404 @@ public class DataAccessManager {
 	protected static final Pattern VALID_COLNAME_PATTERN = Pattern.compile("\\A[a-zA-Z_]{1}[0-9a-zA-Z_]*\\Z");
 	protected static final String SUB_FIELD_DELIMITER = "_";
 	protected static final String TABLE_COL_DELIMITER = ".";
+	protected static final int BULK_INSERT_ROWS_PER_STATEMENT = 1000;
+	protected static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
 	protected JdbcTemplate jdbcTemplate;
 	protected NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
-	// H2, MySQL, Microsoft SQL Server, Oracle, PostgreSQL, Apache Derby, HSQL
-	// Database Engine
-	private final String DB_PRODUCT;
+	// rendering of the vendor specific SQL for H2, MySQL, Microsoft SQL Server, Oracle,
+	// PostgreSQL. Apache Derby, HSQL Database Engine and others get the generic dialect
+	protected final SqlDialect dialect;
+
+	// copy on write, so the check for registered listeners is a single volatile read
+	private volatile OperationListener[] listeners = new OperationListener[0];
+	// the operation currently running on this thread. Nested operations are added to it
+	private final ThreadLocal<OperationStats> currentOperation = new ThreadLocal<>();
+	// null as long as all queries go to the jdbcTemplate
+	private volatile ReadReplicaRouter readReplicaRouter;
+	// the manager which opened the session of this manager. Its router is told about the writes of the session
+	private DataAccessManager parent;
+	// null as long as no results are cached
+	private volatile QueryCache queryCache;
+	// the client side key generators by strategy and name, shared with the managers of the sessions
+	private ConcurrentHashMap<String, IdGenerator> idGenerators = new ConcurrentHashMap<>();
+	// the template the generators reserve their keys with, never the pinned connection of a session
+	private JdbcTemplate keyJdbcTemplate;
+	// the tables written by an add, update or delete of an entity type, including the tables of its children
+	private static final ClassValue<Set<String>> WRITTEN_TABLES = new ClassValue<Set<String>>() {
+		@Override
+		protected Set<String> computeValue(final Class<?> type) {
+			final Set<String> tables = new HashSet<>();
+			try {
+				collectTables(type, tables, new HashSet<>());
+			} catch (final Exception e) {
+				throw new IllegalStateException("could not collect the tables of " + type.getName(), e);
+			}
+			return Collections.unmodifiableSet(tables);
+		}
+	};
 
 	public JdbcTemplate getJdbcTemplate() {
 		return jdbcTemplate;
 	}
 
+	public SqlDialect getDialect() {
+		return dialect;
+	}
+
+	/**
+	 * creates a DataAccessManager with the dialect detected from the database product name
+	 *
+	 * @param jdbcTemplate
+	 * @throws SQLException
+	 */
 	public DataAccessManager(final JdbcTemplate jdbcTemplate) throws SQLException {
 		this.jdbcTemplate = jdbcTemplate;
 		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
-		this.DB_PRODUCT = getProduct();
+		this.dialect = SqlDialects.forProduct(getProduct());
+		this.keyJdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * creates a DataAccessManager with the given dialect. No connection is opened to detect the database
+	 *
+	 * @param jdbcTemplate
+	 * @param dialect      the dialect to render the SQL statements with
+	 */
+	public DataAccessManager(final JdbcTemplate jdbcTemplate, final SqlDialect dialect) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+		this.dialect = dialect;
+		this.keyJdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * creates the manager of a session, which shares the dialect, the listeners, the query cache and the key
+	 * generators with its parent. Its reads stay on the pinned connection, its writes are reported to the read
+	 * replica router of the parent for the read-your-writes window
+	 *
+	 * @param parent
+	 * @param jdbcTemplate - the template running on the pinned connection
+	 */
+	DataAccessManager(final DataAccessManager parent, final JdbcTemplate jdbcTemplate) {
+		this(jdbcTemplate, parent.dialect);
+		this.listeners = parent.listeners;
+		this.queryCache = parent.queryCache;
+		this.idGenerators = parent.idGenerators;
+		this.keyJdbcTemplate = parent.keyJdbcTemplate;
+		this.parent = parent;
+	}
+
+	/**
+	 * opens a session which pins a connection and caches up to 64 PreparedStatements, see {@link KodoSession}
+	 *
+	 * @return the session, to be closed with try-with-resources
+	 */
+	public KodoSession openSession() {
+		return openSession(DEFAULT_STATEMENT_CACHE_SIZE);
+	}
+
+	/**
+	 * opens a session which pins a connection and caches the PreparedStatements, see {@link KodoSession}
+	 *
+	 * @param statementCacheSize - the maximum number of cached statements
+	 * @return the session, to be closed with try-with-resources
+	 */
+	public KodoSession openSession(final int statementCacheSize) {
+		return new KodoSession(this, statementCacheSize);
+	}
+
+	/**
+	 * registers a listener which is notified at the start and end of each operation. As long as no listener is
+	 * registered, no figures are collected
+	 *
+	 * @param listener
+	 */
+	public synchronized void addOperationListener(final OperationListener listener) {
+		final OperationListener[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+		copy[listeners.length] = listener;
+		listeners = copy;
+	}
+
+	/**
+	 * removes a listener registered with {@link #addOperationListener(OperationListener)}
+	 *
+	 * @param listener
+	 */
+	public synchronized void removeOperationListener(final OperationListener listener) {
+		final List<OperationListener> copy = new ArrayList<>(Arrays.asList(listeners));
+		copy.remove(listener);
+		listeners = copy.toArray(new OperationListener[0]);
+	}
+
+	/**
+	 * sends the queries of getElems, getElemsByPkQuery, getRecords and getElemCount to the read replicas of the
+	 * router. All other statements keep running on the jdbcTemplate, which is the primary
+	 *
+	 * @param readReplicaRouter - the router or null to read from the primary only
+	 */
+	public void setReadReplicaRouter(final ReadReplicaRouter readReplicaRouter) {
+		this.readReplicaRouter = readReplicaRouter;
+	}
+
+	public ReadReplicaRouter getReadReplicaRouter() {
+		return readReplicaRouter;
+	}
+
+	/**
+	 * opens a scope in which all reads of the current thread go to the primary. Close it with try-with-resources
+	 *
+	 * @return the session or null if no read replicas are configured (which is fine for try-with-resources)
+	 */
+	public WriteSession beginWriteSession() {
+		final ReadReplicaRouter router = readReplicaRouter;
+		return router == null ? null : router.beginWriteSession();
+	}
+
+	/**
+	 * caches the results of getElems, getRecords and getElemCount. Writes of this DataAccessManager remove the
+	 * results of the tables written. Reads with QueryOptions and reads within a Spring managed transaction are
+	 * not cached, as the transaction might see its own uncommitted writes
+	 *
+	 * @param queryCache - the cache or null to disable caching
+	 */
+	public void setQueryCache(final QueryCache queryCache) {
+		this.queryCache = queryCache;
+	}
+
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * registers a generator for the primary keys annotated with
+	 * {@code @PrimaryKey(generation = KeyGeneration.CUSTOM, generator = name)}
+	 *
+	 * @param name
+	 * @param generator
+	 */
+	public void registerIdGenerator(final String name, final IdGenerator generator) {
+		idGenerators.put(KeyGeneration.CUSTOM + ":" + name, generator);
+	}
+
+	/**
+	 * assigns a new primary key to the element with the generator of its {@link PrimaryKey} annotation, so the key
+	 * is known before the element is added
+	 *
+	 * @param entity
+	 * @return the key
+	 * @throws Exception if the key is generated by the database
+	 */
+	public Object assignKey(final DatabaseEntity entity) throws Exception {
+		final IdGenerator generator = getIdGenerator(entity);
+		if (generator == null) {
+			throw new Exception("the primary key of " + entity.getClass().getName() + " is generated by the database");
+		}
+		entity.setPrimaryKeyValue(generator.nextId(entity));
+		return entity.getPrimaryKeyValue();
+	}
+
+	/**
+	 *
+	 * @param entity
+	 * @return the generator of the primary key or null if the database generates it
+	 * @throws Exception
+	 */
+	private IdGenerator getIdGenerator(final DatabaseEntity entity) throws Exception {
+		final PrimaryKey pk = entity.getPrimaryKeyDefinition();
+		final KeyGeneration generation = pk.generation();
+		if (generation == KeyGeneration.IDENTITY) {
+			return null;
+		}
+		final String name = pk.generator().isEmpty() && generation != KeyGeneration.UUID_V7 ? entity.getTableName() : pk.generator();
+		final String key = generation + ":" + name;
+		final IdGenerator generator = idGenerators.get(key);
+		if (generator != null) {
+			return generator;
+		}
+		final IdGenerator created;
+		switch (generation) {
+		case SEQUENCE_HILO:
+			created = new SequenceHiLoIdGenerator(keyJdbcTemplate, dialect, name, pk.allocationSize());
+			break;
+		case TABLE_HILO:
+			created = new TableHiLoIdGenerator(keyJdbcTemplate.getDataSource(), TableHiLoIdGenerator.DEFAULT_TABLE, name, pk.allocationSize());
+			break;
+		case UUID_V7:
+			created = new UuidV7IdGenerator();
+			break;
+		default:
+			throw new Exception("no IdGenerator registered with the name '" + name + "' for " + entity.getClass().getName());
+		}
+		final IdGenerator existing = idGenerators.putIfAbsent(key, created);
+		return existing != null ? existing : created;
+	}
+
+	private <T> T read(final ReadCallback<T> callback) throws Exception {
+		final ReadReplicaRouter router = readReplicaRouter;
+		return router == null ? callback.doWithTemplate(jdbcTemplate) : router.read(jdbcTemplate, callback);
+	}
+
+	/**
+	 * reads from the query cache if there is one and the result is cached, otherwise runs the query and records
+	 * its execution
+	 *
+	 * @param cacheable - false to bypass the cache
+	 * @return the result, which is shared with the cache and must not be modified
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T read(final OperationStats stats, final String sql, final Object[] args, final boolean cacheable,
+			final ReadCallback<T> callback) throws Exception {
+		final QueryCache cache = cacheable && !TransactionSynchronizationManager.isActualTransactionActive() ? queryCache : null;
+		if (cache != null) {
+			final T cached = (T) cache.get(sql, args);
+			if (cached != null) {
+				if (log.isDebugEnabled()) {
+					log.debug("Result served from the query cache");
+				}
+				return cached;
+			}
+		}
+		final long generation = cache == null ? 0 : cache.getGeneration();
+		final long start = startTimer(stats);
+		final T result = read(callback);
+		recordExecution(stats, sql, args, result instanceof Collection ? ((Collection<?>) result).size() : 1, start);
+		if (cache != null) {
+			cache.put(sql, args, result, generation);
+		}
+		return result;
+	}
+
+	/**
+	 * tells the router about the write and removes the cached results of the tables written
+	 *
+	 * @param types - the entity types written
+	 */
+	private void markWrite(final Collection<? extends Class<?>> types) {
+		final ReadReplicaRouter router = parent != null ? parent.readReplicaRouter : readReplicaRouter;
+		if (router != null) {
+			router.markWrite();
+		}
+		final QueryCache cache = queryCache;
+		if (cache != null) {
+			final Set<String> tables = new HashSet<>();
+			for (final Class<?> type : types) {
+				tables.addAll(WRITTEN_TABLES.get(type));
+			}
+			cache.invalidate(tables);
+		}
+	}
+
+	private void markWrite(final Class<?> type) {
+		markWrite(Collections.singleton(type));
+	}
+
+	private static void collectTables(final Class<?> type, final Set<String> tables, final Set<Class<?>> visited) throws Exception {
+		if (!visited.add(type) || !DatabaseEntity.class.isAssignableFrom(type) || Modifier.isAbstract(type.getModifiers())) {
+			return;
+		}
+		final DatabaseEntity entity = (DatabaseEntity) type.getConstructor().newInstance();
+		if (entity.getTableName() != null) {
+			tables.add(entity.getTableName());
+		}
+		for (final Field field : entity.getCachedDbFields()) {
+			final MappingRelation mr = field.getAnnotation(MappingRelation.class);
+			if (mr == null) {
+				continue;
+			}
+			if (!mr.mappingTableName().isEmpty()) {
+				tables.add(mr.mappingTableName());
+			}
+			if (List.class.isAssignableFrom(field.getType())) {
+				final Type genericType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+				collectTables(Class.forName(genericType.getTypeName()), tables, visited);
+			} else {
+				collectTables(field.getType(), tables, visited);
+			}
+		}
+	}
+
+	/**
+	 * starts collecting the figures of an operation
+	 *
+	 * @return the stats to pass to {@link #endOperation(OperationStats, Throwable)} or null if no listener is
+	 *         registered or the operation is nested within another one
+	 */
+	protected OperationStats beginOperation(final Operation operation, final Class<?> entityType) {
+		final OperationListener[] current = listeners;
+		if (current.length == 0 || currentOperation.get() != null) {
+			return null;
+		}
+		final OperationStats stats = new OperationStats(operation, entityType);
+		currentOperation.set(stats);
+		for (final OperationListener listener : current) {
+			try {
+				listener.onStart(stats);
+			} catch (final Exception e) {
+				log.warn("operation listener " + listener.getClass().getName() + " failed", e);
+			}
+		}
+		return stats;
+	}
+
+	protected void endOperation(final OperationStats stats, final Throwable error) {
+		if (stats == null) {
+			return;
+		}
+		currentOperation.remove();
+		stats.finish(error);
+		for (final OperationListener listener : listeners) {
+			try {
+				listener.onEnd(stats);
+			} catch (final Exception e) {
+				log.warn("operation listener " + listener.getClass().getName() + " failed", e);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return the stats of the operation running on this thread or null if no figures are collected
+	 */
+	protected OperationStats currentStats() {
+		return listeners.length == 0 ? null : currentOperation.get();
+	}
+
+	private static long startTimer(final OperationStats stats) {
+		return stats == null ? 0L : System.nanoTime();
+	}
+
+	private static void recordExecution(final OperationStats stats, final String sql, final Object[] args, final long rows, final long start) {
+		if (stats != null) {
+			stats.recordExecution(sql, args, rows, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * compiles the criterias into a filter on the main table of the entity type, which can be used many times
+	 * with different values. See {@link CompiledFilter}
+	 * 
+	 * @param shape      - the criterias to compile
+	 * @param entityType - the entity type the filter is used for
+	 * @return
+	 * @throws Exception
+	 */
+	public CompiledFilter compileFilter(final CriteriaGroup shape, final Class<? extends DatabaseEntity> entityType) throws Exception {
+		final String tableAlias = entityType.isAnnotationPresent(CustomSql.class) ? null : entityType.getConstructor().newInstance().getTableName();
+		return new CompiledFilter(dialect, entityType, tableAlias, shape);
+	}
+
+	/**
+	 * compiles the criterias into a filter on the table, to be used with
+	 * {@link #getRecords(String, CompiledFilter, int, int, Sort)}
+	 * 
+	 * @param shape     - the criterias to compile
+	 * @param tableName - the table the filter is used for
+	 * @return
+	 * @throws Exception
+	 */
+	public CompiledFilter compileFilter(final CriteriaGroup shape, final String tableName) throws Exception {
+		return new CompiledFilter(dialect, tableName, shape);
 	}
 
 	/**
@@ -145,22 +557,291 @@ public class DataAccessManager {
 	 */
 	public <T> List<T> getElems(final CriteriaGroup advancedCriteria, final Class<? extends DatabaseEntity> entityType, final Sort sort,
 			final Integer fetchDepth) throws Exception {
+		return getElems(advancedCriteria, null, entityType, sort, fetchDepth, null);
+	}
+
+	/**
+	 * returns a list of the queried entity type, considering a criteria for
+	 * filtering. The options are applied to the JDBC statement
+	 * 
+	 * @param advancedCriteria the advancedCriteria for filtering the main entity
+	 * @param entityType       the main entity type to query
+	 * @param sort             sort options
+	 * @param fetchDepth       - how deep to dig down in the hierarchy level. Pass
+	 *                         in -1 to fetch all (sub)elements
+	 * @param options          - fetch size, max rows, query timeout and read-only hint
+	 * @return the elements, marked as truncated if there were more rows than the max rows. Elements are only returned
+	 *         with all their rows, so the last element is left out if its rows exceed the max rows
+	 * @throws Exception
+	 */
+	public <T> ResultList<T> getElems(final CriteriaGroup advancedCriteria, final Class<? extends DatabaseEntity> entityType, final Sort sort,
+			final Integer fetchDepth, final QueryOptions options) throws Exception {
+		return (ResultList<T>) this.<T>getElems(advancedCriteria, null, entityType, sort, fetchDepth, Objects.requireNonNull(options));
+	}
+
+	/**
+	 * returns a list of the entity type the filter was compiled for. Fills all sub elements and their children
+	 * 
+	 * @param filter the compiled filter on the main entity, see {@link #compileFilter(CriteriaGroup, Class)}
+	 * @return
+	 * @throws Exception
+	 */
+	public <T> List<T> getElems(final CompiledFilter filter) throws Exception {
+		return getElems(filter, null, -1);
+	}
+
+	/**
+	 * returns a list of the entity type the filter was compiled for
+	 * 
+	 * @param filter     the compiled filter on the main entity, see {@link #compileFilter(CriteriaGroup, Class)}
+	 * @param sort       sort options
+	 * @param fetchDepth - how deep to dig down in the hierarchy level. Pass
+	 *                   in -1 to fetch all (sub)elements
+	 * @return
+	 * @throws Exception
+	 */
+	public <T> List<T> getElems(final CompiledFilter filter, final Sort sort, final Integer fetchDepth) throws Exception {
+		return getElems(null, filter, getEntityType(filter), sort, fetchDepth, null);
+	}
+
+	/**
+	 * returns a list of the entity type the filter was compiled for. The options are applied to the JDBC statement
+	 * 
+	 * @param filter     the compiled filter on the main entity, see {@link #compileFilter(CriteriaGroup, Class)}
+	 * @param sort       sort options
+	 * @param fetchDepth - how deep to dig down in the hierarchy level. Pass
+	 *                   in -1 to fetch all (sub)elements
+	 * @param options    - fetch size, max rows, query timeout and read-only hint
+	 * @return the elements, marked as truncated if there were more rows than the max rows. Elements are only returned
+	 *         with all their rows, so the last element is left out if its rows exceed the max rows
+	 * @throws Exception
+	 */
+	public <T> ResultList<T> getElems(final CompiledFilter filter, final Sort sort, final Integer fetchDepth, final QueryOptions options)
+			throws Exception {
+		return (ResultList<T>) this.<T>getElems(null, filter, getEntityType(filter), sort, fetchDepth, Objects.requireNonNull(options));
+	}
+
+	/**
+	 * @param options - null to use the defaults of the JdbcTemplate, otherwise a ResultList is returned
+	 */
+	private <T> List<T> getElems(final CriteriaGroup advancedCriteria, final CompiledFilter compiledFilter,
+			final Class<? extends DatabaseEntity> entityType, final Sort sort, final Integer fetchDepth, final QueryOptions options)
+			throws Exception {
+		final OperationStats stats = beginOperation(Operation.GET_ELEMS, entityType);
+		Exception error = null;
 		try {
 			final ArrayList<Object> params = new ArrayList<Object>();
 			final DatabaseEntity mainEntity = entityType.getConstructor().newInstance();
-			final String query = buildQuery(mainEntity, advancedCriteria, sort, params, fetchDepth);
+			final boolean limited = options != null && options.getMaxRows() > 0;
+			String sql = buildQuery(mainEntity, advancedCriteria, compiledFilter, sort, params, fetchDepth);
+			if (limited && !entityType.isAnnotationPresent(CustomSql.class)) {
+				// keeps the rows of an element together, so only the last element can be cut off by the max rows
+				final String pk = mainEntity.getTableName() + "." + mainEntity.getPrimaryKeyColumn();
+				sql += (sort != null && sort.toString().length() > 0 ? ", " : " ORDER BY ") + pk + " ASC";
+			}
+			final String query = sql;
 
 			if (log.isDebugEnabled()) {
 				log.debug("Query: " + sqlPrettyPrint(query) + "\t" + params);
 			}
-			final List<Map<String, Object>> rows = jdbcTemplate.queryForList(query, params.toArray());
+			final Object[] args = params.toArray();
+			List<Map<String, Object>> rows = read(stats, query, args, options == null,
+					t -> limited ? query(t, query, args, options, new ColumnMapRowMapper(), true) : queryForList(t, query, args, options));
+			final boolean truncated = options != null && ((ResultList<?>) rows).isTruncated();
+			if (truncated) {
+				rows = withoutIncompleteElement(mainEntity, rows);
+			}
 			if (log.isTraceEnabled()) {
 				log.trace("Result: " + rows.stream().map(m -> m.toString()).collect(Collectors.joining("\n")));
 			}
-			return rowsToObjects(mainEntity, rows);
+			final List<T> elems = rowsToObjects(mainEntity, rows);
+			return options == null ? elems : new ResultList<>(elems, truncated);
 		} catch (final Exception e) {
+			error = e;
 			log.error("could not get elements of type " + entityType.getName(), e);
 			throw e;
+		} finally {
+			endOperation(stats, error);
+		}
+	}
+
+	/**
+	 * the rows of a truncated result end with the first row over the max rows. The element this row belongs to is
+	 * incomplete, so all its rows are removed along with it
+	 *
+	 * @return the rows of the complete elements
+	 */
+	private List<Map<String, Object>> withoutIncompleteElement(final DatabaseEntity mainEntity, final List<Map<String, Object>> rows)
+			throws Exception {
+		final String tableName = mainEntity.getTableName();
+		final String pkColumn = mainEntity.getPrimaryKeyColumn();
+		final Object cutOff = getValueFromRow(tableName, pkColumn, rows.get(rows.size() - 1), false);
+		final List<Map<String, Object>> complete = new ArrayList<>(rows.size() - 1);
+		for (final Map<String, Object> row : rows.subList(0, rows.size() - 1)) {
+			if (!Objects.equals(cutOff, getValueFromRow(tableName, pkColumn, row, false))) {
+				complete.add(row);
+			}
+		}
+		return complete;
+	}
+
+	/**
+	 *
+	 * @return a copy of the rows, so the rows held by the query cache are not modified by the caller
+	 */
+	private static List<Map<String, Object>> copyRows(final List<Map<String, Object>> rows)
+			throws Exception {
+		final List<Map<String, Object>> copy = new ArrayList<>(rows.size());
+		for (final Map<String, Object> row : rows) {
+			final Map<String, Object> rowCopy = new LinkedCaseInsensitiveMap<>(row.size());
+			rowCopy.putAll(row);
+			copy.add(rowCopy);
+		}
+		return copy;
+	}
+
+	/**
+	 * runs the query with the options applied to the statement
+	 *
+	 * @param options - null to run the query with the settings of the template
+	 * @return the rows, a ResultList if there are options
+	 */
+	private List<Map<String, Object>> queryForList(final JdbcTemplate template, final String query, final Object[] args,
+			final QueryOptions options) {
+		if (options == null) {
+			return template.queryForList(query, args);
+		}
+		return query(template, query, args, options, new ColumnMapRowMapper());
+	}
+
+	/**
+	 * runs the query with the options applied to the statement
+	 *
+	 * @return the mapped rows, marked as truncated if there are more rows than the max rows of the options
+	 */
+	private <X> ResultList<X> query(final JdbcTemplate template, final String query, final Object[] args, final QueryOptions options,
+			final RowMapper<X> rowMapper) {
+		return query(template, query, args, options, rowMapper, false);
+	}
+
+	/**
+	 *
+	 * @param keepCutOffRow - true to add the first row over the max rows to a truncated result
+	 */
+	private <X> ResultList<X> query(final JdbcTemplate template, final String query, final Object[] args, final QueryOptions options,
+			final RowMapper<X> rowMapper, final boolean keepCutOffRow) {
+		return template.execute(new ConnectionCallback<ResultList<X>>() {
+			@Override
+			public ResultList<X> doInConnection(final Connection con) throws SQLException, DataAccessException {
+				final boolean switchReadOnly = options.isReadOnly() && !con.isReadOnly();
+				if (switchReadOnly) {
+					con.setReadOnly(true);
+				}
+				try (PreparedStatement ps = con.prepareStatement(query)) {
+					if (options.getFetchSize() >= 0) {
+						ps.setFetchSize(options.getFetchSize());
+					}
+					if (options.getMaxRows() > 0) {
+						// one more row tells whether the result is truncated
+						ps.setMaxRows(options.getMaxRows() + 1);
+					}
+					if (options.getQueryTimeout() >= 0) {
+						ps.setQueryTimeout(options.getQueryTimeout());
+					}
+					new ArgumentPreparedStatementSetter(args).setValues(ps);
+					final List<X> rows = new ArrayList<>();
+					boolean truncated = false;
+					try (ResultSet rs = ps.executeQuery()) {
+						while (rs.next()) {
+							if (rows.size() == options.getMaxRows()) {
+								truncated = true;
+								if (keepCutOffRow) {
+									rows.add(rowMapper.mapRow(rs, rows.size()));
+								}
+								break;
+							}
+							rows.add(rowMapper.mapRow(rs, rows.size()));
+						}
+					}
+					if (truncated) {
+						log.warn("query returned more than " + options.getMaxRows() + " rows, the result is truncated: " + query);
+					}
+					return new ResultList<>(rows, truncated);
+				} finally {
+					if (switchReadOnly) {
+						con.setReadOnly(false);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * reads the matching rows of the table straight into records or DTOs, without building an entity graph. Only
+	 * the columns of the record type are selected. See {@link ProjectionMapper} for how the type is mapped:
+	 *
+	 * <pre>
+	 * public record UserRow(Long id, String name) {}
+	 *
+	 * final List&lt;UserRow&gt; rows = manager.queryInto(UserRow.class, "tbUser", filter, new Sort("name", SortDirection.ASC));
+	 * </pre>
+	 *
+	 * @param recordType - a record, a class with a constructor annotated with @ConstructorProperties or a class with
+	 *                   a no-arg constructor
+	 * @param tableName  - the table to query
+	 * @param filter     - the criterias on the table or null for all rows
+	 * @param sort       - the sort or null
+	 * @return
+	 * @throws Exception
+	 */
+	public <R> List<R> queryInto(final Class<R> recordType, final String tableName, final CriteriaGroup filter, final Sort sort)
+			throws Exception {
+		return queryInto(recordType, tableName, filter, sort, (QueryOptions) null);
+	}
+
+	/**
+	 * reads the matching rows of the table straight into records or DTOs, see
+	 * {@link #queryInto(Class, String, CriteriaGroup, Sort)}. The options are applied to the JDBC statement
+	 *
+	 * @param recordType
+	 * @param tableName
+	 * @param filter
+	 * @param sort
+	 * @param options    - fetch size, max rows, query timeout and read-only hint or null
+	 * @return the records, a ResultList marked as truncated if there were more rows than the max rows
+	 * @throws Exception
+	 */
+	public <R> ResultList<R> queryInto(final Class<R> recordType, final String tableName, final CriteriaGroup filter, final Sort sort,
+			final QueryOptions options) throws Exception {
+		final OperationStats stats = beginOperation(Operation.QUERY_INTO, recordType);
+		Exception error = null;
+		try {
+			final ProjectionMapper<R> mapper = ProjectionMapper.of(recordType);
+			final StringBuilder sql = new StringBuilder("SELECT ").append(getColumnsCsv(tableName, Arrays.asList(mapper.getColumns()), false))
+					.append(" FROM ").append(tableName);
+			final WherePart where = hasFilter(filter, null) ? new WherePart(dialect, tableName, filter) : null;
+			if (where != null) {
+				sql.append(" WHERE ").append(where.toString());
+			}
+			if (sort != null) {
+				sql.append(sort.toString());
+			}
+			final String query = sql.toString();
+			final Object[] args = where == null ? new Object[0] : where.getValues().toArray();
+			if (log.isDebugEnabled()) {
+				log.debug("Query: " + sqlPrettyPrint(query) + "\t[" + toCsv(args) + "]");
+			}
+			final long start = startTimer(stats);
+			final ResultList<R> result = read(t -> options == null ? new ResultList<>(t.query(query, mapper.rowMapper(), args), false)
+					: query(t, query, args, options, mapper.rowMapper()));
+			recordExecution(stats, query, args, result.size(), start);
+			return result;
+		} catch (final Exception e) {
+			error = e;
+			log.error("could not query into " + recordType.getName(), e);
+			throw e;
+		} finally {
+			endOperation(stats, error);
 		}
 	}
 
@@ -209,28 +890,34 @@ public class DataAccessManager {
 	public <T> List<T> getElemsByPkQuery(final String queryByPK, final ArrayList<Object> queryByPKparams,
 			final Class<? extends DatabaseEntity> entityType, final Sort sort, final Integer fetchDepth) throws Exception {
 
+		final OperationStats stats = beginOperation(Operation.GET_ELEMS_BY_PK_QUERY, entityType);
+		Exception error = null;
 		try {
 			final ArrayList<Object> params = new ArrayList<Object>();
 			final DatabaseEntity mainEntity = entityType.getConstructor().newInstance();
 			final ArrayList<Integer> fakeParams = new ArrayList<>();
 			fakeParams.add(666);
-			String query = buildQuery(mainEntity,
+			final String query = buildQuery(mainEntity,
 					new CriteriaGroup(Operator.AND, new Criteria(mainEntity.getPrimaryKeyColumn(), Operator.IN_SET, fakeParams)), sort,
-					params, fetchDepth);
-
-			query = query.replace("?", queryByPK);
+					params, fetchDepth).replace("?", queryByPK);
 
 			if (log.isDebugEnabled()) {
 				log.debug("Query: " + sqlPrettyPrint(query) + "\t" + queryByPKparams);
 			}
-			final List<Map<String, Object>> rows = jdbcTemplate.queryForList(query, queryByPKparams.toArray());
+			final Object[] args = queryByPKparams.toArray();
+			final long start = startTimer(stats);
+			final List<Map<String, Object>> rows = read(t -> t.queryForList(query, args));
+			recordExecution(stats, query, args, rows.size(), start);
 			if (log.isTraceEnabled()) {
 				log.trace("Result: " + rows.stream().map(m -> m.toString()).collect(Collectors.joining("\n")));
 			}
 			return rowsToObjects(mainEntity, rows);
 		} catch (final Exception e) {
+			error = e;
 			log.error("could not get elements of type " + entityType.getName(), e);
 			throw e;
+		} finally {
+			endOperation(stats, error);
 		}
 	}
 
@@ -245,68 +932,184 @@ public class DataAccessManager {
 
 	public List<Map<String, Object>> getRecords(final String tableName, final CriteriaGroup criteriaGroup, final int pageSize,
 			final int currentPage, final Sort sort) throws Exception {
+		return getRecords(tableName, criteriaGroup, null, pageSize, currentPage, sort, null);
+	}
+
+	/**
+	 * returns one page of the records of the table. The options are applied to the JDBC statement
+	 * 
+	 * @param tableName
+	 * @param criteriaGroup
+	 * @param pageSize
+	 * @param currentPage   - the page to return, starting with 1
+	 * @param sort          - required for paging
+	 * @param options       - fetch size, max rows, query timeout and read-only hint
+	 * @return the records, marked as truncated if there were more rows than the max rows
+	 * @throws Exception
+	 */
+	public ResultList<Map<String, Object>> getRecords(final String tableName, final CriteriaGroup criteriaGroup, final int pageSize,
+			final int currentPage, final Sort sort, final QueryOptions options) throws Exception {
+		return (ResultList<Map<String, Object>>) getRecords(tableName, criteriaGroup, null, pageSize, currentPage, sort,
+				Objects.requireNonNull(options));
+	}
+
+	/**
+	 * returns one page of the records of the table the filter was compiled for
+	 * 
+	 * @param filter      - the compiled filter, see {@link #compileFilter(CriteriaGroup, String)}
+	 * @param pageSize
+	 * @param currentPage - the page to return, starting with 1
+	 * @param sort        - required for paging
+	 * @return
+	 * @throws Exception
+	 */
+	public List<Map<String, Object>> getRecords(final CompiledFilter filter, final int pageSize, final int currentPage, final Sort sort)
+			throws Exception {
+		if (filter.getTableAlias() == null) {
+			throw new Exception("the filter was not compiled for a table");
+		}
+		return getRecords(filter.getTableAlias(), null, filter, pageSize, currentPage, sort, null);
+	}
+
+	private List<Map<String, Object>> getRecords(final String tableName, final CriteriaGroup criteriaGroup, final CompiledFilter compiledFilter,
+			final int pageSize, final int currentPage, final Sort sort, final QueryOptions options) throws Exception {
 
 		if (sort == null) {
 			throw new Exception("a sort is required in order to use paging!");
 		}
-		final WherePart where = new WherePart(DB_PRODUCT, tableName, criteriaGroup);
-		String stmt = "SELECT * FROM " + tableName + " WHERE " + where.toString() + sort.toString();
-		final String count = "SELECT COUNT(*) FROM (" + stmt + ")";
+		final OperationStats stats = beginOperation(Operation.GET_RECORDS, null);
+		Exception error = null;
+		try {
+			final WherePart where = createWherePart(tableName, criteriaGroup, compiledFilter, null);
+			final String stmt = addPaging("SELECT * FROM " + tableName + " WHERE " + where.toString() + sort.toString(), currentPage, pageSize);
+			if (log.isDebugEnabled()) {
+				log.debug("Query: " + sqlPrettyPrint(stmt) + "\t" + where.getValues().toArray());
+			}
+			final Object[] args = where.getValues().toArray();
+			final List<Map<String, Object>> rows = read(stats, stmt, args, options == null, t -> queryForList(t, stmt, args, options));
+			if (log.isTraceEnabled()) {
+				log.trace("Result: " + rows.stream().map(m -> m.toString()).collect(Collectors.joining("\n")));
+			}
+			// reads with options bypass the cache, so only cacheable rows can be shared with it
+			return queryCache == null || options != null ? rows : copyRows(rows);
+		} catch (final Exception e) {
+			error = e;
+			throw e;
+		} finally {
+			endOperation(stats, error);
+		}
+	}
 
-		final Integer totalRows = jdbcTemplate.queryForObject(count, Integer.class);
-		stmt = addPaging(stmt, currentPage, pageSize, totalRows);
-		if (log.isDebugEnabled()) {
-			log.debug("Query: " + sqlPrettyPrint(stmt) + "\t" + where.getValues().toArray());
+	// a root entity of a result and the entities created below it
+	private static final class MappedRoot {
+		private final DatabaseEntity entity;
+		private final EntityIdentityMap children = new EntityIdentityMap();
+
+		private MappedRoot(final DatabaseEntity entity) {
+			this.entity = entity;
 		}
-		List<Map<String, Object>> rows = jdbcTemplate.queryForList(stmt, where.getValues().toArray());
-		if (log.isTraceEnabled()) {
-			log.trace("Result: " + rows.stream().map(m -> m.toString()).collect(Collectors.joining("\n")));
+	}
+
+	// where the value of a field is found in the rows of one result and how it is converted
+	private static final class ColumnMapping {
+		// the key of the column in the rows or null if the result has no such column
+		private final String key;
+		private final Class<?> fieldType;
+		private Class<?> sourceType;
+		private TypeConverter converter;
+
+		private ColumnMapping(final String key, final Class<?> fieldType) {
+			this.key = key;
+			this.fieldType = fieldType;
+		}
+
+		private Object convert(final Object value) throws Exception {
+			if (value == null) {
+				return null;
+			}
+			// all values of a column have the same type, so the converter is resolved on the first one
+			if (value.getClass() != sourceType) {
+				sourceType = value.getClass();
+				converter = TypeConverters.get(fieldType, sourceType);
+			}
+			return converter.convert(value);
+		}
+	}
+
+	// the column mappings of the fields by their (aliased) column name, planned on the first row of a result
+	private static final class MappingPlan {
+		private final Map<String, ColumnMapping> columns = new HashMap<>();
+
+		private ColumnMapping get(final String entityField, final Field field, final Map<String, Object> row) {
+			ColumnMapping mapping = columns.get(entityField);
+			if (mapping == null) {
+				String key = null;
+				for (final String column : row.keySet()) {
+					if (column.equalsIgnoreCase(entityField)) {
+						key = column;
+						break;
+					}
+				}
+				mapping = new ColumnMapping(key, field.getType());
+				columns.put(entityField, mapping);
+			}
+			return mapping;
 		}
-		return rows;
 	}
 
-	private <T> List<T> rowsToObjects(final DatabaseEntity baseEntityTemplate, final List<Map<String, Object>> rows) throws Exception {
+	@SuppressWarnings("unchecked")
+	protected <T> List<T> rowsToObjects(final DatabaseEntity baseEntityTemplate, final List<Map<String, Object>> rows) throws Exception {
+		final OperationStats stats = currentStats();
+		final long start = startTimer(stats);
 		final String startPath = baseEntityTemplate.getTableName() == null ? "" : baseEntityTemplate.getTableName();
-		final Map<String, T> pk2entity = new LinkedHashMap<String, T>();
-		final HashMap<String, HashMap<String, Object>> pk2alreadyFilledObjects = new HashMap<>();
+		// the roots by their primary key. Integral keys are held in a primitive map, other keys by their string value
+		final LongObjectMap<MappedRoot> numericRoots = new LongObjectMap<>(rows.size());
+		final HashMap<String, MappedRoot> otherRoots = new HashMap<>();
+		final List<MappedRoot> roots = new ArrayList<>();
+		final MappingPlan plan = new MappingPlan();
 
 		for (final Map<String, Object> row : rows) {
-			final String pk = pkStr(getValueFromRow(baseEntityTemplate.getTableName(), baseEntityTemplate.getPrimaryKeyColumn(), row, false));
+			final Object pk = getValueFromRow(baseEntityTemplate.getTableName(), baseEntityTemplate.getPrimaryKeyColumn(), row, false);
 			if(pk == null) {
 				throw new RuntimeException("Primary Key of root entity must not be null -> column " + baseEntityTemplate.getPrimaryKeyColumn());
 			}
 			
-			final HashMap<String, Object> alreadyFilledObjects;
-			DatabaseEntity baseEntity = (DatabaseEntity) pk2entity.get(pk);
+			final boolean integral = EntityIdentityMap.isIntegral(pk);
+			MappedRoot root = integral ? numericRoots.get(((Number) pk).longValue()) : otherRoots.get(String.valueOf(pk));
 			final boolean alreadyFilled;
-			if (baseEntity == null) {
-				baseEntity = baseEntityTemplate.getClass().getConstructor().newInstance();
-				pk2entity.put(pk, (T) baseEntity);
-				alreadyFilledObjects = new HashMap<>();
-				pk2alreadyFilledObjects.put(pk, alreadyFilledObjects);
+			if (root == null) {
+				root = new MappedRoot(DatabaseEntity.newInstance(baseEntityTemplate.getClass()));
+				if (integral) {
+					numericRoots.put(((Number) pk).longValue(), root);
+				} else {
+					otherRoots.put(String.valueOf(pk), root);
+				}
+				roots.add(root);
 				alreadyFilled = false;
 			} else {
-				alreadyFilledObjects = pk2alreadyFilledObjects.get(pk);
 				alreadyFilled = true;
 			}
 			
-			rowToEntity(baseEntity, pk, baseEntity.getTableName(), startPath, row, alreadyFilledObjects, alreadyFilled);
+			rowToEntity(root.entity, pk, root.entity.getTableName(), startPath, row, root.children, alreadyFilled, plan);
 		}
-		pk2alreadyFilledObjects.clear();
-		return pk2entity.values().stream().collect(Collectors.toList());
-	}
-
-	private String pkStr(Object pk) {
-		return pk == null ? null : String.valueOf(pk);
+		if (stats != null) {
+			long entities = roots.size();
+			for (final MappedRoot root : roots) {
+				entities += root.children.size();
+			}
+			stats.recordMapping(entities, System.nanoTime() - start);
+		}
+		final List<T> result = new ArrayList<>(roots.size());
+		for (final MappedRoot root : roots) {
+			result.add((T) root.entity);
+		}
+		return result;
 	}
 
-	private void rowToEntity(final DatabaseEntity entity, final String pk, final String alias, String path, final Map<String, Object> row,
-			final Map<String, Object> alreadyFilledObjects, boolean entityWasAlreadyFilled) throws Exception {
-		// first thing to do: retrieve pk value and build unique key
-		final String uniqueKey = alias + "#" + pk;
-		
+	private void rowToEntity(final DatabaseEntity entity, final Object pk, final String alias, String path, final Map<String, Object> row,
+			final EntityIdentityMap alreadyFilledObjects, boolean entityWasAlreadyFilled, final MappingPlan plan) throws Exception {
 		if(log.isDebugEnabled() && !entityWasAlreadyFilled) {
-			log.debug("filling " + uniqueKey + " from " + row);
+			log.debug("filling " + alias + "#" + pk + " from " + row);
 		}
 		
 		for (final Field field : entity.getCachedDbFields()) {
@@ -328,22 +1131,21 @@ public class DataAccessManager {
 						subAlias = entity.getTableName() + SUB_FIELD_DELIMITER + field.getName();
 					}
 
-					final DatabaseEntity childEntityTemplate = (DatabaseEntity) genericClass.getConstructor().newInstance();
-					final String childPk = pkStr(getValueFromRow(subAlias, childEntityTemplate.getPrimaryKeyColumn(), row, true));
+					final DatabaseEntity childEntityTemplate = DatabaseEntity.newInstance(genericClass.asSubclass(DatabaseEntity.class));
+					final Object childPk = getValueFromRow(subAlias, childEntityTemplate.getPrimaryKeyColumn(), row, true);
 					if (childPk != null) {
-						final String childUniqueKey = subAlias + "#" + childPk;
 						List<DatabaseEntity> list = (List) field.get(entity);
 						if (list == null) {
 							list = new ArrayList<>(0);
 							field.set(entity, list);
 						}
 
-						DatabaseEntity childEntity = (DatabaseEntity) alreadyFilledObjects.get(childUniqueKey);
+						DatabaseEntity childEntity = alreadyFilledObjects.get(subAlias, childPk);
 						final boolean alreadyFilled;
 						if (childEntity == null) {
 							childEntity = childEntityTemplate;
 							list.add(childEntity);
-							alreadyFilledObjects.put(childUniqueKey, childEntity);
+							alreadyFilledObjects.put(subAlias, childPk, childEntity);
 							alreadyFilled = false;
 						} else {
 							alreadyFilled = true;
@@ -351,7 +1153,7 @@ public class DataAccessManager {
 						
 						// keep track of the current level in the tree
 						path += "/" + childEntity.getTableName();
-						rowToEntity(childEntity, childPk, subAlias, path, row, alreadyFilledObjects, alreadyFilled);
+						rowToEntity(childEntity, childPk, subAlias, path, row, alreadyFilledObjects, alreadyFilled, plan);
 						path = path.substring(0, path.lastIndexOf("/"));
 					}
 				}
@@ -359,7 +1161,7 @@ public class DataAccessManager {
 				DatabaseEntity childEntity = (DatabaseEntity) field.get(entity);
 				final DatabaseEntity childEntityTemplate;
 				if (childEntity == null) {
-					childEntityTemplate = (DatabaseEntity) field.getType().getConstructor().newInstance();
+					childEntityTemplate = DatabaseEntity.newInstance(field.getType().asSubclass(DatabaseEntity.class));
 				} else {
 					childEntityTemplate = childEntity;
 				}
@@ -377,14 +1179,14 @@ public class DataAccessManager {
 					subAlias = entity.getTableName() + SUB_FIELD_DELIMITER + field.getName();
 				}
 
-				final String childPk = pkStr(getValueFromRow(subAlias, childEntityTemplate.getPrimaryKeyColumn(), row, true));
+				final Object childPk = getValueFromRow(subAlias, childEntityTemplate.getPrimaryKeyColumn(), row, true);
 				if (childPk != null) {
-					final String childUniqueKey = subAlias.replace("_", "#" + pk) + "#" + childPk;
 					final boolean alreadyFilled;
 					if (childEntity == null) {
 						childEntity = childEntityTemplate;
 						field.set(entity, childEntity);
-						alreadyFilledObjects.put(childUniqueKey, childEntity);
+						// the element hangs at its parent, so it is never looked up
+						alreadyFilledObjects.count();
 						alreadyFilled = false;
 					} else {
 						alreadyFilled = true;
@@ -392,7 +1194,7 @@ public class DataAccessManager {
 					
 					// keep track of the current level in the tree
 					path += "/" + childEntity.getTableName();
-					rowToEntity(childEntity, childPk, subAlias, path, row, alreadyFilledObjects, alreadyFilled);
+					rowToEntity(childEntity, childPk, subAlias, path, row, alreadyFilledObjects, alreadyFilled, plan);
 					path = path.substring(0, path.lastIndexOf("/"));
 				}
 			} else if(!entityWasAlreadyFilled) {
@@ -406,13 +1208,9 @@ public class DataAccessManager {
 				} else {
 					entityField = alias + TABLE_COL_DELIMITER + colName;
 				}
-				for (final Map.Entry<String, Object> cell : row.entrySet()) {
-					final String fullName = cell.getKey();
-
-					if (fullName.equalsIgnoreCase(entityField)) {
-						field.set(entity, convertTo(field.getType(), cell.getValue()));
-						break;
-					}
+				final ColumnMapping column = plan.get(entityField, field, row);
+				if (column.key != null) {
+					entity.setFieldValue(field, column.convert(row.get(column.key)));
 				}
 			}
 		}
@@ -439,6 +1237,24 @@ public class DataAccessManager {
 	}
 
 	public Long getElemCount(final CriteriaGroup criteria, final Class<? extends DatabaseEntity> entityType) throws Exception {
+		return getElemCount(criteria, null, entityType);
+	}
+
+	/**
+	 * counts the elements of the entity type the filter was compiled for
+	 * 
+	 * @param filter - the compiled filter on the main entity, see {@link #compileFilter(CriteriaGroup, Class)}
+	 * @return
+	 * @throws Exception
+	 */
+	public Long getElemCount(final CompiledFilter filter) throws Exception {
+		return getElemCount(null, filter, getEntityType(filter));
+	}
+
+	private Long getElemCount(final CriteriaGroup criteria, final CompiledFilter compiledFilter, final Class<? extends DatabaseEntity> entityType)
+			throws Exception {
+		final OperationStats stats = beginOperation(Operation.GET_ELEM_COUNT, entityType);
+		Exception error = null;
 		try {
 			final DatabaseEntity mainEntity = entityType.getConstructor().newInstance();
 
@@ -447,7 +1263,7 @@ public class DataAccessManager {
 			final StringBuilder from = new StringBuilder();
 			final StringBuilder join = new StringBuilder();
 			final StringBuilder where = new StringBuilder();
-			buildQueryRecursively(mainEntity, criteria, select, from, join, where, new Sort(), params, 0);
+			buildQueryRecursively(mainEntity, criteria, compiledFilter, select, from, join, where, params, 0);
 
 			final String sql = "SELECT COUNT(DISTINCT " + mainEntity.getTableName() + "." + mainEntity.getPrimaryKeyColumn() + ")"
 					+ from.toString() + join.toString() + where.toString();
@@ -455,15 +1271,182 @@ public class DataAccessManager {
 			if (log.isDebugEnabled()) {
 				log.debug("Query: " + sqlPrettyPrint(sql) + "\t[" + toCsv(params.toArray()) + "]");
 			}
-			final Long result = jdbcTemplate.queryForObject(sql, params.toArray(), Long.class);
+			final Object[] args = params.toArray();
+			final Long result = read(stats, sql, args, true, t -> t.queryForObject(sql, args, Long.class));
 			if (log.isTraceEnabled()) {
 				log.trace("Result: " + result + " counted");
 			}
 			return result;
 		} catch (final Exception e) {
+			error = e;
 			log.error("could not count elements of type " + entityType.getName(), e);
 			throw e;
+		} finally {
+			endOperation(stats, error);
+		}
+	}
+
+	public boolean existsElem(final Criteria criteria, final Class<? extends DatabaseEntity> entityType) throws Exception {
+		return existsElem(new CriteriaGroup(Operator.AND, criteria), entityType);
+	}
+
+	/**
+	 * checks if any element matches. Unlike {@link #getElemCount(CriteriaGroup, Class)} only the table of the entity
+	 * is queried and the database stops at the first matching row
+	 *
+	 * @param criteria   - the criterias on the main entity or null to check if the table has any rows
+	 * @param entityType
+	 * @return true if at least one element matches
+	 * @throws Exception
+	 */
+	public boolean existsElem(final CriteriaGroup criteria, final Class<? extends DatabaseEntity> entityType) throws Exception {
+		return existsElem(criteria, null, entityType);
+	}
+
+	/**
+	 * checks if any element of the entity type the filter was compiled for matches
+	 *
+	 * @param filter - the compiled filter on the main entity, see {@link #compileFilter(CriteriaGroup, Class)}
+	 * @return
+	 * @throws Exception
+	 */
+	public boolean existsElem(final CompiledFilter filter) throws Exception {
+		return existsElem(null, filter, getEntityType(filter));
+	}
+
+	private boolean existsElem(final CriteriaGroup criteria, final CompiledFilter compiledFilter, final Class<? extends DatabaseEntity> entityType)
+			throws Exception {
+		final OperationStats stats = beginOperation(Operation.EXISTS_ELEM, entityType);
+		Exception error = null;
+		try {
+			final DatabaseEntity entity = entityType.getConstructor().newInstance();
+			final String table = entity.getTableName();
+			final WherePart where = hasFilter(criteria, compiledFilter) ? createWherePart(table, criteria, compiledFilter, entity) : null;
+			final String sql = dialect.firstRow("SELECT 1 FROM " + table + (where == null ? "" : " WHERE " + where.toString()));
+			final Object[] args = where == null ? new Object[0] : where.getValues().toArray();
+
+			if (log.isDebugEnabled()) {
+				log.debug("Query: " + sqlPrettyPrint(sql) + "\t[" + toCsv(args) + "]");
+			}
+			final long start = startTimer(stats);
+			final Boolean result = read(t -> t.query(sql, (ResultSetExtractor<Boolean>) ResultSet::next, args));
+			recordExecution(stats, sql, args, result ? 1 : 0, start);
+			return result;
+		} catch (final Exception e) {
+			error = e;
+			log.error("could not check the existence of elements of type " + entityType.getName(), e);
+			throw e;
+		} finally {
+			endOperation(stats, error);
+		}
+	}
+
+	/**
+	 * groups the elements of the entity type and computes the aggregations in the database, so only one row per
+	 * group is transferred:
+	 *
+	 * <pre>
+	 * final List&lt;AggregateRow&gt; rows = manager.aggregate(TestAddress.class, filter, Arrays.asList("userId"),
+	 * 		Aggregation.count(), Aggregation.max("createdAt").as("lastCreated"));
+	 * rows.get(0).getLong("count");
+	 * </pre>
+	 *
+	 * The groups are sorted by the group by columns.
+	 *
+	 * @param entityType   - the entity type to aggregate
+	 * @param filter       - the criterias on the main entity or null
+	 * @param groupBy      - the fields or columns to group by, null or empty to aggregate all elements into one row
+	 * @param aggregations - the aggregate functions
+	 * @return one row per group
+	 * @throws Exception
+	 */
+	public List<AggregateRow> aggregate(final Class<? extends DatabaseEntity> entityType, final CriteriaGroup filter, final List<String> groupBy,
+			final Aggregation... aggregations) throws Exception {
+		final OperationStats stats = beginOperation(Operation.AGGREGATE, entityType);
+		Exception error = null;
+		try {
+			if (aggregations.length == 0 && (groupBy == null || groupBy.isEmpty())) {
+				throw new Exception("at least one aggregation or group by field is required");
+			}
+			final DatabaseEntity mainEntity = entityType.getConstructor().newInstance();
+			final String table = mainEntity.getTableName();
+			final Map<String, Integer> index = new LinkedHashMap<>();
+			final StringBuilder select = new StringBuilder();
+			final StringBuilder groups = new StringBuilder();
+			if (groupBy != null) {
+				for (final String field : groupBy) {
+					final String column = table + TABLE_COL_DELIMITER + toColumnName(mainEntity, field);
+					select.append(select.length() == 0 ? "" : ", ").append(column);
+					groups.append(groups.length() == 0 ? "" : ", ").append(column);
+					addIndex(index, field);
+				}
+			}
+			for (final Aggregation aggregation : aggregations) {
+				final String column = aggregation.getField() == null ? null
+						: table + TABLE_COL_DELIMITER + toColumnName(mainEntity, aggregation.getField());
+				select.append(select.length() == 0 ? "" : ", ").append(aggregation.toSql(column));
+				addIndex(index, aggregation.getAlias());
+			}
+			final StringBuilder sql = new StringBuilder("SELECT ").append(select).append(" FROM ").append(table);
+			final WherePart where = hasFilter(filter, null) ? createWherePart(table, filter, null, mainEntity) : null;
+			if (where != null) {
+				sql.append(" WHERE ").append(where.toString());
+			}
+			if (groups.length() > 0) {
+				sql.append(" GROUP BY ").append(groups).append(" ORDER BY ").append(groups);
+			}
+			final String query = sql.toString();
+			final Object[] args = where == null ? new Object[0] : where.getValues().toArray();
+			if (log.isDebugEnabled()) {
+				log.debug("Query: " + sqlPrettyPrint(query) + "\t[" + toCsv(args) + "]");
+			}
+			final long start = startTimer(stats);
+			final int width = index.size();
+			final List<AggregateRow> result = read(t -> t.query(query, (rs, rowNum) -> {
+				final Object[] values = new Object[width];
+				for (int i = 0; i < width; i++) {
+					values[i] = rs.getObject(i + 1);
+				}
+				return new AggregateRow(index, values);
+			}, args));
+			recordExecution(stats, query, args, result.size(), start);
+			return result;
+		} catch (final Exception e) {
+			error = e;
+			log.error("could not aggregate elements of type " + entityType.getName(), e);
+			throw e;
+		} finally {
+			endOperation(stats, error);
+		}
+	}
+
+	private static void addIndex(final Map<String, Integer> index, final String name) throws Exception {
+		if (index.put(name, index.size()) != null) {
+			throw new Exception("the name " + name + " is used twice, use Aggregation.as to rename an aggregation");
+		}
+	}
+
+	/**
+	 *
+	 * @param entity
+	 * @param name   - a field name or column name of the entity
+	 * @return the column name
+	 * @throws Exception if the entity has no such column
+	 */
+	private static String toColumnName(final DatabaseEntity entity, final String name) throws Exception {
+		final List<String> columns = entity.getColumnNames(true);
+		int i = 0;
+		for (final Field f : entity.getCachedDbFields()) {
+			if (Collection.class.isAssignableFrom(f.getType())) {
+				continue;
+			}
+			final String column = columns.get(i++);
+			if (f.getName().equalsIgnoreCase(name) || column.equalsIgnoreCase(name)) {
+				validateColName(column);
+				return column;
+			}
 		}
+		throw new Exception("the entity " + entity.getClass().getName() + " has no field or column " + name);
 	}
 
 	/**
@@ -476,11 +1459,17 @@ public class DataAccessManager {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T addElem(final DatabaseEntity obj) throws Exception {
+		final OperationStats stats = beginOperation(Operation.ADD_ELEM, obj.getClass());
+		Exception error = null;
 		try {
 			addElemRecursively(obj);
 		} catch (final Exception e) {
+			error = e;
 			log.error("could not add element of type " + obj.getClass().getName(), e);
 			throw e;
+		} finally {
+			markWrite(obj.getClass());
+			endOperation(stats, error);
 		}
 		return (T) obj;
 	}
@@ -488,22 +1477,210 @@ public class DataAccessManager {
 	private void addElemRecursively(final DatabaseEntity entity) throws Exception {
 		createChildrenBefore(entity);
 
+		final IdGenerator generator = getIdGenerator(entity);
+		if (generator != null) {
+			if (entity.getPrimaryKeyValue() == null) {
+				entity.setPrimaryKeyValue(generator.nextId(entity));
+			}
+			insertWithKey(entity);
+			addChildren(entity, false, UpdateOptions.full());
+			return;
+		}
+
+		final String[] cols = entity.getColumnNames(false).toArray(new String[0]);
 		final SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate)
 				.withTableName(entity.getTableName())
 				.usingGeneratedKeyColumns(entity.getPrimaryKeyColumn())
-				.usingColumns(entity.getColumnNames(false).toArray(new String[0]));
+				.usingColumns(cols);
 		final Map<String, Object> values = entity.toMap();
 
 		if (log.isDebugEnabled()) {
 			log.debug("INSERT INTO " + entity.getTableName() + " VALUES " + values);
 		}
+		final OperationStats stats = currentStats();
+		final long start = startTimer(stats);
 		final Number key = insert.executeAndReturnKey(values);
+		if (stats != null) {
+			recordExecution(stats, insert.getInsertString(), Arrays.stream(cols).map(c -> values.get(c.toLowerCase())).toArray(), 0, start);
+		}
 		if (log.isTraceEnabled()) {
 			log.trace("Returned primary key = " + key);
 		}
 		entity.setPrimaryKeyValue(key);
 
-		addChildren(entity, false);
+		addChildren(entity, false, UpdateOptions.full());
+	}
+
+	private void insertWithKey(final DatabaseEntity entity) throws Exception {
+		final String[] cols = entity.getColumnNames(true).toArray(new String[0]);
+		final SimpleJdbcInsert insert = new SimpleJdbcInsert(jdbcTemplate)
+				.withTableName(entity.getTableName())
+				.usingColumns(cols);
+		final Map<String, Object> values = entity.toMap();
+
+		if (log.isDebugEnabled()) {
+			log.debug("INSERT INTO " + entity.getTableName() + " VALUES " + values);
+		}
+		final OperationStats stats = currentStats();
+		final long start = startTimer(stats);
+		insert.execute(values);
+		if (stats != null) {
+			recordExecution(stats, insert.getInsertString(), Arrays.stream(cols).map(c -> values.get(c.toLowerCase())).toArray(), 0, start);
+		}
+	}
+
+	/**
+	 * inserts the given elements with multi row statements (INSERT INTO t (cols) VALUES (...),(...),...) using the
+	 * default number of rows per statement. See {@link #bulkInsertElems(List, int)}
+	 *
+	 * @param entities
+	 * @throws Exception
+	 */
+	public void bulkInsertElems(final List<? extends DatabaseEntity> entities) throws Exception {
+		bulkInsertElems(entities, BULK_INSERT_ROWS_PER_STATEMENT);
+	}
+
+	/**
+	 * inserts the given elements with multi row statements (INSERT INTO t (cols) VALUES (...),(...),...). The
+	 * number of rows per statement is capped by the bind parameter limit of the database. If the primary keys
+	 * are not set, they are assigned by the key generator of the {@link PrimaryKey} or are expected to be generated
+	 * by the database and are written back to the elements. Elements with a key and elements without one are
+	 * inserted in separate statements. If the database does not return generated keys in the order of the rows,
+	 * the elements without a key are inserted one per statement.
+	 * Only the columns of the elements themselves are written, child elements are not inserted
+	 *
+	 * @param entities         the elements to insert
+	 * @param rowsPerStatement the maximum number of rows to render into one statement
+	 * @throws Exception
+	 */
+	public void bulkInsertElems(final List<? extends DatabaseEntity> entities, final int rowsPerStatement) throws Exception {
+		if (rowsPerStatement < 1) {
+			throw new Exception("rowsPerStatement must be greater than 0");
+		}
+		final Map<Class<?>, List<DatabaseEntity>> type2entities = new LinkedHashMap<>();
+		for (final DatabaseEntity entity : entities) {
+			type2entities.computeIfAbsent(entity.getClass(), k -> new ArrayList<>()).add(entity);
+		}
+
+		final OperationStats stats = beginOperation(Operation.BULK_INSERT_ELEMS, type2entities.size() == 1 ? type2entities.keySet().iterator().next() : null);
+		Exception error = null;
+		try {
+			for (final Entry<Class<?>, List<DatabaseEntity>> entry : type2entities.entrySet()) {
+				try {
+					bulkInsert(entry.getValue(), rowsPerStatement);
+				} catch (final Exception e) {
+					log.error("could not bulk insert elements of type " + entry.getKey().getName(), e);
+					throw e;
+				}
+			}
+		} catch (final Exception e) {
+			error = e;
+			throw e;
+		} finally {
+			markWrite(type2entities.keySet());
+			endOperation(stats, error);
+		}
+	}
+
+	private void bulkInsert(final List<DatabaseEntity> entities, final int rowsPerStatement) throws Exception {
+		final IdGenerator generator = getIdGenerator(entities.get(0));
+		if (generator != null) {
+			for (final DatabaseEntity entity : entities) {
+				if (entity.getPrimaryKeyValue() == null) {
+					entity.setPrimaryKeyValue(generator.nextId(entity));
+				}
+			}
+		}
+		// the elements with a key are inserted with their key, for all others the database generates it
+		final List<DatabaseEntity> withKey = new ArrayList<>(entities.size());
+		final List<DatabaseEntity> withoutKey = new ArrayList<>();
+		for (final DatabaseEntity entity : entities) {
+			(entity.getPrimaryKeyValue() == null ? withoutKey : withKey).add(entity);
+		}
+		if (!withKey.isEmpty()) {
+			bulkInsert(withKey, rowsPerStatement, false);
+		}
+		if (!withoutKey.isEmpty()) {
+			bulkInsert(withoutKey, rowsPerStatement, true);
+		}
+	}
+
+	private void bulkInsert(final List<DatabaseEntity> entities, final int rowsPerStatement, final boolean generatedKeys) throws Exception {
+		final DatabaseEntity template = entities.get(0);
+		final String pkCol = template.getPrimaryKeyColumn();
+		final List<String> cols = template.getColumnNames(!generatedKeys);
+		for (final String col : cols) {
+			validateColName(col);
+		}
+
+		final int maxRows;
+		// without a defined order the generated keys could not be matched with the rows of a multi row insert
+		if (!dialect.supportsMultiRowInsert() || (generatedKeys && !dialect.returnsGeneratedKeysInRowOrder())) {
+			maxRows = 1;
+		} else {
+			maxRows = Math.max(1, Math.min(rowsPerStatement, dialect.getMaxBindParameters() / Math.max(1, cols.size())));
+		}
+
+		for (int from = 0; from < entities.size(); from += maxRows) {
+			final List<DatabaseEntity> chunk = entities.subList(from, Math.min(from + maxRows, entities.size()));
+			final String stmt = dialect.multiRowInsert(template.getTableName(), cols, chunk.size(), generatedKeys ? pkCol : null);
+			final List<Object> params = new ArrayList<>(chunk.size() * cols.size());
+			for (final DatabaseEntity entity : chunk) {
+				final Map<String, Object> values = entity.toMap();
+				for (final String col : cols) {
+					params.add(values.get(col.toLowerCase()));
+				}
+			}
+
+			if (log.isDebugEnabled()) {
+				log.debug("INSERT INTO " + template.getTableName() + " " + chunk.size() + " rows");
+			}
+			final OperationStats stats = currentStats();
+			final long start = startTimer(stats);
+			final List<Object> keys = jdbcTemplate.execute(new ConnectionCallback<List<Object>>() {
+				@Override
+				public List<Object> doInConnection(final Connection con) throws SQLException, DataAccessException {
+					final List<Object> keys = new ArrayList<>(chunk.size());
+					final boolean keysAsResultSet = generatedKeys && dialect.returnsKeysAsResultSet();
+					try (PreparedStatement ps = !generatedKeys || keysAsResultSet ? con.prepareStatement(stmt)
+							: con.prepareStatement(stmt, new String[] { pkCol })) {
+						for (int i = 0; i < params.size(); i++) {
+							StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, params.get(i));
+						}
+						if (keysAsResultSet) {
+							try (ResultSet rs = ps.executeQuery()) {
+								while (rs.next()) {
+									keys.add(rs.getObject(1));
+								}
+							}
+						} else {
+							ps.executeUpdate();
+							if (generatedKeys) {
+								try (ResultSet rs = ps.getGeneratedKeys()) {
+									while (rs.next()) {
+										keys.add(rs.getObject(1));
+									}
+								}
+							}
+						}
+					}
+					return keys;
+				}
+			});
+			recordExecution(stats, stmt, params.toArray(), keys.size(), start);
+
+			if (generatedKeys) {
+				if (keys.size() != chunk.size()) {
+					throw new Exception("expected " + chunk.size() + " generated keys for table " + template.getTableName() + " but got " + keys.size());
+				}
+				for (int i = 0; i < chunk.size(); i++) {
+					chunk.get(i).setPrimaryKeyValue(keys.get(i));
+				}
+				if (log.isTraceEnabled()) {
+					log.trace("Returned primary keys = " + keys);
+				}
+			}
+		}
 	}
 
 	private void createChildrenBefore(final DatabaseEntity entity) throws IllegalAccessException, Exception {
@@ -526,20 +1703,48 @@ public class DataAccessManager {
 	}
 
 	public void updateElems(final List<DatabaseEntity> entities) throws Exception {
+		updateElems(entities, UpdateOptions.full());
+	}
+
+	/**
+	 * updates the elements, see {@link #updateElem(DatabaseEntity, UpdateOptions)}
+	 *
+	 * @param entities
+	 * @param options  - the relations to reconcile
+	 * @throws Exception
+	 */
+	public void updateElems(final List<DatabaseEntity> entities, final UpdateOptions options) throws Exception {
 		for (final DatabaseEntity entity : entities) {
-			updateElem(entity);
+			updateElem(entity, options);
 		}
 	}
 
 	public void updateElem(final DatabaseEntity entity) throws Exception {
+		updateElem(entity, UpdateOptions.full());
+	}
+
+	/**
+	 * updates the row of the element and reconciles the relations selected by the options: children missing in a
+	 * 1:n list are deleted and new ones are added, m:n links are replaced by the ones in the list. An element
+	 * without primary key is added with all its relations
+	 *
+	 * @param entity
+	 * @param options - the relations to reconcile
+	 * @throws Exception if an option names a field which is not a relation of the element
+	 */
+	public void updateElem(final DatabaseEntity entity, final UpdateOptions options) throws Exception {
 		final Object pk = entity.getPrimaryKeyValue();
-		if (pk == null || Integer.valueOf(String.valueOf(pk)) == -1) {
+		if (pk == null || "-1".equals(String.valueOf(pk))) {
 			addElem(entity);
 		} else {
+			final OperationStats stats = beginOperation(Operation.UPDATE_ELEM, entity.getClass());
+			Exception error = null;
 			try {
+				validateRelations(entity, options);
+
 				createChildrenBefore(entity);
 
-				deleteUnusedChildren(entity);
+				deleteUnusedChildren(entity, options);
 
 				// then update the main entity
 				final StringBuilder sb = new StringBuilder();
@@ -554,30 +1759,198 @@ public class DataAccessManager {
 				if (log.isDebugEnabled()) {
 					log.debug("Query: " + sqlPrettyPrint(stmt) + "\t[" + entity.toMap() + "]");
 				}
-				int result = namedParameterJdbcTemplate.update(stmt, entity.toMap());
+				final Map<String, Object> values = entity.toMap();
+				final long start = startTimer(stats);
+				int result = namedParameterJdbcTemplate.update(stmt, values);
+				recordExecution(stats, stmt, values.values().toArray(), 0, start);
 				if (log.isTraceEnabled()) {
 					log.trace("Result: " + result + " rows affected");
 				}
 
-				addChildren(entity, true);
+				addChildren(entity, true, options);
 			} catch (final Exception e) {
+				error = e;
 				log.error("could not update element of type " + entity.getClass().getName(), e);
 				throw e;
+			} finally {
+				markWrite(entity.getClass());
+				endOperation(stats, error);
+			}
+		}
+	}
+
+	/**
+	 * sets the columns of all matching rows with a single UPDATE statement, without loading the elements. Child
+	 * elements are not touched:
+	 *
+	 * <pre>
+	 * final Map&lt;String, Object&gt; values = new HashMap&lt;&gt;();
+	 * values.put("status", "ARCHIVED");
+	 * final int updated = manager.updateWhere(TestOrder.class, new CriteriaGroup(Operator.AND, new Criteria("createdAt", Operator.LESS_THAN, date)), values);
+	 * </pre>
+	 *
+	 * @param entityType - the entity type of the table to update
+	 * @param filter     - the criterias on the table or null to update all rows
+	 * @param values     - the new values by field or column name. An entity as value is written as its primary key
+	 * @return the number of rows updated
+	 * @throws Exception
+	 */
+	public int updateWhere(final Class<? extends DatabaseEntity> entityType, final CriteriaGroup filter, final Map<String, Object> values)
+			throws Exception {
+		final OperationStats stats = beginOperation(Operation.UPDATE_WHERE, entityType);
+		Exception error = null;
+		try {
+			if (values == null || values.isEmpty()) {
+				throw new Exception("no values to update");
+			}
+			final DatabaseEntity entity = entityType.getConstructor().newInstance();
+			final String table = entity.getTableName();
+			final StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+			final List<Object> params = new ArrayList<>();
+			for (final Entry<String, Object> value : values.entrySet()) {
+				if (!params.isEmpty()) {
+					sql.append(", ");
+				}
+				sql.append(toColumnName(entity, value.getKey())).append(" = ?");
+				params.add(value.getValue() instanceof DatabaseEntity ? ((DatabaseEntity) value.getValue()).getPrimaryKeyValue() : value.getValue());
+			}
+			if (hasFilter(filter, null)) {
+				final WherePart where = createWherePart(table, filter, null, entity);
+				sql.append(" WHERE ").append(where.toString());
+				params.addAll(where.getValues());
+			}
+			final String stmt = sql.toString();
+			final Object[] args = params.toArray();
+			if (log.isDebugEnabled()) {
+				log.debug("Query: " + sqlPrettyPrint(stmt) + "\t[" + toCsv(args) + "]");
+			}
+			final long start = startTimer(stats);
+			final int result = jdbcTemplate.update(stmt, args);
+			recordExecution(stats, stmt, args, result, start);
+			if (log.isTraceEnabled()) {
+				log.trace("Result: " + result + " rows affected");
+			}
+			return result;
+		} catch (final Exception e) {
+			error = e;
+			log.error("could not update elements of type " + entityType.getName(), e);
+			throw e;
+		} finally {
+			markWrite(entityType);
+			endOperation(stats, error);
+		}
+	}
+
+	/**
+	 * inserts or updates the given elements by using the native upsert statement of the database (MERGE, ON
+	 * CONFLICT or ON DUPLICATE KEY). Elements are matched on the columns of the fields annotated with @UniqueKey
+	 * or, if there are none, on the primary key column. The statements are sent as JDBC batches, one batch per
+	 * entity type. Only the columns of the entities themselves are written, child elements are not touched
+	 *
+	 * @param entities
+	 * @throws Exception
+	 */
+	public void upsertElems(final List<? extends DatabaseEntity> entities) throws Exception {
+		final Map<Class<?>, List<DatabaseEntity>> type2entities = new LinkedHashMap<>();
+		for (final DatabaseEntity entity : entities) {
+			type2entities.computeIfAbsent(entity.getClass(), k -> new ArrayList<>()).add(entity);
+		}
+
+		final OperationStats stats = beginOperation(Operation.UPSERT_ELEMS, type2entities.size() == 1 ? type2entities.keySet().iterator().next() : null);
+		Exception error = null;
+		try {
+			for (final Entry<Class<?>, List<DatabaseEntity>> entry : type2entities.entrySet()) {
+				try {
+					upsertBatch(entry.getValue());
+				} catch (final Exception e) {
+					log.error("could not upsert elements of type " + entry.getKey().getName(), e);
+					throw e;
+				}
+			}
+		} catch (final Exception e) {
+			error = e;
+			throw e;
+		} finally {
+			markWrite(type2entities.keySet());
+			endOperation(stats, error);
+		}
+	}
+
+	private void upsertBatch(final List<DatabaseEntity> entities) throws Exception {
+		final DatabaseEntity template = entities.get(0);
+		final List<String> keyCols;
+		final List<String> cols;
+		if (template.getUniqueKeyColumnNames().isEmpty()) {
+			keyCols = new ArrayList<>();
+			keyCols.add(template.getPrimaryKeyColumn());
+			cols = template.getColumnNames(true);
+		} else {
+			keyCols = template.getUniqueKeyColumnNames();
+			cols = template.getColumnNames(false);
+		}
+		for (final String col : cols) {
+			validateColName(col);
+		}
+
+		final String stmt = dialect.upsert(template.getTableName(), cols, keyCols);
+		final List<Object[]> batchArgs = new ArrayList<>(entities.size());
+		for (final DatabaseEntity entity : entities) {
+			final Map<String, Object> values = entity.toMap();
+			final Object[] args = new Object[cols.size()];
+			for (int i = 0; i < cols.size(); i++) {
+				args[i] = values.get(cols.get(i).toLowerCase());
+			}
+			for (final String keyCol : keyCols) {
+				if (values.get(keyCol.toLowerCase()) == null) {
+					throw new Exception("key column " + keyCol + " of " + entity.getClass().getName() + " must not be null for an upsert");
+				}
+			}
+			batchArgs.add(args);
+		}
+
+		if (log.isDebugEnabled()) {
+			log.debug("Query: " + sqlPrettyPrint(stmt) + "\t[" + batchArgs.size() + " rows]");
+		}
+		final OperationStats stats = currentStats();
+		final int batchSize = dialect.getMaxBatchSize();
+		for (int from = 0; from < batchArgs.size(); from += batchSize) {
+			final List<Object[]> batch = batchArgs.subList(from, Math.min(from + batchSize, batchArgs.size()));
+			final long start = startTimer(stats);
+			final int[] result = jdbcTemplate.batchUpdate(stmt, batch);
+			if (stats != null) {
+				recordExecution(stats, stmt, batch.stream().flatMap(Arrays::stream).toArray(), 0, start);
+			}
+			if (log.isTraceEnabled()) {
+				log.trace("Result: " + result.length + " statements executed");
+			}
+		}
+	}
+
+	private void validateRelations(final DatabaseEntity entity, final UpdateOptions options) throws Exception {
+		if (options.getRelations() == null) {
+			return;
+		}
+		for (final String relation : options.getRelations()) {
+			final boolean found = entity.getCachedDbFields().stream()
+					.anyMatch(f -> f.getName().equals(relation) && f.getAnnotation(MappingRelation.class) != null);
+			if (!found) {
+				throw new Exception("'" + relation + "' is not a relation of " + entity.getClass().getName());
 			}
 		}
 	}
 
-	private void addChildren(final DatabaseEntity entity, boolean isUpdate) throws IllegalAccessException, Exception {
+	private void addChildren(final DatabaseEntity entity, boolean isUpdate, final UpdateOptions options) throws IllegalAccessException, Exception {
 		final Object pk = entity.getPrimaryKeyValue();
 		for (final Field field : entity.getCachedDbFields()) {
 			final MappingRelation mr = field.getAnnotation(MappingRelation.class);
-			if (mr != null) {
+			if (mr != null && options.includes(field.getName())) {
 				if (mr.mappingTableName().isEmpty()) {
 					// these are dependent child elements which will be created after creating the
 					// parent element
 					if (List.class.isAssignableFrom(field.getType())) {
 						final List<DatabaseEntity> list = (List) field.get(entity);
 						if (list != null) {
+							final List<DatabaseEntity> newChildren = new ArrayList<>();
 							for (final DatabaseEntity child : list) {
 								final Field fkField = child.getCachedDbFields().stream()
 										.filter(f -> f.getName().equalsIgnoreCase(mr.joinedColumnName())).findFirst().orElse(null);
@@ -585,6 +1958,13 @@ public class DataAccessManager {
 
 								// if they have a PK they were already created
 								if (child.getPrimaryKeyValue() == null) {
+									newChildren.add(child);
+								}
+							}
+							if (isBatchable(newChildren)) {
+								bulkInsert(newChildren, BULK_INSERT_ROWS_PER_STATEMENT);
+							} else {
+								for (final DatabaseEntity child : newChildren) {
 									addElemRecursively(child);
 								}
 							}
@@ -606,12 +1986,15 @@ public class DataAccessManager {
 								if (log.isDebugEnabled()) {
 									log.debug("m2m " + sql + " " + pk);
 								}
+								final OperationStats stats = currentStats();
+								final long start = startTimer(stats);
 								jdbcTemplate.query(sql, new RowCallbackHandler() {
 									@Override
 									public void processRow(ResultSet rs) throws SQLException {
 										alreadyThereList.add(rs.getObject(1));
 									}
 								}, pk);
+								recordExecution(stats, sql, new Object[] { pk }, alreadyThereList.size(), start);
 								if (log.isTraceEnabled()) {
 									log.trace("m2m Result: " + alreadyThereList);
 								}
@@ -638,7 +2021,10 @@ public class DataAccessManager {
 									if (log.isDebugEnabled()) {
 										log.debug("m2m INSERT INTO " + mr.mappingTableName() + " VALUES " + valuesM2M);
 									}
+									final OperationStats stats = currentStats();
+									final long start = startTimer(stats);
 									final int resultM2M = insertM2M.execute(valuesM2M);
+									recordExecution(stats, insertM2M.getInsertString(), new Object[] { pk, cpk }, 0, start);
 									if (log.isTraceEnabled()) {
 										log.trace("m2m Result: " + resultM2M + " affected rows");
 									}
@@ -658,11 +2044,29 @@ public class DataAccessManager {
 		}
 	}
 
-	private void deleteUnusedChildren(DatabaseEntity entity) throws Exception {
+	/**
+	 *
+	 * @param children
+	 * @return true if the children can be inserted with multi row statements: they are of one type with a client
+	 *         side key and have no relations of their own
+	 * @throws Exception
+	 */
+	private boolean isBatchable(final List<DatabaseEntity> children) throws Exception {
+		if (children.size() < 2) {
+			return false;
+		}
+		final Class<?> type = children.get(0).getClass();
+		if (children.stream().anyMatch(c -> c.getClass() != type) || getIdGenerator(children.get(0)) == null) {
+			return false;
+		}
+		return children.get(0).getCachedDbFields().stream().noneMatch(f -> f.getAnnotation(MappingRelation.class) != null);
+	}
+
+	private void deleteUnusedChildren(DatabaseEntity entity, final UpdateOptions options) throws Exception {
 		final Object pk = entity.getPrimaryKeyValue();
 		for (final Field field : entity.getCachedDbFields()) {
 			final MappingRelation mr = field.getAnnotation(MappingRelation.class);
-			if (mr != null) {
+			if (mr != null && options.includes(field.getName())) {
 				if (mr.mappingTableName().isEmpty()) {
 					// these are dependent child elements which will be created after creating the
 					// parent element
@@ -697,7 +2101,11 @@ public class DataAccessManager {
 								if (log.isDebugEnabled()) {
 									log.debug("o2m " + sql + " " + pksO2M);
 								}
-								final int result = jdbcTemplate.update(sql, pksO2M.toArray(new Object[pksO2M.size()]));
+								final Object[] args = pksO2M.toArray(new Object[pksO2M.size()]);
+								final OperationStats stats = currentStats();
+								final long start = startTimer(stats);
+								final int result = jdbcTemplate.update(sql, args);
+								recordExecution(stats, sql, args, 0, start);
 								if (log.isTraceEnabled()) {
 									log.trace("o2m Result: " + result + " affected rows");
 								}
@@ -731,7 +2139,11 @@ public class DataAccessManager {
 							if (log.isDebugEnabled()) {
 								log.debug("m2m " + sql + " " + pksM2M);
 							}
-							final int result = jdbcTemplate.update(sql, pksM2M.toArray(new Object[pksM2M.size()]));
+							final Object[] args = pksM2M.toArray(new Object[pksM2M.size()]);
+							final OperationStats stats = currentStats();
+							final long start = startTimer(stats);
+							final int result = jdbcTemplate.update(sql, args);
+							recordExecution(stats, sql, args, 0, start);
 							if (log.isTraceEnabled()) {
 								log.trace("m2m Result: " + result + " affected rows");
 							}
@@ -763,30 +2175,40 @@ public class DataAccessManager {
 	 * @throws Exception
 	 */
 	public void deleteElems(final CriteriaGroup advancedCriteria, final Class<? extends DatabaseEntity> entityType) throws Exception {
+		final OperationStats stats = beginOperation(Operation.DELETE_ELEMS, entityType);
+		Exception error = null;
 		try {
 			final DatabaseEntity obj = entityType.getConstructor().newInstance();
-			final WherePart whereClause = new WherePart(DB_PRODUCT, obj.getTableName(), advancedCriteria);
+			final WherePart whereClause = createWherePart(obj.getTableName(), advancedCriteria, null, obj);
 			final String stmt = "SELECT " + obj.getPrimaryKeyColumn() + " FROM " + obj.getTableName() + " WHERE " + whereClause.toString();
 
 			deleteElemsRecursively(obj, stmt, whereClause.getValues());
 		} catch (final Exception e) {
+			error = e;
 			log.error("could not delete element of type " + entityType.getName(), e);
 			throw e;
+		} finally {
+			markWrite(entityType);
+			endOperation(stats, error);
 		}
 	}
 
 	private void deleteElemsRecursively(final DatabaseEntity entity, final String stmt, final List<Object> params) throws Exception {
+		final OperationStats stats = currentStats();
 		for (final Field field : entity.getCachedDbFields()) {
 			// discover all sub elements which are coming from sub tables
 			final MappingRelation mr = field.getAnnotation(MappingRelation.class);
 			if (mr != null) {
 				// if there is an m:n mapping table, remove the entry first
 				if (!mr.mappingTableName().isEmpty()) {
-					final String nmDel = "DELETE FROM " + mr.mappingTableName() + " WHERE " + mr.masterColumnName() + " = (" + stmt + ")";
+					final String nmDel = "DELETE FROM " + mr.mappingTableName() + " WHERE " + mr.masterColumnName() + " IN (" + stmt + ")";
 					if (log.isDebugEnabled()) {
 						log.debug("Query: " + sqlPrettyPrint(nmDel) + "\t[" + toCsv(params.toArray()) + "]");
 					}
-					final int result = jdbcTemplate.update(nmDel, params.toArray());
+					final Object[] args = params.toArray();
+					final long start = startTimer(stats);
+					final int result = jdbcTemplate.update(nmDel, args);
+					recordExecution(stats, nmDel, args, 0, start);
 					if (log.isTraceEnabled()) {
 						log.trace("Result: " + result + " affected rows");
 					}
@@ -807,6 +2229,8 @@ public class DataAccessManager {
 		// subquery for insert/update/delete operations cannot reference the main table)
 		// final String query = "DELETE FROM " + entity.getTableName() + " WHERE " +
 		// entity.getPrimaryKeyColumn() + " IN (" + stmt + ")";
+		final Object[] args = params.toArray();
+		long start = startTimer(stats);
 		final List<Long> idsToDelete = jdbcTemplate.query(stmt, new RowMapper<Long>() {
 			@Override
 			public Long mapRow(final ResultSet rs, final int rowNum) throws SQLException {
@@ -817,7 +2241,8 @@ public class DataAccessManager {
 				}
 				return -1L;
 			}
-		}, params.toArray());
+		}, args);
+		recordExecution(stats, stmt, args, idsToDelete.size(), start);
 
 		if (!idsToDelete.isEmpty()) {
 			final String query = "DELETE FROM " + entity.getTableName() + " WHERE " + entity.getPrimaryKeyColumn() + " IN ("
@@ -825,7 +2250,9 @@ public class DataAccessManager {
 			if (log.isDebugEnabled()) {
 				log.debug("Query: " + sqlPrettyPrint(query) + "\t[" + toCsv(idsToDelete.toArray()) + "]");
 			}
+			start = startTimer(stats);
 			final int result = jdbcTemplate.update(query);
+			recordExecution(stats, query, null, 0, start);
 			if (log.isTraceEnabled()) {
 				log.trace("Result: " + result + " affected rows");
 			}
@@ -898,23 +2325,29 @@ public class DataAccessManager {
 	 */
 	public String buildQuery(final DatabaseEntity entity, final CriteriaGroup filter, final Sort sort, final ArrayList<Object> params,
 			final Integer fetchDepth) throws Exception {
+		return buildQuery(entity, filter, null, sort, params, fetchDepth);
+	}
+
+	private String buildQuery(final DatabaseEntity entity, final CriteriaGroup filter, final CompiledFilter compiledFilter, final Sort sort,
+			final ArrayList<Object> params, final Integer fetchDepth) throws Exception {
 		final StringBuilder select = new StringBuilder();
 		final StringBuilder from = new StringBuilder();
 		final StringBuilder join = new StringBuilder();
 		final StringBuilder where = new StringBuilder();
-		buildQueryRecursively(entity, "/", filter, select, from, join, where, sort, params, 0, fetchDepth == null ? -1 : fetchDepth);
+		// the sort is only read, so a Sort instance can be shared between threads
+		buildQueryRecursively(entity, "/", filter, compiledFilter, select, from, join, where, params, 0, fetchDepth == null ? -1 : fetchDepth);
 		return select.toString() + from.toString() + join.toString() + where.toString() + (sort != null ? sort.toString() : "");
 	}
 
-	private void buildQueryRecursively(final DatabaseEntity entity, final CriteriaGroup filter, final StringBuilder select,
-			final StringBuilder from, final StringBuilder join, final StringBuilder where, final Sort orderBy,
+	private void buildQueryRecursively(final DatabaseEntity entity, final CriteriaGroup filter, final CompiledFilter compiledFilter,
+			final StringBuilder select, final StringBuilder from, final StringBuilder join, final StringBuilder where,
 			final ArrayList<Object> params, final int fetchDepth) throws Exception {
-		buildQueryRecursively(entity, "/", filter, select, from, join, where, orderBy, params, 0, fetchDepth);
+		buildQueryRecursively(entity, "/", filter, compiledFilter, select, from, join, where, params, 0, fetchDepth);
 	}
 
-	private void buildQueryRecursively(final DatabaseEntity entity, String path, final CriteriaGroup filter, final StringBuilder select,
-			final StringBuilder from, final StringBuilder join, final StringBuilder where, Sort orderBy, final ArrayList<Object> params,
-			int currentDepth, final int fetchDepth) throws Exception {
+	private void buildQueryRecursively(final DatabaseEntity entity, String path, final CriteriaGroup filter,
+			final CompiledFilter compiledFilter, final StringBuilder select, final StringBuilder from, final StringBuilder join,
+			final StringBuilder where, final ArrayList<Object> params, int currentDepth, final int fetchDepth) throws Exception {
 		currentDepth++;
 
 		// search for custom sql
@@ -922,8 +2355,8 @@ public class DataAccessManager {
 			final CustomSql customSql = entity.getClass().getAnnotation(CustomSql.class);
 			select.setLength(0);
 			select.append(customSql.selectQuery());
-			if (filter != null && !filter.getCriterias().isEmpty()) {
-				final WherePart wp = new WherePart(DB_PRODUCT, (String) null, filter);
+			if (hasFilter(filter, compiledFilter)) {
+				final WherePart wp = createWherePart(null, filter, compiledFilter, entity);
 				params.addAll(wp.getValues());
 				where.append(" WHERE " + wp.toString());
 			}
@@ -933,17 +2366,11 @@ public class DataAccessManager {
 		if (select.length() == 0) {
 			select.append("SELECT " + getColumnsCsv(entity.getTableName(), entity.getColumnNames(true), false));
 			from.append(" FROM " + entity.getTableName());
-			if (filter != null && !filter.getCriterias().isEmpty()) {
-				final WherePart wp = new WherePart(DB_PRODUCT, entity.getTableName(), filter);
+			if (hasFilter(filter, compiledFilter)) {
+				final WherePart wp = createWherePart(entity.getTableName(), filter, compiledFilter, entity);
 				params.addAll(wp.getValues());
 				where.append(" WHERE " + wp.toString());
 			}
-			if (orderBy == null) {
-				orderBy = new Sort();
-			}
-			if (orderBy.getSortFields().isEmpty()) {
-				orderBy.addSortField(entity.getTableName() + "." + entity.getPrimaryKeyColumn(), SortDirection.DESC);
-			}
 		}
 
 		final Field aliasField = findField(entity.getClass(), "tableAlias");
@@ -997,7 +2424,8 @@ public class DataAccessManager {
 				}
 				// keep track of the current level in the tree
 				path += "/" + entity.getTableName();
-				buildQueryRecursively(childEntity, path, filter, select, from, join, where, orderBy, params, currentDepth, fetchDepth);
+				buildQueryRecursively(childEntity, path, filter, compiledFilter, select, from, join, where, params, currentDepth,
+						fetchDepth);
 				path = path.substring(0, path.lastIndexOf("/"));
 
 			}
@@ -1009,6 +2437,28 @@ public class DataAccessManager {
 		}
 	}
 
+	private static Class<? extends DatabaseEntity> getEntityType(final CompiledFilter filter) throws Exception {
+		if (filter.getEntityType() == null) {
+			throw new Exception("the filter was compiled for table " + filter.getTableAlias() + " and not for an entity type");
+		}
+		return filter.getEntityType();
+	}
+
+	private static boolean hasFilter(final CriteriaGroup filter, final CompiledFilter compiledFilter) {
+		return compiledFilter != null || (filter != null && !filter.getCriterias().isEmpty());
+	}
+
+	private WherePart createWherePart(final String tableAlias, final CriteriaGroup filter, final CompiledFilter compiledFilter, final DatabaseEntity entity)
+			throws Exception {
+		if (compiledFilter == null) {
+			return new WherePart(dialect, entity, tableAlias, filter);
+		}
+		if (!Objects.equals(tableAlias, compiledFilter.getTableAlias())) {
+			throw new Exception("the filter was compiled for table " + compiledFilter.getTableAlias() + " but is used for table " + tableAlias);
+		}
+		return compiledFilter.toWherePart();
+	}
+
 	private Field findField(final Class<?> clazz, final String fieldName) {
 		for (final Field f : clazz.getDeclaredFields()) {
 			f.setAccessible(true);
@@ -1023,7 +2473,8 @@ public class DataAccessManager {
 	}
 
 	/**
-	 * checks if the type and object. Then converts into the correct type
+	 * checks if the type and object. Then converts into the correct type. The conversion is looked up in the
+	 * {@link TypeConverters} registry
 	 * 
 	 * @param type
 	 * @param obj
@@ -1033,32 +2484,7 @@ public class DataAccessManager {
 		if (obj == null) {
 			return obj;
 		}
-		if (Number.class.isAssignableFrom(type) && obj instanceof Number) {
-			if (Long.class.isAssignableFrom(type)) {
-				return ((Number) obj).longValue();
-			}
-			if (Integer.class.isAssignableFrom(type)) {
-				return ((Number) obj).intValue();
-			}
-			if (Double.class.isAssignableFrom(type)) {
-				return ((Number) obj).doubleValue();
-			}
-			if (Float.class.isAssignableFrom(type)) {
-				return ((Number) obj).floatValue();
-			}
-		}
-		if (IKodoEnum.class.isAssignableFrom(type) && obj instanceof String) {
-			for (final Enum constant : ((Class<Enum>) type).getEnumConstants()) {
-				if (((IKodoEnum) constant).getValue().equals(obj)) {
-					return constant;
-				}
-			}
-			throw new Exception("Cannot resolve '" + obj + "' to enum value of type " + type.getName());
-		}
-		if (String.class.isAssignableFrom(type)) {
-			obj.toString();
-		}
-		return obj;
+		return TypeConverters.get(type, obj.getClass()).convert(obj);
 	}
 
 	public static String sqlPrettyPrint(final String sql) {
@@ -1075,16 +2501,9 @@ public class DataAccessManager {
 		}
 	}
 
-	private String addPaging(final String query, final int currentPage, final int pageSize, final int totalRows) throws Exception {
-
+	private String addPaging(final String query, final int currentPage, final int pageSize) throws Exception {
 		final int startRow = (currentPage - 1) * pageSize;
-
-		if (DB_PRODUCT.equals("Microsoft SQL Server")) {
-			return query + " OFFSET " + startRow + " ROWS FETCH NEXT " + pageSize + " ROWS ONLY";
-		} else {
-			final int endRow = Math.min(startRow + pageSize, totalRows);
-			return query + " LIMIT " + (endRow - startRow) + " OFFSET " + startRow;
-		}
+		return dialect.addPaging(query, startRow, pageSize);
 	}
 
 	private String getProduct() {
@@ -1,13 +1,18 @@
 package com.segmeno.kodo.database;
 
+import com.segmeno.kodo.annotation.CaseMatching;
 import com.segmeno.kodo.annotation.Column;
 import com.segmeno.kodo.annotation.DbIgnore;
 import com.segmeno.kodo.annotation.MappingRelation;
 import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.annotation.UniqueKey;
+import com.segmeno.kodo.database.mapping.EntityMapper;
+import com.segmeno.kodo.database.mapping.EntityMappers;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -24,38 +29,67 @@ public abstract class DatabaseEntity {
 	@SuppressWarnings("unused")
 	private String tableAlias;
 	private final Field primaryKey;
+	private final transient ArrayList<Field> fields;
+	// the generated mapper or null to access the fields by reflection
+	private final transient EntityMapper<DatabaseEntity> mapper;
 
-	private final transient HashMap<Class, ArrayList<Field>> class2fields = new HashMap<>(64);
-	private final transient HashMap<Class, Field> class2pk = new HashMap<>(64);
-	private transient ArrayList<Field> fields;
+	// the persisted fields and the primary key of each entity class, resolved once per class without locking
+	private static final ClassValue<Metadata> METADATA = new ClassValue<Metadata>() {
+		@Override
+		protected Metadata computeValue(final Class<?> clazz) {
+			return new Metadata(clazz);
+		}
+	};
 
-	public DatabaseEntity() {
-		final Class clazz = this.getClass();
-		fields = class2fields.get(clazz);
-		if(fields == null) {
-			synchronized(class2fields) {
-				fields = class2fields.get(clazz);
-				if(fields == null) {
-					fields = new ArrayList<>(128);
-					final Field pk = getFields(clazz, fields);
-					class2pk.put(clazz, pk);
-					fields.trimToSize();
-					class2fields.put(clazz, fields);
-				}
-			}
+	private static final class Metadata {
+		private final ArrayList<Field> fields = new ArrayList<>();
+		private final Field primaryKey;
+		private final EntityMapper<DatabaseEntity> mapper;
+		private final Map<String, CaseMatching> caseMatchings;
+
+		// the mapper of the class is only called with instances of the class
+		@SuppressWarnings("unchecked")
+		private Metadata(final Class<?> clazz) {
+			primaryKey = getFields(clazz, fields);
+			fields.trimToSize();
+			mapper = (EntityMapper<DatabaseEntity>) EntityMappers.get(clazz.asSubclass(DatabaseEntity.class));
+			caseMatchings = getCaseMatchings(fields);
 		}
+	}
 
-		primaryKey = class2pk.get(clazz);
+	public DatabaseEntity() {
+		final Metadata metadata = METADATA.get(this.getClass());
+		fields = metadata.fields;
+		primaryKey = metadata.primaryKey;
+		mapper = metadata.mapper;
 		if(primaryKey == null) {
 		  throw new RuntimeException(this.getClass().getName() + " has not @PrimaryKey defined");
 		}
 	}
 
+	/**
+	 *
+	 * @return the persisted fields of this entity. The list is shared by all instances of the class and must not be
+	 *         modified
+	 */
 	public ArrayList<Field> getCachedDbFields() {
 		return fields;
 	}
 	
-	private Field getFields(Class startClass, ArrayList<Field> fields) {
+	private static Map<String, CaseMatching> getCaseMatchings(final List<Field> fields) {
+		final Map<String, CaseMatching> caseMatchings = new HashMap<>();
+		for (final Field f : fields) {
+			final Column column = f.getAnnotation(Column.class);
+			if (column == null || column.caseMatching() == CaseMatching.DIALECT) {
+				continue;
+			}
+			final String colName = column.columnName().isEmpty() ? f.getName() : column.columnName();
+			caseMatchings.put(colName.toUpperCase(), column.caseMatching());
+		}
+		return caseMatchings.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(caseMatchings);
+	}
+
+	private static Field getFields(Class<?> startClass, ArrayList<Field> fields) {
 		Field pk = null;
 		Class clazz = startClass;
 		while(clazz != null && !DatabaseEntity.class.equals(clazz)) {
@@ -91,6 +125,9 @@ public abstract class DatabaseEntity {
 	 * @return the column names of this entity
 	 */
 	public List<String> getColumnNames(final boolean includePrimaryKeyColumn) throws Exception {
+		if (mapper != null) {
+			return new ArrayList<>(mapper.getColumnNames(includePrimaryKeyColumn));
+		}
 		final List<String> cols = new ArrayList<>();
 		for (final Field f : fields) {
 			if ((!includePrimaryKeyColumn && f.getAnnotation(PrimaryKey.class) != null) || Collection.class.isAssignableFrom(f.getType())) {
@@ -109,12 +146,38 @@ public abstract class DatabaseEntity {
 		return cols;
 	};
 
+	/**
+	 *
+	 * @return the column names of all fields annotated with @UniqueKey. Empty if there is no unique key defined
+	 */
+	public List<String> getUniqueKeyColumnNames() {
+		final List<String> cols = new ArrayList<>();
+		for (final Field f : fields) {
+			if (f.getAnnotation(UniqueKey.class) == null || !f.getAnnotation(UniqueKey.class).value()) {
+				continue;
+			}
+			if (f.getAnnotation(Column.class) != null && !f.getAnnotation(Column.class).columnName().isEmpty()) {
+				cols.add(f.getAnnotation(Column.class).columnName());
+			}
+			else if (f.getAnnotation(MappingRelation.class) != null && f.getAnnotation(MappingRelation.class).mappingTableName().isEmpty()) {
+				cols.add(f.getAnnotation(MappingRelation.class).masterColumnName());
+			}
+			else {
+				cols.add(f.getName());
+			}
+		}
+		return cols;
+	}
+
 	/**
 	 * * retrieves all fields which should be persisted in the db when saving the inheriting object
 	 * @return a map presentation of the object
 	 * @throws Exception
 	 */
 	public Map<String, Object> toMap() throws Exception {
+		if (mapper != null) {
+			return mapper.toMap(this);
+		}
 		final Map<String,Object> map = new HashMap<String,Object>();
 		for (final Field f : fields) {
 			if (List.class.isAssignableFrom(f.getType())) {
@@ -160,6 +223,23 @@ public abstract class DatabaseEntity {
 		throw new Exception("Could not find primary key for entity '" + this.getClass().getName() +"'. Please use the '@PrimaryKey' annotation to mark a field as PrimaryKey!");
 	}
 
+	/**
+	 *
+	 * @return how the case insensitive operators compare the columns declared with
+	 *         {@link Column#caseMatching()}, by upper case column name. Columns using the dialect are not contained
+	 */
+	public Map<String, CaseMatching> getCaseMatchings() {
+		return METADATA.get(this.getClass()).caseMatchings;
+	}
+
+	/**
+	 *
+	 * @return the annotation of the primary key field, which defines how the key is generated
+	 */
+	public PrimaryKey getPrimaryKeyDefinition() {
+		return primaryKey.getAnnotation(PrimaryKey.class);
+	}
+
 	/**
 	 * fills the inheriting object from the values from the map
 	 * @param map all values to the corresponding field names
@@ -184,6 +264,10 @@ public abstract class DatabaseEntity {
 		if (primaryKey == null) {
 			throw new Exception("Could not find primary key for entity '" + this.getClass().getName() +"'. Please use the '@PrimaryKey' annotation to mark a field as PrimaryKey!");
 		}
+		if (mapper != null) {
+			mapper.setPrimaryKeyValue(this, id);
+			return;
+		}
 		primaryKey.set(this, DataAccessManager.convertTo(primaryKey.getType(), id));
 	}
 
@@ -199,6 +283,9 @@ public abstract class DatabaseEntity {
 			LOGGER.error(msg);
 			throw new RuntimeException(msg);
 		}
+		if (mapper != null) {
+			return mapper.getPrimaryKeyValue(this);
+		}
 		try {
 			return primaryKey.get(this);
 		} catch (final Exception e) {
@@ -208,6 +295,30 @@ public abstract class DatabaseEntity {
 		}
 	}
 
+	/**
+	 * sets a persisted field read from a row
+	 *
+	 * @param field - one of {@link #getCachedDbFields()}
+	 * @param value - the value, already converted into the type of the field
+	 * @throws Exception
+	 */
+	void setFieldValue(final Field field, final Object value) throws Exception {
+		if (mapper == null || !mapper.setValue(this, field.getName(), value)) {
+			field.set(this, value);
+		}
+	}
+
+	/**
+	 *
+	 * @param entityType
+	 * @return a new instance, created by the generated mapper if there is one
+	 * @throws Exception
+	 */
+	static <T extends DatabaseEntity> T newInstance(final Class<T> entityType) throws Exception {
+		final EntityMapper<T> mapper = EntityMappers.get(entityType);
+		return mapper != null ? mapper.newInstance() : entityType.getConstructor().newInstance();
+	}
+
 	/**
 	 * convenience method to access map values which are integers
 	 *
@@ -0,0 +1,64 @@
+package com.segmeno.kodo.database;
+
+import java.util.HashMap;
+
+/**
+ * the entities already created while mapping the rows of a query, by alias and primary key. Integral keys are
+ * held in a primitive map per alias, other keys (strings, decimals, ...) by their string representation
+ */
+final class EntityIdentityMap {
+
+	private HashMap<String, LongObjectMap<DatabaseEntity>> numeric;
+	private HashMap<String, HashMap<String, DatabaseEntity>> other;
+	private int size;
+
+	/**
+	 *
+	 * @return true if the key is held in the primitive map
+	 */
+	static boolean isIntegral(final Object pk) {
+		return pk instanceof Long || pk instanceof Integer || pk instanceof Short || pk instanceof Byte;
+	}
+
+	DatabaseEntity get(final String alias, final Object pk) {
+		if (isIntegral(pk)) {
+			final LongObjectMap<DatabaseEntity> byPk = numeric == null ? null : numeric.get(alias);
+			return byPk == null ? null : byPk.get(((Number) pk).longValue());
+		}
+		final HashMap<String, DatabaseEntity> byPk = other == null ? null : other.get(alias);
+		return byPk == null ? null : byPk.get(String.valueOf(pk));
+	}
+
+	void put(final String alias, final Object pk, final DatabaseEntity entity) {
+		final Object previous;
+		if (isIntegral(pk)) {
+			if (numeric == null) {
+				numeric = new HashMap<>();
+			}
+			previous = numeric.computeIfAbsent(alias, k -> new LongObjectMap<>()).put(((Number) pk).longValue(), entity);
+		} else {
+			if (other == null) {
+				other = new HashMap<>();
+			}
+			previous = other.computeIfAbsent(alias, k -> new HashMap<>()).put(String.valueOf(pk), entity);
+		}
+		if (previous == null) {
+			size++;
+		}
+	}
+
+	/**
+	 * counts an entity which is not looked up again (i.e. the element of a many to one relation)
+	 */
+	void count() {
+		size++;
+	}
+
+	/**
+	 *
+	 * @return the number of entities put or counted
+	 */
+	int size() {
+		return size;
+	}
+}
@@ -0,0 +1,101 @@
+package com.segmeno.kodo.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * pins one connection of the DataSource for a block of work and caches the PreparedStatements prepared on it,
+ * so repeated statements neither check out a connection nor are prepared again. The manager of the session runs
+ * all statements on the pinned connection:
+ *
+ * <pre>
+ * try (KodoSession session = manager.openSession()) {
+ *     for (final TestUser user : users) {
+ *         session.getManager().updateElem(user);
+ *     }
+ * }
+ * </pre>
+ *
+ * Within a Spring managed transaction the connection of the transaction is used. A session belongs to the thread
+ * which opened it and must be closed to give the connection back.
+ */
+public class KodoSession implements AutoCloseable {
+
+	private final DataSource dataSource;
+	private final Connection connection;
+	private final StatementCachingConnection cachingConnection;
+	private final DataAccessManager manager;
+	private boolean closed;
+
+	/**
+	 *
+	 * @param parent        - the manager to take the DataSource, dialect, listeners and query cache from
+	 * @param cacheCapacity - the maximum number of cached statements
+	 */
+	KodoSession(final DataAccessManager parent, final int cacheCapacity) {
+		if (cacheCapacity < 1) {
+			throw new IllegalArgumentException("the statement cache capacity must be at least 1");
+		}
+		this.dataSource = parent.getJdbcTemplate().getDataSource();
+		this.connection = DataSourceUtils.getConnection(dataSource);
+		this.cachingConnection = new StatementCachingConnection(connection, cacheCapacity);
+		this.manager = new DataAccessManager(parent, new JdbcTemplate(new SingleConnectionDataSource(cachingConnection.getConnection(), true)));
+	}
+
+	/**
+	 *
+	 * @return the manager running its statements on the pinned connection. Reads are not routed to replicas
+	 */
+	public DataAccessManager getManager() {
+		checkOpen();
+		return manager;
+	}
+
+	/**
+	 *
+	 * @return the number of statements prepared on the connection
+	 */
+	public long getPreparedStatements() {
+		return cachingConnection.getPrepared();
+	}
+
+	/**
+	 *
+	 * @return the number of statements served from the cache
+	 */
+	public long getStatementCacheHits() {
+		return cachingConnection.getHits();
+	}
+
+	public int getCachedStatements() {
+		return cachingConnection.size();
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("the session is closed");
+		}
+	}
+
+	/**
+	 * closes the cached statements and gives the connection back to the DataSource
+	 */
+	@Override
+	public void close() throws SQLException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			cachingConnection.closeStatements();
+		} finally {
+			DataSourceUtils.releaseConnection(connection, dataSource);
+		}
+	}
+}
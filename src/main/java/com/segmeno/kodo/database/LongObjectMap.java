@@ -0,0 +1,108 @@
+package com.segmeno.kodo.database;
+
+/**
+ * a hash map with primitive long keys and open addressing (linear probing), so looking up an entity by its
+ * numeric primary key neither boxes the key nor creates entry objects. Values must not be null
+ *
+ * @param <V> the value type
+ */
+final class LongObjectMap<V> {
+
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+
+	LongObjectMap() {
+		this(MIN_CAPACITY / 2);
+	}
+
+	/**
+	 *
+	 * @param expectedSize - the number of entries to hold without resizing
+	 */
+	LongObjectMap(final int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	// spreads sequential ids over the table (finalizer of MurmurHash3)
+	private static int slot(final long key, final int mask) {
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+
+	@SuppressWarnings("unchecked")
+	V get(final long key) {
+		for (int i = slot(key, mask);; i = (i + 1) & mask) {
+			final Object value = values[i];
+			if (value == null) {
+				return null;
+			}
+			if (keys[i] == key) {
+				return (V) value;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return the previous value or null
+	 */
+	@SuppressWarnings("unchecked")
+	V put(final long key, final V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("null values are not supported");
+		}
+		for (int i = slot(key, mask);; i = (i + 1) & mask) {
+			final Object current = values[i];
+			if (current == null) {
+				keys[i] = key;
+				values[i] = value;
+				// keep the load factor below 0.75
+				if (++size * 4 > values.length * 3) {
+					resize();
+				}
+				return null;
+			}
+			if (keys[i] == key) {
+				values[i] = value;
+				return (V) current;
+			}
+		}
+	}
+
+	private void resize() {
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+		allocate(oldValues.length * 2);
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != null) {
+				int i = slot(oldKeys[j], mask);
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	int size() {
+		return size;
+	}
+}
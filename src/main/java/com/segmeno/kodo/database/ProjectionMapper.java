@@ -0,0 +1,228 @@
+package com.segmeno.kodo.database;
+
+import java.beans.ConstructorProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.segmeno.kodo.annotation.Column;
+import com.segmeno.kodo.annotation.DbIgnore;
+import com.segmeno.kodo.database.conversion.TypeConverter;
+import com.segmeno.kodo.database.conversion.TypeConverters;
+
+/**
+ * maps flat rows into records or DTOs, see {@link DataAccessManager#queryInto(Class, String, com.segmeno.kodo.transport.CriteriaGroup, com.segmeno.kodo.transport.Sort)}.
+ * The columns and the way to create an instance are resolved once per type:
+ * <ul>
+ * <li>records are created with their canonical constructor, the columns are named after the components</li>
+ * <li>classes with a constructor annotated with @ConstructorProperties are created with it, the columns are named
+ * after the properties</li>
+ * <li>all other classes need a no-arg constructor, the columns are named after the non static fields</li>
+ * </ul>
+ * The column name can be changed with @Column on the field, fields with @DbIgnore are skipped.
+ *
+ * @param <R> the record type
+ */
+final class ProjectionMapper<R> {
+
+	private static final ClassValue<ProjectionMapper<?>> MAPPERS = new ClassValue<ProjectionMapper<?>>() {
+		@Override
+		protected ProjectionMapper<?> computeValue(final Class<?> type) {
+			try {
+				return new ProjectionMapper<>(type);
+			} catch (final Exception e) {
+				throw new IllegalArgumentException("cannot map rows into " + type.getName() + ": " + e.getMessage(), e);
+			}
+		}
+	};
+
+	// records exist from Java 16 on, so they are detected reflectively
+	private static final Method IS_RECORD = classMethod("isRecord");
+	private static final Method GET_RECORD_COMPONENTS = classMethod("getRecordComponents");
+
+	private final Class<R> type;
+	private final String[] columns;
+	private final Class<?>[] types;
+	// (Object[])Object, if the instance is created with all values
+	private final MethodHandle constructor;
+	// ()Object and (Object,Object)void, if the values are set after creating the instance
+	private final MethodHandle noArgConstructor;
+	private final MethodHandle[] setters;
+
+	@SuppressWarnings("unchecked")
+	static <R> ProjectionMapper<R> of(final Class<R> type) throws Exception {
+		try {
+			return (ProjectionMapper<R>) MAPPERS.get(type);
+		} catch (final IllegalArgumentException e) {
+			throw new Exception(e.getMessage(), e.getCause());
+		}
+	}
+
+	private ProjectionMapper(final Class<R> type) throws Exception {
+		this.type = type;
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		final List<String> names = new ArrayList<>();
+		final List<Class<?>> typeList = new ArrayList<>();
+
+		final Constructor<?> valueConstructor = findValueConstructor(type, names, typeList);
+		if (valueConstructor != null) {
+			valueConstructor.setAccessible(true);
+			this.constructor = lookup.unreflectConstructor(valueConstructor).asType(
+					MethodType.methodType(Object.class, valueConstructor.getParameterTypes())).asSpreader(Object[].class, names.size())
+					.asType(MethodType.methodType(Object.class, Object[].class));
+			this.noArgConstructor = null;
+			this.setters = null;
+			this.columns = new String[names.size()];
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = columnName(findField(type, names.get(i)), names.get(i));
+			}
+		} else {
+			final Constructor<R> noArg = type.getDeclaredConstructor();
+			noArg.setAccessible(true);
+			this.constructor = null;
+			this.noArgConstructor = lookup.unreflectConstructor(noArg).asType(MethodType.methodType(Object.class));
+			final List<MethodHandle> setterList = new ArrayList<>();
+			final List<String> columnList = new ArrayList<>();
+			for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+				for (final Field field : c.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()
+							|| field.getAnnotation(DbIgnore.class) != null) {
+						continue;
+					}
+					field.setAccessible(true);
+					setterList.add(lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class)));
+					columnList.add(columnName(field, field.getName()));
+					typeList.add(field.getType());
+				}
+			}
+			this.setters = setterList.toArray(new MethodHandle[0]);
+			this.columns = columnList.toArray(new String[0]);
+		}
+		if (columns.length == 0) {
+			throw new Exception("no columns found");
+		}
+		this.types = typeList.toArray(new Class<?>[0]);
+	}
+
+	/**
+	 *
+	 * @return the canonical constructor of a record or the constructor annotated with @ConstructorProperties
+	 */
+	private static Constructor<?> findValueConstructor(final Class<?> type, final List<String> names, final List<Class<?>> types)
+			throws Exception {
+		if (IS_RECORD != null && (Boolean) IS_RECORD.invoke(type)) {
+			for (final Object component : (Object[]) GET_RECORD_COMPONENTS.invoke(type)) {
+				names.add((String) component.getClass().getMethod("getName").invoke(component));
+				types.add((Class<?>) component.getClass().getMethod("getType").invoke(component));
+			}
+			return type.getDeclaredConstructor(types.toArray(new Class<?>[0]));
+		}
+		for (final Constructor<?> ctor : type.getDeclaredConstructors()) {
+			final ConstructorProperties properties = ctor.getAnnotation(ConstructorProperties.class);
+			if (properties != null) {
+				if (properties.value().length != ctor.getParameterCount()) {
+					throw new Exception("@ConstructorProperties does not name all parameters of " + ctor);
+				}
+				for (int i = 0; i < properties.value().length; i++) {
+					names.add(properties.value()[i]);
+					types.add(ctor.getParameterTypes()[i]);
+				}
+				return ctor;
+			}
+		}
+		return null;
+	}
+
+	private static Field findField(final Class<?> type, final String name) {
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			try {
+				return c.getDeclaredField(name);
+			} catch (final NoSuchFieldException e) {
+				// look in the super class
+			}
+		}
+		return null;
+	}
+
+	private static String columnName(final Field field, final String name) {
+		final Column column = field == null ? null : field.getAnnotation(Column.class);
+		return column != null && !column.columnName().isEmpty() ? column.columnName() : name;
+	}
+
+	private static Method classMethod(final String name) {
+		try {
+			return Class.class.getMethod(name);
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @return the columns to select, in the order the row mapper reads them
+	 */
+	String[] getColumns() {
+		return columns.clone();
+	}
+
+	/**
+	 * creates a row mapper for one query. It remembers the converter of each column for the type of the last value
+	 *
+	 * @return the mapper reading the columns by their position
+	 */
+	RowMapper<R> rowMapper() {
+		final Class<?>[] sourceTypes = new Class<?>[columns.length];
+		final TypeConverter[] converters = new TypeConverter[columns.length];
+		return (rs, rowNum) -> {
+			final Object[] values = new Object[columns.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = read(rs, i, sourceTypes, converters);
+			}
+			try {
+				if (constructor != null) {
+					return type.cast((Object) constructor.invokeExact(values));
+				}
+				final Object instance = (Object) noArgConstructor.invokeExact();
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] != null) {
+						setters[i].invokeExact(instance, values[i]);
+					}
+				}
+				return type.cast(instance);
+			} catch (final RuntimeException | Error e) {
+				throw e;
+			} catch (final Throwable e) {
+				throw new SQLException("could not create " + type.getName() + " from row " + rowNum, e);
+			}
+		};
+	}
+
+	private Object read(final ResultSet rs, final int i, final Class<?>[] sourceTypes, final TypeConverter[] converters) throws SQLException {
+		final Object value = rs.getObject(i + 1);
+		if (value == null) {
+			if (types[i].isPrimitive()) {
+				throw new SQLException("column " + columns[i] + " is null, but " + type.getName() + " expects a " + types[i].getName());
+			}
+			return null;
+		}
+		if (value.getClass() != sourceTypes[i]) {
+			sourceTypes[i] = value.getClass();
+			converters[i] = TypeConverters.get(types[i], value.getClass());
+		}
+		try {
+			return converters[i].convert(value);
+		} catch (final Exception e) {
+			throw new SQLException("could not convert column " + columns[i] + " into " + types[i].getName(), e);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.segmeno.kodo.database;
+
+/**
+ * settings applied to the JDBC statement of a single read. Unset values keep the defaults of the driver and the
+ * JdbcTemplate:
+ *
+ * <pre>
+ * final ResultList&lt;TestUser&gt; users = manager.getElems(filter, TestUser.class, sort, -1,
+ * 		new QueryOptions().withFetchSize(500).withMaxRows(10000).withQueryTimeout(30).withReadOnly(true));
+ * if (users.isTruncated()) {
+ * 	...
+ * }
+ * </pre>
+ *
+ * Note that some drivers only stream the result with a fetch size under additional conditions, i.e. PostgreSQL
+ * requires auto-commit to be off and MySQL requires useCursorFetch=true.
+ */
+public class QueryOptions {
+
+	private int fetchSize = -1;
+	private int maxRows = -1;
+	private int queryTimeout = -1;
+	private boolean readOnly;
+
+	/**
+	 *
+	 * @param fetchSize - the number of rows the driver fetches per round trip
+	 * @return this
+	 */
+	public QueryOptions withFetchSize(final int fetchSize) {
+		if (fetchSize < 0) {
+			throw new IllegalArgumentException("fetch size must not be negative");
+		}
+		this.fetchSize = fetchSize;
+		return this;
+	}
+
+	/**
+	 * limits the number of rows read. If the query returns more rows, the result is marked as truncated, see
+	 * {@link ResultList#isTruncated()}. Note that a row of getElems is a row of the joined entity graph, so
+	 * getElems returns fewer elements than max rows. An element whose rows do not fit is left out entirely
+	 *
+	 * @param maxRows
+	 * @return this
+	 */
+	public QueryOptions withMaxRows(final int maxRows) {
+		if (maxRows < 1) {
+			throw new IllegalArgumentException("max rows must be at least 1");
+		}
+		this.maxRows = maxRows;
+		return this;
+	}
+
+	/**
+	 *
+	 * @param seconds - the time the driver waits for the statement to execute
+	 * @return this
+	 */
+	public QueryOptions withQueryTimeout(final int seconds) {
+		if (seconds < 0) {
+			throw new IllegalArgumentException("query timeout must not be negative");
+		}
+		this.queryTimeout = seconds;
+		return this;
+	}
+
+	/**
+	 * marks the connection read-only for the time of the query, so the driver and the database can optimize for it
+	 *
+	 * @param readOnly
+	 * @return this
+	 */
+	public QueryOptions withReadOnly(final boolean readOnly) {
+		this.readOnly = readOnly;
+		return this;
+	}
+
+	/**
+	 *
+	 * @return the fetch size or -1 if not set
+	 */
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	/**
+	 *
+	 * @return the maximum number of rows or -1 if not set
+	 */
+	public int getMaxRows() {
+		return maxRows;
+	}
+
+	/**
+	 *
+	 * @return the query timeout in seconds or -1 if not set
+	 */
+	public int getQueryTimeout() {
+		return queryTimeout;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	@Override
+	public String toString() {
+		return "QueryOptions [fetchSize=" + fetchSize + ", maxRows=" + maxRows + ", queryTimeout=" + queryTimeout + ", readOnly=" + readOnly
+				+ "]";
+	}
+}
@@ -0,0 +1,29 @@
+package com.segmeno.kodo.database;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * the result of a read with {@link QueryOptions}, which knows whether the max rows cut it off
+ *
+ * @param <T> the element type
+ */
+public class ResultList<T> extends ArrayList<T> {
+
+	private static final long serialVersionUID = -3817120934640416547L;
+
+	private final boolean truncated;
+
+	public ResultList(final Collection<? extends T> elements, final boolean truncated) {
+		super(elements);
+		this.truncated = truncated;
+	}
+
+	/**
+	 *
+	 * @return true if the query returned more rows than the max rows of the QueryOptions
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+}
@@ -0,0 +1,193 @@
+package com.segmeno.kodo.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * wraps the pinned connection of a {@link KodoSession}. Closing the wrapper keeps the connection open and
+ * prepareStatement returns cached statements. A cached statement is handed out to one caller at a time: closing
+ * it clears the parameters and the statement settings and puts it back into the cache. If the same SQL is
+ * prepared while its statement is still in use (i.e. a query within a RowCallbackHandler), a new statement is
+ * prepared which is closed as usual
+ */
+final class StatementCachingConnection implements InvocationHandler {
+
+	private static final Logger log = LogManager.getLogger(StatementCachingConnection.class);
+
+	private final class CachedStatement implements InvocationHandler {
+		private final PreparedStatement target;
+		private final PreparedStatement proxy;
+		private boolean inUse;
+		private boolean evicted;
+
+		private CachedStatement(final PreparedStatement target) {
+			this.target = target;
+			this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+		}
+
+		@Override
+		public Object invoke(final Object p, final Method method, final Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				release();
+				return null;
+			case "isClosed":
+				return !inUse || target.isClosed();
+			case "getConnection":
+				return connection;
+			default:
+				return invokeTarget(target, method, args);
+			}
+		}
+
+		private void release() throws SQLException {
+			if (!inUse) {
+				return;
+			}
+			inUse = false;
+			if (evicted) {
+				target.close();
+				return;
+			}
+			try {
+				target.clearParameters();
+				target.clearBatch();
+				target.setMaxRows(0);
+				target.setQueryTimeout(0);
+				target.setFetchSize(0);
+			} catch (final SQLException e) {
+				log.warn("could not reset a cached statement, closing it", e);
+				statements.values().remove(this);
+				target.close();
+			}
+		}
+	}
+
+	private final Connection target;
+	private final Connection connection;
+	private final LinkedHashMap<String, CachedStatement> statements;
+	private long prepared;
+	private long hits;
+
+	/**
+	 *
+	 * @param target        - the physical connection
+	 * @param cacheCapacity - the maximum number of cached statements
+	 */
+	StatementCachingConnection(final Connection target, final int cacheCapacity) {
+		this.target = target;
+		this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, CachedStatement> eldest) {
+				if (size() <= cacheCapacity) {
+					return false;
+				}
+				evict(eldest.getValue());
+				return true;
+			}
+		};
+		this.connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, this);
+	}
+
+	/**
+	 *
+	 * @return the connection to hand out to the JdbcTemplate
+	 */
+	Connection getConnection() {
+		return connection;
+	}
+
+	@Override
+	public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+		switch (method.getName()) {
+		case "close":
+			// the connection is closed with the session
+			return null;
+		case "isClosed":
+			return target.isClosed();
+		case "prepareStatement":
+			return prepareStatement(method, args);
+		default:
+			return invokeTarget(target, method, args);
+		}
+	}
+
+	private PreparedStatement prepareStatement(final Method method, final Object[] args) throws Throwable {
+		// the variants with generated keys or result set options are cached separately
+		final String key = args.length == 1 ? (String) args[0] : Arrays.deepToString(args);
+		CachedStatement statement = statements.get(key);
+		if (statement != null && !statement.inUse) {
+			hits++;
+		} else if (statement == null) {
+			prepared++;
+			statement = new CachedStatement((PreparedStatement) invokeTarget(target, method, args));
+			statements.put(key, statement);
+		} else {
+			prepared++;
+			return (PreparedStatement) invokeTarget(target, method, args);
+		}
+		statement.inUse = true;
+		return statement.proxy;
+	}
+
+	private void evict(final CachedStatement statement) {
+		statement.evicted = true;
+		if (!statement.inUse) {
+			closeQuietly(statement.target);
+		}
+	}
+
+	/**
+	 * closes all cached statements, but not the connection
+	 */
+	void closeStatements() {
+		final Iterator<CachedStatement> it = statements.values().iterator();
+		while (it.hasNext()) {
+			closeQuietly(it.next().target);
+			it.remove();
+		}
+	}
+
+	long getPrepared() {
+		return prepared;
+	}
+
+	long getHits() {
+		return hits;
+	}
+
+	int size() {
+		return statements.size();
+	}
+
+	private static Object invokeTarget(final Object target, final Method method, final Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (final InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static void closeQuietly(final PreparedStatement statement) {
+		try {
+			statement.close();
+		} catch (final SQLException e) {
+			log.warn("could not close a cached statement", e);
+		}
+	}
+}
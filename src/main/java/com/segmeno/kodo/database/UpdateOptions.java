@@ -0,0 +1,81 @@
+package com.segmeno.kodo.database;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * selects the relations updateElem reconciles with the database. By default all 1:n and m:n relations are
+ * compared with the lists of the element, which costs a DELETE and for m:n a SELECT per relation. If only columns of
+ * the element itself were changed, the relations can be skipped:
+ *
+ * <pre>
+ * user.name = "Tommy";
+ * manager.updateElem(user, UpdateOptions.rootOnly());
+ * user.addresses.add(address);
+ * manager.updateElem(user, UpdateOptions.relations("addresses"));
+ * </pre>
+ *
+ * Referenced elements of n:1 relations are still added if they are new, as the foreign key column of the element
+ * is written in any case.
+ */
+public class UpdateOptions {
+
+	private static final UpdateOptions FULL = new UpdateOptions(null);
+	private static final UpdateOptions ROOT_ONLY = new UpdateOptions(Collections.emptySet());
+
+	// null for all relations
+	private final Set<String> relations;
+
+	private UpdateOptions(final Set<String> relations) {
+		this.relations = relations;
+	}
+
+	/**
+	 *
+	 * @return the options reconciling all relations, which is the default of updateElem
+	 */
+	public static UpdateOptions full() {
+		return FULL;
+	}
+
+	/**
+	 *
+	 * @return the options updating the row of the element only
+	 */
+	public static UpdateOptions rootOnly() {
+		return ROOT_ONLY;
+	}
+
+	/**
+	 *
+	 * @param fieldNames - the fields of the relations to reconcile
+	 * @return the options updating the row of the element and the given relations
+	 */
+	public static UpdateOptions relations(final String... fieldNames) {
+		return new UpdateOptions(Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(fieldNames))));
+	}
+
+	/**
+	 *
+	 * @param fieldName - the field of a relation
+	 * @return true if the relation is reconciled
+	 */
+	public boolean includes(final String fieldName) {
+		return relations == null || relations.contains(fieldName);
+	}
+
+	/**
+	 *
+	 * @return the fields of the relations to reconcile or null for all relations
+	 */
+	public Set<String> getRelations() {
+		return relations;
+	}
+
+	@Override
+	public String toString() {
+		return "UpdateOptions [relations=" + (relations == null ? "all" : relations) + "]";
+	}
+}
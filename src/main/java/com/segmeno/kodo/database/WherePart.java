@@ -1,15 +1,27 @@
 package com.segmeno.kodo.database;
 
+import com.segmeno.kodo.annotation.CaseMatching;
+import com.segmeno.kodo.annotation.MappingRelation;
+import com.segmeno.kodo.database.dialect.SqlDialect;
+import com.segmeno.kodo.database.dialect.SqlDialects;
 import com.segmeno.kodo.transport.Criteria;
 import com.segmeno.kodo.transport.CriteriaGroup;
 import com.segmeno.kodo.transport.Operator;
 
-import java.text.SimpleDateFormat;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
@@ -19,24 +31,32 @@ public class WherePart {
 
 	private static final Logger log = LogManager.getLogger(WherePart.class);
 
-	private static final SimpleDateFormat DB_DATETIME_FORMAT = new SimpleDateFormat("YYYY-MM-dd hh:mm:ss");
+	// from this size on, list values are bound as one array parameter if the dialect supports it
+	protected static final int ARRAY_BINDING_MIN_SIZE = 16;
 
-	private final Set<Operator> ALLOWED_LIST_OPERATORS = new HashSet<Operator>() {
-		private static final long serialVersionUID = 2809868650704689743L;
-		{
-			add(Operator.IN_SET);
-			add(Operator.NOT_IN_SET);
-			add(Operator.BETWEEN);
-			add(Operator.IBETWEEN);
-			add(Operator.BETWEEN_INCLUSIVE);
-			add(Operator.IBETWEEN_INCLUSIVE);
-		}
-	};
+	// the escape character of the LIKE patterns rendered for the *_PATTERN operators
+	protected static final char LIKE_ESCAPE = '!';
+
+	// the other column of the *_FIELD operators is written into the SQL, so only plain names are accepted
+	private static final Pattern COLUMN_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_$#]*");
+
+	// immutable and thread-safe, unlike SimpleDateFormat
+	private static final DateTimeFormatter DB_DATETIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private static final Set<Operator> ALLOWED_LIST_OPERATORS = Collections.unmodifiableSet(EnumSet.of(Operator.IN_SET,
+			Operator.NOT_IN_SET, Operator.BETWEEN, Operator.IBETWEEN, Operator.BETWEEN_INCLUSIVE, Operator.IBETWEEN_INCLUSIVE));
 
 	protected final String sql;
 	protected List<Object> params = new ArrayList<>();
 	protected List<String> columnNames = new ArrayList<>();
 	protected final String dbProduct;
+	protected final SqlDialect dialect;
+	// the case matching of the columns which do not use the one of the dialect, by upper case column name
+	protected Map<String, CaseMatching> caseMatchings = Collections.emptyMap();
+	// the entity whose relations can be used in criteria paths, i.e. roles.name. Null if paths are not supported
+	protected DatabaseEntity entity;
+	// the nesting depth of the EXISTS subqueries rendered for criteria paths
+	private int existsDepth;
 
 	/**
 	 *
@@ -45,7 +65,7 @@ public class WherePart {
 	 * @throws Exception
 	 */
 	public WherePart(final String tableAlias, final CriteriaGroup adCrit) throws Exception {
-		this(null, tableAlias, adCrit);
+		this((String) null, tableAlias, adCrit);
 	}
 
 	/**
@@ -58,6 +78,16 @@ public class WherePart {
 		this(dbProduct, tableAlias, null, adCrit);
 	}
 
+	/**
+	 * @param dialect    - the dialect of the database
+	 * @param tableAlias - the alias of the table
+	 * @param adCrit     - the filter settings to be used
+	 * @throws Exception
+	 */
+	public WherePart(final SqlDialect dialect, final String tableAlias, final CriteriaGroup adCrit) throws Exception {
+		this(dialect, tableAlias, null, adCrit);
+	}
+
 	/**
 	 * @param tableAlias  - the alias of the table
 	 * @param columnNames - a list of all existing column names. If this parameter
@@ -67,7 +97,7 @@ public class WherePart {
 	 * @throws Exception
 	 */
 	public WherePart(final String tableAlias, final List<String> columnNames, final CriteriaGroup adCrit) throws Exception {
-		this(null, tableAlias, columnNames, adCrit);
+		this((String) null, tableAlias, columnNames, adCrit);
 	}
 
 	/**
@@ -79,11 +109,64 @@ public class WherePart {
 	 * @param adCrit      - the filter settings to be used
 	 * @throws Exception
 	 */
-	public WherePart(final String dbProduct, String tableAlias, final List<String> columnNames, CriteriaGroup adCrit) throws Exception {
-		this.dbProduct = dbProduct;
+	public WherePart(final String dbProduct, final String tableAlias, final List<String> columnNames, final CriteriaGroup adCrit) throws Exception {
+		this(SqlDialects.forProduct(dbProduct), tableAlias, columnNames, adCrit);
+	}
+
+	/**
+	 * @param dialect     - the dialect of the database
+	 * @param tableAlias  - the alias of the table
+	 * @param columnNames - a list of all existing column names. If this parameter
+	 *                    is set, sanity checks will be done while constructing the
+	 *                    where part
+	 * @param adCrit      - the filter settings to be used
+	 * @throws Exception
+	 */
+	public WherePart(final SqlDialect dialect, final String tableAlias, final List<String> columnNames, final CriteriaGroup adCrit) throws Exception {
+		this(dialect, tableAlias, columnNames, null, adCrit);
+	}
+
+	/**
+	 * @param dialect       - the dialect of the database
+	 * @param tableAlias    - the alias of the table
+	 * @param columnNames   - a list of all existing column names. If this parameter
+	 *                      is set, sanity checks will be done while constructing the
+	 *                      where part
+	 * @param caseMatchings - how the case insensitive operators compare a column, by
+	 *                      column name. Columns which are not contained use
+	 *                      {@link CaseMatching#DIALECT}
+	 * @param adCrit        - the filter settings to be used
+	 * @throws Exception
+	 */
+	public WherePart(final SqlDialect dialect, final String tableAlias, final List<String> columnNames, final Map<String, CaseMatching> caseMatchings,
+			final CriteriaGroup adCrit) throws Exception {
+		this(dialect, tableAlias, columnNames, caseMatchings, null, adCrit);
+	}
+
+	/**
+	 * @param dialect    - the dialect of the database
+	 * @param entity     - the entity to filter. The case matchings of its columns are
+	 *                   used and criterias can be given on the fields of related
+	 *                   entities by a path through its relations, i.e. roles.name
+	 * @param tableAlias - the alias of the table
+	 * @param adCrit     - the filter settings to be used
+	 * @throws Exception
+	 */
+	public WherePart(final SqlDialect dialect, final DatabaseEntity entity, final String tableAlias, final CriteriaGroup adCrit) throws Exception {
+		this(dialect, tableAlias, null, entity == null ? null : entity.getCaseMatchings(), entity, adCrit);
+	}
+
+	private WherePart(final SqlDialect dialect, String tableAlias, final List<String> columnNames, final Map<String, CaseMatching> caseMatchings,
+			final DatabaseEntity entity, CriteriaGroup adCrit) throws Exception {
+		this.dialect = dialect;
+		this.entity = entity;
+		this.dbProduct = dialect.getProductName();
 		if (columnNames != null) {
 			this.columnNames = columnNames.stream().map(col -> col.toUpperCase()).collect(Collectors.toList());
 		}
+		if (caseMatchings != null && !caseMatchings.isEmpty()) {
+			this.caseMatchings = caseMatchings.entrySet().stream().collect(Collectors.toMap(e -> e.getKey().toUpperCase(), Map.Entry::getValue));
+		}
 
 		tableAlias = tableAlias != null ? tableAlias + "." : "";
 
@@ -95,6 +178,25 @@ public class WherePart {
 		sql = tmp != null && tmp.length() > 2 ? tmp : "(1 = 1)";
 	}
 
+	private WherePart(final String sql, final List<Object> params, final SqlDialect dialect) {
+		this.dialect = dialect;
+		this.dbProduct = dialect.getProductName();
+		this.sql = sql;
+		this.params = params;
+	}
+
+	/**
+	 * wraps SQL which was already rendered, i.e. by a {@link CompiledFilter}
+	 *
+	 * @param dialect - the dialect of the database
+	 * @param sql     - the where clause
+	 * @param params  - the bind parameters of the where clause
+	 * @return
+	 */
+	static WherePart precompiled(final SqlDialect dialect, final String sql, final List<Object> params) {
+		return new WherePart(sql, params, dialect);
+	}
+
 	private String addCriterias(final String tableAlias, final CriteriaGroup cg) throws Exception {
 		final List<Criteria> crits = cg.getCriterias();
 		final StringBuilder sb = new StringBuilder(1024);
@@ -115,7 +217,7 @@ public class WherePart {
 				} else {
 
 					// first check if the column name is really existing
-					if (!this.columnNames.isEmpty()) {
+					if (!this.columnNames.isEmpty() && !isPath(crit)) {
 						if (crit.getFieldName() != null && !this.columnNames.contains(crit.getFieldName().toUpperCase())) {
 							final String s = "Check your filter settings: Column with Name '" + crit.getFieldName()
 									+ "' used in criteria, but not existing in table " + tableAlias;
@@ -150,6 +252,10 @@ public class WherePart {
 	 * @throws Exception
 	 */
 	protected void appendCriteria(final String tableAlias, final StringBuilder sb, final Criteria crit) throws Exception {
+		if (isPath(crit)) {
+			sb.append(exists(tableAlias, crit));
+			return;
+		}
 		switch (crit.getOperator()) {
 		case CONTAINS:
 			sb.append(contains(tableAlias, crit));
@@ -161,7 +267,7 @@ public class WherePart {
 			sb.append(notContains(tableAlias, crit));
 			break;
 		case INOT_CONTAINS:
-			sb.append(notContains(tableAlias, crit));
+			sb.append(inotContains(tableAlias, crit));
 			break;
 		case EQUALS:
 			sb.append(equals(tableAlias, crit));
@@ -205,6 +311,102 @@ public class WherePart {
 		case INOT_ENDS_WITH:
 			sb.append(inotEndsWith(tableAlias, crit));
 			break;
+		case NOT_STARTS_WITH:
+			sb.append(notStartsWith(tableAlias, crit));
+			break;
+		case NOT_ENDS_WITH:
+			sb.append(notEndsWith(tableAlias, crit));
+			break;
+		case MATCHES_PATTERN:
+			sb.append(matchesPattern(tableAlias, crit, "", "", false));
+			break;
+		case IMATCHES_PATTERN:
+			sb.append(matchesPattern(tableAlias, crit, "", "", true));
+			break;
+		case CONTAINS_PATTERN:
+			sb.append(matchesPattern(tableAlias, crit, "%", "%", false));
+			break;
+		case ICONTAINS_PATTERN:
+			sb.append(matchesPattern(tableAlias, crit, "%", "%", true));
+			break;
+		case STARTS_WITH_PATTERN:
+			sb.append(matchesPattern(tableAlias, crit, "", "%", false));
+			break;
+		case ISTARTS_WITH_PATTERN:
+			sb.append(matchesPattern(tableAlias, crit, "", "%", true));
+			break;
+		case ENDS_WITH_PATTERN:
+			sb.append(matchesPattern(tableAlias, crit, "%", "", false));
+			break;
+		case IENDS_WITH_PATTERN:
+			sb.append(matchesPattern(tableAlias, crit, "%", "", true));
+			break;
+		case REGEXP:
+			sb.append(regexp(tableAlias, crit, false));
+			break;
+		case IREGEXP:
+			sb.append(regexp(tableAlias, crit, true));
+			break;
+		case EQUALS_FIELD:
+			sb.append(compareField(tableAlias, crit, "=", false));
+			break;
+		case NOT_EQUAL_FIELD:
+			sb.append(compareField(tableAlias, crit, "<>", false));
+			break;
+		case IEQUALS_FIELD:
+			sb.append(compareField(tableAlias, crit, "=", true));
+			break;
+		case INOT_EQUAL_FIELD:
+			sb.append(compareField(tableAlias, crit, "<>", true));
+			break;
+		case GREATER_THAN_FIELD:
+			sb.append(compareField(tableAlias, crit, ">", false));
+			break;
+		case GREATER_OR_EQUAL_FIELD:
+			sb.append(compareField(tableAlias, crit, ">=", false));
+			break;
+		case LESS_THAN_FIELD:
+			sb.append(compareField(tableAlias, crit, "<", false));
+			break;
+		case LESS_OR_EQUAL_FIELD:
+			sb.append(compareField(tableAlias, crit, "<=", false));
+			break;
+		case CONTAINS_FIELD:
+			sb.append(likeField(tableAlias, crit, true, true, false, false));
+			break;
+		case ICONTAINS_FIELD:
+			sb.append(likeField(tableAlias, crit, true, true, false, true));
+			break;
+		case NOT_CONTAINS_FIELD:
+			sb.append(likeField(tableAlias, crit, true, true, true, false));
+			break;
+		case INOT_CONTAINS_FIELD:
+			sb.append(likeField(tableAlias, crit, true, true, true, true));
+			break;
+		case STARTS_WITH_FIELD:
+			sb.append(likeField(tableAlias, crit, false, true, false, false));
+			break;
+		case ISTARTS_WITH_FIELD:
+			sb.append(likeField(tableAlias, crit, false, true, false, true));
+			break;
+		case NOT_STARTS_WITH_FIELD:
+			sb.append(likeField(tableAlias, crit, false, true, true, false));
+			break;
+		case INOT_STARTS_WITH_FIELD:
+			sb.append(likeField(tableAlias, crit, false, true, true, true));
+			break;
+		case ENDS_WITH_FIELD:
+			sb.append(likeField(tableAlias, crit, true, false, false, false));
+			break;
+		case IENDS_WITH_FIELD:
+			sb.append(likeField(tableAlias, crit, true, false, false, true));
+			break;
+		case NOT_ENDS_WITH_FIELD:
+			sb.append(likeField(tableAlias, crit, true, false, true, false));
+			break;
+		case INOT_ENDS_WITH_FIELD:
+			sb.append(likeField(tableAlias, crit, true, false, true, true));
+			break;
 		case IS_BLANK:
 			sb.append(isBlank(tableAlias, crit));
 			break;
@@ -229,6 +431,10 @@ public class WherePart {
 		case BETWEEN_INCLUSIVE:
 			sb.append(betweenInclusive(tableAlias, crit));
 			break;
+		case IBETWEEN:
+		case IBETWEEN_INCLUSIVE:
+			sb.append(ibetween(tableAlias, crit));
+			break;
 		default:
 			throw new Exception("unsupported OperatorId " + crit.getOperator() + "! Please extend this class: " + this.getClass());
 		}
@@ -244,8 +450,7 @@ public class WherePart {
 	protected String icontains(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		final Object param = getValueAsStr(criteria);
-		params.add("%" + param + "%");
-		return "LOWER(" + tableAlias + criteria.getFieldName() + ") LIKE LOWER(?)";
+		return caseInsensitive(tableAlias, criteria, "%" + param + "%", true, false);
 	}
 
 	protected String notContains(final String tableAlias, final Criteria criteria) throws Exception {
@@ -255,6 +460,12 @@ public class WherePart {
 		return tableAlias + criteria.getFieldName() + " NOT LIKE ?";
 	}
 
+	protected String inotContains(final String tableAlias, final Criteria criteria) throws Exception {
+		validateCriteria(criteria);
+		final Object param = getValueAsStr(criteria);
+		return caseInsensitive(tableAlias, criteria, "%" + param + "%", true, true);
+	}
+
 	protected String equals(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		params.add(getValue(criteria));
@@ -264,11 +475,10 @@ public class WherePart {
 	protected String iequals(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		if (criteria.getStringValue() != null) {
-			params.add(criteria.getStringValue());
-			return "LOWER(" + tableAlias + criteria.getFieldName() + ") LIKE LOWER(?)";
+			return caseInsensitive(tableAlias, criteria, criteria.getStringValue(), false, false);
 		} else {
 			params.add(getValue(criteria));
-			return tableAlias + criteria.getFieldName() + " LIKE ?";
+			return tableAlias + criteria.getFieldName() + " = ?";
 		}
 	}
 
@@ -281,11 +491,10 @@ public class WherePart {
 	protected String inot_equals(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		if (criteria.getStringValue() != null) {
-			params.add(criteria.getStringValue());
-			return "LOWER(" + tableAlias + criteria.getFieldName() + ") NOT LIKE LOWER(?)";
+			return caseInsensitive(tableAlias, criteria, criteria.getStringValue(), false, true);
 		} else {
 			params.add(getValue(criteria));
-			return tableAlias + criteria.getFieldName() + " NOT LIKE ?";
+			return tableAlias + criteria.getFieldName() + " <> ?";
 		}
 	}
 
@@ -323,15 +532,13 @@ public class WherePart {
 	protected String istartsWith(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		final Object param = getValueAsStr(criteria);
-		params.add(param + "%");
-		return "LOWER(" + tableAlias + criteria.getFieldName() + ") LIKE LOWER(?)";
+		return caseInsensitive(tableAlias, criteria, param + "%", true, false);
 	}
 
 	protected String inotStartsWith(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		final Object param = getValueAsStr(criteria);
-		params.add(param + "%");
-		return "LOWER(" + tableAlias + criteria.getFieldName() + ") NOT LIKE LOWER(?)";
+		return caseInsensitive(tableAlias, criteria, param + "%", true, true);
 	}
 
 	protected String endsWith(final String tableAlias, final Criteria criteria) {
@@ -340,18 +547,191 @@ public class WherePart {
 		return tableAlias + criteria.getFieldName() + " LIKE ?";
 	}
 
-	protected String iendsWith(final String tableAlias, final Criteria criteria) throws Exception {
+	protected String notStartsWith(final String tableAlias, final Criteria criteria) throws Exception {
+		validateCriteria(criteria);
+		final Object param = getValueAsStr(criteria);
+		params.add(param + "%");
+		return tableAlias + criteria.getFieldName() + " NOT LIKE ?";
+	}
+
+	protected String notEndsWith(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		final Object param = getValueAsStr(criteria);
 		params.add("%" + param);
-		return "LOWER(" + tableAlias + criteria.getFieldName() + ") LIKE LOWER(?)";
+		return tableAlias + criteria.getFieldName() + " NOT LIKE ?";
+	}
+
+	protected String iendsWith(final String tableAlias, final Criteria criteria) throws Exception {
+		validateCriteria(criteria);
+		final Object param = getValueAsStr(criteria);
+		return caseInsensitive(tableAlias, criteria, "%" + param, true, false);
 	}
 
 	protected String inotEndsWith(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		final Object param = getValueAsStr(criteria);
-		params.add("%" + param);
-		return "LOWER(" + tableAlias + criteria.getFieldName() + ") NOT LIKE LOWER(?)";
+		return caseInsensitive(tableAlias, criteria, "%" + param, true, true);
+	}
+
+	/**
+	 * renders a case insensitive comparison as configured for the column and adds its parameter
+	 *
+	 * @param tableAlias
+	 * @param criteria
+	 * @param value      - the value to compare with, including the wildcards for LIKE
+	 * @param like       - true for LIKE, false for equality
+	 * @param negate
+	 * @return
+	 */
+	protected String caseInsensitive(final String tableAlias, final Criteria criteria, final String value, final boolean like, final boolean negate) {
+		return caseInsensitive(tableAlias, criteria, like ? (negate ? "NOT LIKE" : "LIKE") : (negate ? "<>" : "="), value);
+	}
+
+	/**
+	 * renders a case insensitive comparison as configured for the column and adds its parameter
+	 *
+	 * @param tableAlias
+	 * @param criteria
+	 * @param operator   - the comparison operator (=, &lt;&gt;, &lt;, LIKE, NOT LIKE, ...)
+	 * @param value      - the value to compare with
+	 * @return
+	 */
+	protected String caseInsensitive(final String tableAlias, final Criteria criteria, final String operator, final String value) {
+		final String column = tableAlias + criteria.getFieldName();
+		final CaseMatching matching = caseMatchings.getOrDefault(criteria.getFieldName().toUpperCase(), CaseMatching.DIALECT);
+		if (matching == CaseMatching.DIALECT) {
+			params.add(value);
+			return dialect.caseInsensitiveCompare(column, operator, "?");
+		}
+		// lower the value here, so the database compares the column or its indexed expression as it is
+		params.add(value == null ? null : value.toLowerCase(Locale.ROOT));
+		final String expression = matching == CaseMatching.LOWER_INDEX ? "LOWER(" + column + ")" : column;
+		return expression + " " + operator + " ?";
+	}
+
+	/**
+	 * renders the *_PATTERN operators. In the pattern * matches any number of characters and ? exactly one
+	 * character, all other characters (including % and _) are matched as they are
+	 *
+	 * @param tableAlias
+	 * @param criteria
+	 * @param prefix          - the LIKE wildcard to put in front of the pattern
+	 * @param suffix          - the LIKE wildcard to append to the pattern
+	 * @param caseInsensitive
+	 * @return
+	 * @throws Exception
+	 */
+	protected String matchesPattern(final String tableAlias, final Criteria criteria, final String prefix, final String suffix,
+			final boolean caseInsensitive) throws Exception {
+		validateCriteria(criteria);
+		final String value = prefix + toLikePattern(getValueAsStr(criteria)) + suffix;
+		final String escape = " ESCAPE '" + LIKE_ESCAPE + "'";
+		if (caseInsensitive) {
+			return caseInsensitive(tableAlias, criteria, "LIKE", value) + escape;
+		}
+		params.add(value);
+		return tableAlias + criteria.getFieldName() + " LIKE ?" + escape;
+	}
+
+	/**
+	 *
+	 * @param pattern - a pattern with the wildcards * and ?
+	 * @return the pattern for LIKE with the escape character {@link #LIKE_ESCAPE}
+	 */
+	protected static String toLikePattern(final String pattern) {
+		if (pattern == null) {
+			return "";
+		}
+		final StringBuilder sb = new StringBuilder(pattern.length() + 8);
+		for (final char c : pattern.toCharArray()) {
+			switch (c) {
+			case '*':
+				sb.append('%');
+				break;
+			case '?':
+				sb.append('_');
+				break;
+			case '%':
+			case '_':
+			case LIKE_ESCAPE:
+				sb.append(LIKE_ESCAPE).append(c);
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	protected String regexp(final String tableAlias, final Criteria criteria, final boolean caseInsensitive) throws Exception {
+		validateCriteria(criteria);
+		if (criteria.getStringValue() == null) {
+			throw new Exception("the operator '" + criteria.getOperator() + "' requires a regular expression as string value");
+		}
+		params.add(criteria.getStringValue());
+		return dialect.regexpLike(tableAlias + criteria.getFieldName(), caseInsensitive);
+	}
+
+	protected String ibetween(final String tableAlias, final Criteria criteria) throws Exception {
+		validateCriteria(criteria);
+		if (criteria.getListValues().size() != 2) {
+			throw new Exception("Expected exactly two list values to use the " + criteria.getOperator() + " operator!");
+		}
+		final Object from = criteria.getListValues().get(0);
+		final Object to = criteria.getListValues().get(1);
+		if (!(from instanceof String) || !(to instanceof String)) {
+			// there is no case to ignore
+			return criteria.getOperator() == Operator.IBETWEEN ? between(tableAlias, criteria) : betweenInclusive(tableAlias, criteria);
+		}
+		return "(" + caseInsensitive(tableAlias, criteria, ">=", (String) from) + " AND " + caseInsensitive(tableAlias, criteria, "<=", (String) to) + ")";
+	}
+
+	/**
+	 * renders the comparison operators of two columns, i.e. EQUALS_FIELD. The value of the criteria is the name of
+	 * the other column
+	 */
+	protected String compareField(final String tableAlias, final Criteria criteria, final String operator, final boolean caseInsensitive)
+			throws Exception {
+		validateCriteria(criteria);
+		final String column = tableAlias + criteria.getFieldName();
+		final String other = getOtherColumn(tableAlias, criteria);
+		return caseInsensitive ? dialect.caseInsensitiveCompare(column, operator, other) : column + " " + operator + " " + other;
+	}
+
+	/**
+	 * renders the LIKE based operators of two columns, i.e. CONTAINS_FIELD. The value of the other column is used as
+	 * LIKE pattern, so % and _ in it are wildcards
+	 */
+	protected String likeField(final String tableAlias, final Criteria criteria, final boolean anyBefore, final boolean anyAfter,
+			final boolean negate, final boolean caseInsensitive) throws Exception {
+		validateCriteria(criteria);
+		final String column = tableAlias + criteria.getFieldName();
+		final List<String> parts = new ArrayList<>(3);
+		if (anyBefore) {
+			parts.add("'%'");
+		}
+		parts.add(getOtherColumn(tableAlias, criteria));
+		if (anyAfter) {
+			parts.add("'%'");
+		}
+		final String pattern = dialect.concat(parts.toArray(new String[0]));
+		final String operator = negate ? "NOT LIKE" : "LIKE";
+		return caseInsensitive ? dialect.caseInsensitiveCompare(column, operator, pattern) : column + " " + operator + " " + pattern;
+	}
+
+	private String getOtherColumn(final String tableAlias, final Criteria criteria) throws Exception {
+		final String other = criteria.getStringValue();
+		if (other == null || !COLUMN_NAME.matcher(other).matches()) {
+			final String s = "the operator '" + criteria.getOperator() + "' requires a column name as string value, but got '" + other + "'";
+			log.error(s);
+			throw new Exception(s);
+		}
+		if (!columnNames.isEmpty() && !columnNames.contains(other.toUpperCase())) {
+			final String s = "Check your filter settings: Column with Name '" + other + "' used in criteria, but not existing in table " + tableAlias;
+			log.error(s);
+			throw new Exception(s);
+		}
+		return tableAlias + other;
 	}
 
 	private String getValueAsStr(final Criteria criteria) {
@@ -360,7 +740,8 @@ public class WherePart {
 			return null;
 		}
 		if (str instanceof Date) {
-			return DB_DATETIME_FORMAT.format((Date) str);
+			// java.sql.Date does not support toInstant()
+			return DB_DATETIME_FORMAT.format(Instant.ofEpochMilli(((Date) str).getTime()).atZone(ZoneId.systemDefault()));
 		}
 		if (str instanceof String) {
 			return (String) str;
@@ -395,7 +776,10 @@ public class WherePart {
 
 	protected String inSet(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
-		final Class<?> type = determineListType(criteria.getListValues());
+		if (useArrayBinding(criteria)) {
+			params.add(dialect.toArrayParameter(criteria.getListValues()));
+			return dialect.inArray(tableAlias + criteria.getFieldName(), false);
+		}
 		params.addAll(criteria.getListValues());
 		final String csv = criteria.getListValues().stream().map(val -> "?").collect(Collectors.joining(","));
 		return tableAlias + criteria.getFieldName() + " IN (" + csv + ")";
@@ -403,12 +787,25 @@ public class WherePart {
 
 	protected String notInSet(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
-		final Class<?> type = determineListType(criteria.getListValues());
+		if (useArrayBinding(criteria)) {
+			params.add(dialect.toArrayParameter(criteria.getListValues()));
+			return dialect.inArray(tableAlias + criteria.getFieldName(), true);
+		}
 		params.addAll(criteria.getListValues());
 		final String csv = criteria.getListValues().stream().map(val -> "?").collect(Collectors.joining(","));
 		return tableAlias + criteria.getFieldName() + " NOT IN (" + csv + ")";
 	}
 
+	/**
+	 * large lists are bound as one array parameter, so the statement text does not depend on the number of values
+	 * 
+	 * @param criteria
+	 * @return
+	 */
+	protected boolean useArrayBinding(final Criteria criteria) {
+		return dialect.supportsArrayBinding() && criteria.getListValues().size() >= ARRAY_BINDING_MIN_SIZE;
+	}
+
 	protected String between(final String tableAlias, final Criteria criteria) throws Exception {
 		validateCriteria(criteria);
 		if (criteria.getListValues().size() != 2) {
@@ -431,6 +828,93 @@ public class WherePart {
 		return "(" + tableAlias + criteria.getFieldName() + " >= ? AND " + tableAlias + criteria.getFieldName() + " <= ?)";
 	}
 
+	private boolean isPath(final Criteria crit) {
+		return entity != null && crit.getFieldName() != null && crit.getFieldName().indexOf('.') > 0;
+	}
+
+	/**
+	 * renders a criteria on a path through the relations of the entity, i.e. roles.name, as correlated EXISTS
+	 * subquery. The criteria is true if any of the related elements matches it. Unlike a join, this does not
+	 * multiply the rows of the entity, so counts and paging stay correct
+	 *
+	 * @param tableAlias - the alias of the table of the entity, including the trailing dot
+	 * @param crit       - the criteria with the path as field name
+	 * @return
+	 * @throws Exception
+	 */
+	protected String exists(final String tableAlias, final Criteria crit) throws Exception {
+		if (tableAlias.isEmpty()) {
+			throw new Exception("the criteria path " + crit.getFieldName() + " requires a table alias");
+		}
+		final int dot = crit.getFieldName().indexOf('.');
+		final String path = crit.getFieldName().substring(dot + 1);
+		final Field field = getRelation(crit.getFieldName().substring(0, dot));
+		final MappingRelation mr = field.getAnnotation(MappingRelation.class);
+		final DatabaseEntity child = DatabaseEntity.newInstance(getRelatedType(field));
+		if (path.indexOf('.') < 0 && child.getColumnNames(true).stream().noneMatch(col -> col.equalsIgnoreCase(path))) {
+			final String s = "Check your filter settings: Column with Name '" + path + "' used in criteria path " + crit.getFieldName()
+					+ ", but not existing in table " + child.getTableName();
+			log.error(s);
+			throw new Exception(s);
+		}
+
+		final DatabaseEntity outer = entity;
+		final Map<String, CaseMatching> outerCaseMatchings = caseMatchings;
+		existsDepth++;
+		try {
+			final String alias = "e" + existsDepth;
+			final StringBuilder sb = new StringBuilder("EXISTS (SELECT 1 FROM ");
+			// this is an m:n mapping
+			if (!mr.mappingTableName().isEmpty()) {
+				final String mapping = "m" + existsDepth;
+				sb.append(mr.mappingTableName()).append(' ').append(mapping).append(" JOIN ").append(child.getTableName()).append(' ').append(alias)
+						.append(" ON ").append(alias).append('.').append(child.getPrimaryKeyColumn()).append(" = ").append(mapping).append('.')
+						.append(mr.joinedColumnName()).append(" WHERE ").append(mapping).append('.').append(mr.masterColumnName()).append(" = ")
+						.append(tableAlias).append(entity.getPrimaryKeyColumn());
+			} else {
+				sb.append(child.getTableName()).append(' ').append(alias).append(" WHERE ").append(alias).append('.').append(mr.joinedColumnName())
+						.append(" = ").append(tableAlias).append(mr.masterColumnName());
+			}
+			sb.append(" AND ");
+			entity = child;
+			caseMatchings = child.getCaseMatchings();
+			appendCriteria(alias + ".", sb, withFieldName(crit, path));
+			return sb.append(")").toString();
+		} finally {
+			entity = outer;
+			caseMatchings = outerCaseMatchings;
+			existsDepth--;
+		}
+	}
+
+	private Field getRelation(final String name) throws Exception {
+		for (final Field field : entity.getCachedDbFields()) {
+			if (field.getName().equalsIgnoreCase(name) && field.getAnnotation(MappingRelation.class) != null) {
+				return field;
+			}
+		}
+		final String s = "Check your filter settings: '" + name + "' used in criteria path is not a relation of " + entity.getClass().getName();
+		log.error(s);
+		throw new Exception(s);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends DatabaseEntity> getRelatedType(final Field field) {
+		if (List.class.isAssignableFrom(field.getType())) {
+			return (Class<? extends DatabaseEntity>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+		}
+		return (Class<? extends DatabaseEntity>) field.getType();
+	}
+
+	private static Criteria withFieldName(final Criteria crit, final String fieldName) {
+		final Criteria copy = new Criteria(fieldName, crit.getOperator());
+		copy.setStringValue(crit.getStringValue());
+		copy.setNumberValue(crit.getNumberValue());
+		copy.setDateValue(crit.getDateValue());
+		copy.setListValues(crit.getListValues());
+		return copy;
+	}
+
 	public boolean isEmpty() {
 		return sql.length() == 0;
 	}
@@ -0,0 +1,258 @@
+package com.segmeno.kodo.database.cache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * caches the results of read queries of a DataAccessManager by their SQL and bind values. Each entry remembers
+ * the tables of its query (the FROM and all JOINs), a write of the DataAccessManager to one of these tables
+ * removes the entry. The cache is bounded by the number of entries and the number of rows held and entries
+ * expire after the time to live:
+ *
+ * <pre>
+ * final QueryCache cache = new QueryCache(1000, TimeUnit.MINUTES.toMillis(5));
+ * cache.setMaxRows(100000);
+ * manager.setQueryCache(cache);
+ * </pre>
+ *
+ * Note that writes which do not go through the DataAccessManager (other applications, plain JDBC) are not
+ * noticed, so the time to live is the upper bound for reading stale data in this case.
+ */
+public class QueryCache {
+
+	private static final Logger log = LogManager.getLogger(QueryCache.class);
+
+	private static final Pattern TABLE_PATTERN = Pattern.compile("\\b(?:FROM|JOIN)\\s+([a-zA-Z_][0-9a-zA-Z_.]*)", Pattern.CASE_INSENSITIVE);
+
+	private static final class Key {
+		private final String sql;
+		private final Object[] args;
+		private final int hash;
+
+		private Key(final String sql, final Object[] args) {
+			this.sql = sql;
+			this.args = args;
+			this.hash = 31 * sql.hashCode() + Arrays.deepHashCode(args);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return hash == other.hash && sql.equals(other.sql) && Arrays.deepEquals(args, other.args);
+		}
+	}
+
+	private static final class Entry {
+		private final Object value;
+		private final Set<String> tables;
+		private final long rows;
+		private final long createdAt;
+
+		private Entry(final Object value, final Set<String> tables, final long rows, final long createdAt) {
+			this.value = value;
+			this.tables = tables;
+			this.rows = rows;
+			this.createdAt = createdAt;
+		}
+	}
+
+	private final int maxEntries;
+	private final long ttlNanos;
+	private volatile long maxRows = Long.MAX_VALUE;
+
+	// in access order, so the first entry is the least recently used one
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, Set<Key>> keysByTable = new HashMap<>();
+	private long rows;
+	// counts the invalidations, so results read before an invalidation are not cached afterwards
+	private long generation;
+	private long hits;
+	private long misses;
+
+	/**
+	 *
+	 * @param maxEntries - the maximum number of cached results
+	 * @param ttlMillis  - the time a result is served from the cache, 0 to keep it until it is invalidated or
+	 *                   evicted
+	 */
+	public QueryCache(final int maxEntries, final long ttlMillis) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("max entries must be at least 1");
+		}
+		if (ttlMillis < 0) {
+			throw new IllegalArgumentException("the time to live must not be negative");
+		}
+		this.maxEntries = maxEntries;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+	}
+
+	/**
+	 * bounds the memory of the cache by the number of rows held by all entries. Results with more rows are not
+	 * cached at all
+	 *
+	 * @param maxRows
+	 */
+	public void setMaxRows(final long maxRows) {
+		if (maxRows < 1) {
+			throw new IllegalArgumentException("max rows must be at least 1");
+		}
+		this.maxRows = maxRows;
+	}
+
+	public long getMaxRows() {
+		return maxRows;
+	}
+
+	/**
+	 *
+	 * @param sql
+	 * @param args
+	 * @return the cached result or null if there is none
+	 */
+	public synchronized Object get(final String sql, final Object[] args) {
+		final Key key = new Key(sql, args);
+		final Entry entry = entries.get(key);
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		if (ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos) {
+			remove(key);
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.value;
+	}
+
+	/**
+	 *
+	 * @return the generation to pass to {@link #put(String, Object[], Object, long)} for a result read afterwards
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * caches the result of a query. The result is dropped if any table was invalidated since the generation was
+	 * taken, as it might have been read before the write
+	 *
+	 * @param sql
+	 * @param args
+	 * @param value      - the result, a collection is weighted by its size
+	 * @param generation - see {@link #getGeneration()}
+	 */
+	public synchronized void put(final String sql, final Object[] args, final Object value, final long generation) {
+		final long weight = value instanceof Collection ? ((Collection<?>) value).size() : 1;
+		if (value == null || generation != this.generation || weight > maxRows) {
+			return;
+		}
+		final Key key = new Key(sql, args);
+		remove(key);
+		final Set<String> tables = tablesOf(sql);
+		entries.put(key, new Entry(value, tables, weight, System.nanoTime()));
+		for (final String table : tables) {
+			keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+		}
+		rows += weight;
+
+		while (entries.size() > maxEntries || rows > maxRows) {
+			remove(entries.keySet().iterator().next());
+		}
+	}
+
+	/**
+	 * removes all entries which read from one of the tables
+	 *
+	 * @param tables - the table names, the case is ignored
+	 */
+	public synchronized void invalidate(final Collection<String> tables) {
+		generation++;
+		int removed = 0;
+		for (final String table : tables) {
+			final Set<Key> keys = keysByTable.remove(table.toLowerCase());
+			if (keys != null) {
+				for (final Key key : keys) {
+					if (remove(key)) {
+						removed++;
+					}
+				}
+			}
+		}
+		if (log.isDebugEnabled() && removed > 0) {
+			log.debug("invalidated " + removed + " cached results of tables " + tables);
+		}
+	}
+
+	public synchronized void invalidateAll() {
+		generation++;
+		entries.clear();
+		keysByTable.clear();
+		rows = 0;
+	}
+
+	private boolean remove(final Key key) {
+		final Entry entry = entries.remove(key);
+		if (entry == null) {
+			return false;
+		}
+		rows -= entry.rows;
+		for (final String table : entry.tables) {
+			final Set<Key> keys = keysByTable.get(table);
+			if (keys != null && keys.remove(key) && keys.isEmpty()) {
+				keysByTable.remove(table);
+			}
+		}
+		return true;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getRows() {
+		return rows;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 *
+	 * @param sql
+	 * @return the lower case names of the tables after FROM and JOIN
+	 */
+	static Set<String> tablesOf(final String sql) {
+		final Set<String> tables = new TreeSet<>();
+		final Matcher m = TABLE_PATTERN.matcher(sql);
+		while (m.find()) {
+			tables.add(m.group(1).toLowerCase());
+		}
+		return tables;
+	}
+}
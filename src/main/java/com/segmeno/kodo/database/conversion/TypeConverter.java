@@ -0,0 +1,21 @@
+package com.segmeno.kodo.database.conversion;
+
+/**
+ * converts a value read from the database into the type of an entity field
+ */
+@FunctionalInterface
+public interface TypeConverter {
+
+	/**
+	 * passes the value through unchanged
+	 */
+	TypeConverter IDENTITY = value -> value;
+
+	/**
+	 *
+	 * @param value - the value as returned by the JDBC driver, never null
+	 * @return the converted value
+	 * @throws Exception if the value cannot be converted
+	 */
+	Object convert(Object value) throws Exception;
+}
@@ -0,0 +1,363 @@
+package com.segmeno.kodo.database.conversion;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Clob;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.segmeno.kodo.transport.IKodoEnum;
+
+/**
+ * registry of the converters from JDBC values into entity field types. A converter is resolved once per pair of
+ * field type and value type and cached afterwards, the row mapping looks it up once per column of a result. Out of the box numerics, booleans, strings, enums (IKodoEnum
+ * by their value, other enums by their name) and the java.time types are supported. Values which cannot be
+ * converted are passed through unchanged. Own converters can be registered and take precedence:
+ *
+ * <pre>
+ * TypeConverters.register(Money.class, BigDecimal.class, value -&gt; new Money((BigDecimal) value));
+ * </pre>
+ *
+ * Registering replaces the whole registry (copy on write), so lookups running at the same time see either the old
+ * or the new converters, but never cache a converter of the old registry in the new one.
+ */
+public final class TypeConverters {
+
+	private static final class Registry {
+		// target type -> source type -> converter. Object.class as source type matches all values. Never modified
+		private final Map<Class<?>, Map<Class<?>, TypeConverter>> registered;
+		// the converters resolved from the registered ones
+		private final Map<Class<?>, Map<Class<?>, TypeConverter>> resolved = new ConcurrentHashMap<>();
+
+		private Registry(final Map<Class<?>, Map<Class<?>, TypeConverter>> registered) {
+			this.registered = registered;
+		}
+	}
+
+	private static volatile Registry registry = new Registry(Collections.emptyMap());
+
+	private static final ClassValue<Map<String, Object>> ENUM_VALUES = new ClassValue<Map<String, Object>>() {
+		@Override
+		protected Map<String, Object> computeValue(final Class<?> type) {
+			final Object[] constants = type.getEnumConstants();
+			final Map<String, Object> map = new HashMap<>(constants.length * 2);
+			for (final Object constant : constants) {
+				map.put(((IKodoEnum) constant).getValue(), constant);
+			}
+			return map;
+		}
+	};
+
+	private TypeConverters() {
+	}
+
+	/**
+	 * registers a converter for values of the given source type (or a subclass of it) into the target type
+	 *
+	 * @param targetType - the field type
+	 * @param sourceType - the type of the value returned by the JDBC driver
+	 * @param converter
+	 */
+	public static synchronized void register(final Class<?> targetType, final Class<?> sourceType, final TypeConverter converter) {
+		final Map<Class<?>, Map<Class<?>, TypeConverter>> registered = new HashMap<>(registry.registered);
+		final Map<Class<?>, TypeConverter> bySource = new HashMap<>(registered.getOrDefault(wrap(targetType), Collections.emptyMap()));
+		bySource.put(sourceType, converter);
+		registered.put(wrap(targetType), Collections.unmodifiableMap(bySource));
+		registry = new Registry(Collections.unmodifiableMap(registered));
+	}
+
+	/**
+	 * registers a converter for all values into the target type
+	 *
+	 * @param targetType - the field type
+	 * @param converter
+	 */
+	public static void register(final Class<?> targetType, final TypeConverter converter) {
+		register(targetType, Object.class, converter);
+	}
+
+	/**
+	 * removes all registered converters for the target type
+	 *
+	 * @param targetType
+	 */
+	public static synchronized void unregister(final Class<?> targetType) {
+		final Map<Class<?>, Map<Class<?>, TypeConverter>> registered = new HashMap<>(registry.registered);
+		registered.remove(wrap(targetType));
+		registry = new Registry(Collections.unmodifiableMap(registered));
+	}
+
+	/**
+	 * converts the value into the target type
+	 *
+	 * @param targetType
+	 * @param value
+	 * @return
+	 * @throws Exception
+	 */
+	public static Object convert(final Class<?> targetType, final Object value) throws Exception {
+		if (value == null) {
+			return null;
+		}
+		return get(targetType, value.getClass()).convert(value);
+	}
+
+	/**
+	 *
+	 * @param targetType - the field type
+	 * @param sourceType - the type of the value returned by the JDBC driver
+	 * @return the converter for the pair, never null
+	 */
+	public static TypeConverter get(final Class<?> targetType, final Class<?> sourceType) {
+		final Registry current = registry;
+		Map<Class<?>, TypeConverter> bySource = current.resolved.get(targetType);
+		if (bySource == null) {
+			bySource = current.resolved.computeIfAbsent(targetType, k -> new ConcurrentHashMap<>());
+		}
+		TypeConverter converter = bySource.get(sourceType);
+		if (converter == null) {
+			converter = resolve(current, wrap(targetType), sourceType);
+			bySource.put(sourceType, converter);
+		}
+		return converter;
+	}
+
+	private static TypeConverter resolve(final Registry current, final Class<?> target, final Class<?> source) {
+		final Map<Class<?>, TypeConverter> registered = current.registered.get(target);
+		if (registered != null) {
+			for (Class<?> c = source; c != null; c = c.getSuperclass()) {
+				if (registered.containsKey(c)) {
+					return registered.get(c);
+				}
+			}
+		}
+		if (target.isAssignableFrom(source)) {
+			return TypeConverter.IDENTITY;
+		}
+		if (target.isEnum()) {
+			return resolveEnum(target);
+		}
+		if (Number.class.isAssignableFrom(source)) {
+			return resolveFromNumber(target);
+		}
+		if (String.class.equals(source)) {
+			return resolveFromString(target);
+		}
+		if (String.class.equals(target)) {
+			if (Clob.class.isAssignableFrom(source)) {
+				return value -> ((Clob) value).getSubString(1, (int) ((Clob) value).length());
+			}
+			return String::valueOf;
+		}
+		final TypeConverter time = resolveTime(target, source);
+		return time == null ? TypeConverter.IDENTITY : time;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static TypeConverter resolveEnum(final Class<?> target) {
+		if (IKodoEnum.class.isAssignableFrom(target)) {
+			final Map<String, Object> values = ENUM_VALUES.get(target);
+			return value -> {
+				final Object constant = values.get(value instanceof String ? value : String.valueOf(value));
+				if (constant == null) {
+					throw new Exception("Cannot resolve '" + value + "' to enum value of type " + target.getName());
+				}
+				return constant;
+			};
+		}
+		return value -> Enum.valueOf((Class<Enum>) target, String.valueOf(value));
+	}
+
+	private static TypeConverter resolveFromNumber(final Class<?> target) {
+		if (Long.class.equals(target)) {
+			return value -> ((Number) value).longValue();
+		}
+		if (Integer.class.equals(target)) {
+			return value -> ((Number) value).intValue();
+		}
+		if (Double.class.equals(target)) {
+			return value -> ((Number) value).doubleValue();
+		}
+		if (Float.class.equals(target)) {
+			return value -> ((Number) value).floatValue();
+		}
+		if (Short.class.equals(target)) {
+			return value -> ((Number) value).shortValue();
+		}
+		if (Byte.class.equals(target)) {
+			return value -> ((Number) value).byteValue();
+		}
+		if (BigDecimal.class.equals(target)) {
+			return value -> new BigDecimal(value.toString());
+		}
+		if (BigInteger.class.equals(target)) {
+			return value -> value instanceof BigDecimal ? ((BigDecimal) value).toBigInteger() : BigInteger.valueOf(((Number) value).longValue());
+		}
+		if (Boolean.class.equals(target)) {
+			return value -> ((Number) value).intValue() != 0;
+		}
+		if (String.class.equals(target)) {
+			return String::valueOf;
+		}
+		return TypeConverter.IDENTITY;
+	}
+
+	private static TypeConverter resolveFromString(final Class<?> target) {
+		if (Long.class.equals(target)) {
+			return value -> Long.valueOf(((String) value).trim());
+		}
+		if (Integer.class.equals(target)) {
+			return value -> Integer.valueOf(((String) value).trim());
+		}
+		if (Double.class.equals(target)) {
+			return value -> Double.valueOf(((String) value).trim());
+		}
+		if (Float.class.equals(target)) {
+			return value -> Float.valueOf(((String) value).trim());
+		}
+		if (Short.class.equals(target)) {
+			return value -> Short.valueOf(((String) value).trim());
+		}
+		if (Byte.class.equals(target)) {
+			return value -> Byte.valueOf(((String) value).trim());
+		}
+		if (BigDecimal.class.equals(target)) {
+			return value -> new BigDecimal(((String) value).trim());
+		}
+		if (BigInteger.class.equals(target)) {
+			return value -> new BigInteger(((String) value).trim());
+		}
+		if (Boolean.class.equals(target)) {
+			return value -> "1".equals(value) || Boolean.parseBoolean(((String) value).trim());
+		}
+		if (Character.class.equals(target)) {
+			return value -> ((String) value).isEmpty() ? null : ((String) value).charAt(0);
+		}
+		return TypeConverter.IDENTITY;
+	}
+
+	private static TypeConverter resolveTime(final Class<?> target, final Class<?> source) {
+		final TypeConverter toLocalDateTime = toLocalDateTime(source);
+		if (LocalDateTime.class.equals(target)) {
+			return toLocalDateTime;
+		}
+		if (LocalDate.class.equals(target)) {
+			if (java.sql.Date.class.equals(source)) {
+				return value -> ((java.sql.Date) value).toLocalDate();
+			}
+			return toLocalDateTime == null ? null : value -> ((LocalDateTime) toLocalDateTime.convert(value)).toLocalDate();
+		}
+		if (LocalTime.class.equals(target)) {
+			if (Time.class.equals(source)) {
+				return value -> ((Time) value).toLocalTime();
+			}
+			return toLocalDateTime == null ? null : value -> ((LocalDateTime) toLocalDateTime.convert(value)).toLocalTime();
+		}
+		if (Instant.class.equals(target)) {
+			if (OffsetDateTime.class.equals(source)) {
+				return value -> ((OffsetDateTime) value).toInstant();
+			}
+			if (Timestamp.class.equals(source)) {
+				return value -> ((Timestamp) value).toInstant();
+			}
+			if (Date.class.isAssignableFrom(source)) {
+				// java.sql.Date does not support toInstant()
+				return value -> Instant.ofEpochMilli(((Date) value).getTime());
+			}
+			return toLocalDateTime == null ? null
+					: value -> ((LocalDateTime) toLocalDateTime.convert(value)).atZone(ZoneId.systemDefault()).toInstant();
+		}
+		if (OffsetDateTime.class.equals(target)) {
+			return toLocalDateTime == null ? null
+					: value -> ((LocalDateTime) toLocalDateTime.convert(value)).atZone(ZoneId.systemDefault()).toOffsetDateTime();
+		}
+		if (Date.class.isAssignableFrom(target)) {
+			final TypeConverter toTimestamp;
+			if (LocalDateTime.class.equals(source)) {
+				toTimestamp = value -> Timestamp.valueOf((LocalDateTime) value);
+			} else if (LocalDate.class.equals(source)) {
+				toTimestamp = value -> Timestamp.valueOf(((LocalDate) value).atStartOfDay());
+			} else if (OffsetDateTime.class.equals(source)) {
+				toTimestamp = value -> Timestamp.from(((OffsetDateTime) value).toInstant());
+			} else if (Instant.class.equals(source)) {
+				toTimestamp = value -> Timestamp.from((Instant) value);
+			} else if (Date.class.isAssignableFrom(source)) {
+				toTimestamp = value -> new Timestamp(((Date) value).getTime());
+			} else {
+				return null;
+			}
+			if (java.sql.Date.class.equals(target)) {
+				return value -> new java.sql.Date(((Timestamp) toTimestamp.convert(value)).getTime());
+			}
+			if (Time.class.equals(target)) {
+				return value -> new Time(((Timestamp) toTimestamp.convert(value)).getTime());
+			}
+			return toTimestamp;
+		}
+		return null;
+	}
+
+	private static TypeConverter toLocalDateTime(final Class<?> source) {
+		if (Timestamp.class.equals(source)) {
+			return value -> ((Timestamp) value).toLocalDateTime();
+		}
+		if (java.sql.Date.class.equals(source)) {
+			return value -> ((java.sql.Date) value).toLocalDate().atStartOfDay();
+		}
+		if (Date.class.isAssignableFrom(source)) {
+			return value -> LocalDateTime.ofInstant(Instant.ofEpochMilli(((Date) value).getTime()), ZoneId.systemDefault());
+		}
+		if (LocalDate.class.equals(source)) {
+			return value -> ((LocalDate) value).atStartOfDay();
+		}
+		if (OffsetDateTime.class.equals(source)) {
+			return value -> ((OffsetDateTime) value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+		}
+		if (Instant.class.equals(source)) {
+			return value -> LocalDateTime.ofInstant((Instant) value, ZoneId.systemDefault());
+		}
+		return null;
+	}
+
+	private static Class<?> wrap(final Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		}
+		if (int.class.equals(type)) {
+			return Integer.class;
+		}
+		if (long.class.equals(type)) {
+			return Long.class;
+		}
+		if (double.class.equals(type)) {
+			return Double.class;
+		}
+		if (float.class.equals(type)) {
+			return Float.class;
+		}
+		if (boolean.class.equals(type)) {
+			return Boolean.class;
+		}
+		if (short.class.equals(type)) {
+			return Short.class;
+		}
+		if (byte.class.equals(type)) {
+			return Byte.class;
+		}
+		if (char.class.equals(type)) {
+			return Character.class;
+		}
+		return type;
+	}
+}
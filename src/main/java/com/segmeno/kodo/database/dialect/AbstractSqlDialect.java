@@ -0,0 +1,201 @@
+package com.segmeno.kodo.database.dialect;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * base class of all dialects, rendering standard SQL where possible
+ */
+public abstract class AbstractSqlDialect implements SqlDialect {
+
+	protected static final int DEFAULT_MAX_BIND_PARAMETERS = 65535;
+	protected static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+	@Override
+	public String addPaging(final String query, final int startRow, final int pageSize) {
+		return query + " LIMIT " + pageSize + " OFFSET " + startRow;
+	}
+
+	@Override
+	public String firstRow(final String query) {
+		return query + " LIMIT 1";
+	}
+
+	@Override
+	public String nextSequenceValue(final String sequence) throws Exception {
+		return "SELECT NEXT VALUE FOR " + sequence;
+	}
+
+	@Override
+	public String upsert(final String tableName, final List<String> cols, final List<String> keyCols) throws Exception {
+		throw new Exception("upserts are not supported for database " + getProductName());
+	}
+
+	@Override
+	public boolean supportsMultiRowInsert() {
+		return true;
+	}
+
+	@Override
+	public String multiRowInsert(final String tableName, final List<String> cols, final int rows, final String generatedKeyColumn) {
+		final StringBuilder sb = new StringBuilder(64 + rows * cols.size() * 3);
+		sb.append("INSERT INTO ").append(tableName).append(" (").append(String.join(", ", cols)).append(")");
+		sb.append(" VALUES ");
+		appendRows(sb, cols.size(), rows);
+		return sb.toString();
+	}
+
+	@Override
+	public boolean returnsKeysAsResultSet() {
+		return false;
+	}
+
+	@Override
+	public boolean returnsGeneratedKeysInRowOrder() {
+		return false;
+	}
+
+	@Override
+	public int getMaxBindParameters() {
+		return DEFAULT_MAX_BIND_PARAMETERS;
+	}
+
+	@Override
+	public int getMaxBatchSize() {
+		return DEFAULT_MAX_BATCH_SIZE;
+	}
+
+	@Override
+	public String caseInsensitiveLike(final String column, final boolean negate) {
+		return caseInsensitiveCompare(column, negate ? "NOT LIKE" : "LIKE", "?");
+	}
+
+	@Override
+	public String caseInsensitiveEquals(final String column, final boolean negate) {
+		return caseInsensitiveCompare(column, negate ? "<>" : "=", "?");
+	}
+
+	@Override
+	public String caseInsensitiveCompare(final String left, final String operator, final String right) {
+		return "LOWER(" + left + ") " + operator + " LOWER(" + right + ")";
+	}
+
+	@Override
+	public String regexpLike(final String column, final boolean caseInsensitive) {
+		// supported by Oracle, H2, MySQL 8, DB2 and SQL Server 2025
+		return "REGEXP_LIKE(" + column + ", ?, '" + (caseInsensitive ? "i" : "c") + "')";
+	}
+
+	@Override
+	public String concat(final String... expressions) {
+		return String.join(" || ", expressions);
+	}
+
+	@Override
+	public boolean supportsArrayBinding() {
+		return false;
+	}
+
+	@Override
+	public String inArray(final String column, final boolean negate) {
+		return negate ? column + " <> ALL(?)" : column + " = ANY(?)";
+	}
+
+	@Override
+	public String explain(final String query) {
+		return null;
+	}
+
+	@Override
+	public Object toArrayParameter(final List<?> values) {
+		final Object sample = values.stream().filter(v -> v != null).findFirst().orElse(null);
+		return new ArrayParameter(getArrayElementType(sample), values.toArray());
+	}
+
+	/**
+	 *
+	 * @param sample - a value of the array or null if all values are null
+	 * @return the SQL type name of the array elements
+	 */
+	protected String getArrayElementType(final Object sample) {
+		if (sample instanceof Long) {
+			return "BIGINT";
+		}
+		if (sample instanceof Integer || sample instanceof Short || sample instanceof Byte) {
+			return "INTEGER";
+		}
+		if (sample instanceof BigDecimal) {
+			return "NUMERIC";
+		}
+		if (sample instanceof Double || sample instanceof Float) {
+			return "DOUBLE PRECISION";
+		}
+		if (sample instanceof Date) {
+			return "TIMESTAMP";
+		}
+		if (sample instanceof Boolean) {
+			return "BOOLEAN";
+		}
+		return "VARCHAR";
+	}
+
+	/**
+	 * renders a MERGE statement with a source table built from one row of bind parameters
+	 *
+	 * @param tableName  - the target table
+	 * @param source     - the source table expression, its alias must be "source"
+	 * @param cols       - all columns to write
+	 * @param keyCols    - the columns to match on
+	 * @param updateCols - the columns to update on a match
+	 * @return
+	 */
+	protected String merge(final String tableName, final String source, final List<String> cols, final List<String> keyCols,
+			final List<String> updateCols) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("MERGE INTO ").append(tableName).append(" target USING ").append(source).append(" ON (")
+				.append(keyCols.stream().map(col -> "target." + col + " = source." + col).collect(Collectors.joining(" AND "))).append(")");
+		if (!updateCols.isEmpty()) {
+			sb.append(" WHEN MATCHED THEN UPDATE SET ")
+					.append(updateCols.stream().map(col -> "target." + col + " = source." + col).collect(Collectors.joining(", ")));
+		}
+		sb.append(" WHEN NOT MATCHED THEN INSERT (").append(String.join(", ", cols)).append(") VALUES (")
+				.append(cols.stream().map(col -> "source." + col).collect(Collectors.joining(", "))).append(")");
+		return sb.toString();
+	}
+
+	/**
+	 *
+	 * @return all columns which are not part of the key columns
+	 */
+	protected List<String> getUpdateColumns(final List<String> cols, final List<String> keyCols) {
+		return cols.stream().filter(col -> keyCols.stream().noneMatch(k -> k.equalsIgnoreCase(col))).collect(Collectors.toList());
+	}
+
+	protected String placeholders(final int count) {
+		final StringBuilder sb = new StringBuilder(count * 3);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append('?');
+		}
+		return sb.toString();
+	}
+
+	protected void appendRows(final StringBuilder sb, final int cols, final int rows) {
+		final String row = "(" + placeholders(cols) + ")";
+		for (int i = 0; i < rows; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(row);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [" + getProductName() + "]";
+	}
+}
@@ -0,0 +1,55 @@
+package com.segmeno.kodo.database.dialect;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+
+/**
+ * a list of values bound as one SQL array parameter. Two parameters with the same element type and values are
+ * equal, so they match as part of a query cache key
+ */
+public class ArrayParameter extends AbstractSqlTypeValue {
+
+	private final String elementType;
+	private final Object[] values;
+
+	public ArrayParameter(final String elementType, final Object[] values) {
+		this.elementType = elementType;
+		this.values = values;
+	}
+
+	@Override
+	protected Object createTypeValue(final Connection con, final int sqlType, final String typeName) throws SQLException {
+		return con.createArrayOf(elementType, values);
+	}
+
+	public String getElementType() {
+		return elementType;
+	}
+
+	public Object[] getValues() {
+		return values;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Objects.hashCode(elementType) + Arrays.hashCode(values);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (!(obj instanceof ArrayParameter)) {
+			return false;
+		}
+		final ArrayParameter other = (ArrayParameter) obj;
+		return Objects.equals(elementType, other.elementType) && Arrays.equals(values, other.values);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(values);
+	}
+}
@@ -0,0 +1,18 @@
+package com.segmeno.kodo.database.dialect;
+
+/**
+ * fallback for all databases without a dedicated dialect. Renders standard SQL only
+ */
+public class GenericDialect extends AbstractSqlDialect {
+
+	private final String productName;
+
+	public GenericDialect(final String productName) {
+		this.productName = productName;
+	}
+
+	@Override
+	public String getProductName() {
+		return productName;
+	}
+}
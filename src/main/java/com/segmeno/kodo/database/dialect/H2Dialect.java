@@ -0,0 +1,33 @@
+package com.segmeno.kodo.database.dialect;
+
+import java.util.List;
+
+public class H2Dialect extends AbstractSqlDialect {
+
+	@Override
+	public String getProductName() {
+		return "H2";
+	}
+
+	@Override
+	public String upsert(final String tableName, final List<String> cols, final List<String> keyCols) {
+		return "MERGE INTO " + tableName + " (" + String.join(", ", cols) + ") KEY (" + String.join(", ", keyCols) + ") VALUES ("
+				+ placeholders(cols.size()) + ")";
+	}
+
+	@Override
+	public boolean returnsGeneratedKeysInRowOrder() {
+		// the rows of an insert are processed and their keys returned one after the other
+		return true;
+	}
+
+	@Override
+	public boolean supportsArrayBinding() {
+		return true;
+	}
+
+	@Override
+	public String explain(final String query) {
+		return "EXPLAIN " + query;
+	}
+}
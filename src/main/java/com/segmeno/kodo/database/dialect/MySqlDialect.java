@@ -0,0 +1,71 @@
+package com.segmeno.kodo.database.dialect;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class MySqlDialect extends AbstractSqlDialect {
+
+	private final String productName;
+
+	public MySqlDialect() {
+		this("MySQL");
+	}
+
+	/**
+	 * @param productName - MySQL or MariaDB
+	 */
+	public MySqlDialect(final String productName) {
+		this.productName = productName;
+	}
+
+	@Override
+	public String getProductName() {
+		return productName;
+	}
+
+	@Override
+	public String nextSequenceValue(final String sequence) throws Exception {
+		// sequences exist in MariaDB only
+		if (!"MariaDB".equalsIgnoreCase(productName)) {
+			throw new Exception("sequences are not supported for database " + productName + ", use a key table instead");
+		}
+		return super.nextSequenceValue(sequence);
+	}
+
+	@Override
+	public String upsert(final String tableName, final List<String> cols, final List<String> keyCols) {
+		final List<String> updateCols = getUpdateColumns(cols, keyCols);
+		return "INSERT INTO " + tableName + " (" + String.join(", ", cols) + ") VALUES (" + placeholders(cols.size())
+				+ ") ON DUPLICATE KEY UPDATE " + (updateCols.isEmpty() ? keyCols.get(0) + " = " + keyCols.get(0)
+						: updateCols.stream().map(col -> col + " = VALUES(" + col + ")").collect(Collectors.joining(", ")));
+	}
+
+	@Override
+	public String regexpLike(final String column, final boolean caseInsensitive) {
+		// MariaDB has no REGEXP_LIKE, but both understand the inline flags of PCRE and ICU. The regular expressions
+		// of MySQL 5.7 know no inline flags, so MySQL 8.0 or MariaDB 10.0.5 is required
+		return column + " REGEXP CONCAT('" + (caseInsensitive ? "(?i)" : "(?-i)") + "', ?)";
+	}
+
+	@Override
+	public String concat(final String... expressions) {
+		// || is the OR operator unless PIPES_AS_CONCAT is set
+		return "CONCAT(" + String.join(", ", expressions) + ")";
+	}
+
+	@Override
+	public boolean returnsGeneratedKeysInRowOrder() {
+		// the auto increment values of a multi row insert are consecutive and returned in the order of the rows
+		return true;
+	}
+
+	@Override
+	public int getMaxBatchSize() {
+		return 1000;
+	}
+
+	@Override
+	public String explain(final String query) {
+		return "EXPLAIN " + query;
+	}
+}
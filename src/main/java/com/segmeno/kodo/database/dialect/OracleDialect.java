@@ -0,0 +1,43 @@
+package com.segmeno.kodo.database.dialect;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class OracleDialect extends AbstractSqlDialect {
+
+	@Override
+	public String getProductName() {
+		return "Oracle";
+	}
+
+	@Override
+	public String addPaging(final String query, final int startRow, final int pageSize) {
+		return query + " OFFSET " + startRow + " ROWS FETCH NEXT " + pageSize + " ROWS ONLY";
+	}
+
+	@Override
+	public String firstRow(final String query) {
+		return query + " FETCH FIRST 1 ROWS ONLY";
+	}
+
+	@Override
+	public String nextSequenceValue(final String sequence) {
+		return "SELECT " + sequence + ".NEXTVAL FROM DUAL";
+	}
+
+	@Override
+	public String upsert(final String tableName, final List<String> cols, final List<String> keyCols) {
+		return merge(tableName, "(SELECT " + cols.stream().map(col -> "? AS " + col).collect(Collectors.joining(", ")) + " FROM DUAL) source",
+				cols, keyCols, getUpdateColumns(cols, keyCols));
+	}
+
+	@Override
+	public boolean supportsMultiRowInsert() {
+		return false;
+	}
+
+	@Override
+	public int getMaxBatchSize() {
+		return 1000;
+	}
+}
@@ -0,0 +1,70 @@
+package com.segmeno.kodo.database.dialect;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PostgreSqlDialect extends AbstractSqlDialect {
+
+	@Override
+	public String getProductName() {
+		return "PostgreSQL";
+	}
+
+	@Override
+	public String upsert(final String tableName, final List<String> cols, final List<String> keyCols) {
+		final List<String> updateCols = getUpdateColumns(cols, keyCols);
+		return "INSERT INTO " + tableName + " (" + String.join(", ", cols) + ") VALUES (" + placeholders(cols.size()) + ") ON CONFLICT ("
+				+ String.join(", ", keyCols) + ") " + (updateCols.isEmpty() ? "DO NOTHING"
+						: "DO UPDATE SET " + updateCols.stream().map(col -> col + " = EXCLUDED." + col).collect(Collectors.joining(", ")));
+	}
+
+	@Override
+	public String nextSequenceValue(final String sequence) {
+		return "SELECT nextval('" + sequence + "')";
+	}
+
+	@Override
+	public String multiRowInsert(final String tableName, final List<String> cols, final int rows, final String generatedKeyColumn) {
+		final String stmt = super.multiRowInsert(tableName, cols, rows, generatedKeyColumn);
+		return generatedKeyColumn == null ? stmt : stmt + " RETURNING " + generatedKeyColumn;
+	}
+
+	@Override
+	public boolean returnsKeysAsResultSet() {
+		return true;
+	}
+
+	@Override
+	public int getMaxBindParameters() {
+		return 32767;
+	}
+
+	@Override
+	public String caseInsensitiveCompare(final String left, final String operator, final String right) {
+		if (operator.endsWith("LIKE")) {
+			return left + " " + operator.replace("LIKE", "ILIKE") + " " + right;
+		}
+		return super.caseInsensitiveCompare(left, operator, right);
+	}
+
+	@Override
+	public String regexpLike(final String column, final boolean caseInsensitive) {
+		return column + (caseInsensitive ? " ~* ?" : " ~ ?");
+	}
+
+	@Override
+	public boolean supportsArrayBinding() {
+		return true;
+	}
+
+	@Override
+	protected String getArrayElementType(final Object sample) {
+		final String type = super.getArrayElementType(sample);
+		return type.equals("DOUBLE PRECISION") ? "float8" : type.toLowerCase();
+	}
+
+	@Override
+	public String explain(final String query) {
+		return "EXPLAIN " + query;
+	}
+}
@@ -0,0 +1,177 @@
+package com.segmeno.kodo.database.dialect;
+
+import java.util.List;
+
+/**
+ * encapsulates the SQL differences between database vendors. An implementation is detected automatically from
+ * the database product name (see {@link SqlDialects#forProduct(String)}), but can also be passed in when
+ * creating the DataAccessManager
+ */
+public interface SqlDialect {
+
+	/**
+	 *
+	 * @return the database product name as reported by the JDBC driver
+	 */
+	String getProductName();
+
+	/**
+	 * appends the paging clause to a query which is already sorted
+	 *
+	 * @param query    - the sorted query
+	 * @param startRow - the number of rows to skip
+	 * @param pageSize - the maximum number of rows to return
+	 * @return
+	 */
+	String addPaging(String query, int startRow, int pageSize);
+
+	/**
+	 * limits a query to its first row, i.e. to check if any row matches
+	 *
+	 * @param query - the query starting with SELECT, not sorted
+	 * @return
+	 */
+	String firstRow(String query);
+
+	/**
+	 * renders an upsert statement with one row of bind parameters
+	 *
+	 * @param tableName - the table to write to
+	 * @param cols      - all columns to write
+	 * @param keyCols   - the columns to match existing rows on
+	 * @return
+	 * @throws Exception if the database does not support upserts
+	 */
+	String upsert(String tableName, List<String> cols, List<String> keyCols) throws Exception;
+
+	/**
+	 *
+	 * @return true if INSERT INTO t (cols) VALUES (...),(...) is supported
+	 */
+	boolean supportsMultiRowInsert();
+
+	/**
+	 * renders an insert statement with the given number of rows of bind parameters
+	 *
+	 * @param tableName          - the table to write to
+	 * @param cols               - all columns to write
+	 * @param rows               - the number of rows
+	 * @param generatedKeyColumn - the column of the generated key to return or null if no keys are needed
+	 * @return
+	 */
+	String multiRowInsert(String tableName, List<String> cols, int rows, String generatedKeyColumn);
+
+	/**
+	 *
+	 * @return true if statements rendered by {@link #multiRowInsert(String, List, int, String)} return the
+	 *         generated keys as result set (RETURNING / OUTPUT) instead of the JDBC generated keys
+	 */
+	boolean returnsKeysAsResultSet();
+
+	/**
+	 *
+	 * @return true if the keys generated by a multi row insert are returned in the order of the rows. Otherwise rows
+	 *         with generated keys are inserted one per statement, so each key belongs to exactly one row
+	 */
+	boolean returnsGeneratedKeysInRowOrder();
+
+	/**
+	 *
+	 * @return the maximum number of bind parameters within one statement
+	 */
+	int getMaxBindParameters();
+
+	/**
+	 *
+	 * @return the maximum number of statements to send within one JDBC batch
+	 */
+	int getMaxBatchSize();
+
+	/**
+	 * renders a case insensitive LIKE comparison of the column with one bind parameter
+	 *
+	 * @param column - the (qualified) column name
+	 * @param negate - true for NOT LIKE
+	 * @return
+	 */
+	String caseInsensitiveLike(String column, boolean negate);
+
+	/**
+	 * renders a case insensitive equality comparison of the column with one bind parameter. Unlike LIKE, wildcards
+	 * in the value are compared as they are
+	 *
+	 * @param column - the (qualified) column name
+	 * @param negate - true for inequality
+	 * @return
+	 */
+	String caseInsensitiveEquals(String column, boolean negate);
+
+	/**
+	 * renders a case insensitive comparison of two expressions, i.e. of two columns
+	 *
+	 * @param left     - the left expression
+	 * @param operator - the comparison operator (=, &lt;&gt;, &lt;, LIKE, NOT LIKE, ...)
+	 * @param right    - the right expression
+	 * @return
+	 */
+	String caseInsensitiveCompare(String left, String operator, String right);
+
+	/**
+	 * renders a match of the column against a regular expression given as one bind parameter. Not all versions
+	 * support it: MySQL needs 8.0 (ICU regular expressions), MariaDB 10.0.5 (PCRE) and SQL Server 2025
+	 * (REGEXP_LIKE). Older versions reject the statement
+	 *
+	 * @param column          - the (qualified) column name
+	 * @param caseInsensitive - true to ignore the case
+	 * @return
+	 */
+	String regexpLike(String column, boolean caseInsensitive);
+
+	/**
+	 *
+	 * @param expressions - the expressions to concatenate
+	 * @return the string concatenation of the expressions
+	 */
+	String concat(String... expressions);
+
+	/**
+	 *
+	 * @return true if a list of values can be bound as a single array parameter
+	 */
+	boolean supportsArrayBinding();
+
+	/**
+	 * renders the comparison of the column with an array parameter, see {@link #toArrayParameter(List)}
+	 *
+	 * @param column - the (qualified) column name
+	 * @param negate - true if the column value must not be contained
+	 * @return
+	 */
+	String inArray(String column, boolean negate);
+
+	/**
+	 * wraps the values into a parameter which is bound as a single SQL array
+	 *
+	 * @param values
+	 * @return
+	 */
+	Object toArrayParameter(List<?> values);
+
+	/**
+	 * renders a statement returning the execution plan of the query. The bind parameters of the query stay the
+	 * same
+	 *
+	 * @param query
+	 * @return the statement or null if the plan cannot be queried with a single statement
+	 */
+	String explain(String query);
+
+	/**
+	 * renders a query returning the next value of a sequence
+	 *
+	 * @param sequence - the name of the sequence
+	 * @return
+	 * @throws Exception if the database does not support sequences
+	 */
+	String nextSequenceValue(String sequence) throws Exception;
+}
@@ -0,0 +1,36 @@
+package com.segmeno.kodo.database.dialect;
+
+/**
+ * resolves the dialect for a database product
+ */
+public final class SqlDialects {
+
+	private SqlDialects() {
+	}
+
+	/**
+	 *
+	 * @param productName - the database product name as reported by the JDBC driver
+	 * @return the matching dialect or a generic one if the product is unknown
+	 */
+	public static SqlDialect forProduct(final String productName) {
+		if (productName == null) {
+			return new GenericDialect(null);
+		}
+		switch (productName) {
+		case "H2":
+			return new H2Dialect();
+		case "PostgreSQL":
+			return new PostgreSqlDialect();
+		case "MySQL":
+		case "MariaDB":
+			return new MySqlDialect(productName);
+		case "Microsoft SQL Server":
+			return new SqlServerDialect();
+		case "Oracle":
+			return new OracleDialect();
+		default:
+			return new GenericDialect(productName);
+		}
+	}
+}
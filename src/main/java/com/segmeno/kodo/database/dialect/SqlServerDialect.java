@@ -0,0 +1,61 @@
+package com.segmeno.kodo.database.dialect;
+
+import java.util.List;
+
+public class SqlServerDialect extends AbstractSqlDialect {
+
+	@Override
+	public String getProductName() {
+		return "Microsoft SQL Server";
+	}
+
+	@Override
+	public String addPaging(final String query, final int startRow, final int pageSize) {
+		return query + " OFFSET " + startRow + " ROWS FETCH NEXT " + pageSize + " ROWS ONLY";
+	}
+
+	@Override
+	public String firstRow(final String query) {
+		// OFFSET ... FETCH requires an ORDER BY
+		return "SELECT TOP 1" + query.substring("SELECT".length());
+	}
+
+	@Override
+	public String upsert(final String tableName, final List<String> cols, final List<String> keyCols) {
+		return merge(tableName, "(VALUES (" + placeholders(cols.size()) + ")) AS source (" + String.join(", ", cols) + ")", cols, keyCols,
+				getUpdateColumns(cols, keyCols)) + ";";
+	}
+
+	@Override
+	public String multiRowInsert(final String tableName, final List<String> cols, final int rows, final String generatedKeyColumn) {
+		final StringBuilder sb = new StringBuilder(64 + rows * cols.size() * 3);
+		sb.append("INSERT INTO ").append(tableName).append(" (").append(String.join(", ", cols)).append(")");
+		if (generatedKeyColumn != null) {
+			sb.append(" OUTPUT INSERTED.").append(generatedKeyColumn);
+		}
+		sb.append(" VALUES ");
+		appendRows(sb, cols.size(), rows);
+		return sb.toString();
+	}
+
+	@Override
+	public String regexpLike(final String column, final boolean caseInsensitive) {
+		// REGEXP_LIKE exists from SQL Server 2025 on, there is no regular expression support before
+		return super.regexpLike(column, caseInsensitive);
+	}
+
+	@Override
+	public String concat(final String... expressions) {
+		return "CONCAT(" + String.join(", ", expressions) + ")";
+	}
+
+	@Override
+	public boolean returnsKeysAsResultSet() {
+		return true;
+	}
+
+	@Override
+	public int getMaxBindParameters() {
+		return 2099;
+	}
+}
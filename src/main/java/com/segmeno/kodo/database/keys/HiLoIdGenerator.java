@@ -0,0 +1,46 @@
+package com.segmeno.kodo.database.keys;
+
+import com.segmeno.kodo.database.DatabaseEntity;
+
+/**
+ * hands out the keys of a reserved block. A block is reserved with one hi value, its keys are hi times the
+ * allocation size plus 0 to allocation size - 1. Each hi value must only be handed out once, by all clients of the
+ * database
+ */
+public abstract class HiLoIdGenerator implements IdGenerator {
+
+	private final int allocationSize;
+	private long next;
+	private long end;
+
+	protected HiLoIdGenerator(final int allocationSize) {
+		if (allocationSize < 1) {
+			throw new IllegalArgumentException("the allocation size must be at least 1");
+		}
+		this.allocationSize = allocationSize;
+	}
+
+	/**
+	 *
+	 * @return the next hi value, which must be at least 1
+	 * @throws Exception
+	 */
+	protected abstract long nextHi() throws Exception;
+
+	@Override
+	public synchronized Object nextId(final DatabaseEntity entity) throws Exception {
+		if (next == end) {
+			final long hi = nextHi();
+			if (hi < 1) {
+				throw new Exception("the hi value must be at least 1, but was " + hi);
+			}
+			next = Math.multiplyExact(hi, (long) allocationSize);
+			end = next + allocationSize;
+		}
+		return next++;
+	}
+
+	public int getAllocationSize() {
+		return allocationSize;
+	}
+}
@@ -0,0 +1,19 @@
+package com.segmeno.kodo.database.keys;
+
+import com.segmeno.kodo.database.DatabaseEntity;
+
+/**
+ * creates primary keys on the client, before the element is inserted. Implementations must be thread safe.
+ * Custom generators are registered with DataAccessManager#registerIdGenerator and selected with
+ * {@code @PrimaryKey(generation = KeyGeneration.CUSTOM, generator = "name")}
+ */
+public interface IdGenerator {
+
+	/**
+	 *
+	 * @param entity - the element to create the key for
+	 * @return the key, converted into the type of the primary key field
+	 * @throws Exception
+	 */
+	Object nextId(DatabaseEntity entity) throws Exception;
+}
@@ -0,0 +1,37 @@
+package com.segmeno.kodo.database.keys;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.database.dialect.SqlDialect;
+
+/**
+ * reserves a block of keys with one call of a database sequence, see
+ * {@link com.segmeno.kodo.annotation.KeyGeneration#SEQUENCE_HILO}. The sequence is expected to increment by 1
+ */
+public class SequenceHiLoIdGenerator extends HiLoIdGenerator {
+
+	private final JdbcTemplate jdbcTemplate;
+	private final String query;
+
+	/**
+	 *
+	 * @param jdbcTemplate
+	 * @param dialect        - renders the query of the next sequence value
+	 * @param sequence       - the name of the sequence
+	 * @param allocationSize - the number of keys per block
+	 * @throws Exception if the name is invalid or the database has no sequences
+	 */
+	public SequenceHiLoIdGenerator(final JdbcTemplate jdbcTemplate, final SqlDialect dialect, final String sequence, final int allocationSize)
+			throws Exception {
+		super(allocationSize);
+		DataAccessManager.validateColName(sequence);
+		this.jdbcTemplate = jdbcTemplate;
+		this.query = dialect.nextSequenceValue(sequence);
+	}
+
+	@Override
+	protected long nextHi() throws Exception {
+		return jdbcTemplate.queryForObject(query, Long.class);
+	}
+}
@@ -0,0 +1,124 @@
+package com.segmeno.kodo.database.keys;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.segmeno.kodo.database.DataAccessManager;
+
+/**
+ * reserves a block of keys by incrementing the hi value in a row of a key table, see
+ * {@link com.segmeno.kodo.annotation.KeyGeneration#TABLE_HILO}. The table is expected to exist:
+ *
+ * <pre>
+ * create table kodo_keys (name varchar(255) primary key, next_hi bigint not null)
+ * </pre>
+ *
+ * The row is created with the first reservation. The hi value is reserved on a connection of its own and committed
+ * right away, so a rolled back transaction does not give the block back while it is still in use.
+ */
+public class TableHiLoIdGenerator extends HiLoIdGenerator {
+
+	public static final String DEFAULT_TABLE = "kodo_keys";
+
+	private static final Logger log = LogManager.getLogger(TableHiLoIdGenerator.class);
+	private static final int MAX_ATTEMPTS = 100;
+
+	private final DataSource dataSource;
+	private final String name;
+	private final String select;
+	private final String insert;
+	private final String update;
+
+	/**
+	 *
+	 * @param dataSource     - the DataSource to open the connection for the reservation from
+	 * @param table          - the key table
+	 * @param name           - the row in the key table
+	 * @param allocationSize - the number of keys per block
+	 * @throws Exception if the table name is invalid
+	 */
+	public TableHiLoIdGenerator(final DataSource dataSource, final String table, final String name, final int allocationSize) throws Exception {
+		super(allocationSize);
+		DataAccessManager.validateColName(table);
+		this.dataSource = dataSource;
+		this.name = name;
+		this.select = "SELECT next_hi FROM " + table + " WHERE name = ?";
+		this.insert = "INSERT INTO " + table + " (name, next_hi) VALUES (?, 2)";
+		this.update = "UPDATE " + table + " SET next_hi = ? WHERE name = ? AND next_hi = ?";
+	}
+
+	@Override
+	protected long nextHi() throws Exception {
+		try (Connection con = dataSource.getConnection()) {
+			// a pooled connection goes back with the auto-commit mode it was handed out with
+			final boolean autoCommit = con.getAutoCommit();
+			if (!autoCommit) {
+				con.setAutoCommit(true);
+			}
+			try {
+				return reserveHi(con);
+			} finally {
+				if (!autoCommit) {
+					con.setAutoCommit(false);
+				}
+			}
+		}
+	}
+
+	private long reserveHi(final Connection con) throws Exception {
+		// optimistic: the update only succeeds if no other client reserved the value in between
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			final Long hi = currentHi(con);
+			if (hi == null) {
+				if (insertRow(con)) {
+					return 1;
+				}
+				continue;
+			}
+			try (PreparedStatement ps = con.prepareStatement(update)) {
+				ps.setLong(1, hi + 1);
+				ps.setString(2, name);
+				ps.setLong(3, hi);
+				if (ps.executeUpdate() == 1) {
+					return hi;
+				}
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("hi value " + hi + " of " + name + " was reserved concurrently, retrying");
+			}
+		}
+		throw new Exception("could not reserve a hi value for " + name + " after " + MAX_ATTEMPTS + " attempts");
+	}
+
+	private Long currentHi(final Connection con) throws SQLException {
+		try (PreparedStatement ps = con.prepareStatement(select)) {
+			ps.setString(1, name);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? rs.getLong(1) : null;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the row was created with the hi value 1 reserved, false if another client created it
+	 */
+	private boolean insertRow(final Connection con) throws SQLException {
+		try (PreparedStatement ps = con.prepareStatement(insert)) {
+			ps.setString(1, name);
+			return ps.executeUpdate() == 1;
+		} catch (final SQLException e) {
+			if (currentHi(con) != null) {
+				return false;
+			}
+			throw e;
+		}
+	}
+}
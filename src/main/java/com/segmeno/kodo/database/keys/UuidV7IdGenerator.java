@@ -0,0 +1,55 @@
+package com.segmeno.kodo.database.keys;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+import com.segmeno.kodo.database.DatabaseEntity;
+
+/**
+ * creates time ordered UUIDs of version 7 (RFC 9562), see {@link com.segmeno.kodo.annotation.KeyGeneration#UUID_V7}.
+ * The first 48 bits are the unix time in milliseconds, the following 12 bits count up within the same millisecond,
+ * so the keys of one client are strictly increasing. The remaining 62 bits are random
+ */
+public class UuidV7IdGenerator implements IdGenerator {
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+	private static final int MAX_COUNTER = 0xFFF;
+
+	private static long lastMillis;
+	private static int counter;
+
+	@Override
+	public Object nextId(final DatabaseEntity entity) throws Exception {
+		return next();
+	}
+
+	/**
+	 *
+	 * @return a new UUID of version 7
+	 */
+	public static UUID next() {
+		final long millis;
+		final int seq;
+		synchronized (UuidV7IdGenerator.class) {
+			long now = System.currentTimeMillis();
+			if (now <= lastMillis) {
+				// same millisecond or the clock went back, keep counting on the last timestamp
+				now = lastMillis;
+				if (counter == MAX_COUNTER) {
+					now++;
+					counter = 0;
+				} else {
+					counter++;
+				}
+			} else {
+				counter = 0;
+			}
+			lastMillis = now;
+			millis = now;
+			seq = counter;
+		}
+		final long msb = (millis & 0xFFFFFFFFFFFFL) << 16 | 0x7000L | seq;
+		final long lsb = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+		return new UUID(msb, lsb);
+	}
+}
@@ -0,0 +1,60 @@
+package com.segmeno.kodo.database.mapping;
+
+import java.util.List;
+import java.util.Map;
+
+import com.segmeno.kodo.database.DatabaseEntity;
+
+/**
+ * reads and writes the persisted fields of one entity type without reflection. Implementations are generated at
+ * compile time by the EntityMapperProcessor of the kodo-apt module and found by {@link EntityMappers} through the
+ * ServiceLoader. The results must be the same as the ones of the reflective implementation in DatabaseEntity
+ *
+ * @param <T> the entity type
+ */
+public interface EntityMapper<T extends DatabaseEntity> {
+
+	Class<T> getEntityType();
+
+	/**
+	 *
+	 * @return a new instance created with the no-arg constructor
+	 */
+	T newInstance();
+
+	Object getPrimaryKeyValue(T entity);
+
+	/**
+	 *
+	 * @param entity
+	 * @param id     - the key, converted into the type of the primary key field
+	 * @throws Exception if the key cannot be converted
+	 */
+	void setPrimaryKeyValue(T entity, Object id) throws Exception;
+
+	/**
+	 * see {@link DatabaseEntity#getColumnNames(boolean)}
+	 *
+	 * @param includePrimaryKeyColumn
+	 * @return the column names, the list must not be modified
+	 */
+	List<String> getColumnNames(boolean includePrimaryKeyColumn);
+
+	/**
+	 * see {@link DatabaseEntity#toMap()}
+	 *
+	 * @param entity
+	 * @return the values by their lower case column names
+	 */
+	Map<String, Object> toMap(T entity);
+
+	/**
+	 * sets a field which is read from a row. Fields holding lists are not set by the mapper
+	 *
+	 * @param entity
+	 * @param fieldName - the name of the field
+	 * @param value     - the value, already converted into the type of the field
+	 * @return false if the entity has no such field
+	 */
+	boolean setValue(T entity, String fieldName, Object value);
+}
@@ -0,0 +1,101 @@
+package com.segmeno.kodo.database.mapping;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.segmeno.kodo.database.DatabaseEntity;
+
+/**
+ * the registry of the generated {@link EntityMapper}s. The mappers listed in
+ * META-INF/services/com.segmeno.kodo.database.mapping.EntityMapper are loaded once, with the context class loader of
+ * the first thread asking and with the class loader of kodo. Entities without a mapper are handled by reflection
+ */
+public final class EntityMappers {
+
+	private static final Logger log = LogManager.getLogger(EntityMappers.class);
+
+	private static final Map<Class<?>, EntityMapper<?>> MAPPERS = new ConcurrentHashMap<>();
+	private static volatile boolean loaded;
+
+	private EntityMappers() {
+	}
+
+	/**
+	 *
+	 * @param entityType
+	 * @return the mapper of the entity type or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends DatabaseEntity> EntityMapper<T> get(final Class<T> entityType) {
+		if (!loaded) {
+			load();
+		}
+		return (EntityMapper<T>) MAPPERS.get(entityType);
+	}
+
+	/**
+	 * registers a mapper, replacing the one loaded for its entity type
+	 *
+	 * @param mapper
+	 */
+	public static void register(final EntityMapper<?> mapper) {
+		MAPPERS.put(mapper.getEntityType(), mapper);
+	}
+
+	private static synchronized void load() {
+		if (loaded) {
+			return;
+		}
+		final ClassLoader context = Thread.currentThread().getContextClassLoader();
+		if (context != null) {
+			load(context);
+		}
+		if (context != EntityMappers.class.getClassLoader()) {
+			load(EntityMappers.class.getClassLoader());
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("loaded " + MAPPERS.size() + " entity mappers");
+		}
+		loaded = true;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static void load(final ClassLoader classLoader) {
+		final Iterator<EntityMapper> it = ServiceLoader.load(EntityMapper.class, classLoader).iterator();
+		while (true) {
+			try {
+				if (!it.hasNext()) {
+					return;
+				}
+				final EntityMapper<?> mapper = it.next();
+				MAPPERS.putIfAbsent(mapper.getEntityType(), mapper);
+			} catch (final ServiceConfigurationError e) {
+				// i.e. a stale entry of a removed entity, the entity falls back to reflection
+				log.warn("could not load an entity mapper", e);
+			}
+		}
+	}
+
+	/**
+	 * used by the generated mappers to write a n:1 relation
+	 *
+	 * @param elem - the referenced element
+	 * @return the primary key of the element or null if there is no element
+	 */
+	public static Object referencedKey(final DatabaseEntity elem) {
+		if (elem == null) {
+			return null;
+		}
+		final Object pk = elem.getPrimaryKeyValue();
+		if (pk == null) {
+			throw new RuntimeException("With One to One Relations the linked object has to exist (PK has to be set)!");
+		}
+		return pk;
+	}
+}
@@ -0,0 +1,20 @@
+package com.segmeno.kodo.database.monitoring;
+
+/**
+ * the public operations of the DataAccessManager reported to an {@link OperationListener}
+ */
+public enum Operation {
+	GET_ELEMS,
+	GET_ELEMS_BY_PK_QUERY,
+	GET_RECORDS,
+	GET_ELEM_COUNT,
+	EXISTS_ELEM,
+	QUERY_INTO,
+	AGGREGATE,
+	ADD_ELEM,
+	UPDATE_ELEM,
+	UPDATE_WHERE,
+	UPSERT_ELEMS,
+	BULK_INSERT_ELEMS,
+	DELETE_ELEMS
+}
@@ -0,0 +1,27 @@
+package com.segmeno.kodo.database.monitoring;
+
+/**
+ * receives a callback at the start and at the end of each operation of the DataAccessManager. Listeners are
+ * called on the thread executing the operation, so they should return quickly. Exceptions thrown by a listener
+ * are logged and do not affect the operation.
+ * <br><br>
+ * Operations called from within another operation (i.e. the insert of a new element by updateElem) are not
+ * reported separately, their statements are added to the outer operation
+ */
+public interface OperationListener {
+
+	/**
+	 * called before the operation starts. Only the operation, the entity type and the start time are set
+	 *
+	 * @param stats
+	 */
+	default void onStart(final OperationStats stats) {
+	}
+
+	/**
+	 * called after the operation has finished, successfully or not
+	 *
+	 * @param stats
+	 */
+	void onEnd(OperationStats stats);
+}
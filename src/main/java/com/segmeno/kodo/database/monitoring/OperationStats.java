@@ -0,0 +1,163 @@
+package com.segmeno.kodo.database.monitoring;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * collects the figures of one operation of the DataAccessManager. The time of an operation is split into
+ * <ul>
+ * <li>execute: the time spent within the JDBC calls</li>
+ * <li>map: the time spent converting rows into entities</li>
+ * <li>build: everything else (building statements, reflection, preparing parameters)</li>
+ * </ul>
+ * The recording methods are to be used within the kodo framework only
+ */
+public class OperationStats {
+
+	private final Operation operation;
+	private final Class<?> entityType;
+	private final long startNanos;
+	private long endNanos;
+
+	private String sql;
+	private List<Object> bindValues = Collections.emptyList();
+	private long slowestStatementNanos = -1;
+	private String fingerprint;
+
+	private int statementsExecuted;
+	private int bindCount;
+	private long rowsFetched;
+	private long entitiesMaterialized;
+	private long executeNanos;
+	private long mapNanos;
+	private Throwable error;
+
+	public OperationStats(final Operation operation, final Class<?> entityType) {
+		this.operation = operation;
+		this.entityType = entityType;
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * records one executed statement
+	 *
+	 * @param statement - the SQL statement
+	 * @param args      - the bind values
+	 * @param rows      - the number of fetched rows (0 for updates)
+	 * @param nanos     - the execution time
+	 */
+	public void recordExecution(final String statement, final Object[] args, final long rows, final long nanos) {
+		statementsExecuted++;
+		bindCount += args == null ? 0 : args.length;
+		rowsFetched += rows;
+		executeNanos += nanos;
+		if (nanos > slowestStatementNanos) {
+			slowestStatementNanos = nanos;
+			sql = statement;
+			bindValues = args == null ? Collections.emptyList() : Arrays.asList(args);
+			fingerprint = null;
+		}
+	}
+
+	public void recordMapping(final long entities, final long nanos) {
+		entitiesMaterialized += entities;
+		mapNanos += nanos;
+	}
+
+	public void finish(final Throwable error) {
+		this.error = error;
+		this.endNanos = System.nanoTime();
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public Class<?> getEntityType() {
+		return entityType;
+	}
+
+	/**
+	 *
+	 * @return the statement with the longest execution time of this operation
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 *
+	 * @return the normalized form of {@link #getSql()}, see {@link SqlFingerprint}
+	 */
+	public String getFingerprint() {
+		if (fingerprint == null) {
+			fingerprint = SqlFingerprint.of(sql);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 *
+	 * @return the bind values of {@link #getSql()}
+	 */
+	public List<Object> getBindValues() {
+		return bindValues;
+	}
+
+	/**
+	 *
+	 * @return the number of bind values over all statements
+	 */
+	public int getBindCount() {
+		return bindCount;
+	}
+
+	public int getStatementsExecuted() {
+		return statementsExecuted;
+	}
+
+	public long getRowsFetched() {
+		return rowsFetched;
+	}
+
+	public long getEntitiesMaterialized() {
+		return entitiesMaterialized;
+	}
+
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	public long getTotalNanos() {
+		return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+	}
+
+	public long getBuildNanos() {
+		return Math.max(0, getTotalNanos() - executeNanos - mapNanos);
+	}
+
+	public long getExecuteNanos() {
+		return executeNanos;
+	}
+
+	public long getMapNanos() {
+		return mapNanos;
+	}
+
+	/**
+	 *
+	 * @return the exception the operation failed with or null if it succeeded
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "OperationStats [operation=" + operation + ", entityType=" + (entityType == null ? null : entityType.getName())
+				+ ", statements=" + statementsExecuted + ", binds=" + bindCount + ", rows=" + rowsFetched + ", entities="
+				+ entitiesMaterialized + ", totalMs=" + getTotalNanos() / 1e6 + ", buildMs=" + getBuildNanos() / 1e6 + ", executeMs="
+				+ executeNanos / 1e6 + ", mapMs=" + mapNanos / 1e6 + ", error=" + (error != null) + "]";
+	}
+}
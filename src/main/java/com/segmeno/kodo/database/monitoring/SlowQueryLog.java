@@ -0,0 +1,225 @@
+package com.segmeno.kodo.database.monitoring;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.database.dialect.SqlDialect;
+
+/**
+ * logs operations exceeding a threshold, once per SQL fingerprint. The entry contains the slowest statement of
+ * the operation with its bind values, the number of rows and the time split into build, execute and map. If
+ * enabled, the execution plan of the statement is queried on a background thread and attached to the entry.
+ * <br><br>
+ * Usage:
+ * <pre>
+ * final SlowQueryLog slowQueryLog = new SlowQueryLog(500);
+ * slowQueryLog.enableExplain(manager.getJdbcTemplate(), manager.getDialect());
+ * manager.addOperationListener(slowQueryLog);
+ * </pre>
+ */
+public class SlowQueryLog implements OperationListener {
+
+	private static final Logger log = LogManager.getLogger(SlowQueryLog.class);
+
+	// stop remembering fingerprints when there are too many distinct statements (i.e. generated SQL). The statements
+	// not remembered are logged each time they are slow
+	protected static final int MAX_FINGERPRINTS = 10000;
+
+	private final long thresholdNanos;
+	private final Set<String> loggedFingerprints = ConcurrentHashMap.newKeySet();
+	private volatile Set<Operation> operations = EnumSet.of(Operation.GET_ELEMS, Operation.GET_ELEMS_BY_PK_QUERY, Operation.GET_RECORDS,
+			Operation.QUERY_INTO, Operation.AGGREGATE, Operation.UPDATE_WHERE, Operation.DELETE_ELEMS);
+	private volatile boolean redactBindValues;
+
+	private JdbcTemplate explainTemplate;
+	private SqlDialect explainDialect;
+	private Executor explainExecutor;
+	// the executor created by enableExplain(JdbcTemplate, SqlDialect), which is shut down when it is replaced
+	private ExecutorService ownExecutor;
+
+	/**
+	 *
+	 * @param thresholdMillis - the minimum duration of an operation to be logged
+	 */
+	public SlowQueryLog(final long thresholdMillis) {
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	/**
+	 * sets the operations to watch. Default is GET_ELEMS, GET_ELEMS_BY_PK_QUERY, GET_RECORDS, QUERY_INTO, AGGREGATE, UPDATE_WHERE and
+	 * DELETE_ELEMS
+	 *
+	 * @param operations
+	 */
+	public void setOperations(final Operation... operations) {
+		final Set<Operation> set = EnumSet.noneOf(Operation.class);
+		for (final Operation operation : operations) {
+			set.add(operation);
+		}
+		this.operations = set;
+	}
+
+	/**
+	 * if true, only the types of the bind values are logged
+	 *
+	 * @param redactBindValues
+	 */
+	public void setRedactBindValues(final boolean redactBindValues) {
+		this.redactBindValues = redactBindValues;
+	}
+
+	/**
+	 * queries the execution plan of slow statements on a single background thread. The thread is created once and
+	 * kept when this method is called again
+	 *
+	 * @param jdbcTemplate - the template to run the EXPLAIN with
+	 * @param dialect      - the dialect rendering the EXPLAIN statement
+	 */
+	public synchronized void enableExplain(final JdbcTemplate jdbcTemplate, final SqlDialect dialect) {
+		if (ownExecutor == null) {
+			ownExecutor = Executors.newSingleThreadExecutor(r -> {
+				final Thread t = new Thread(r, "kodo-slow-query-explain");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		enableExplain(jdbcTemplate, dialect, ownExecutor);
+	}
+
+	/**
+	 * queries the execution plan of slow statements with the given executor. The executor is not shut down by
+	 * this log
+	 *
+	 * @param jdbcTemplate - the template to run the EXPLAIN with
+	 * @param dialect      - the dialect rendering the EXPLAIN statement
+	 * @param executor     - the executor to run the EXPLAIN on
+	 */
+	public synchronized void enableExplain(final JdbcTemplate jdbcTemplate, final SqlDialect dialect, final Executor executor) {
+		if (ownExecutor != null && ownExecutor != executor) {
+			ownExecutor.shutdown();
+			ownExecutor = null;
+		}
+		this.explainTemplate = jdbcTemplate;
+		this.explainDialect = dialect;
+		this.explainExecutor = executor;
+	}
+
+	synchronized Executor getExplainExecutor() {
+		return explainExecutor;
+	}
+
+	/**
+	 * forgets the fingerprints already logged, so they are logged again when exceeding the threshold
+	 */
+	public void reset() {
+		loggedFingerprints.clear();
+	}
+
+	@Override
+	public void onEnd(final OperationStats stats) {
+		if (stats.getTotalNanos() < thresholdNanos || stats.getSql() == null || !operations.contains(stats.getOperation())) {
+			return;
+		}
+		final String fingerprint = stats.getFingerprint();
+		if (loggedFingerprints.contains(fingerprint)
+				|| (loggedFingerprints.size() < MAX_FINGERPRINTS && !loggedFingerprints.add(fingerprint))) {
+			return;
+		}
+
+		final String explainSql;
+		final JdbcTemplate template;
+		final Executor executor;
+		synchronized (this) {
+			explainSql = explainDialect == null ? null : explainDialect.explain(stats.getSql());
+			template = explainTemplate;
+			executor = explainExecutor;
+		}
+		if (explainSql == null) {
+			log(stats, null);
+			return;
+		}
+		final Object[] args = stats.getBindValues().toArray();
+		try {
+			executor.execute(() -> {
+				String plan;
+				try {
+					plan = formatPlan(template.queryForList(explainSql, args));
+				} catch (final Exception e) {
+					plan = "could not explain statement: " + e.getMessage();
+				}
+				log(stats, plan);
+			});
+		} catch (final Exception e) {
+			log(stats, "could not explain statement: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * writes the entry for a slow operation. Called on the explaining thread if EXPLAIN is enabled
+	 *
+	 * @param stats
+	 * @param plan  - the execution plan or null if EXPLAIN is not enabled or not supported by the dialect
+	 */
+	protected void log(final OperationStats stats, final String plan) {
+		if (log.isWarnEnabled()) {
+			log.warn(format(stats, plan));
+		}
+	}
+
+	/**
+	 *
+	 * @param stats
+	 * @param plan
+	 * @return the log entry for the slow operation
+	 */
+	protected String format(final OperationStats stats, final String plan) {
+		final StringBuilder sb = new StringBuilder(256);
+		sb.append("slow ").append(stats.getOperation());
+		if (stats.getEntityType() != null) {
+			sb.append(" of ").append(stats.getEntityType().getSimpleName());
+		}
+		sb.append(" took ").append(millis(stats.getTotalNanos())).append(" ms (build ").append(millis(stats.getBuildNanos()))
+				.append(" ms, execute ").append(millis(stats.getExecuteNanos())).append(" ms, map ").append(millis(stats.getMapNanos()))
+				.append(" ms), ").append(stats.getStatementsExecuted()).append(" statements, ").append(stats.getRowsFetched())
+				.append(" rows, ").append(stats.getEntitiesMaterialized()).append(" entities");
+		if (stats.getError() != null) {
+			sb.append(", failed with ").append(stats.getError().getClass().getSimpleName());
+		}
+		sb.append("\n\tSQL: ").append(stats.getSql());
+		sb.append("\n\tbinds: ").append(formatBindValues(stats.getBindValues()));
+		if (plan != null) {
+			sb.append("\n\tplan:\n\t").append(plan.replace("\n", "\n\t"));
+		}
+		return sb.toString();
+	}
+
+	private String formatBindValues(final List<Object> values) {
+		if (!redactBindValues) {
+			return values.toString();
+		}
+		return values.stream().map(v -> v == null ? "null" : "<" + v.getClass().getSimpleName() + ">")
+				.collect(Collectors.joining(", ", "[", "]"));
+	}
+
+	private static String formatPlan(final List<Map<String, Object>> rows) {
+		return rows.stream().map(row -> row.values().stream().map(String::valueOf).collect(Collectors.joining(" | ")))
+				.collect(Collectors.joining("\n"));
+	}
+
+	private static String millis(final long nanos) {
+		return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+	}
+}
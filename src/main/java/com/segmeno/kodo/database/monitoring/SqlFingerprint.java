@@ -0,0 +1,34 @@
+package com.segmeno.kodo.database.monitoring;
+
+import java.util.regex.Pattern;
+
+/**
+ * normalizes SQL statements, so statements which only differ in literal values or in the number of values
+ * within an IN list get the same fingerprint
+ */
+public final class SqlFingerprint {
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+	private static final Pattern VALUE_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private SqlFingerprint() {
+	}
+
+	/**
+	 *
+	 * @param sql
+	 * @return the statement with all literals replaced by '?', lists of values collapsed into '(?)' and
+	 *         normalized whitespace
+	 */
+	public static String of(final String sql) {
+		if (sql == null) {
+			return null;
+		}
+		String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+		s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+		s = VALUE_LIST.matcher(s).replaceAll("(?)");
+		return WHITESPACE.matcher(s).replaceAll(" ").trim();
+	}
+}
@@ -0,0 +1,17 @@
+package com.segmeno.kodo.database.routing;
+
+/**
+ * strategy to pick the read replica for a query
+ */
+public enum LoadBalancing {
+
+	/**
+	 * the replicas take turns
+	 */
+	ROUND_ROBIN,
+
+	/**
+	 * the replica with the fewest queries in flight is picked, on a tie the replicas take turns
+	 */
+	LEAST_OUTSTANDING
+}
@@ -0,0 +1,20 @@
+package com.segmeno.kodo.database.routing;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * a read query to run on the JdbcTemplate chosen by the {@link ReadReplicaRouter}
+ *
+ * @param <T> the result type
+ */
+@FunctionalInterface
+public interface ReadCallback<T> {
+
+	/**
+	 *
+	 * @param template - the template of a replica or of the primary
+	 * @return the result of the query
+	 * @throws Exception
+	 */
+	T doWithTemplate(JdbcTemplate template) throws Exception;
+}
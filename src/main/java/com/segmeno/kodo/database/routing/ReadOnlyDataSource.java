@@ -0,0 +1,36 @@
+package com.segmeno.kodo.database.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * marks every connection of the target DataSource as read-only, so the driver and the database can optimize for
+ * it and writes are rejected
+ */
+class ReadOnlyDataSource extends DelegatingDataSource {
+
+	ReadOnlyDataSource(final DataSource target) {
+		super(target);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return readOnly(super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password) throws SQLException {
+		return readOnly(super.getConnection(username, password));
+	}
+
+	private static Connection readOnly(final Connection con) throws SQLException {
+		if (!con.isReadOnly()) {
+			con.setReadOnly(true);
+		}
+		return con;
+	}
+}
@@ -0,0 +1,194 @@
+package com.segmeno.kodo.database.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * distributes the read queries of a DataAccessManager over read replicas, while writes stay on the primary. The
+ * connections of the replicas are marked read-only, so the replica DataSources should not be shared with writing
+ * code. Reads go to the primary as long as
+ * <ul>
+ * <li>a Spring managed transaction is active on the current thread, as its uncommitted writes are only visible on
+ * the primary</li>
+ * <li>a write session is open on the current thread, see {@link #beginWriteSession()}</li>
+ * <li>the current thread has written within the read-your-writes window, see
+ * {@link #setReadYourWritesWindow(long)}</li>
+ * </ul>
+ * Usage:
+ * <pre>
+ * manager.setReadReplicaRouter(new ReadReplicaRouter(Arrays.asList(replica1, replica2), LoadBalancing.LEAST_OUTSTANDING));
+ * try (WriteSession session = manager.beginWriteSession()) {
+ *     manager.addElem(user);
+ *     manager.getElems(...); // reads from the primary
+ * }
+ * </pre>
+ */
+public class ReadReplicaRouter {
+
+	private static final Logger log = LogManager.getLogger(ReadReplicaRouter.class);
+
+	private final List<JdbcTemplate> replicas;
+	private final AtomicInteger[] outstanding;
+	private final LoadBalancing loadBalancing;
+	private final AtomicInteger next = new AtomicInteger();
+
+	private volatile long readYourWritesNanos;
+	// per thread: the number of open write sessions and the time of the last write
+	private final ThreadLocal<int[]> writeSessions = ThreadLocal.withInitial(() -> new int[1]);
+	private final ThreadLocal<long[]> lastWrite = ThreadLocal.withInitial(() -> new long[] { Long.MIN_VALUE });
+
+	/**
+	 * a scope in which all reads of the current thread go to the primary. Sessions can be nested
+	 */
+	public class WriteSession implements AutoCloseable {
+		private boolean closed;
+
+		private WriteSession() {
+			writeSessions.get()[0]++;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				writeSessions.get()[0]--;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param replicas      - the DataSources of the read replicas
+	 * @param loadBalancing - the strategy to pick a replica for a query
+	 */
+	public ReadReplicaRouter(final List<DataSource> replicas, final LoadBalancing loadBalancing) {
+		if (replicas == null || replicas.isEmpty()) {
+			throw new IllegalArgumentException("at least one replica is required");
+		}
+		final List<JdbcTemplate> templates = new ArrayList<>(replicas.size());
+		for (final DataSource replica : replicas) {
+			templates.add(new JdbcTemplate(new ReadOnlyDataSource(replica)));
+		}
+		this.replicas = Collections.unmodifiableList(templates);
+		this.outstanding = new AtomicInteger[replicas.size()];
+		for (int i = 0; i < outstanding.length; i++) {
+			outstanding[i] = new AtomicInteger();
+		}
+		this.loadBalancing = loadBalancing;
+	}
+
+	/**
+	 * sets the time after a write during which the reads of the writing thread go to the primary. This hides the
+	 * replication lag from the thread. Default is 0, which disables the window
+	 *
+	 * @param millis
+	 */
+	public void setReadYourWritesWindow(final long millis) {
+		this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	/**
+	 * opens a write session on the current thread. Close it with try-with-resources
+	 *
+	 * @return the session
+	 */
+	public WriteSession beginWriteSession() {
+		return new WriteSession();
+	}
+
+	/**
+	 * records a write of the current thread for the read-your-writes window
+	 */
+	public void markWrite() {
+		if (readYourWritesNanos > 0) {
+			lastWrite.get()[0] = System.nanoTime();
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the reads of the current thread have to go to the primary
+	 */
+	public boolean isPrimaryRequired() {
+		if (writeSessions.get()[0] > 0 || TransactionSynchronizationManager.isActualTransactionActive()) {
+			return true;
+		}
+		final long window = readYourWritesNanos;
+		final long last = lastWrite.get()[0];
+		return window > 0 && last != Long.MIN_VALUE && System.nanoTime() - last < window;
+	}
+
+	/**
+	 * runs the read query on a replica or, if required, on the primary
+	 *
+	 * @param primary  - the template of the primary
+	 * @param callback - the query
+	 * @return the result of the query
+	 * @throws Exception
+	 */
+	public <T> T read(final JdbcTemplate primary, final ReadCallback<T> callback) throws Exception {
+		if (isPrimaryRequired()) {
+			return callback.doWithTemplate(primary);
+		}
+		final int replica = pickReplica();
+		outstanding[replica].incrementAndGet();
+		try {
+			if (log.isTraceEnabled()) {
+				log.trace("reading from replica " + replica);
+			}
+			return callback.doWithTemplate(replicas.get(replica));
+		} finally {
+			outstanding[replica].decrementAndGet();
+		}
+	}
+
+	private int pickReplica() {
+		final int size = outstanding.length;
+		final int first = Math.floorMod(next.getAndIncrement(), size);
+		if (loadBalancing == LoadBalancing.ROUND_ROBIN || size == 1) {
+			return first;
+		}
+		int best = first;
+		int bestCount = outstanding[first].get();
+		for (int i = 1; i < size && bestCount > 0; i++) {
+			final int candidate = (first + i) % size;
+			final int count = outstanding[candidate].get();
+			if (count < bestCount) {
+				best = candidate;
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 *
+	 * @return the templates of the replicas in the order they were configured
+	 */
+	public List<JdbcTemplate> getReplicaTemplates() {
+		return replicas;
+	}
+
+	/**
+	 *
+	 * @param replica - the index of the replica
+	 * @return the number of queries currently running on the replica
+	 */
+	public int getOutstandingReads(final int replica) {
+		return outstanding[replica].get();
+	}
+
+	public LoadBalancing getLoadBalancing() {
+		return loadBalancing;
+	}
+}
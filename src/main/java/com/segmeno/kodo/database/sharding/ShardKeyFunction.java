@@ -0,0 +1,21 @@
+package com.segmeno.kodo.database.sharding;
+
+/**
+ * maps the value of the shard key column to the shard holding the row
+ */
+@FunctionalInterface
+public interface ShardKeyFunction {
+
+	/**
+	 * distributes the keys by the hash of their string representation, so 5 and 5L end up on the same shard
+	 */
+	ShardKeyFunction HASH = (key, shardCount) -> Math.floorMod(String.valueOf(key).hashCode(), shardCount);
+
+	/**
+	 *
+	 * @param key        - the value of the shard key, never null
+	 * @param shardCount - the number of shards
+	 * @return the index of the shard, from 0 to shardCount - 1
+	 */
+	int shardOf(Object key, int shardCount);
+}
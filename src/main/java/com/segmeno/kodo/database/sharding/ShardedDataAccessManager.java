@@ -0,0 +1,530 @@
+package com.segmeno.kodo.database.sharding;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.database.DatabaseEntity;
+import com.segmeno.kodo.database.QueryOptions;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.CriteriaGroup;
+import com.segmeno.kodo.transport.Operator;
+import com.segmeno.kodo.transport.Sort;
+import com.segmeno.kodo.transport.Sort.SortDirection;
+import com.segmeno.kodo.transport.SortEntry;
+
+/**
+ * spreads the rows of the entities over several databases (shards) by the value of a shard key column, i.e. the
+ * tenant id. Each shard is a DataAccessManager of its own, so child elements have to live on the shard of their
+ * main entity.
+ * <ul>
+ * <li>writes are routed by the shard key of the entity, which must not be null</li>
+ * <li>reads with an EQUALS or IN_SET criteria on the shard key at the top level of an AND group are routed to
+ * the shards of the keys</li>
+ * <li>all other reads run in parallel on all shards. The results are merged in the order of the Sort</li>
+ * </ul>
+ * The merge compares the values in Java, so a case insensitive collation of the database can lead to a slightly
+ * different order of strings than a single database would return.
+ * <br><br>
+ * Usage:
+ * <pre>
+ * final ShardedDataAccessManager sharded = new ShardedDataAccessManager(Arrays.asList(templ1, templ2), "tenantId", ShardKeyFunction.HASH);
+ * sharded.addElem(user); // goes to the shard of user.tenantId
+ * final List&lt;TestUser&gt; users = sharded.getElems(filter, TestUser.class, new Sort("tbUser.Name", SortDirection.ASC), -1);
+ * </pre>
+ * The threads of the default executor are created on the first scatter-gather read and stopped by {@link #close()}.
+ */
+public class ShardedDataAccessManager implements AutoCloseable {
+
+	private static final Logger log = LogManager.getLogger(ShardedDataAccessManager.class);
+	private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+	private final DataAccessManager[] shards;
+	private final String shardKeyColumn;
+	private final ShardKeyFunction shardKeyFunction;
+	private ExecutorService executor;
+	// true if the executor is the default one created by this instance
+	private boolean ownsExecutor;
+
+	@FunctionalInterface
+	private interface ShardCall<T> {
+		T call(int shard) throws Exception;
+	}
+
+	/**
+	 * creates a DataAccessManager for each template, with the dialect detected from the database
+	 *
+	 * @param templates        - one template per shard. The order must not change, as it defines the shard index
+	 * @param shardKeyColumn   - the column holding the shard key
+	 * @param shardKeyFunction - maps the shard key to the shard index
+	 * @throws SQLException
+	 */
+	public ShardedDataAccessManager(final List<JdbcTemplate> templates, final String shardKeyColumn, final ShardKeyFunction shardKeyFunction)
+			throws SQLException {
+		this(shardKeyColumn, shardKeyFunction, toManagers(templates));
+	}
+
+	/**
+	 *
+	 * @param shardKeyColumn   - the column holding the shard key
+	 * @param shardKeyFunction - maps the shard key to the shard index
+	 * @param shards           - one manager per shard. The order must not change, as it defines the shard index
+	 */
+	public ShardedDataAccessManager(final String shardKeyColumn, final ShardKeyFunction shardKeyFunction, final DataAccessManager... shards) {
+		if (shards.length == 0) {
+			throw new IllegalArgumentException("at least one shard is required");
+		}
+		this.shards = shards.clone();
+		this.shardKeyColumn = shardKeyColumn;
+		this.shardKeyFunction = shardKeyFunction;
+	}
+
+	private static DataAccessManager[] toManagers(final List<JdbcTemplate> templates) throws SQLException {
+		final DataAccessManager[] managers = new DataAccessManager[templates.size()];
+		for (int i = 0; i < managers.length; i++) {
+			managers[i] = new DataAccessManager(templates.get(i));
+		}
+		return managers;
+	}
+
+	/**
+	 * sets the executor running the queries of a scatter-gather read. The default executor has one daemon thread
+	 * per shard and is shut down when it is replaced. An executor set here is not shut down by this instance
+	 *
+	 * @param executor
+	 */
+	public synchronized void setExecutor(final ExecutorService executor) {
+		if (ownsExecutor) {
+			this.executor.shutdown();
+		}
+		this.executor = executor;
+		this.ownsExecutor = false;
+	}
+
+	synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			final int pool = POOL_COUNT.incrementAndGet();
+			final AtomicInteger threads = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(shards.length, r -> {
+				final Thread t = new Thread(r, "kodo-shard-" + pool + "-" + threads.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+			ownsExecutor = true;
+		}
+		return executor;
+	}
+
+	/**
+	 * shuts down the default executor. The shards stay usable, a later scatter-gather read creates a new executor
+	 */
+	@Override
+	public synchronized void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+			executor = null;
+			ownsExecutor = false;
+		}
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @return the manager of the shard, i.e. to register an OperationListener
+	 */
+	public DataAccessManager getShard(final int index) {
+		return shards[index];
+	}
+
+	/**
+	 *
+	 * @param shardKey
+	 * @return the manager of the shard holding the rows of the shard key
+	 */
+	public DataAccessManager getShardFor(final Object shardKey) {
+		return shards[shardOf(shardKey)];
+	}
+
+	public String getShardKeyColumn() {
+		return shardKeyColumn;
+	}
+
+	/**
+	 * inserts the element into the shard of its shard key, see {@link DataAccessManager#addElem(DatabaseEntity)}
+	 */
+	public <T> T addElem(final DatabaseEntity obj) throws Exception {
+		return shards[shardOf(obj)].addElem(obj);
+	}
+
+	/**
+	 * updates the element in the shard of its shard key, see {@link DataAccessManager#updateElem(DatabaseEntity)}
+	 */
+	public void updateElem(final DatabaseEntity entity) throws Exception {
+		shards[shardOf(entity)].updateElem(entity);
+	}
+
+	/**
+	 * upserts the elements, the shards are written in parallel. See {@link DataAccessManager#upsertElems(List)}
+	 */
+	public void upsertElems(final List<? extends DatabaseEntity> entities) throws Exception {
+		final Map<Integer, List<DatabaseEntity>> byShard = groupByShard(entities);
+		scatter(toArray(byShard), shard -> {
+			shards[shard].upsertElems(byShard.get(shard));
+			return null;
+		});
+	}
+
+	/**
+	 * bulk inserts the elements, the shards are written in parallel. See
+	 * {@link DataAccessManager#bulkInsertElems(List)}
+	 */
+	public void bulkInsertElems(final List<? extends DatabaseEntity> entities) throws Exception {
+		final Map<Integer, List<DatabaseEntity>> byShard = groupByShard(entities);
+		scatter(toArray(byShard), shard -> {
+			shards[shard].bulkInsertElems(byShard.get(shard));
+			return null;
+		});
+	}
+
+	/**
+	 * deletes the matching elements in the shards of the shard keys of the filter or, if there are none, in all
+	 * shards. See {@link DataAccessManager#deleteElems(CriteriaGroup, Class)}
+	 */
+	public void deleteElems(final CriteriaGroup advancedCriteria, final Class<? extends DatabaseEntity> entityType) throws Exception {
+		scatter(shardsOf(advancedCriteria), shard -> {
+			shards[shard].deleteElems(advancedCriteria, entityType);
+			return null;
+		});
+	}
+
+	public <T> List<T> getElems(final CriteriaGroup advancedCriteria, final Class<? extends DatabaseEntity> entityType) throws Exception {
+		return getElems(advancedCriteria, entityType, null, -1, null);
+	}
+
+	public <T> List<T> getElems(final CriteriaGroup advancedCriteria, final Class<? extends DatabaseEntity> entityType, final Sort sort,
+			final Integer fetchDepth) throws Exception {
+		return getElems(advancedCriteria, entityType, sort, fetchDepth, null);
+	}
+
+	/**
+	 * returns the matching elements of the shards of the shard keys of the filter or, if there are none, of all
+	 * shards. The results of the shards are merged in the order of the sort. Without a sort, the results are
+	 * concatenated in the order of the shards
+	 *
+	 * @param advancedCriteria
+	 * @param entityType
+	 * @param sort
+	 * @param fetchDepth
+	 * @param maxResults       - the maximum number of elements to return or null for all. With a fetchDepth of 0,
+	 *                         each shard returns at most maxResults elements. Otherwise the rows of a query
+	 *                         include the child elements, so the shards return all their elements and the limit
+	 *                         is applied to the merged elements only
+	 * @return
+	 * @throws Exception
+	 */
+	public <T> List<T> getElems(final CriteriaGroup advancedCriteria, final Class<? extends DatabaseEntity> entityType, final Sort sort,
+			final Integer fetchDepth, final Integer maxResults) throws Exception {
+		// one row per element, so the max rows of a shard limit its elements
+		final boolean limitShards = maxResults != null && maxResults > 0 && fetchDepth != null && fetchDepth == 0;
+		final List<List<T>> results = scatter(shardsOf(advancedCriteria),
+				shard -> limitShards
+						? shards[shard].<T>getElems(advancedCriteria, entityType, sort, fetchDepth, new QueryOptions().withMaxRows(maxResults))
+						: shards[shard].<T>getElems(advancedCriteria, entityType, sort, fetchDepth));
+		return merge(results, sort, elem -> ((DatabaseEntity) elem).toMap(), 0, maxResults == null ? Integer.MAX_VALUE : maxResults);
+	}
+
+	/**
+	 * returns one page of the records of the table. Each shard returns its first currentPage * pageSize records,
+	 * which are merged in the order of the sort before the page is cut out
+	 *
+	 * @param tableName
+	 * @param criteriaGroup
+	 * @param pageSize
+	 * @param currentPage   - the page to return, starting with 1
+	 * @param sort          - required for paging
+	 * @return
+	 * @throws Exception
+	 */
+	public List<Map<String, Object>> getRecords(final String tableName, final CriteriaGroup criteriaGroup, final int pageSize,
+			final int currentPage, final Sort sort) throws Exception {
+		final int[] targets = shardsOf(criteriaGroup);
+		if (targets.length == 1) {
+			return shards[targets[0]].getRecords(tableName, criteriaGroup, pageSize, currentPage, sort);
+		}
+		final int topN = pageSize * currentPage;
+		final List<List<Map<String, Object>>> results = scatter(targets,
+				shard -> shards[shard].getRecords(tableName, criteriaGroup, topN, 1, sort));
+		return merge(results, sort, row -> row, topN - pageSize, pageSize);
+	}
+
+	public Long getElemCount(final Class<? extends DatabaseEntity> entityType) throws Exception {
+		return getElemCount(null, entityType);
+	}
+
+	/**
+	 *
+	 * @return the sum of the counts of the shards of the shard keys of the filter or, if there are none, of all
+	 *         shards
+	 */
+	public Long getElemCount(final CriteriaGroup criteria, final Class<? extends DatabaseEntity> entityType) throws Exception {
+		long sum = 0;
+		for (final Long count : scatter(shardsOf(criteria), shard -> shards[shard].getElemCount(criteria, entityType))) {
+			sum += count;
+		}
+		return sum;
+	}
+
+	private int shardOf(final Object shardKey) {
+		if (shardKey == null) {
+			throw new IllegalArgumentException("the shard key must not be null");
+		}
+		final int shard = shardKeyFunction.shardOf(shardKey, shards.length);
+		if (shard < 0 || shard >= shards.length) {
+			throw new IllegalStateException("shard key function returned shard " + shard + " for " + shards.length + " shards");
+		}
+		return shard;
+	}
+
+	private int shardOf(final DatabaseEntity entity) throws Exception {
+		final Map<String, Object> values = entity.toMap();
+		final String column = shardKeyColumn.toLowerCase();
+		if (!values.containsKey(column)) {
+			throw new Exception(entity.getClass().getName() + " has no shard key column " + shardKeyColumn);
+		}
+		final Object key = values.get(column);
+		if (key == null) {
+			throw new Exception("the shard key " + shardKeyColumn + " of " + entity.getClass().getName() + " is null");
+		}
+		return shardOf(key);
+	}
+
+	private Map<Integer, List<DatabaseEntity>> groupByShard(final List<? extends DatabaseEntity> entities) throws Exception {
+		final Map<Integer, List<DatabaseEntity>> byShard = new LinkedHashMap<>();
+		for (final DatabaseEntity entity : entities) {
+			byShard.computeIfAbsent(shardOf(entity), k -> new ArrayList<>()).add(entity);
+		}
+		return byShard;
+	}
+
+	private static int[] toArray(final Map<Integer, ?> byShard) {
+		return byShard.keySet().stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 *
+	 * @return the shards of the EQUALS or IN_SET criterias on the shard key at the top level of the AND group or
+	 *         all shards
+	 */
+	private int[] shardsOf(final CriteriaGroup group) {
+		if (group != null && (group.getOperator() == Operator.AND || group.getCriterias().size() == 1)) {
+			for (final Criteria crit : group.getCriterias()) {
+				if (crit == null || crit.getFieldName() == null || !isShardKey(crit.getFieldName())) {
+					continue;
+				}
+				if (crit.getOperator() == Operator.EQUALS) {
+					final Object key = crit.getStringValue() != null ? crit.getStringValue()
+							: crit.getNumberValue() != null ? crit.getNumberValue() : crit.getDateValue();
+					if (key != null) {
+						return new int[] { shardOf(key) };
+					}
+				} else if (crit.getOperator() == Operator.IN_SET && crit.getListValues() != null && !crit.getListValues().isEmpty()) {
+					final TreeSet<Integer> targets = new TreeSet<>();
+					for (final Object key : crit.getListValues()) {
+						targets.add(shardOf(key));
+					}
+					return targets.stream().mapToInt(Integer::intValue).toArray();
+				}
+			}
+		}
+		final int[] all = new int[shards.length];
+		for (int i = 0; i < all.length; i++) {
+			all[i] = i;
+		}
+		return all;
+	}
+
+	private boolean isShardKey(final String fieldName) {
+		return column(fieldName).equalsIgnoreCase(shardKeyColumn);
+	}
+
+	// strips the table name of the field name
+	private static String column(final String fieldName) {
+		final int dot = fieldName.lastIndexOf('.');
+		return dot < 0 ? fieldName : fieldName.substring(dot + 1);
+	}
+
+	/**
+	 * runs the call on the shards in parallel
+	 *
+	 * @return the results in the order of the shards
+	 */
+	private <T> List<T> scatter(final int[] targets, final ShardCall<T> call) throws Exception {
+		if (targets.length == 1) {
+			return Collections.singletonList(call.call(targets[0]));
+		}
+		final ExecutorService executor = getExecutor();
+		final List<Future<T>> futures = new ArrayList<>(targets.length);
+		for (final int shard : targets) {
+			futures.add(executor.submit(() -> call.call(shard)));
+		}
+		final List<T> results = new ArrayList<>(targets.length);
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (final ExecutionException e) {
+					log.error("operation on shard " + targets[i] + " failed", e.getCause());
+					if (e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+		} finally {
+			for (final Future<T> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return results;
+	}
+
+	@FunctionalInterface
+	private interface ValueSource<T> {
+		Map<String, Object> values(T elem) throws Exception;
+	}
+
+	/**
+	 * merges the sorted results of the shards (k-way merge)
+	 *
+	 * @param results - the results of the shards, each sorted by the sort
+	 * @param sort    - the sort or null to concatenate the results
+	 * @param source  - provides the column values of an element
+	 * @param skip    - the number of merged elements to skip
+	 * @param limit   - the maximum number of elements to return
+	 */
+	private static <T> List<T> merge(final List<List<T>> results, final Sort sort, final ValueSource<T> source, final int skip,
+			final int limit) throws Exception {
+		final List<T> merged = new ArrayList<>();
+		if (limit <= 0) {
+			return merged;
+		}
+		// the sort statement is what the databases ordered by
+		if (sort == null || sort.toString().isEmpty()) {
+			int skipped = 0;
+			for (final List<T> result : results) {
+				for (final T elem : result) {
+					if (skipped++ < skip) {
+						continue;
+					}
+					merged.add(elem);
+					if (merged.size() == limit) {
+						return merged;
+					}
+				}
+			}
+			return merged;
+		}
+
+		final List<SortEntry> entries = sort.getSortFields();
+		final String[] columns = new String[entries.size()];
+		final boolean[] descending = new boolean[entries.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = column(entries.get(i).getFieldName());
+			descending[i] = entries.get(i).getSortDirection() == SortDirection.DESC;
+		}
+		final List<List<Object[]>> keys = new ArrayList<>(results.size());
+		for (final List<T> result : results) {
+			final List<Object[]> resultKeys = new ArrayList<>(result.size());
+			for (final T elem : result) {
+				final Map<String, Object> values = source.values(elem);
+				final Object[] key = new Object[columns.length];
+				for (int i = 0; i < columns.length; i++) {
+					key[i] = value(values, columns[i]);
+				}
+				resultKeys.add(key);
+			}
+			keys.add(resultKeys);
+		}
+
+		// a cursor is {result, position}. On equal keys the lower shard comes first
+		final Comparator<int[]> byKey = (a, b) -> {
+			final Object[] ka = keys.get(a[0]).get(a[1]);
+			final Object[] kb = keys.get(b[0]).get(b[1]);
+			for (int i = 0; i < ka.length; i++) {
+				final int c = compareValues(ka[i], kb[i]);
+				if (c != 0) {
+					return descending[i] ? -c : c;
+				}
+			}
+			return Integer.compare(a[0], b[0]);
+		};
+		final PriorityQueue<int[]> queue = new PriorityQueue<>(Math.max(1, results.size()), byKey);
+		for (int r = 0; r < results.size(); r++) {
+			if (!results.get(r).isEmpty()) {
+				queue.add(new int[] { r, 0 });
+			}
+		}
+		int skipped = 0;
+		while (!queue.isEmpty() && merged.size() < limit) {
+			final int[] cursor = queue.poll();
+			if (skipped < skip) {
+				skipped++;
+			} else {
+				merged.add(results.get(cursor[0]).get(cursor[1]));
+			}
+			if (++cursor[1] < results.get(cursor[0]).size()) {
+				queue.add(cursor);
+			}
+		}
+		return merged;
+	}
+
+	private static Object value(final Map<String, Object> values, final String column) {
+		final Object value = values.get(column);
+		if (value != null || values.containsKey(column)) {
+			return value;
+		}
+		for (final Map.Entry<String, Object> entry : values.entrySet()) {
+			if (entry.getKey().equalsIgnoreCase(column)) {
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	// nulls come first, like in MySQL and H2
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareValues(final Object a, final Object b) {
+		if (a == null || b == null) {
+			return a == null ? (b == null ? 0 : -1) : 1;
+		}
+		if (a instanceof Number && b instanceof Number && !a.getClass().equals(b.getClass())) {
+			return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+		}
+		if (a instanceof Comparable && (a.getClass().isInstance(b) || b.getClass().isInstance(a))) {
+			return ((Comparable) a).compareTo(b);
+		}
+		return a.toString().compareTo(b.toString());
+	}
+}
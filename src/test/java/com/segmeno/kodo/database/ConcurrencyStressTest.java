@@ -0,0 +1,229 @@
+package com.segmeno.kodo.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.segmeno.kodo.entity.TestAddress;
+import com.segmeno.kodo.entity.TestType;
+import com.segmeno.kodo.entity.TestUser;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.CriteriaGroup;
+import com.segmeno.kodo.transport.Operator;
+import com.segmeno.kodo.transport.Sort;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * runs reads, writes and cascaded deletes from many threads against one DataAccessManager and verifies that
+ * every thread sees consistent results. Uses a database of its own, so it does not interfere with the ordered
+ * DataAccessManagerTest
+ */
+public class ConcurrencyStressTest {
+	private static final Logger LOG = LogManager.getLogger(ConcurrencyStressTest.class);
+	private static final int THREADS = Math.max(4, Math.min(8, Runtime.getRuntime().availableProcessors() * 2));
+	private static final int ITERATIONS = 25;
+	private static final long SCALING_MILLIS_PER_STEP = 300;
+
+	private static DataAccessManager manager;
+	private static JdbcTemplate templ;
+
+	@BeforeAll
+	public static void setup() throws Exception {
+		final JdbcDataSource ds = TestDatabase.create("stress");
+		templ = new JdbcTemplate(ds);
+		manager = new DataAccessManager(templ);
+
+		try (Connection con = ds.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("insert into tbType (name) values ('red'), ('green'), ('RESTRICTED')");
+			stmt.execute("insert into tbRole (name, primaryColorId, secondaryColorId, description, createdAt) values ('Admin', 1, 2, 'the admin role', '2020-01-01')");
+			stmt.execute("insert into tbRole (name, primaryColorId, secondaryColorId, description, createdAt) values ('Tester', 2, 2, 'the tester role', '2020-05-15')");
+			stmt.execute("insert into tbUser (name, passwordHash, clearanceLevelId, createdAt) values ('Seed', 'pw', 3, '2020-01-01')");
+			stmt.execute("insert into tbAddress (userId, street, postalCode, createdAt) values (1, 'Elmstreet', '31117', '2020-01-01')");
+			stmt.execute("insert into tbAddress (userId, street, postalCode, createdAt) values (1, 'Testplace', '66654', '2020-01-01')");
+			stmt.execute("insert into tbUserRole (userId, roleId) values (1, 1), (1, 2)");
+		}
+	}
+
+	@Test
+	public void mixedWorkloadTest() throws Exception {
+		// one Sort instance shared by all threads, the manager must not modify it
+		final Sort sharedSort = new Sort();
+		final Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				final int worker = t;
+				futures.add(pool.submit(() -> {
+					try {
+						start.await();
+						for (int i = 0; i < ITERATIONS; i++) {
+							writeReadDelete("worker-" + worker + "-" + i, sharedSort);
+							verifySeedUser();
+						}
+					} catch (final Throwable e) {
+						errors.add(e);
+					}
+				}));
+			}
+			start.countDown();
+			for (final Future<?> future : futures) {
+				future.get(2, TimeUnit.MINUTES);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		for (final Throwable e : errors) {
+			LOG.error("error in stress worker", e);
+		}
+		assertTrue(errors.isEmpty(), errors.size() + " workers failed, first error: " + errors.peek());
+		assertTrue(sharedSort.getSortFields().isEmpty());
+
+		// only the seed data survives
+		assertEquals(1L, manager.getElemCount(TestUser.class));
+		assertEquals(2L, manager.getElemCount(TestAddress.class));
+		assertEquals(Long.valueOf(2L), templ.queryForObject("SELECT COUNT(*) FROM tbUserRole", Long.class));
+		assertEquals(3L, manager.getElemCount(TestType.class) - THREADS * ITERATIONS);
+	}
+
+	private static void writeReadDelete(final String name, final Sort sort) throws Exception {
+		final TestType clearance = new TestType();
+		clearance.name = "clearance of " + name;
+
+		final TestUser user = new TestUser();
+		user.name = name;
+		user.pwHash = "pw";
+		user.clearanceLevel = clearance;
+		for (int a = 0; a < 2; a++) {
+			final TestAddress addr = new TestAddress();
+			addr.street = name + " street " + a;
+			addr.postalCode = String.valueOf(a);
+			user.addresses.add(addr);
+		}
+		manager.addElem(user);
+		templ.update("insert into tbUserRole (userId, roleId) values (?, 2)", user.id);
+
+		final Criteria byName = new Criteria("name", Operator.EQUALS, name);
+		List<TestUser> found = manager.getElems(new CriteriaGroup(Operator.AND, byName), TestUser.class, sort, -1);
+		assertEquals(1, found.size(), name);
+		final TestUser read = found.get(0);
+		assertEquals(user.id, read.id);
+		assertEquals(2, read.addresses.size(), name);
+		for (final TestAddress addr : read.addresses) {
+			assertTrue(addr.street.startsWith(name + " street "), addr.street);
+		}
+		assertEquals(1, read.roles.size(), name);
+		assertEquals("Tester", read.roles.get(0).name);
+		assertEquals(clearance.name, read.clearanceLevel.name);
+
+		read.pwHash = "changed";
+		read.addresses.remove(1);
+		manager.updateElem(read);
+		found = manager.getElems(byName, TestUser.class);
+		assertEquals(1, found.size(), name);
+		assertEquals("changed", found.get(0).pwHash);
+		assertEquals(1, found.get(0).addresses.size(), name);
+		assertEquals(1L, manager.getElemCount(byName, TestUser.class));
+
+		manager.deleteElems(new Criteria("id", Operator.EQUALS, user.id), TestUser.class);
+		assertEquals(0L, manager.getElemCount(byName, TestUser.class));
+		assertEquals(0L, manager.getElemCount(new Criteria("userId", Operator.EQUALS, user.id), TestAddress.class));
+		assertEquals(Long.valueOf(0L), templ.queryForObject("SELECT COUNT(*) FROM tbUserRole WHERE userId = ?", Long.class, user.id));
+	}
+
+	private static void verifySeedUser() throws Exception {
+		final List<TestUser> seed = manager.getElems(new Criteria("name", Operator.EQUALS, "Seed"), TestUser.class);
+		assertEquals(1, seed.size());
+		assertEquals(2, seed.get(0).addresses.size());
+		assertEquals(2, seed.get(0).roles.size());
+		assertEquals("RESTRICTED", seed.get(0).clearanceLevel.name);
+	}
+
+	@Test
+	public void concurrentDateRenderingTest() throws Exception {
+		final Date date = Date.from(LocalDateTime.of(2020, 12, 31, 13, 45, 10).atZone(ZoneId.systemDefault()).toInstant());
+		final Queue<Object> wrong = new ConcurrentLinkedQueue<>();
+		final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(pool.submit(() -> {
+					for (int i = 0; i < 2000; i++) {
+						final WherePart wp = new WherePart(manager.getDialect(), "tbUser",
+								new CriteriaGroup(Operator.AND, new Criteria("createdAt", Operator.CONTAINS, date)));
+						if (!"%2020-12-31 13:45:10%".equals(wp.getValues().get(0))) {
+							wrong.add(wp.getValues().get(0));
+						}
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get(1, TimeUnit.MINUTES);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertTrue(wrong.isEmpty(), "wrongly rendered dates: " + wrong);
+	}
+
+	@Test
+	public void throughputScalingTest() throws Exception {
+		// warm up the caches and the JIT before measuring
+		for (int i = 0; i < 50; i++) {
+			verifySeedUser();
+		}
+		final StringBuilder report = new StringBuilder("read throughput by threads:");
+		for (int threads = 1; threads <= THREADS; threads *= 2) {
+			final AtomicLong operations = new AtomicLong();
+			final Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SCALING_MILLIS_PER_STEP);
+			final ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				for (int t = 0; t < threads; t++) {
+					pool.submit(() -> {
+						try {
+							while (System.nanoTime() < deadline) {
+								verifySeedUser();
+								operations.incrementAndGet();
+							}
+						} catch (final Throwable e) {
+							errors.add(e);
+						}
+					});
+				}
+				pool.shutdown();
+				assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+			} finally {
+				pool.shutdownNow();
+			}
+			assertTrue(errors.isEmpty(), "first error: " + errors.peek());
+			report.append(String.format(" %d=%.0f ops/s", threads, operations.get() * 1000d / SCALING_MILLIS_PER_STEP));
+		}
+		// throughput depends on the machine, so it is only reported
+		LOG.info(report);
+	}
+}
@@ -1,12 +1,22 @@
 package com.segmeno.kodo.database;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.segmeno.kodo.annotation.Column;
+import com.segmeno.kodo.annotation.DbIgnore;
+import com.segmeno.kodo.database.dialect.H2Dialect;
+import com.segmeno.kodo.database.monitoring.Operation;
+import com.segmeno.kodo.database.monitoring.OperationListener;
+import com.segmeno.kodo.database.monitoring.OperationStats;
+import com.segmeno.kodo.database.monitoring.SlowQueryLog;
 import com.segmeno.kodo.entity.CustomElement;
 import com.segmeno.kodo.entity.TestAddress;
 import com.segmeno.kodo.entity.TestRole;
+import com.segmeno.kodo.entity.TestTag;
 import com.segmeno.kodo.entity.TestType;
 import com.segmeno.kodo.entity.TestUser;
 import com.segmeno.kodo.transport.Criteria;
@@ -15,13 +25,16 @@ import com.segmeno.kodo.transport.Operator;
 import com.segmeno.kodo.transport.Sort;
 import com.segmeno.kodo.transport.Sort.SortDirection;
 
+import java.beans.ConstructorProperties;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -78,6 +91,7 @@ public class DataAccessManagerTest {
 		stmt.execute("create table tbUserRole (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, roleId integer)");
 		stmt.execute("create table tbAddress (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, street varchar, postalCode varchar, createdAt timestamp)");
 		stmt.execute("create table tbType (id integer AUTO_INCREMENT PRIMARY KEY, name varchar)");
+		stmt.execute("create table tbTag (id integer AUTO_INCREMENT PRIMARY KEY, code varchar unique, label varchar)");
 		con.commit();
 
 		stmt.execute("insert into tbType (name) values ('" + TYPE_RED + "'), ('" + TYPE_GREEN + "'), ('" + TYPE_BLUE + "'), ('RESTRICTED'), ('ALL ACCESS')");
@@ -351,6 +365,555 @@ public class DataAccessManagerTest {
 			executeAndPrintResults(query.toString(), params.toArray());
 	}
 
+	@Test
+    @Order(12)
+	public void upsertElemsTest() throws Exception {
+		final TestType red = new TestType();
+		red.id = 1;
+		red.name = "dark red";
+		final TestType purple = new TestType();
+		purple.id = 100;
+		purple.name = "purple";
+
+		final List<TestType> types = new ArrayList<>();
+		types.add(red);
+		types.add(purple);
+		manager.upsertElems(types);
+		try {
+			assertEquals(manager.getElemCount(new Criteria("name", Operator.EQUALS, "dark red"), TestType.class), 1);
+			assertEquals(manager.getElemCount(new Criteria("id", Operator.EQUALS, 100), TestType.class), 1);
+		} finally {
+			red.name = TYPE_RED;
+			manager.upsertElems(types.subList(0, 1));
+			manager.deleteElems(new Criteria("id", Operator.EQUALS, 100), TestType.class);
+		}
+		assertEquals(manager.getElemCount(new Criteria("name", Operator.EQUALS, TYPE_RED), TestType.class), 1);
+
+		// upserts keyed on the unique key column
+		final List<TestTag> tags = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			final TestTag tag = new TestTag();
+			tag.code = "T" + i;
+			tag.label = "label " + i;
+			tags.add(tag);
+		}
+		manager.upsertElems(tags);
+		tags.get(0).label = "changed";
+		manager.upsertElems(tags);
+		try {
+			assertEquals(manager.getElemCount(TestTag.class), 3);
+			final List<TestTag> stored = manager.getElems(new Criteria("code", Operator.EQUALS, "T0"), TestTag.class);
+			assertEquals(stored.get(0).label, "changed");
+		} finally {
+			manager.deleteElems((Criteria) null, TestTag.class);
+		}
+	}
+
+	@Test
+    @Order(13)
+	public void bulkInsertElemsTest() throws Exception {
+		final List<TestTag> tags = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			final TestTag tag = new TestTag();
+			tag.code = "B" + i;
+			tag.label = "bulk " + i;
+			tags.add(tag);
+		}
+		// keys set by the caller are inserted as they are, even if other elements get generated keys
+		tags.get(3).id = 1003;
+		tags.get(17).id = 1017;
+		manager.bulkInsertElems(tags, 10);
+		try {
+			assertEquals(manager.getElemCount(TestTag.class), 25);
+			assertEquals(1003, tags.get(3).id.intValue());
+			assertEquals(1017, tags.get(17).id.intValue());
+			for (final TestTag tag : tags) {
+				assertNotNull(tag.id);
+				final List<TestTag> stored = manager.getElems(new Criteria("id", Operator.EQUALS, tag.id), TestTag.class);
+				assertEquals(stored.get(0).code, tag.code);
+			}
+		} finally {
+			manager.deleteElems((Criteria) null, TestTag.class);
+		}
+
+		// a database which does not return the generated keys in the order of the rows gets one row per statement
+		final DataAccessManager unordered = new DataAccessManager(manager.getJdbcTemplate(), new H2Dialect() {
+			@Override
+			public boolean returnsGeneratedKeysInRowOrder() {
+				return false;
+			}
+		});
+		final List<Integer> statements = new ArrayList<>();
+		final OperationListener listener = stats -> statements.add(stats.getStatementsExecuted());
+		unordered.addOperationListener(listener);
+		final List<TestTag> more = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			final TestTag tag = new TestTag();
+			tag.code = "U" + i;
+			more.add(tag);
+		}
+		try {
+			unordered.bulkInsertElems(more, 10);
+			assertEquals(Arrays.asList(3), statements);
+			for (final TestTag tag : more) {
+				assertEquals(tag.code, manager.<TestTag>getElems(new Criteria("id", Operator.EQUALS, tag.id), TestTag.class).get(0).code);
+			}
+		} finally {
+			manager.deleteElems((Criteria) null, TestTag.class);
+		}
+	}
+
+	@Test
+    @Order(14)
+	public void largeInSetTest() throws Exception {
+		final List<Integer> ids = new ArrayList<>();
+		for (int i = 1; i <= 50; i++) {
+			ids.add(i);
+		}
+		assertEquals(manager.getElemCount(new Criteria("id", Operator.IN_SET, ids), TestType.class), manager.getElemCount(TestType.class));
+		assertEquals(manager.getElemCount(new Criteria("id", Operator.NOT_IN_SET, ids), TestType.class), 0);
+	}
+
+	@Test
+    @Order(15)
+	public void getRecordsPagingTest() throws Exception {
+		final CriteriaGroup cg = new CriteriaGroup(Operator.AND, new Criteria("name", Operator.NOT_NULL));
+		List<Map<String,Object>> res = manager.getRecords("tbType", cg, 2, 2, new Sort("id", SortDirection.ASC));
+		assertEquals(res.size(), 2);
+		assertEquals((int)res.get(0).get("ID"), 3);
+
+		res = manager.getRecords("tbType", cg, 2, 10, new Sort("id", SortDirection.ASC));
+		assertEquals(res.size(), 0);
+	}
+
+	@Test
+    @Order(16)
+	public void deleteMultipleElemsTest() throws Exception {
+		final TestRole admin = new TestRole();
+		admin.id = 1;
+		for (final String name : new String[] { "Del1", "Del2" }) {
+			final TestUser u = new TestUser();
+			u.name = name;
+			u.roles.add(admin);
+			u.addresses.add(createAddress(PLZ_KASSEL));
+			manager.addElem(u);
+		}
+		final Criteria c = new Criteria("name", Operator.STARTS_WITH, "Del");
+		assertEquals(manager.getElemCount(c, TestUser.class), 2);
+
+		manager.deleteElems(c, TestUser.class);
+		assertEquals(manager.getElemCount(c, TestUser.class), 0);
+		assertEquals(manager.getElemCount(TestRole.class), 3);
+	}
+
+    @Test
+    @Order(17)
+	public void operationListenerTest() throws Exception {
+		final List<OperationStats> finished = new ArrayList<>();
+		final OperationListener listener = stats -> finished.add(stats);
+		manager.addOperationListener(listener);
+		try {
+			final List<TestUser> users = manager.getElems(new Criteria("name", Operator.IN_SET, Arrays.asList("Tom", "Tim", "Bill", "Ted")), TestUser.class);
+			assertTrue(!users.isEmpty());
+			assertEquals(1, finished.size());
+			final OperationStats stats = finished.get(0);
+			assertEquals(Operation.GET_ELEMS, stats.getOperation());
+			assertEquals(TestUser.class, stats.getEntityType());
+			assertEquals(1, stats.getStatementsExecuted());
+			assertEquals(4, stats.getBindCount());
+			assertTrue(stats.getRowsFetched() >= users.size());
+			assertTrue(stats.getEntitiesMaterialized() > users.size());
+			assertTrue(stats.getFingerprint().contains("IN (?)"));
+			assertEquals(stats.getTotalNanos(), stats.getBuildNanos() + stats.getExecuteNanos() + stats.getMapNanos());
+
+			// the insert of a new element within updateElem is reported as one operation
+			final TestUser user = new TestUser();
+			user.name = "Listener";
+			user.addresses.add(createAddress(PLZ_KASSEL));
+			manager.updateElem(user);
+			assertEquals(2, finished.size());
+			assertEquals(Operation.ADD_ELEM, finished.get(1).getOperation());
+			assertEquals(2, finished.get(1).getStatementsExecuted());
+
+			manager.deleteElems(new Criteria("name", Operator.EQUALS, "Listener"), TestUser.class);
+			assertEquals(Operation.DELETE_ELEMS, finished.get(2).getOperation());
+			assertTrue(finished.get(2).getStatementsExecuted() > 1);
+		} finally {
+			manager.removeOperationListener(listener);
+		}
+		manager.getElemCount(TestUser.class);
+		assertEquals(3, finished.size());
+	}
+
+    @Test
+    @Order(18)
+	public void slowQueryLogTest() throws Exception {
+		final List<String> entries = new ArrayList<>();
+		final SlowQueryLog slowQueryLog = new SlowQueryLog(0) {
+			@Override
+			protected void log(final OperationStats stats, final String plan) {
+				entries.add(format(stats, plan));
+			}
+		};
+		slowQueryLog.setRedactBindValues(true);
+		slowQueryLog.enableExplain(manager.getJdbcTemplate(), manager.getDialect(), Runnable::run);
+		manager.addOperationListener(slowQueryLog);
+		try {
+			manager.getElems(new Criteria("name", Operator.EQUALS, "Tom"), TestUser.class);
+			manager.getElems(new Criteria("name", Operator.EQUALS, "Tim"), TestUser.class);
+			// not watched by default
+			manager.getElemCount(TestUser.class);
+		} finally {
+			manager.removeOperationListener(slowQueryLog);
+		}
+		assertEquals(1, entries.size());
+		final String entry = entries.get(0);
+		assertTrue(entry.startsWith("slow GET_ELEMS of TestUser"));
+		assertTrue(entry.contains("binds: [<String>]"));
+		assertTrue(!entry.contains("Tom"));
+		assertTrue(entry.contains("plan:"));
+		assertTrue(!entry.contains("could not explain"));
+	}
+
+    @Test
+    @Order(19)
+	public void compiledFilterTest() throws Exception {
+		final CompiledFilter byName = manager.compileFilter(new CriteriaGroup(Operator.AND, new Criteria("name", Operator.EQUALS, "")), TestUser.class);
+		final List<TestUser> expected = manager.getElems(new Criteria("name", Operator.EQUALS, "Tom"), TestUser.class);
+		final List<TestUser> users = manager.getElems(byName.bind("name", "Tom"));
+		assertEquals(expected.size(), users.size());
+		assertEquals(expected.get(0).id, users.get(0).id);
+		assertEquals(expected.get(0).roles.size(), users.get(0).roles.size());
+		assertEquals(0, manager.getElems(byName).size());
+		assertEquals(1L, manager.getElemCount(byName.bind("name", "Tom")));
+
+		final CompiledFilter byNames = manager.compileFilter(new CriteriaGroup(Operator.AND, new Criteria("name", Operator.IN_SET, Arrays.asList("x"))), "tbUser");
+		final List<Map<String, Object>> records = manager.getRecords(byNames.bind("name", Arrays.asList("Tom", "Tim")), 10, 1,
+				new Sort("id", SortDirection.ASC));
+		assertEquals(manager.getElemCount(new Criteria("name", Operator.IN_SET, Arrays.asList("Tom", "Tim")), TestUser.class).intValue(), records.size());
+	}
+
+    @Test
+    @Order(20)
+	public void queryOptionsTest() throws Exception {
+		final Sort byName = new Sort("tbUser.Name", SortDirection.ASC);
+		final List<TestUser> expected = manager.getElems(null, TestUser.class, byName, -1);
+
+		ResultList<TestUser> users = manager.getElems(null, TestUser.class, byName, -1,
+				new QueryOptions().withFetchSize(1).withQueryTimeout(5).withReadOnly(true).withMaxRows(1000));
+		assertFalse(users.isTruncated());
+		assertEquals(expected.size(), users.size());
+		assertEquals(expected.get(0).roles.size(), users.get(0).roles.size());
+
+		// the graph of Tom has more than one row, an incomplete element is left out
+		users = manager.getElems(new CriteriaGroup(Operator.AND, new Criteria("name", Operator.EQUALS, "Tom")), TestUser.class, byName, -1,
+				new QueryOptions().withMaxRows(1));
+		assertTrue(users.isTruncated());
+		assertEquals(0, users.size());
+
+		// every element of a truncated result is complete
+		final Map<Long, TestUser> expectedById = expected.stream().collect(Collectors.toMap(u -> u.id, u -> u));
+		for (int maxRows = 1; maxRows <= 20; maxRows++) {
+			users = manager.getElems(null, TestUser.class, byName, -1, new QueryOptions().withMaxRows(maxRows));
+			for (final TestUser user : users) {
+				assertEquals(expectedById.get(user.id).roles.size(), user.roles.size());
+				assertEquals(expectedById.get(user.id).addresses.size(), user.addresses.size());
+			}
+		}
+
+		final ResultList<Map<String, Object>> records = manager.getRecords("tbUser", null, 10, 1, new Sort("id", SortDirection.ASC),
+				new QueryOptions().withMaxRows(1));
+		assertTrue(records.isTruncated());
+		assertEquals(1, records.size());
+		assertFalse(manager.getRecords("tbUser", null, 10, 1, new Sort("id", SortDirection.ASC), new QueryOptions().withMaxRows(2)).isTruncated());
+
+		assertThrows(IllegalArgumentException.class, () -> new QueryOptions().withMaxRows(0));
+	}
+
+    @Test
+    @Order(21)
+	public void queryIntoTest() throws Exception {
+		final Sort byName = new Sort("name", SortDirection.ASC);
+		final List<TestUser> expected = manager.getElems(null, TestUser.class, new Sort("tbUser.Name", SortDirection.ASC), -1);
+
+		final List<UserRow> rows = manager.queryInto(UserRow.class, "tbUser", null, byName);
+		assertEquals(expected.size(), rows.size());
+		for (int i = 0; i < rows.size(); i++) {
+			assertEquals(expected.get(i).id, rows.get(i).id);
+			assertEquals(expected.get(i).name, rows.get(i).name);
+			assertEquals(expected.get(i).pwHash, rows.get(i).pwHash);
+			assertEquals(expected.get(i).clearanceLevel == null ? null : String.valueOf(expected.get(i).clearanceLevel.id),
+					rows.get(i).clearanceLevelId == null ? null : String.valueOf(rows.get(i).clearanceLevelId));
+		}
+
+		final CriteriaGroup byTom = new CriteriaGroup(Operator.AND, new Criteria("name", Operator.EQUALS, "Tom"));
+		final List<UserName> names = manager.queryInto(UserName.class, "tbUser", byTom, null);
+		assertEquals(1, names.size());
+		assertEquals("Tom", names.get(0).getName());
+		assertNotNull(names.get(0).getId());
+
+		final ResultList<UserName> first = manager.queryInto(UserName.class, "tbUser", null, byName, new QueryOptions().withMaxRows(1));
+		assertTrue(first.isTruncated());
+		assertEquals(expected.get(0).name, first.get(0).getName());
+
+		assertThrows(Exception.class, () -> manager.queryInto(String.class, "tbUser", null, null));
+	}
+
+    @Test
+    @Order(22)
+	public void aggregateTest() throws Exception {
+		final List<TestAddress> addresses = manager.getElems(TestAddress.class);
+		final Map<Integer, List<TestAddress>> byUser = addresses.stream().collect(Collectors.groupingBy(a -> a.userId));
+
+		final List<AggregateRow> rows = manager.aggregate(TestAddress.class, null, Arrays.asList("userId"), Aggregation.count(),
+				Aggregation.countDistinct("postalCode"), Aggregation.max("street").as("lastStreet"), Aggregation.sum("id"));
+		assertEquals(byUser.size(), rows.size());
+		Integer previous = null;
+		for (final AggregateRow row : rows) {
+			final Integer userId = row.get("userId", Integer.class);
+			assertTrue(previous == null || previous < userId);
+			previous = userId;
+			final List<TestAddress> group = byUser.get(userId);
+			assertEquals(group.size(), row.getLong("count").intValue());
+			assertEquals(group.stream().map(a -> a.postalCode).distinct().count(), row.getLong("count_distinct_postalCode").longValue());
+			assertEquals(group.stream().map(a -> a.street).max(String::compareTo).get(), row.get("lastStreet"));
+			assertEquals(group.stream().mapToLong(a -> a.id).sum(), row.getLong("sum_id").longValue());
+		}
+
+		// without group by, filtered and by column name
+		final List<AggregateRow> total = manager.aggregate(TestUser.class, new CriteriaGroup(Operator.AND, new Criteria("name", Operator.EQUALS, "Tom")),
+				null, Aggregation.count(), Aggregation.min("passwordHash"), Aggregation.avg("ClearanceLevelID"));
+		assertEquals(1, total.size());
+		assertEquals(1L, total.get(0).getLong("count").longValue());
+		final TestUser tom = manager.<TestUser>getElems(new Criteria("name", Operator.EQUALS, "Tom"), TestUser.class).get(0);
+		assertEquals(tom.pwHash, total.get(0).get("min_passwordHash"));
+		assertEquals(tom.clearanceLevel.id.doubleValue(), total.get(0).getDouble("avg_ClearanceLevelID"), 0.001);
+
+		assertThrows(Exception.class, () -> manager.aggregate(TestUser.class, null, Arrays.asList("unknown"), Aggregation.count()));
+		assertThrows(Exception.class, () -> manager.aggregate(TestUser.class, null, null, Aggregation.count(), Aggregation.count()));
+	}
+
+    @Test
+    @Order(23)
+	public void existsElemTest() throws Exception {
+		final List<Operation> operations = new ArrayList<>();
+		final List<String> statements = new ArrayList<>();
+		final OperationListener listener = stats -> {
+			operations.add(stats.getOperation());
+			statements.add(stats.getSql());
+		};
+		manager.addOperationListener(listener);
+		try {
+			assertTrue(manager.existsElem(new Criteria("name", Operator.EQUALS, "Tom"), TestUser.class));
+			assertFalse(manager.existsElem(new Criteria("name", Operator.EQUALS, "Nobody"), TestUser.class));
+			assertTrue(manager.existsElem((CriteriaGroup) null, TestUser.class));
+			final CompiledFilter byName = manager.compileFilter(new CriteriaGroup(Operator.AND, new Criteria("name", Operator.EQUALS, "")), TestUser.class);
+			assertTrue(manager.existsElem(byName.bind("name", "Tim")));
+			assertFalse(manager.existsElem(byName.bind("name", "Nobody")));
+		} finally {
+			manager.removeOperationListener(listener);
+		}
+		assertTrue(operations.stream().allMatch(o -> o == Operation.EXISTS_ELEM));
+		// only the root table is queried
+		assertTrue(statements.stream().noneMatch(s -> s.contains("JOIN")), statements.toString());
+	}
+
+    @Test
+    @Order(24)
+	public void updateWhereTest() throws Exception {
+		final TestUser tom = manager.<TestUser>getElems(new Criteria("name", Operator.EQUALS, "Tom"), TestUser.class).get(0);
+		final CriteriaGroup ofTom = new CriteriaGroup(Operator.AND, new Criteria("userId", Operator.EQUALS, tom.id));
+		final long others = manager.getElemCount(new Criteria("postalCode", Operator.EQUALS, "00000"), TestAddress.class);
+
+		final Map<String, Object> values = new HashMap<>();
+		values.put("postalCode", "00000");
+		assertEquals(tom.addresses.size(), manager.updateWhere(TestAddress.class, ofTom, values));
+		assertEquals(tom.addresses.size() + others, manager.getElemCount(new Criteria("postalCode", Operator.EQUALS, "00000"), TestAddress.class).longValue());
+		for (final TestAddress address : manager.<TestAddress>getElems(ofTom, TestAddress.class)) {
+			assertEquals("00000", address.postalCode);
+		}
+
+		// by column name and with an entity as value
+		final TestType type = manager.<TestType>getElems(TestType.class).get(0);
+		values.clear();
+		values.put("ClearanceLevelID", type);
+		values.put("pwHash", tom.pwHash);
+		assertEquals(1, manager.updateWhere(TestUser.class, new CriteriaGroup(Operator.AND, new Criteria("id", Operator.EQUALS, tom.id)), values));
+		assertEquals(type.id, manager.<TestUser>getElems(new Criteria("id", Operator.EQUALS, tom.id), TestUser.class).get(0).clearanceLevel.id);
+		values.put("clearanceLevel", tom.clearanceLevel);
+		values.remove("ClearanceLevelID");
+		assertEquals(1, manager.updateWhere(TestUser.class, new CriteriaGroup(Operator.AND, new Criteria("id", Operator.EQUALS, tom.id)), values));
+
+		values.put("unknown", 1);
+		assertThrows(Exception.class, () -> manager.updateWhere(TestUser.class, null, values));
+		assertThrows(Exception.class, () -> manager.updateWhere(TestUser.class, null, new HashMap<>()));
+	}
+
+    @Test
+    @Order(25)
+	public void updateOptionsTest() throws Exception {
+		final List<OperationStats> finished = new ArrayList<>();
+		final OperationListener listener = stats -> finished.add(stats);
+		final Criteria byName = new Criteria("name", Operator.EQUALS, "Tom");
+		final TestUser tom = manager.<TestUser>getElems(byName, TestUser.class).get(0);
+		tom.roles = manager.getElems(TestRole.class);
+		tom.addresses.add(createAddress(PLZ_KASSEL));
+		manager.updateElem(tom);
+		final int addresses = tom.addresses.size();
+		final int roles = tom.roles.size();
+
+		manager.addOperationListener(listener);
+		try {
+			// the lists are not compared with the database, so nothing is deleted
+			tom.pwHash = "rootOnly";
+			tom.addresses.clear();
+			tom.roles.clear();
+			manager.updateElem(tom, UpdateOptions.rootOnly());
+			assertEquals(1, finished.get(0).getStatementsExecuted());
+
+			final TestUser reloaded = manager.<TestUser>getElems(byName, TestUser.class).get(0);
+			assertEquals("rootOnly", reloaded.pwHash);
+			assertEquals(addresses, reloaded.addresses.size());
+			assertEquals(roles, reloaded.roles.size());
+
+			// the new address is added, the roles are left alone
+			finished.clear();
+			reloaded.addresses.add(createAddress(PLZ_AHNATAL));
+			reloaded.roles.clear();
+			manager.updateElem(reloaded, UpdateOptions.relations("addresses"));
+			assertEquals(3, finished.get(0).getStatementsExecuted());
+			final TestUser updated = manager.<TestUser>getElems(byName, TestUser.class).get(0);
+			assertEquals(addresses + 1, updated.addresses.size());
+			assertEquals(roles, updated.roles.size());
+		} finally {
+			manager.removeOperationListener(listener);
+		}
+
+		assertThrows(Exception.class, () -> manager.updateElem(tom, UpdateOptions.relations("name")));
+	}
+
+    @Test
+    @Order(26)
+	public void patternAndFieldOperatorsTest() throws Exception {
+		final TestUser literal = new TestUser();
+		literal.name = "Pat_50%";
+		literal.pwHash = "Pat_50%";
+		manager.addElem(literal);
+		final TestUser other = new TestUser();
+		other.name = "PatX50Y";
+		other.pwHash = "xpatx50yx";
+		manager.addElem(other);
+		final Criteria ofPat = new Criteria("name", Operator.STARTS_WITH, "Pat");
+		try {
+			// % and _ are matched as they are, * and ? are the wildcards
+			assertEquals(1, count(ofPat, new Criteria("name", Operator.MATCHES_PATTERN, "Pat_50%")));
+			assertEquals(2, count(ofPat, new Criteria("name", Operator.MATCHES_PATTERN, "Pat?50*")));
+			assertEquals(1, count(ofPat, new Criteria("name", Operator.IMATCHES_PATTERN, "pat_50%")));
+			assertEquals(1, count(ofPat, new Criteria("name", Operator.ICONTAINS_PATTERN, "t_5")));
+			assertEquals(2, count(ofPat, new Criteria("name", Operator.STARTS_WITH_PATTERN, "Pat")));
+			assertEquals(1, count(ofPat, new Criteria("name", Operator.ENDS_WITH_PATTERN, "%")));
+			assertEquals(1, count(ofPat, new Criteria("name", Operator.NOT_ENDS_WITH, "Y")));
+			assertEquals(0, count(ofPat, new Criteria("name", Operator.NOT_STARTS_WITH, "Pat")));
+
+			assertEquals(2, count(ofPat, new Criteria("name", Operator.REGEXP, "^Pat.50")));
+			assertEquals(0, count(ofPat, new Criteria("name", Operator.REGEXP, "^pat")));
+			assertEquals(2, count(ofPat, new Criteria("name", Operator.IREGEXP, "^pat")));
+
+			assertEquals(2, count(ofPat, new Criteria("name", Operator.IBETWEEN, Arrays.asList("PAT", "PAU"))));
+
+			// the value is the name of the other column
+			assertEquals(1, count(ofPat, new Criteria("name", Operator.EQUALS_FIELD, "passwordHash")));
+			assertEquals(1, count(ofPat, new Criteria("name", Operator.NOT_EQUAL_FIELD, "passwordHash")));
+			assertEquals(1, count(ofPat, new Criteria("passwordHash", Operator.CONTAINS_FIELD, "name")));
+			assertEquals(2, count(ofPat, new Criteria("passwordHash", Operator.ICONTAINS_FIELD, "name")));
+			assertEquals(1, count(ofPat, new Criteria("passwordHash", Operator.INOT_STARTS_WITH_FIELD, "name")));
+			assertThrows(Exception.class, () -> count(ofPat, new Criteria("name", Operator.EQUALS_FIELD, "1; DROP TABLE tbUser")));
+		} finally {
+			manager.deleteElems(ofPat, TestUser.class);
+		}
+	}
+
+    @Test
+    @Order(27)
+	public void criteriaPathTest() throws Exception {
+		final List<TestUser> all = manager.getElems(TestUser.class);
+		final List<Long> admins = all.stream().filter(u -> u.roles.stream().anyMatch(r -> ROLE_ADMIN.equals(r.name))).map(u -> u.id)
+				.sorted().collect(Collectors.toList());
+		assertFalse(admins.isEmpty());
+
+		// m:n, each user is returned once, no matter how many roles match
+		final CriteriaGroup byRole = new CriteriaGroup(Operator.OR)
+				.add(new Criteria("roles.name", Operator.EQUALS, ROLE_ADMIN))
+				.add(new Criteria("roles.name", Operator.IEQUALS, ROLE_ADMIN.toUpperCase()));
+		assertEquals(admins, ids(manager.getElems(byRole, TestUser.class)));
+		assertEquals(admins.size(), manager.getElemCount(byRole, TestUser.class).intValue());
+
+		// 1:n and n:1
+		final List<Long> inKassel = all.stream().filter(u -> u.addresses.stream().anyMatch(a -> PLZ_KASSEL.equals(a.postalCode)))
+				.map(u -> u.id).sorted().collect(Collectors.toList());
+		assertEquals(inKassel, ids(manager.getElems(new Criteria("addresses.postalCode", Operator.EQUALS, PLZ_KASSEL), TestUser.class)));
+		final TestUser withClearance = all.stream().filter(u -> u.clearanceLevel != null).findFirst().get();
+		assertTrue(ids(manager.getElems(new Criteria("clearanceLevel.name", Operator.EQUALS, withClearance.clearanceLevel.name), TestUser.class))
+				.contains(withClearance.id));
+
+		// nested paths, compiled and paged by the rows of the main entity
+		final CompiledFilter byColor = manager.compileFilter(new CriteriaGroup(Operator.AND, new Criteria("roles.primaryColor.id", Operator.NOT_NULL)),
+				TestUser.class);
+		final long withColor = all.stream().filter(u -> u.roles.stream().anyMatch(r -> r.primaryColor != null)).count();
+		assertEquals(withColor, manager.getElemCount(byColor).longValue());
+		final List<Map<String, Object>> page = manager.getRecords(byColor, 1, 1, new Sort("ID", SortDirection.ASC));
+		assertEquals(Math.min(1, withColor), page.size());
+		final CompiledFilter byRoleName = manager.compileFilter(new CriteriaGroup(Operator.AND, new Criteria("roles.name", Operator.EQUALS, "")),
+				TestUser.class);
+		assertEquals(admins, ids(manager.getElems(byRoleName.bind("roles.name", ROLE_ADMIN))));
+
+		assertThrows(Exception.class, () -> manager.getElems(new Criteria("unknown.name", Operator.EQUALS, "x"), TestUser.class));
+		assertThrows(Exception.class, () -> manager.getElems(new Criteria("roles.unknown", Operator.EQUALS, "x"), TestUser.class));
+	}
+
+	private static List<Long> ids(final List<TestUser> users) {
+		return users.stream().map(u -> u.id).sorted().collect(Collectors.toList());
+	}
+
+	private long count(final Criteria... criterias) throws Exception {
+		return manager.getElemCount(new CriteriaGroup(Operator.AND, Arrays.asList(criterias)), TestUser.class);
+	}
+
+	/**
+	 * filled through its fields
+	 */
+	public static class UserRow {
+		public Long id;
+		public String name;
+		@Column(columnName = "passwordHash")
+		public String pwHash;
+		public Integer clearanceLevelId;
+		@DbIgnore
+		public String label;
+	}
+
+	/**
+	 * created through its constructor
+	 */
+	public static class UserName {
+		private final long id;
+		private final String name;
+
+		@ConstructorProperties({ "id", "name" })
+		public UserName(final long id, final String name) {
+			this.id = id;
+			this.name = name;
+		}
+
+		public Long getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
 	private void executeAndPrintResults(final String query, final Object[] args) throws SQLException {
 		final JdbcTemplate template = new JdbcTemplate(ds);
 		final StringBuilder sb = new StringBuilder();
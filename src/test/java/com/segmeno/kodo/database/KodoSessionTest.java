@@ -0,0 +1,151 @@
+package com.segmeno.kodo.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.segmeno.kodo.database.routing.LoadBalancing;
+import com.segmeno.kodo.database.routing.ReadReplicaRouter;
+import com.segmeno.kodo.entity.TestAddress;
+import com.segmeno.kodo.entity.TestRole;
+import com.segmeno.kodo.entity.TestType;
+import com.segmeno.kodo.entity.TestUser;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.Operator;
+
+/**
+ * counts the connections checked out of the DataSource
+ */
+public class KodoSessionTest {
+
+	private final AtomicInteger checkouts = new AtomicInteger();
+	private DelegatingDataSource ds;
+	private DataAccessManager manager;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		final JdbcDataSource h2 = TestDatabase.create("session");
+		try (Connection con = h2.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("insert into tbRole (name) values ('Admin'), ('Tester')");
+		}
+		ds = new DelegatingDataSource(h2) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				checkouts.incrementAndGet();
+				return super.getConnection();
+			}
+		};
+		manager = new DataAccessManager(new JdbcTemplate(ds));
+	}
+
+	private static TestUser user(final String name, final List<TestRole> roles) {
+		final TestUser user = new TestUser();
+		user.name = name;
+		user.roles = roles;
+		final TestAddress address = new TestAddress();
+		address.street = name + "street";
+		user.addresses.add(address);
+		return user;
+	}
+
+	@Test
+	public void pinnedConnectionTest() throws Exception {
+		final List<TestRole> roles = manager.getElems(TestRole.class);
+		checkouts.set(0);
+		final KodoSession session = manager.openSession();
+		try {
+			final DataAccessManager sessionManager = session.getManager();
+			for (int i = 0; i < 10; i++) {
+				final TestType type = new TestType();
+				type.name = "type" + i;
+				sessionManager.addElem(type);
+				type.name = "changed" + i;
+				sessionManager.updateElem(type);
+				sessionManager.addElem(user("user" + i, roles));
+			}
+			assertEquals(10L, sessionManager.getElemCount(new Criteria("name", Operator.STARTS_WITH, "changed"), TestType.class).longValue());
+			final List<TestUser> users = sessionManager.getElems(TestUser.class);
+			assertEquals(10, users.size());
+			for (final TestUser user : users) {
+				assertEquals(1, user.addresses.size());
+				assertEquals(roles.size(), user.roles.size());
+			}
+		} finally {
+			session.close();
+		}
+		assertEquals(1, checkouts.get());
+		assertTrue(session.getStatementCacheHits() > session.getPreparedStatements(),
+				session.getStatementCacheHits() + " hits, " + session.getPreparedStatements() + " prepared");
+		assertEquals(0, session.getCachedStatements());
+		assertThrows(IllegalStateException.class, session::getManager);
+		// the connection is usable after the session
+		assertEquals(10, manager.getElems(TestUser.class).size());
+	}
+
+	@Test
+	public void evictionTest() throws Exception {
+		final List<TestRole> roles = manager.getElems(TestRole.class);
+		try (KodoSession session = manager.openSession(1)) {
+			for (int i = 0; i < 5; i++) {
+				session.getManager().addElem(user("user" + i, roles));
+			}
+			assertEquals(1, session.getCachedStatements());
+			final List<TestUser> users = session.getManager().getElems(TestUser.class);
+			assertEquals(5, users.size());
+			assertEquals(2, users.get(4).roles.size());
+		}
+	}
+
+	@Test
+	public void transactionTest() throws Exception {
+		final TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+		final List<Long> counts = new ArrayList<>();
+		tx.execute(status -> {
+			try (KodoSession session = manager.openSession()) {
+				final TestType type = new TestType();
+				type.name = "rolled back";
+				session.getManager().addElem(type);
+				// the manager outside of the session runs in the same transaction
+				counts.add(manager.getElemCount(TestType.class));
+			} catch (final Exception e) {
+				throw new IllegalStateException(e);
+			}
+			status.setRollbackOnly();
+			return null;
+		});
+		assertEquals(1L, counts.get(0).longValue());
+		assertEquals(0L, manager.getElemCount(TestType.class).longValue());
+	}
+
+	@Test
+	public void readYourWritesTest() throws Exception {
+		final ReadReplicaRouter router = new ReadReplicaRouter(Arrays.asList(ds), LoadBalancing.ROUND_ROBIN);
+		router.setReadYourWritesWindow(60_000);
+		manager.setReadReplicaRouter(router);
+		assertFalse(router.isPrimaryRequired());
+		try (KodoSession session = manager.openSession()) {
+			final TestType type = new TestType();
+			type.name = "written in a session";
+			session.getManager().addElem(type);
+		}
+		// the reads of the parent manager following the session go to the primary
+		assertTrue(router.isPrimaryRequired());
+	}
+}
@@ -0,0 +1,55 @@
+package com.segmeno.kodo.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.segmeno.kodo.entity.TestAddress;
+import com.segmeno.kodo.entity.TestType;
+
+public class LongObjectMapTest {
+
+	@Test
+	public void putGetResizeTest() {
+		final LongObjectMap<String> map = new LongObjectMap<>();
+		final Map<Long, String> expected = new HashMap<>();
+		final Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			// sequential, negative, zero and random keys
+			final long key = i % 4 == 0 ? i : i % 4 == 1 ? -i : i % 4 == 2 ? random.nextLong() : i << 32;
+			assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+		}
+		assertEquals(expected.size(), map.size());
+		for (final Map.Entry<Long, String> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), map.get(entry.getKey()));
+		}
+		assertNull(map.get(Long.MIN_VALUE));
+	}
+
+	@Test
+	public void identityMapTest() {
+		final EntityIdentityMap map = new EntityIdentityMap();
+		final TestAddress address = new TestAddress();
+		final TestType type = new TestType();
+		map.put("tbUser_addresses", 5, address);
+		map.put("tbUser_clearance", new BigDecimal("5"), type);
+
+		// integral keys of different types are the same key
+		assertSame(address, map.get("tbUser_addresses", 5L));
+		assertSame(address, map.get("tbUser_addresses", (short) 5));
+		assertNull(map.get("tbUser_roles", 5));
+		assertSame(type, map.get("tbUser_clearance", new BigDecimal("5")));
+		assertNull(map.get("tbUser_clearance", 5));
+
+		map.put("tbUser_addresses", 5L, address);
+		map.count();
+		assertEquals(3, map.size());
+	}
+}
@@ -0,0 +1,39 @@
+package com.segmeno.kodo.database;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+/**
+ * the in-memory H2 database of the test entities (tbUser, tbRole, tbUserRole, tbAddress and tbType)
+ */
+public final class TestDatabase {
+
+	private TestDatabase() {
+	}
+
+	/**
+	 * creates the empty tables of the test entities in the H2 database of the name. Existing tables of the
+	 * database are dropped
+	 *
+	 * @param name - the name of the in-memory database, so the test classes do not share their rows
+	 * @return the DataSource of the database
+	 * @throws Exception
+	 */
+	public static JdbcDataSource create(final String name) throws Exception {
+		Class.forName("org.h2.Driver");
+		final JdbcDataSource ds = new JdbcDataSource();
+		ds.setUrl("jdbc:h2:mem:" + name + ";MODE=MYSQL;DB_CLOSE_DELAY=-1");
+		ds.setUser("sa");
+		try (Connection con = ds.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("drop all objects");
+			stmt.execute("create table tbUser (id integer AUTO_INCREMENT PRIMARY KEY, name varchar, passwordHash varchar, clearanceLevelId integer, createdAt timestamp)");
+			stmt.execute("create table tbRole (id integer AUTO_INCREMENT PRIMARY KEY, primaryColorId integer, secondaryColorId integer, name varchar, description varchar, createdAt timestamp)");
+			stmt.execute("create table tbUserRole (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, roleId integer)");
+			stmt.execute("create table tbAddress (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, street varchar, postalCode varchar, createdAt timestamp)");
+			stmt.execute("create table tbType (id integer AUTO_INCREMENT PRIMARY KEY, name varchar)");
+		}
+		return ds;
+	}
+}
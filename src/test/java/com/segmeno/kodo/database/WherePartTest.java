@@ -1,14 +1,28 @@
 package com.segmeno.kodo.database;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.segmeno.kodo.annotation.CaseMatching;
+import com.segmeno.kodo.database.dialect.ArrayParameter;
+import com.segmeno.kodo.database.dialect.H2Dialect;
+import com.segmeno.kodo.database.dialect.MySqlDialect;
+import com.segmeno.kodo.database.dialect.PostgreSqlDialect;
+import com.segmeno.kodo.database.dialect.SqlServerDialect;
+import com.segmeno.kodo.entity.TestContact;
+import com.segmeno.kodo.entity.TestUser;
 import com.segmeno.kodo.transport.Criteria;
 import com.segmeno.kodo.transport.CriteriaGroup;
 import com.segmeno.kodo.transport.Operator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -79,4 +93,172 @@ public class WherePartTest {
         assertTrue(w.getValues().get(2).equals(strValue));
     }
 
+    @Test
+    public void caseInsensitiveDialectTest() throws Exception {
+        final CriteriaGroup cg = new CriteriaGroup(Operator.AND);
+        cg.add(new Criteria("Name", Operator.ICONTAINS, "foo"));
+
+        WherePart w = new WherePart("testtable", cg);
+        assertTrue(w.toString().equals("(LOWER(testtable.Name) LIKE LOWER(?))"));
+
+        w = new WherePart(new PostgreSqlDialect(), "testtable", cg);
+        assertTrue(w.toString().equals("(testtable.Name ILIKE ?)"));
+        assertTrue(w.getValues().get(0).equals("%foo%"));
+    }
+
+	@Test
+	public void caseInsensitiveEqualsTest() throws Exception {
+		final CriteriaGroup cg = new CriteriaGroup(Operator.AND)
+				.add(new Criteria("Name", Operator.IEQUALS, "Foo_1"))
+				.add(new Criteria("Name", Operator.INOT_CONTAINS, "Bar"));
+
+		WherePart w = new WherePart("testtable", cg);
+		assertEquals("(LOWER(testtable.Name) = LOWER(?) and LOWER(testtable.Name) NOT LIKE LOWER(?))", w.toString());
+		assertEquals(Arrays.asList("Foo_1", "%Bar%"), w.getValues());
+
+		w = new WherePart(new PostgreSqlDialect(), "testtable", cg);
+		assertEquals("(LOWER(testtable.Name) = LOWER(?) and testtable.Name NOT ILIKE ?)", w.toString());
+
+		// a column may have a case sensitive (_bin, _cs) collation, so only CaseMatching.COLUMN compares it as it is
+		w = new WherePart(new MySqlDialect(), "testtable", cg);
+		assertEquals("(LOWER(testtable.Name) = LOWER(?) and LOWER(testtable.Name) NOT LIKE LOWER(?))", w.toString());
+		w = new WherePart(new SqlServerDialect(), "testtable", cg);
+		assertEquals("(LOWER(testtable.Name) = LOWER(?) and LOWER(testtable.Name) NOT LIKE LOWER(?))", w.toString());
+		assertEquals(Arrays.asList("Foo_1", "%Bar%"), w.getValues());
+		w = new WherePart(new MySqlDialect(), "testtable", null, Collections.singletonMap("NAME", CaseMatching.COLUMN), cg);
+		assertEquals("(testtable.Name = ? and testtable.Name NOT LIKE ?)", w.toString());
+		assertEquals(Arrays.asList("foo_1", "%bar%"), w.getValues());
+
+		w = new WherePart("testtable", new CriteriaGroup(Operator.AND, new Criteria("ID", Operator.IEQUALS, 5)));
+		assertEquals("(testtable.ID = ?)", w.toString());
+	}
+
+	@Test
+	public void caseMatchingTest() throws Exception {
+		final CriteriaGroup cg = new CriteriaGroup(Operator.AND)
+				.add(new Criteria("Name", Operator.IEQUALS, "Foo"))
+				.add(new Criteria("Email", Operator.ISTARTS_WITH, "Tom"))
+				.add(new Criteria("City", Operator.ICONTAINS, "Kas"));
+		final Map<String, CaseMatching> caseMatchings = new HashMap<>();
+		caseMatchings.put("name", CaseMatching.COLUMN);
+		caseMatchings.put("EMAIL", CaseMatching.LOWER_INDEX);
+
+		WherePart w = new WherePart(new PostgreSqlDialect(), "testtable", null, caseMatchings, cg);
+		assertEquals("(testtable.Name = ? and LOWER(testtable.Email) LIKE ? and testtable.City ILIKE ?)", w.toString());
+		assertEquals(Arrays.asList("foo", "tom%", "%Kas%"), w.getValues());
+
+		w = new WherePart(new H2Dialect(), "testtable", null, Collections.emptyMap(), cg);
+		assertEquals(new WherePart(new H2Dialect(), "testtable", cg).toString(), w.toString());
+
+		final CompiledFilter compiled = new CompiledFilter(new H2Dialect(), TestContact.class, "tbContact", cg);
+		assertEquals("(tbContact.Name = ? and LOWER(tbContact.Email) LIKE ? and LOWER(tbContact.City) LIKE LOWER(?))", compiled.toString());
+		assertEquals(Arrays.asList("foo", "tom%", "%Kas%"), compiled.bind("Name", "FOO").getValues());
+	}
+
+	@Test
+	public void patternAndRegexpTest() throws Exception {
+		final CriteriaGroup cg = new CriteriaGroup(Operator.AND)
+				.add(new Criteria("Name", Operator.CONTAINS_PATTERN, "a*b?c%d_e!"))
+				.add(new Criteria("Name", Operator.IMATCHES_PATTERN, "x*"))
+				.add(new Criteria("Name", Operator.REGEXP, "^a+$"))
+				.add(new Criteria("Name", Operator.IREGEXP, "^b+$"));
+
+		WherePart w = new WherePart("testtable", cg);
+		assertEquals("(testtable.Name LIKE ? ESCAPE '!' and LOWER(testtable.Name) LIKE LOWER(?) ESCAPE '!'"
+				+ " and REGEXP_LIKE(testtable.Name, ?, 'c') and REGEXP_LIKE(testtable.Name, ?, 'i'))", w.toString());
+		assertEquals(Arrays.asList("%a%b_c!%d!_e!!%", "x%", "^a+$", "^b+$"), w.getValues());
+
+		w = new WherePart(new PostgreSqlDialect(), "testtable", cg);
+		assertEquals("(testtable.Name LIKE ? ESCAPE '!' and testtable.Name ILIKE ? ESCAPE '!'"
+				+ " and testtable.Name ~ ? and testtable.Name ~* ?)", w.toString());
+
+		w = new WherePart(new MySqlDialect("MariaDB"), "testtable", new CriteriaGroup(Operator.AND, new Criteria("Name", Operator.IREGEXP, "^b+$")));
+		assertEquals("(testtable.Name REGEXP CONCAT('(?i)', ?))", w.toString());
+	}
+
+	@Test
+	public void fieldOperatorsTest() throws Exception {
+		final CriteriaGroup cg = new CriteriaGroup(Operator.AND)
+				.add(new Criteria("Name", Operator.IEQUALS_FIELD, "Alias"))
+				.add(new Criteria("Start", Operator.LESS_THAN_FIELD, "End"))
+				.add(new Criteria("Name", Operator.NOT_CONTAINS_FIELD, "Alias"))
+				.add(new Criteria("Name", Operator.ISTARTS_WITH_FIELD, "Alias"));
+
+		WherePart w = new WherePart("t", cg);
+		assertEquals("(LOWER(t.Name) = LOWER(t.Alias) and t.Start < t.End and t.Name NOT LIKE '%' || t.Alias || '%'"
+				+ " and LOWER(t.Name) LIKE LOWER(t.Alias || '%'))", w.toString());
+		assertTrue(w.getValues().isEmpty());
+
+		w = new WherePart(new MySqlDialect(), "t", cg);
+		assertEquals("(LOWER(t.Name) = LOWER(t.Alias) and t.Start < t.End and t.Name NOT LIKE CONCAT('%', t.Alias, '%')"
+				+ " and LOWER(t.Name) LIKE LOWER(CONCAT(t.Alias, '%')))", w.toString());
+
+		// the other column is validated like the column of the criteria
+		assertThrows(Exception.class, () -> new WherePart("t", new CriteriaGroup(Operator.AND, new Criteria("Name", Operator.EQUALS_FIELD, "Alias OR 1=1"))));
+		assertThrows(Exception.class, () -> new WherePart(new H2Dialect(), "t", Arrays.asList("Name", "Start"), cg));
+	}
+
+	@Test
+	public void criteriaPathTest() throws Exception {
+		final CriteriaGroup cg = new CriteriaGroup(Operator.AND)
+				.add(new Criteria("roles.primaryColor.name", Operator.EQUALS, "red"))
+				.add(new Criteria("addresses.postalCode", Operator.STARTS_WITH, "34"));
+
+		final WherePart w = new WherePart(new H2Dialect(), new TestUser(), "tbUser", cg);
+		assertEquals("(EXISTS (SELECT 1 FROM tbUserRole m1 JOIN tbRole e1 ON e1.id = m1.RoleID WHERE m1.UserID = tbUser.id"
+				+ " AND EXISTS (SELECT 1 FROM tbType e2 WHERE e2.id = e1.primaryColorId AND e2.name = ?))"
+				+ " and EXISTS (SELECT 1 FROM tbAddress e1 WHERE e1.UserID = tbUser.ID AND e1.postalCode LIKE ?))", w.toString());
+		assertEquals(Arrays.asList("red", "34%"), w.getValues());
+
+		assertThrows(Exception.class, () -> new WherePart(new H2Dialect(), new TestUser(), "tbUser",
+				new CriteriaGroup(Operator.AND, new Criteria("name.length", Operator.EQUALS, 1))));
+	}
+
+    @Test
+    public void arrayBindingTest() throws Exception {
+        final List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < WherePart.ARRAY_BINDING_MIN_SIZE; i++) {
+            ids.add(i);
+        }
+        final CriteriaGroup cg = new CriteriaGroup(Operator.AND);
+        cg.add(new Criteria("ID", Operator.IN_SET, ids));
+
+        WherePart w = new WherePart("testtable", cg);
+        assertTrue(w.getValues().size() == ids.size());
+
+        w = new WherePart(new H2Dialect(), "testtable", cg);
+        assertTrue(w.toString().equals("(testtable.ID = ANY(?))"));
+        assertTrue(w.getValues().size() == 1);
+        assertTrue(w.getValues().get(0) instanceof ArrayParameter);
+    }
+
+
+	@Test
+	public void compiledFilterTest() throws Exception {
+		final CriteriaGroup shape = new CriteriaGroup(Operator.AND)
+				.add(new Criteria("Name", Operator.ICONTAINS, "x"))
+				.add(new Criteria(new CriteriaGroup(Operator.OR)
+						.add(new Criteria("ID", Operator.GREATER_THAN, 0))
+						.add(new Criteria("ID", Operator.IN_SET, Arrays.asList(1, 2)))
+						.add(new Criteria("Name", Operator.IS_NULL))));
+		final CompiledFilter compiled = new CompiledFilter(new H2Dialect(), "testtable", shape);
+		final WherePart w = new WherePart(new H2Dialect(), "testtable", shape);
+		assertEquals(w.toString(), compiled.toString());
+		assertEquals(w.getValues(), compiled.getValues());
+		assertEquals(Arrays.asList("Name", "ID", "ID#2"), new ArrayList<>(compiled.getSlotNames()));
+
+		final CompiledFilter bound = compiled.bind("Name", "Tom").bind("ID", 5).bind("ID#2", Arrays.asList(7, 8, 9));
+		final WherePart expected = new WherePart(new H2Dialect(), "testtable", new CriteriaGroup(Operator.AND)
+				.add(new Criteria("Name", Operator.ICONTAINS, "Tom"))
+				.add(new Criteria(new CriteriaGroup(Operator.OR)
+						.add(new Criteria("ID", Operator.GREATER_THAN, 5))
+						.add(new Criteria("ID", Operator.IN_SET, Arrays.asList(7, 8, 9)))
+						.add(new Criteria("Name", Operator.IS_NULL)))));
+		assertEquals(expected.toString(), bound.toString());
+		assertEquals(expected.getValues(), bound.getValues());
+		assertEquals(Arrays.asList("%Tom%", 5, 7, 8, 9), bound.getValues());
+		// the compiled filter itself is not changed
+		assertEquals(w.getValues(), compiled.getValues());
+		assertThrows(Exception.class, () -> compiled.bind("unknown", 1));
+	}
 }
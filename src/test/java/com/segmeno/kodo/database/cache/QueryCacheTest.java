@@ -0,0 +1,168 @@
+package com.segmeno.kodo.database.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.database.QueryOptions;
+import com.segmeno.kodo.database.ResultList;
+import com.segmeno.kodo.database.TestDatabase;
+import com.segmeno.kodo.database.dialect.ArrayParameter;
+import com.segmeno.kodo.entity.TestAddress;
+import com.segmeno.kodo.entity.TestUser;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.Operator;
+import com.segmeno.kodo.transport.Sort;
+import com.segmeno.kodo.transport.Sort.SortDirection;
+
+/**
+ * changes the rows with plain JDBC behind the back of the DataAccessManager, so a stale result proves that it
+ * was served from the cache
+ */
+public class QueryCacheTest {
+
+	private JdbcTemplate jdbc;
+	private DataAccessManager manager;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		final DataSource ds = TestDatabase.create("querycache");
+		try (Connection con = ds.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("insert into tbUser (name, passwordHash) values ('Tom', 'pw123'), ('Tim', 'pw456')");
+			stmt.execute("insert into tbAddress (userId, street, postalCode) values (1, 'Elmstreet', '31117')");
+		}
+		jdbc = new JdbcTemplate(ds);
+		manager = new DataAccessManager(jdbc);
+	}
+
+	@Test
+	public void cachedUntilWriteTest() throws Exception {
+		final QueryCache cache = new QueryCache(100, 0);
+		manager.setQueryCache(cache);
+		final Criteria tom = new Criteria("name", Operator.EQUALS, "Tom");
+
+		assertEquals(1, manager.<TestUser>getElems(tom, TestUser.class).get(0).addresses.size());
+		assertEquals(2L, manager.getElemCount(TestUser.class).longValue());
+		jdbc.update("insert into tbAddress (userId, street) values (1, 'Testplace')");
+		jdbc.update("insert into tbUser (name) values ('Tina')");
+		assertEquals(1, manager.<TestUser>getElems(tom, TestUser.class).get(0).addresses.size());
+		assertEquals(2L, manager.getElemCount(TestUser.class).longValue());
+		assertEquals(2, cache.getHits());
+
+		// a write to a joined table removes the user queries reading from it
+		final TestAddress address = new TestAddress();
+		address.userId = 2;
+		address.street = "Knight's Road";
+		manager.addElem(address);
+		assertEquals(2, manager.<TestUser>getElems(tom, TestUser.class).get(0).addresses.size());
+		// the count only reads tbUser
+		assertEquals(2L, manager.getElemCount(TestUser.class).longValue());
+
+		final TestUser user = new TestUser();
+		user.name = "Tanja";
+		manager.addElem(user);
+		assertEquals(4L, manager.getElemCount(TestUser.class).longValue());
+
+		assertEquals("31117", manager.<TestAddress>getElems(new Criteria("street", Operator.EQUALS, "Elmstreet"), TestAddress.class).get(0).postalCode);
+		manager.updateWhere(TestAddress.class, null, Collections.singletonMap("postalCode", "00000"));
+		assertEquals("00000", manager.<TestAddress>getElems(new Criteria("street", Operator.EQUALS, "Elmstreet"), TestAddress.class).get(0).postalCode);
+	}
+
+	@Test
+	public void recordsAreCopiedTest() throws Exception {
+		manager.setQueryCache(new QueryCache(100, 0));
+		final Sort sort = new Sort("id", SortDirection.ASC);
+		final List<Map<String, Object>> first = manager.getRecords("tbUser", null, 10, 1, sort);
+		first.get(0).put("name", "changed");
+		first.clear();
+		final List<Map<String, Object>> second = manager.getRecords("tbUser", null, 10, 1, sort);
+		assertEquals(2, second.size());
+		assertEquals("Tom", second.get(0).get("NAME"));
+		assertEquals(1, manager.getQueryCache().getHits());
+	}
+
+	@Test
+	public void recordsWithOptionsTest() throws Exception {
+		manager.setQueryCache(new QueryCache(100, 0));
+		final Sort sort = new Sort("id", SortDirection.ASC);
+		final ResultList<Map<String, Object>> records = manager.getRecords("tbUser", null, 10, 1, sort, new QueryOptions().withMaxRows(1));
+		assertTrue(records.isTruncated());
+		assertEquals(1, records.size());
+		// reads with options are not cached
+		jdbc.update("update tbUser set name = 'Tommy' where name = 'Tom'");
+		assertEquals("Tommy", manager.getRecords("tbUser", null, 10, 1, sort, new QueryOptions()).get(0).get("NAME"));
+		assertEquals(0, manager.getQueryCache().getHits());
+	}
+
+	@Test
+	public void ttlTest() throws Exception {
+		manager.setQueryCache(new QueryCache(100, 1000));
+		assertEquals(2L, manager.getElemCount(TestUser.class).longValue());
+		jdbc.update("insert into tbUser (name) values ('Tina')");
+		assertEquals(2L, manager.getElemCount(TestUser.class).longValue());
+		Thread.sleep(1200);
+		assertEquals(3L, manager.getElemCount(TestUser.class).longValue());
+	}
+
+	@Test
+	public void boundsTest() throws Exception {
+		final QueryCache cache = new QueryCache(2, 0);
+		cache.put("SELECT * FROM a", new Object[] { 1 }, Arrays.asList(1, 2), cache.getGeneration());
+		cache.put("SELECT * FROM a", new Object[] { 2 }, Arrays.asList(1, 2), cache.getGeneration());
+		cache.get("SELECT * FROM a", new Object[] { 1 });
+		cache.put("SELECT * FROM b", new Object[0], 5L, cache.getGeneration());
+		assertEquals(2, cache.size());
+		// the least recently used entry is evicted
+		assertNull(cache.get("SELECT * FROM a", new Object[] { 2 }));
+		assertEquals(Arrays.asList(1, 2), cache.get("SELECT * FROM a", new Object[] { 1 }));
+
+		cache.setMaxRows(3);
+		cache.put("SELECT * FROM c", new Object[0], Arrays.asList(1, 2, 3, 4), cache.getGeneration());
+		assertNull(cache.get("SELECT * FROM c", new Object[0]));
+		cache.put("SELECT * FROM c", new Object[0], Arrays.asList(1, 2), cache.getGeneration());
+		assertEquals(2, cache.getRows());
+		assertEquals(1, cache.size());
+
+		// a result read before an invalidation is not cached
+		final long generation = cache.getGeneration();
+		cache.invalidate(Arrays.asList("x"));
+		cache.put("SELECT * FROM d", new Object[0], 1L, generation);
+		assertNull(cache.get("SELECT * FROM d", new Object[0]));
+
+		cache.invalidate(Arrays.asList("C"));
+		assertNull(cache.get("SELECT * FROM c", new Object[0]));
+	}
+
+	@Test
+	public void arrayParameterKeyTest() {
+		final QueryCache cache = new QueryCache(10, 0);
+		final String sql = "SELECT * FROM tbUser WHERE id = ANY(?)";
+		cache.put(sql, new Object[] { new ArrayParameter("INTEGER", new Object[] { 1, 2, 3 }) }, Arrays.asList(1), cache.getGeneration());
+		// an IN list bound as array in a later query is a new parameter instance with the same values
+		assertEquals(Arrays.asList(1), cache.get(sql, new Object[] { new ArrayParameter("INTEGER", new Object[] { 1, 2, 3 }) }));
+		assertNull(cache.get(sql, new Object[] { new ArrayParameter("INTEGER", new Object[] { 1, 2 }) }));
+		assertNull(cache.get(sql, new Object[] { new ArrayParameter("BIGINT", new Object[] { 1, 2, 3 }) }));
+	}
+
+	@Test
+	public void tablesOfTest() {
+		assertEquals(new HashSet<>(Arrays.asList("tbuser", "tbuserrole", "tbrole")), QueryCache.tablesOf(
+				"SELECT a FROM tbUser LEFT JOIN tbUserRole ON tbUserRole.userId = tbUser.id LEFT JOIN tbRole tbUser_roles ON x = y"));
+		assertTrue(QueryCache.tablesOf("SELECT 1").isEmpty());
+	}
+}
@@ -0,0 +1,97 @@
+package com.segmeno.kodo.database.conversion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.transport.IKodoEnum;
+
+public class TypeConvertersTest {
+
+	private enum Color implements IKodoEnum {
+		RED("r"), GREEN("g");
+
+		private final String value;
+
+		Color(final String value) {
+			this.value = value;
+		}
+
+		@Override
+		public String getValue() {
+			return value;
+		}
+	}
+
+	@Test
+	public void numericTest() throws Exception {
+		assertEquals(5L, DataAccessManager.convertTo(Long.class, 5));
+		assertEquals(5, DataAccessManager.convertTo(int.class, 5L));
+		assertEquals(new BigDecimal("1.5"), DataAccessManager.convertTo(BigDecimal.class, 1.5d));
+		assertEquals(true, DataAccessManager.convertTo(Boolean.class, 1));
+		assertEquals(42L, DataAccessManager.convertTo(Long.class, "42"));
+		assertEquals("42", DataAccessManager.convertTo(String.class, 42));
+	}
+
+	@Test
+	public void enumTest() throws Exception {
+		assertSame(Color.GREEN, DataAccessManager.convertTo(Color.class, "g"));
+		assertThrows(Exception.class, () -> DataAccessManager.convertTo(Color.class, "x"));
+	}
+
+	@Test
+	public void timeTest() throws Exception {
+		final LocalDateTime ldt = LocalDateTime.of(2020, 12, 31, 13, 45, 10);
+		assertEquals(ldt, DataAccessManager.convertTo(LocalDateTime.class, Timestamp.valueOf(ldt)));
+		assertEquals(ldt.toLocalDate(), DataAccessManager.convertTo(LocalDate.class, Timestamp.valueOf(ldt)));
+		assertEquals(LocalDate.of(2020, 1, 1), DataAccessManager.convertTo(LocalDate.class, java.sql.Date.valueOf("2020-01-01")));
+		assertEquals(Timestamp.valueOf(ldt), DataAccessManager.convertTo(java.util.Date.class, ldt));
+	}
+
+	@Test
+	public void registerTest() throws Exception {
+		assertEquals("abc", DataAccessManager.convertTo(StringBuilder.class, "abc"));
+		TypeConverters.register(StringBuilder.class, String.class, value -> new StringBuilder((String) value));
+		try {
+			assertEquals("abc", DataAccessManager.convertTo(StringBuilder.class, "abc").toString());
+			assertEquals(StringBuilder.class, DataAccessManager.convertTo(StringBuilder.class, "abc").getClass());
+		} finally {
+			TypeConverters.unregister(StringBuilder.class);
+		}
+		assertEquals(String.class, DataAccessManager.convertTo(StringBuilder.class, "abc").getClass());
+	}
+
+	@Test
+	public void registerWhileResolvingTest() throws Exception {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final Thread reader = new Thread(() -> {
+			while (running.get()) {
+				TypeConverters.get(StringBuilder.class, String.class);
+			}
+		});
+		reader.start();
+		try {
+			for (int i = 0; i < 1000; i++) {
+				TypeConverters.register(StringBuilder.class, String.class, value -> new StringBuilder((String) value));
+				TypeConverters.unregister(StringBuilder.class);
+			}
+			TypeConverters.register(StringBuilder.class, String.class, value -> new StringBuilder((String) value));
+			// a converter resolved from an outdated registry must not be cached for the current one
+			assertEquals(StringBuilder.class, TypeConverters.get(StringBuilder.class, String.class).convert("abc").getClass());
+		} finally {
+			running.set(false);
+			reader.join();
+			TypeConverters.unregister(StringBuilder.class);
+		}
+		assertEquals(String.class, TypeConverters.get(StringBuilder.class, String.class).convert("abc").getClass());
+	}
+}
@@ -0,0 +1,77 @@
+package com.segmeno.kodo.database.dialect;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SqlDialectTest {
+
+	private static final List<String> COLS = Arrays.asList("id", "code", "label");
+	private static final List<String> KEY = Arrays.asList("code");
+
+	@Test
+	public void detectionTest() {
+		assertTrue(SqlDialects.forProduct("H2") instanceof H2Dialect);
+		assertTrue(SqlDialects.forProduct("PostgreSQL") instanceof PostgreSqlDialect);
+		assertTrue(SqlDialects.forProduct("MySQL") instanceof MySqlDialect);
+		assertEquals(SqlDialects.forProduct("MariaDB").getProductName(), "MariaDB");
+		assertTrue(SqlDialects.forProduct("Microsoft SQL Server") instanceof SqlServerDialect);
+		assertTrue(SqlDialects.forProduct("Oracle") instanceof OracleDialect);
+		assertTrue(SqlDialects.forProduct("Apache Derby") instanceof GenericDialect);
+	}
+
+	@Test
+	public void pagingTest() {
+		assertEquals(new H2Dialect().addPaging("SELECT * FROM t ORDER BY id ASC", 20, 10), "SELECT * FROM t ORDER BY id ASC LIMIT 10 OFFSET 20");
+		assertEquals(new SqlServerDialect().addPaging("SELECT * FROM t ORDER BY id ASC", 20, 10),
+				"SELECT * FROM t ORDER BY id ASC OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY");
+		assertEquals(new H2Dialect().firstRow("SELECT 1 FROM t WHERE a = ?"), "SELECT 1 FROM t WHERE a = ? LIMIT 1");
+		assertEquals(new SqlServerDialect().firstRow("SELECT 1 FROM t WHERE a = ?"), "SELECT TOP 1 1 FROM t WHERE a = ?");
+		assertEquals(new OracleDialect().firstRow("SELECT 1 FROM t WHERE a = ?"), "SELECT 1 FROM t WHERE a = ? FETCH FIRST 1 ROWS ONLY");
+	}
+
+	@Test
+	public void upsertTest() throws Exception {
+		assertEquals(new H2Dialect().upsert("tbTag", COLS, KEY), "MERGE INTO tbTag (id, code, label) KEY (code) VALUES (?, ?, ?)");
+		assertEquals(new PostgreSqlDialect().upsert("tbTag", COLS, KEY),
+				"INSERT INTO tbTag (id, code, label) VALUES (?, ?, ?) ON CONFLICT (code) DO UPDATE SET id = EXCLUDED.id, label = EXCLUDED.label");
+		assertEquals(new MySqlDialect().upsert("tbTag", COLS, KEY),
+				"INSERT INTO tbTag (id, code, label) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE id = VALUES(id), label = VALUES(label)");
+		assertEquals(new SqlServerDialect().upsert("tbTag", COLS, KEY),
+				"MERGE INTO tbTag target USING (VALUES (?, ?, ?)) AS source (id, code, label) ON (target.code = source.code) "
+						+ "WHEN MATCHED THEN UPDATE SET target.id = source.id, target.label = source.label "
+						+ "WHEN NOT MATCHED THEN INSERT (id, code, label) VALUES (source.id, source.code, source.label);");
+	}
+
+	@Test
+	public void multiRowInsertTest() {
+		final List<String> cols = Arrays.asList("code", "label");
+		assertEquals(new H2Dialect().multiRowInsert("tbTag", cols, 2, "id"), "INSERT INTO tbTag (code, label) VALUES (?, ?), (?, ?)");
+		assertEquals(new PostgreSqlDialect().multiRowInsert("tbTag", cols, 2, "id"),
+				"INSERT INTO tbTag (code, label) VALUES (?, ?), (?, ?) RETURNING id");
+		assertEquals(new SqlServerDialect().multiRowInsert("tbTag", cols, 2, "id"),
+				"INSERT INTO tbTag (code, label) OUTPUT INSERTED.id VALUES (?, ?), (?, ?)");
+	}
+
+	@Test
+	public void nextSequenceValueTest() throws Exception {
+		assertEquals(new H2Dialect().nextSequenceValue("seq"), "SELECT NEXT VALUE FOR seq");
+		assertEquals(new PostgreSqlDialect().nextSequenceValue("seq"), "SELECT nextval('seq')");
+		assertEquals(new OracleDialect().nextSequenceValue("seq"), "SELECT seq.NEXTVAL FROM DUAL");
+		assertEquals(new MySqlDialect("MariaDB").nextSequenceValue("seq"), "SELECT NEXT VALUE FOR seq");
+		assertThrows(Exception.class, () -> new MySqlDialect().nextSequenceValue("seq"));
+	}
+
+	@Test
+	public void explainTest() {
+		assertEquals(new H2Dialect().explain("SELECT * FROM t"), "EXPLAIN SELECT * FROM t");
+		assertEquals(new PostgreSqlDialect().explain("SELECT * FROM t"), "EXPLAIN SELECT * FROM t");
+		assertEquals(new SqlServerDialect().explain("SELECT * FROM t"), null);
+		assertEquals(new OracleDialect().explain("SELECT * FROM t"), null);
+	}
+}
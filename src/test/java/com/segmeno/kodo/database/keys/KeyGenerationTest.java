@@ -0,0 +1,168 @@
+package com.segmeno.kodo.database.keys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.database.monitoring.OperationStats;
+import com.segmeno.kodo.entity.TestEvent;
+import com.segmeno.kodo.entity.TestOrder;
+import com.segmeno.kodo.entity.TestOrderLine;
+import com.segmeno.kodo.entity.TestTicket;
+import com.segmeno.kodo.entity.TestType;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.Operator;
+
+/**
+ * the tables have no auto increment columns, so each insert fails unless the key was assigned on the client
+ */
+public class KeyGenerationTest {
+
+	private JdbcTemplate jdbc;
+	private DataAccessManager manager;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		Class.forName("org.h2.Driver");
+		final JdbcDataSource ds = new JdbcDataSource();
+		ds.setUrl("jdbc:h2:mem:keys;MODE=MYSQL;DB_CLOSE_DELAY=-1");
+		ds.setUser("sa");
+		try (Connection con = ds.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("drop all objects");
+			stmt.execute("create sequence seqOrder start with 1 increment by 1");
+			stmt.execute("create table kodo_keys (name varchar(255) primary key, next_hi bigint not null)");
+			stmt.execute("create table tbOrder (id bigint primary key, customer varchar)");
+			stmt.execute("create table tbOrderLine (id integer primary key, orderId bigint, product varchar)");
+			stmt.execute("create table tbEvent (id varchar(36) primary key, message varchar)");
+			stmt.execute("create table tbTicket (id varchar(20) primary key, subject varchar)");
+			stmt.execute("create table tbType (id integer AUTO_INCREMENT PRIMARY KEY, name varchar)");
+		}
+		jdbc = new JdbcTemplate(ds);
+		manager = new DataAccessManager(jdbc);
+	}
+
+	private static TestOrder order(final String customer, final int lines) {
+		final TestOrder order = new TestOrder();
+		order.customer = customer;
+		for (int i = 0; i < lines; i++) {
+			final TestOrderLine line = new TestOrderLine();
+			line.product = "product" + i;
+			order.lines.add(line);
+		}
+		return order;
+	}
+
+	@Test
+	public void hiLoTest() throws Exception {
+		final List<OperationStats> finished = new ArrayList<>();
+		manager.addOperationListener(finished::add);
+
+		final TestOrder first = manager.addElem(order("Tom", 12));
+		// the first block of the sequence value 1 starts at 10
+		assertEquals(10L, first.id.longValue());
+		// the lines go out in one multi row insert
+		assertEquals(2, finished.get(0).getStatementsExecuted());
+		final Set<Integer> lineIds = new HashSet<>();
+		for (final TestOrderLine line : first.lines) {
+			assertEquals(first.id, line.orderId);
+			lineIds.add(line.id);
+		}
+		// three blocks of 5 reserved in the key table
+		assertEquals(new HashSet<>(Arrays.asList(5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16)), lineIds);
+		assertEquals(4L, jdbc.queryForObject("select next_hi from kodo_keys where name = 'tbOrderLine'", Long.class).longValue());
+
+		final List<TestOrder> orders = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			orders.add(order("bulk" + i, 0));
+		}
+		manager.bulkInsertElems(orders);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(11L + i, orders.get(i).id.longValue());
+		}
+		// the first block was used up by the bulk insert
+		assertEquals(21L, manager.<TestOrder>addElem(order("Tim", 0)).id.longValue());
+		assertEquals(12L, manager.getElemCount(TestOrder.class).longValue());
+		assertEquals(12L, manager.getElemCount(TestOrderLine.class).longValue());
+
+		// a second manager reserves its own blocks
+		final DataAccessManager other = new DataAccessManager(jdbc);
+		assertEquals(30L, other.<TestOrder>addElem(order("Ted", 0)).id.longValue());
+		assertEquals(20, other.<TestOrder>addElem(order("Ted", 1)).lines.get(0).id.intValue());
+	}
+
+	@Test
+	public void hiLoAutoCommitTest() throws Exception {
+		try (Connection con = jdbc.getDataSource().getConnection()) {
+			con.setAutoCommit(false);
+			final TableHiLoIdGenerator generator = new TableHiLoIdGenerator(new SingleConnectionDataSource(con, true),
+					TableHiLoIdGenerator.DEFAULT_TABLE, "pooled", 5);
+			assertEquals(5L, ((Number) generator.nextId(new TestOrder())).longValue());
+			// the connection goes back to the pool as it was handed out
+			assertFalse(con.getAutoCommit());
+		}
+		// the reservation was committed on its own
+		assertEquals(2L, jdbc.queryForObject("select next_hi from kodo_keys where name = 'pooled'", Long.class).longValue());
+	}
+
+	@Test
+	public void uuidTest() throws Exception {
+		final TestEvent event = new TestEvent();
+		event.message = "started";
+		manager.addElem(event);
+		assertNotNull(event.id);
+		assertEquals(7, UUID.fromString(event.id).version());
+		assertEquals(2, UUID.fromString(event.id).variant());
+
+		event.message = "stopped";
+		manager.updateElem(event);
+		final List<TestEvent> events = manager.getElems(new Criteria("id", Operator.EQUALS, event.id), TestEvent.class);
+		assertEquals(1, events.size());
+		assertEquals("stopped", events.get(0).message);
+
+		UUID last = UuidV7IdGenerator.next();
+		for (int i = 0; i < 10000; i++) {
+			final UUID next = UuidV7IdGenerator.next();
+			assertTrue(next.toString().compareTo(last.toString()) > 0, next + " after " + last);
+			last = next;
+		}
+	}
+
+	@Test
+	public void customTest() throws Exception {
+		final TestTicket ticket = new TestTicket();
+		ticket.subject = "broken";
+		assertThrows(Exception.class, () -> manager.addElem(ticket));
+
+		final AtomicInteger numbers = new AtomicInteger();
+		manager.registerIdGenerator("ticketNumbers", entity -> "T-" + numbers.incrementAndGet());
+		assertEquals("T-1", manager.assignKey(ticket));
+		manager.addElem(ticket);
+		assertEquals("T-1", ticket.id);
+		assertEquals("T-2", manager.<TestTicket>addElem(new TestTicket()).id);
+
+		// keys generated by the database cannot be assigned in advance
+		assertThrows(Exception.class, () -> manager.assignKey(new TestType()));
+		final TestType type = new TestType();
+		type.name = "identity";
+		assertEquals(1, manager.<TestType>addElem(type).id.intValue());
+	}
+}
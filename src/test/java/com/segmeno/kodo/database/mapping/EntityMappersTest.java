@@ -0,0 +1,33 @@
+package com.segmeno.kodo.database.mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.segmeno.kodo.entity.TestUser;
+
+/**
+ * kodo is built and tested without the processor of kodo-apt, so all tests run on the reflective path
+ */
+public class EntityMappersTest {
+
+	@Test
+	public void reflectivePathTest() throws Exception {
+		assertNull(EntityMappers.get(TestUser.class));
+
+		final TestUser user = new TestUser();
+		user.name = "Tom";
+		user.pwHash = "pw123";
+		user.notExistingInDb = "ignored";
+		user.setPrimaryKeyValue(7);
+		assertEquals(Long.valueOf(7), user.getPrimaryKeyValue());
+		assertEquals(Arrays.asList("id", "name", "passwordHash", "createdAt", "ClearanceLevelID"), user.getColumnNames(true));
+		final Map<String, Object> map = user.toMap();
+		assertEquals(5, map.size());
+		assertEquals("pw123", map.get("passwordhash"));
+	}
+}
@@ -0,0 +1,74 @@
+package com.segmeno.kodo.database.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.database.dialect.H2Dialect;
+
+public class SlowQueryLogTest {
+
+	private static OperationStats stats(final String table) {
+		final OperationStats stats = new OperationStats(Operation.GET_RECORDS, null);
+		stats.recordExecution("SELECT * FROM " + table, new Object[0], 0, 1);
+		stats.finish(null);
+		return stats;
+	}
+
+	// a table name per index without digits, so each index has a fingerprint of its own
+	private static String table(int index) {
+		final StringBuilder sb = new StringBuilder("t");
+		do {
+			sb.append((char) ('a' + index % 26));
+			index /= 26;
+		} while (index > 0);
+		return sb.toString();
+	}
+
+	@Test
+	public void fingerprintLimitTest() throws Exception {
+		final List<String> logged = new ArrayList<>();
+		final SlowQueryLog slowQueryLog = new SlowQueryLog(0) {
+			@Override
+			protected void log(final OperationStats stats, final String plan) {
+				logged.add(stats.getSql());
+			}
+		};
+		for (int i = 0; i < SlowQueryLog.MAX_FINGERPRINTS; i++) {
+			slowQueryLog.onEnd(stats(table(i)));
+		}
+		slowQueryLog.onEnd(stats(table(0)));
+		assertEquals(SlowQueryLog.MAX_FINGERPRINTS, logged.size());
+
+		// once the fingerprints are full, new statements are still logged, each time they are slow
+		final String unknown = table(SlowQueryLog.MAX_FINGERPRINTS);
+		slowQueryLog.onEnd(stats(unknown));
+		slowQueryLog.onEnd(stats(unknown));
+		assertEquals(SlowQueryLog.MAX_FINGERPRINTS + 2, logged.size());
+		assertEquals("SELECT * FROM " + unknown, logged.get(logged.size() - 1));
+	}
+
+	@Test
+	public void explainExecutorTest() throws Exception {
+		final SlowQueryLog slowQueryLog = new SlowQueryLog(0);
+		final JdbcTemplate template = new JdbcTemplate();
+		slowQueryLog.enableExplain(template, new H2Dialect());
+		final ExecutorService own = (ExecutorService) slowQueryLog.getExplainExecutor();
+		// enabled again, the thread is kept
+		slowQueryLog.enableExplain(template, new H2Dialect());
+		assertSame(own, slowQueryLog.getExplainExecutor());
+		assertFalse(own.isShutdown());
+
+		// replaced by an executor of the caller
+		slowQueryLog.enableExplain(template, new H2Dialect(), Runnable::run);
+		assertTrue(own.isShutdown());
+	}
+}
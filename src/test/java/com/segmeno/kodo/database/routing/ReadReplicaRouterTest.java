@@ -0,0 +1,218 @@
+package com.segmeno.kodo.database.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.segmeno.kodo.database.DataAccessManager;
+import com.segmeno.kodo.database.routing.ReadReplicaRouter.WriteSession;
+import com.segmeno.kodo.entity.TestType;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.Operator;
+import com.segmeno.kodo.transport.Sort;
+
+/**
+ * uses one H2 database as primary and two as replicas. Each database contains a type named after it, so the
+ * result of a read tells where it was served from
+ */
+public class ReadReplicaRouterTest {
+
+	private static DataSource primary;
+	private static DataSource replica1;
+	private static DataSource replica2;
+	private static DataAccessManager manager;
+
+	@BeforeAll
+	public static void setup() throws Exception {
+		Class.forName("org.h2.Driver");
+		primary = createDb("primary");
+		replica1 = createDb("replica1");
+		replica2 = createDb("replica2");
+		manager = new DataAccessManager(new JdbcTemplate(primary));
+	}
+
+	private static DataSource createDb(final String name) throws Exception {
+		final JdbcDataSource ds = new JdbcDataSource();
+		ds.setUrl("jdbc:h2:mem:routing_" + name + ";MODE=MYSQL;DB_CLOSE_DELAY=-1");
+		ds.setUser("sa");
+		try (Connection con = ds.getConnection(); Statement stmt = con.createStatement()) {
+			stmt.execute("create table tbType (id integer AUTO_INCREMENT PRIMARY KEY, name varchar)");
+			stmt.execute("insert into tbType (name) values ('" + name + "')");
+		}
+		return ds;
+	}
+
+	@AfterEach
+	public void cleanup() throws Exception {
+		manager.setReadReplicaRouter(null);
+		new JdbcTemplate(primary).update("delete from tbType where name <> 'primary'");
+	}
+
+	private static String readFrom() throws Exception {
+		final List<TestType> types = manager.getElems(TestType.class);
+		assertEquals(1, types.size());
+		return types.get(0).name;
+	}
+
+	@Test
+	public void roundRobinTest() throws Exception {
+		assertEquals("primary", readFrom());
+		assertNull(manager.beginWriteSession());
+
+		manager.setReadReplicaRouter(new ReadReplicaRouter(Arrays.asList(replica1, replica2), LoadBalancing.ROUND_ROBIN));
+		final String first = readFrom();
+		final String second = readFrom();
+		assertTrue(first.startsWith("replica") && second.startsWith("replica"));
+		assertTrue(!first.equals(second));
+		assertEquals(first, readFrom());
+
+		// all reads are routed
+		manager.setReadReplicaRouter(new ReadReplicaRouter(Arrays.asList(replica1), LoadBalancing.ROUND_ROBIN));
+		assertEquals(1L, manager.getElemCount(new Criteria("name", Operator.EQUALS, "replica1"), TestType.class));
+		final List<Map<String, Object>> records = manager.getRecords("tbType", null, 10, 1, new Sort());
+		assertEquals("replica1", records.get(0).get("NAME"));
+	}
+
+	@Test
+	public void writesStayOnPrimaryTest() throws Exception {
+		manager.setReadReplicaRouter(new ReadReplicaRouter(Arrays.asList(replica1), LoadBalancing.ROUND_ROBIN));
+		final TestType type = new TestType();
+		type.name = "written";
+		manager.addElem(type);
+		assertEquals(0L, manager.getElemCount(new Criteria("name", Operator.EQUALS, "written"), TestType.class));
+		assertEquals(Long.valueOf(1L), new JdbcTemplate(primary).queryForObject("select count(*) from tbType where name = 'written'", Long.class));
+
+		try (WriteSession session = manager.beginWriteSession()) {
+			assertEquals(1L, manager.getElemCount(new Criteria("name", Operator.EQUALS, "written"), TestType.class));
+			try (WriteSession nested = manager.beginWriteSession()) {
+				assertEquals(2, manager.getElems(TestType.class).size());
+			}
+			assertEquals(2, manager.getElems(TestType.class).size());
+		}
+		assertEquals("replica1", readFrom());
+	}
+
+	@Test
+	public void transactionTest() throws Exception {
+		manager.setReadReplicaRouter(new ReadReplicaRouter(Arrays.asList(replica1), LoadBalancing.ROUND_ROBIN));
+		final TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(primary));
+		final Long count = tx.execute(status -> {
+			try {
+				final TestType type = new TestType();
+				type.name = "uncommitted";
+				manager.addElem(type);
+				// the uncommitted row is only visible on the primary
+				final Long written = manager.getElemCount(new Criteria("name", Operator.EQUALS, "uncommitted"), TestType.class);
+				status.setRollbackOnly();
+				return written;
+			} catch (final Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		assertEquals(1L, count.longValue());
+		assertEquals("replica1", readFrom());
+	}
+
+	@Test
+	public void readYourWritesTest() throws Exception {
+		final ReadReplicaRouter router = new ReadReplicaRouter(Arrays.asList(replica1), LoadBalancing.ROUND_ROBIN);
+		router.setReadYourWritesWindow(200);
+		manager.setReadReplicaRouter(router);
+		assertEquals("replica1", readFrom());
+
+		final TestType type = new TestType();
+		type.name = "written";
+		manager.addElem(type);
+		assertEquals(1L, manager.getElemCount(new Criteria("name", Operator.EQUALS, "written"), TestType.class));
+
+		// the window belongs to the writing thread
+		final ExecutorService other = Executors.newSingleThreadExecutor();
+		try {
+			assertEquals(0L, other.submit(() -> manager.getElemCount(new Criteria("name", Operator.EQUALS, "written"), TestType.class)).get()
+					.longValue());
+		} finally {
+			other.shutdownNow();
+		}
+
+		Thread.sleep(300);
+		assertEquals("replica1", readFrom());
+	}
+
+	@Test
+	public void leastOutstandingTest() throws Exception {
+		final ReadReplicaRouter router = new ReadReplicaRouter(Arrays.asList(replica1, replica2), LoadBalancing.LEAST_OUTSTANDING);
+		final JdbcTemplate primaryTemplate = new JdbcTemplate(primary);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			// keep one replica busy
+			final Future<String> busy = pool.submit(() -> router.read(primaryTemplate, t -> {
+				started.countDown();
+				release.await(1, TimeUnit.MINUTES);
+				return t.queryForObject("select name from tbType", String.class);
+			}));
+			assertTrue(started.await(1, TimeUnit.MINUTES));
+			final String busyReplica = busy.isDone() ? null : router.getOutstandingReads(0) == 1 ? "replica1" : "replica2";
+			for (int i = 0; i < 4; i++) {
+				final String name = router.read(primaryTemplate, t -> t.queryForObject("select name from tbType", String.class));
+				assertTrue(!name.equals(busyReplica), name);
+			}
+			release.countDown();
+			assertEquals(busyReplica, busy.get(1, TimeUnit.MINUTES));
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(0, router.getOutstandingReads(0));
+		assertEquals(0, router.getOutstandingReads(1));
+	}
+
+	@Test
+	public void readOnlyConnectionTest() throws Exception {
+		// H2 ignores the read-only hint, so the flag is recorded by a proxy
+		final boolean[] readOnly = new boolean[1];
+		final DataSource recording = new DelegatingDataSource(replica1) {
+			@Override
+			public Connection getConnection() throws SQLException {
+				final Connection con = super.getConnection();
+				return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					if ("setReadOnly".equals(method.getName())) {
+						readOnly[0] = (Boolean) args[0];
+					} else if ("isReadOnly".equals(method.getName())) {
+						return readOnly[0];
+					}
+					return method.invoke(con, args);
+				});
+			}
+		};
+		final ReadReplicaRouter router = new ReadReplicaRouter(Arrays.asList(recording), LoadBalancing.ROUND_ROBIN);
+		assertEquals("replica1", router.read(null, t -> t.queryForObject("select name from tbType", String.class)));
+		assertTrue(readOnly[0]);
+		assertThrows(IllegalArgumentException.class, () -> new ReadReplicaRouter(Arrays.asList(), LoadBalancing.ROUND_ROBIN));
+	}
+}
@@ -0,0 +1,201 @@
+package com.segmeno.kodo.database.sharding;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.segmeno.kodo.entity.TestAddress;
+import com.segmeno.kodo.transport.Criteria;
+import com.segmeno.kodo.transport.CriteriaGroup;
+import com.segmeno.kodo.transport.Operator;
+import com.segmeno.kodo.transport.Sort;
+import com.segmeno.kodo.transport.Sort.SortDirection;
+
+/**
+ * spreads the addresses over three H2 databases by their user id
+ */
+public class ShardedDataAccessManagerTest {
+
+	private static final int SHARDS = 3;
+	private static final int USERS = 10;
+	private static final int ADDRESSES_PER_USER = 3;
+
+	private ShardedDataAccessManager sharded;
+	private List<JdbcTemplate> templates;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		Class.forName("org.h2.Driver");
+		templates = new ArrayList<>();
+		for (int i = 0; i < SHARDS; i++) {
+			final JdbcDataSource ds = new JdbcDataSource();
+			ds.setUrl("jdbc:h2:mem:shard" + i + ";MODE=MYSQL;DB_CLOSE_DELAY=-1");
+			ds.setUser("sa");
+			try (Connection con = ds.getConnection(); Statement stmt = con.createStatement()) {
+				stmt.execute("drop table if exists tbAddress");
+				stmt.execute("create table tbAddress (id integer AUTO_INCREMENT PRIMARY KEY, userId integer, street varchar, postalCode varchar, createdAt timestamp)");
+			}
+			templates.add(new JdbcTemplate(ds));
+		}
+		sharded = new ShardedDataAccessManager(templates, "userId", ShardKeyFunction.HASH);
+
+		final List<TestAddress> addresses = new ArrayList<>();
+		for (int user = 1; user <= USERS; user++) {
+			for (int a = 0; a < ADDRESSES_PER_USER; a++) {
+				addresses.add(address(user, String.format("street %02d-%d", (user * 7) % USERS, a)));
+			}
+		}
+		sharded.bulkInsertElems(addresses);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		sharded.close();
+	}
+
+	private static TestAddress address(final int userId, final String street) {
+		final TestAddress addr = new TestAddress();
+		addr.userId = userId;
+		addr.street = street;
+		addr.postalCode = String.valueOf(userId);
+		return addr;
+	}
+
+	@Test
+	public void writeRoutingTest() throws Exception {
+		long total = 0;
+		for (int i = 0; i < SHARDS; i++) {
+			final List<Integer> userIds = templates.get(i).queryForList("select userId from tbAddress", Integer.class);
+			for (final Integer userId : userIds) {
+				assertEquals(i, ShardKeyFunction.HASH.shardOf(userId, SHARDS));
+			}
+			total += userIds.size();
+		}
+		assertEquals(USERS * ADDRESSES_PER_USER, total);
+
+		final TestAddress added = sharded.addElem(address(4, "new street"));
+		assertEquals(1L, sharded.getShardFor(4).getElemCount(new Criteria("street", Operator.EQUALS, "new street"), TestAddress.class));
+		added.street = "changed street";
+		sharded.updateElem(added);
+		assertEquals(1L, sharded.getElemCount(new CriteriaGroup(Operator.AND, new Criteria("street", Operator.EQUALS, "changed street")), TestAddress.class));
+
+		assertThrows(Exception.class, () -> sharded.addElem(new TestAddress()));
+	}
+
+	@Test
+	public void mergedReadTest() throws Exception {
+		final List<TestAddress> all = sharded.getElems(null, TestAddress.class, new Sort("tbAddress.street", SortDirection.ASC), -1);
+		assertEquals(USERS * ADDRESSES_PER_USER, all.size());
+		final List<String> streets = all.stream().map(a -> a.street).collect(Collectors.toList());
+		assertEquals(streets.stream().sorted().collect(Collectors.toList()), streets);
+
+		final List<TestAddress> top = sharded.getElems(null, TestAddress.class, new Sort("tbAddress.street", SortDirection.DESC), -1, 5);
+		assertEquals(5, top.size());
+		for (int i = 0; i < 5; i++) {
+			assertEquals(streets.get(streets.size() - 1 - i), top.get(i).street);
+		}
+
+		// without child elements, each shard reads the max results only
+		final List<Long> rowsFetched = new ArrayList<>();
+		for (int i = 0; i < SHARDS; i++) {
+			sharded.getShard(i).addOperationListener(stats -> {
+				synchronized (rowsFetched) {
+					rowsFetched.add(stats.getRowsFetched());
+				}
+			});
+		}
+		final List<TestAddress> topOnly = sharded.getElems(null, TestAddress.class, new Sort("tbAddress.street", SortDirection.DESC), 0, 5);
+		assertEquals(top.stream().map(a -> a.street).collect(Collectors.toList()), topOnly.stream().map(a -> a.street).collect(Collectors.toList()));
+		assertEquals(SHARDS, rowsFetched.size());
+		// the cut-off row tells the shard the result is truncated
+		assertTrue(rowsFetched.stream().allMatch(rows -> rows <= 6));
+
+		// without a sort the results are concatenated
+		assertEquals(USERS * ADDRESSES_PER_USER, sharded.<TestAddress>getElems(null, TestAddress.class).size());
+	}
+
+	@Test
+	public void pagingTest() throws Exception {
+		final Sort sort = new Sort("street", SortDirection.DESC);
+		final List<String> expected = new ArrayList<>();
+		for (final JdbcTemplate templ : templates) {
+			expected.addAll(templ.queryForList("select street from tbAddress", String.class));
+		}
+		expected.sort(Comparator.reverseOrder());
+
+		final List<String> pages = new ArrayList<>();
+		for (int page = 1; page <= 5; page++) {
+			final List<Map<String, Object>> records = sharded.getRecords("tbAddress", null, 7, page, sort);
+			assertEquals(page < 5 ? 7 : 2, records.size());
+			pages.addAll(records.stream().map(r -> (String) r.get("street")).collect(Collectors.toList()));
+		}
+		assertEquals(expected, pages);
+	}
+
+	@Test
+	public void keyRoutingAndCountTest() throws Exception {
+		assertEquals(Long.valueOf(USERS * ADDRESSES_PER_USER), sharded.getElemCount(TestAddress.class));
+
+		// a single shard is queried for a key
+		final CriteriaGroup byUser = new CriteriaGroup(Operator.AND, new Criteria("userId", Operator.EQUALS, 3));
+		assertEquals(Long.valueOf(ADDRESSES_PER_USER), sharded.getElemCount(byUser, TestAddress.class));
+		final List<TestAddress> addresses = sharded.getElems(byUser, TestAddress.class);
+		assertEquals(ADDRESSES_PER_USER, addresses.size());
+		assertTrue(addresses.stream().allMatch(a -> a.userId == 3));
+
+		final CriteriaGroup byUsers = new CriteriaGroup(Operator.AND, new Criteria("userId", Operator.IN_SET, Arrays.asList(1, 2, 5)));
+		assertEquals(Long.valueOf(3 * ADDRESSES_PER_USER), sharded.getElemCount(byUsers, TestAddress.class));
+
+		sharded.deleteElems(byUser, TestAddress.class);
+		assertEquals(Long.valueOf(0L), sharded.getElemCount(byUser, TestAddress.class));
+		// scattered delete
+		sharded.deleteElems(new CriteriaGroup(Operator.AND, new Criteria("postalCode", Operator.IN_SET, Arrays.asList("1", "2"))),
+				TestAddress.class);
+		assertEquals(Long.valueOf((USERS - 3) * ADDRESSES_PER_USER), sharded.getElemCount(TestAddress.class));
+	}
+
+	@Test
+	public void executorLifecycleTest() throws Exception {
+		// the default executor is shut down when it is replaced
+		final ExecutorService defaultExecutor = sharded.getExecutor();
+		final ExecutorService own = Executors.newSingleThreadExecutor();
+		try {
+			sharded.setExecutor(own);
+			assertTrue(defaultExecutor.isShutdown());
+			assertEquals(Long.valueOf(USERS * ADDRESSES_PER_USER), sharded.getElemCount(TestAddress.class));
+			// an executor of the caller is left running
+			sharded.close();
+			assertFalse(own.isShutdown());
+		} finally {
+			own.shutdown();
+		}
+
+		try (ShardedDataAccessManager other = new ShardedDataAccessManager(templates, "userId", ShardKeyFunction.HASH)) {
+			assertEquals(Long.valueOf(USERS * ADDRESSES_PER_USER), other.getElemCount(TestAddress.class));
+			final ExecutorService executor = other.getExecutor();
+			other.close();
+			assertTrue(executor.isShutdown());
+			// a new executor is created after close
+			assertEquals(Long.valueOf(USERS * ADDRESSES_PER_USER), other.getElemCount(TestAddress.class));
+			assertFalse(other.getExecutor().isShutdown());
+		}
+	}
+}
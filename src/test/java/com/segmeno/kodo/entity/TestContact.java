@@ -0,0 +1,26 @@
+package com.segmeno.kodo.entity;
+
+import com.segmeno.kodo.annotation.CaseMatching;
+import com.segmeno.kodo.annotation.Column;
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class TestContact extends DatabaseEntity {
+
+	@PrimaryKey
+	public Integer id;
+
+	@Column(columnName = "Name", caseMatching = CaseMatching.COLUMN)
+	public String name;
+
+	@Column(caseMatching = CaseMatching.LOWER_INDEX)
+	public String email;
+
+	public String city;
+
+	@Override
+	public String getTableName() {
+		return "tbContact";
+	}
+
+}
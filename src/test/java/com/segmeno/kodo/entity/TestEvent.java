@@ -0,0 +1,19 @@
+package com.segmeno.kodo.entity;
+
+import com.segmeno.kodo.annotation.KeyGeneration;
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class TestEvent extends DatabaseEntity {
+
+	@PrimaryKey(generation = KeyGeneration.UUID_V7)
+	public String id;
+	
+	public String message;
+	
+	@Override
+	public String getTableName() {
+		return "tbEvent";
+	}
+
+}
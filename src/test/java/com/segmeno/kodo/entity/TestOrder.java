@@ -0,0 +1,26 @@
+package com.segmeno.kodo.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.segmeno.kodo.annotation.KeyGeneration;
+import com.segmeno.kodo.annotation.MappingRelation;
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class TestOrder extends DatabaseEntity {
+
+	@PrimaryKey(generation = KeyGeneration.SEQUENCE_HILO, generator = "seqOrder", allocationSize = 10)
+	public Long id;
+	
+	public String customer;
+	
+	@MappingRelation(masterColumnName="ID", joinedColumnName="OrderID")
+	public List<TestOrderLine> lines = new ArrayList<TestOrderLine>();
+	
+	@Override
+	public String getTableName() {
+		return "tbOrder";
+	}
+
+}
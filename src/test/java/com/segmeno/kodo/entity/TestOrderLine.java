@@ -0,0 +1,21 @@
+package com.segmeno.kodo.entity;
+
+import com.segmeno.kodo.annotation.KeyGeneration;
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class TestOrderLine extends DatabaseEntity {
+
+	@PrimaryKey(generation = KeyGeneration.TABLE_HILO, allocationSize = 5)
+	public Integer id;
+	
+	public Long orderId;
+	
+	public String product;
+	
+	@Override
+	public String getTableName() {
+		return "tbOrderLine";
+	}
+
+}
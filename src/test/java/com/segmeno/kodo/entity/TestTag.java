@@ -0,0 +1,22 @@
+package com.segmeno.kodo.entity;
+
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.annotation.UniqueKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class TestTag extends DatabaseEntity {
+
+	@PrimaryKey
+	public Integer id;
+	
+	@UniqueKey
+	public String code;
+	
+	public String label;
+	
+	@Override
+	public String getTableName() {
+		return "tbTag";
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.segmeno.kodo.entity;
+
+import com.segmeno.kodo.annotation.KeyGeneration;
+import com.segmeno.kodo.annotation.PrimaryKey;
+import com.segmeno.kodo.database.DatabaseEntity;
+
+public class TestTicket extends DatabaseEntity {
+
+	@PrimaryKey(generation = KeyGeneration.CUSTOM, generator = "ticketNumbers")
+	public String id;
+	
+	public String subject;
+	
+	@Override
+	public String getTableName() {
+		return "tbTicket";
+	}
+
+}